@@ -0,0 +1,87 @@
+package com.axion.ingestion.adapter;
+
+import com.axion.ingestion.exception.InvalidPayloadException;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+
+import java.io.IOException;
+
+/**
+ * Base for adapters that read a reading token by token into
+ * {@link CanonicalTelemetryEnvelope} without building a {@code JsonNode} tree.
+ * Rejections use shared, stackless {@link InvalidPayloadException}s.
+ */
+public abstract class AbstractStreamingTelemetryAdapter implements TelemetryAdapter {
+
+    private static final JsonFactory JSON = JsonFactory.builder()
+            .enable(StreamReadFeature.USE_FAST_DOUBLE_PARSER)
+            .build();
+
+    protected static final InvalidPayloadException MALFORMED =
+            InvalidPayloadException.withoutStackTrace("Malformed or invalid JSON payload");
+    protected static final InvalidPayloadException INVALID_VEHICLE_ID =
+            InvalidPayloadException.withoutStackTrace("vehicle_id must be a string");
+    protected static final InvalidPayloadException INVALID_TIMESTAMP =
+            InvalidPayloadException.withoutStackTrace("timestamp must be an ISO-8601 instant");
+    protected static final InvalidPayloadException INVALID_TELEMETRY =
+            InvalidPayloadException.withoutStackTrace("telemetry values must be numeric");
+
+    @Override
+    public CanonicalTelemetryEnvelope adapt(String rawPayload) {
+        try (JsonParser parser = JSON.createParser(rawPayload)) {
+            return adaptDocument(parser);
+        } catch (IOException e) {
+            throw MALFORMED;
+        }
+    }
+
+    @Override
+    public CanonicalTelemetryEnvelope adapt(byte[] rawPayload, int offset, int length) {
+        try (JsonParser parser = JSON.createParser(rawPayload, offset, length)) {
+            return adaptDocument(parser);
+        } catch (IOException e) {
+            throw MALFORMED;
+        }
+    }
+
+    public CanonicalTelemetryEnvelope adapt(byte[] rawPayload) {
+        return adapt(rawPayload, 0, rawPayload.length);
+    }
+
+    /**
+     * Opens a parser with the same settings the adapters read with, for
+     * callers that stream several readings through {@link #adapt(JsonParser)}.
+     */
+    public JsonParser createParser(byte[] content) throws IOException {
+        return JSON.createParser(content);
+    }
+
+    private CanonicalTelemetryEnvelope adaptDocument(JsonParser parser) throws IOException {
+        parser.nextToken();
+        CanonicalTelemetryEnvelope envelope = adapt(parser);
+        if (parser.nextToken() != null) {
+            throw MALFORMED;
+        }
+        return envelope;
+    }
+
+    /**
+     * Adapts the object the parser is positioned on and leaves the parser on
+     * its closing {@code END_OBJECT}, even when the object is rejected, so a
+     * caller streaming an array of readings can carry on with the next one.
+     * Only JSON syntax errors, which cannot be recovered from, escape as
+     * {@link IOException}.
+     */
+    public abstract CanonicalTelemetryEnvelope adapt(JsonParser parser) throws IOException;
+
+    protected static Double number(JsonParser parser, JsonToken token) throws IOException {
+        return token.isNumeric() ? parser.getDoubleValue() : null;
+    }
+
+    protected static InvalidPayloadException first(InvalidPayloadException current, InvalidPayloadException next) {
+        return current != null ? current : next;
+    }
+}
@@ -0,0 +1,156 @@
+package com.axion.ingestion.adapter;
+
+import java.time.Instant;
+
+/**
+ * Parses the ISO-8601 instants vehicles send, e.g. {@code 2026-01-25T18:32:45Z}
+ * or {@code 2026-01-25T18:32:45.123456+05:30}, straight from a character
+ * buffer. Unlike {@link Instant#parse} it builds no intermediate objects and
+ * reports malformed input by returning {@code null} rather than throwing.
+ */
+final class IsoInstantParser {
+
+    private static final long DAYS_0000_TO_1970 = 719_528L;
+
+    // yyyy-MM-ddTHH:mm:ssZ
+    private static final int MIN_LENGTH = 20;
+
+    private IsoInstantParser() {
+    }
+
+    static Instant parse(CharSequence text) {
+        char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = text.charAt(i);
+        }
+        return parse(chars, 0, chars.length);
+    }
+
+    static Instant parse(char[] c, int off, int len) {
+        if (len < MIN_LENGTH) {
+            return null;
+        }
+        int end = off + len;
+
+        int year = digits(c, off, 4);
+        int month = digits(c, off + 5, 2);
+        int day = digits(c, off + 8, 2);
+        int hour = digits(c, off + 11, 2);
+        int minute = digits(c, off + 14, 2);
+        int second = digits(c, off + 17, 2);
+
+        if (year < 0 || c[off + 4] != '-'
+                || month < 1 || month > 12 || c[off + 7] != '-'
+                || day < 1 || day > lengthOfMonth(year, month)
+                || (c[off + 10] != 'T' && c[off + 10] != 't')
+                || hour < 0 || hour > 23 || c[off + 13] != ':'
+                || minute < 0 || minute > 59 || c[off + 16] != ':'
+                || second < 0 || second > 59) {
+            return null;
+        }
+
+        int pos = off + 19;
+        int nanos = 0;
+        if (c[pos] == '.') {
+            int start = ++pos;
+            while (pos < end && c[pos] >= '0' && c[pos] <= '9') {
+                if (pos - start == 9) {
+                    return null;
+                }
+                nanos = nanos * 10 + (c[pos++] - '0');
+            }
+            int fractionDigits = pos - start;
+            if (fractionDigits == 0) {
+                return null;
+            }
+            for (int i = fractionDigits; i < 9; i++) {
+                nanos *= 10;
+            }
+        }
+
+        if (pos >= end) {
+            return null;
+        }
+
+        int offsetSeconds;
+        char zone = c[pos];
+        if (zone == 'Z' || zone == 'z') {
+            offsetSeconds = 0;
+            pos++;
+        } else if (zone == '+' || zone == '-') {
+            // +HH, +HHmm or +HH:mm
+            if (end - pos < 3) {
+                return null;
+            }
+            int offsetHours = digits(c, pos + 1, 2);
+            int offsetMinutes = 0;
+            pos += 3;
+            if (pos < end) {
+                if (c[pos] == ':') {
+                    pos++;
+                }
+                if (end - pos < 2) {
+                    return null;
+                }
+                offsetMinutes = digits(c, pos, 2);
+                pos += 2;
+            }
+            if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59) {
+                return null;
+            }
+            offsetSeconds = offsetHours * 3600 + offsetMinutes * 60;
+            if (zone == '-') {
+                offsetSeconds = -offsetSeconds;
+            }
+        } else {
+            return null;
+        }
+
+        if (pos != end) {
+            return null;
+        }
+
+        long epochSecond = epochDay(year, month, day) * 86_400L
+                + hour * 3600L + minute * 60L + second - offsetSeconds;
+        return Instant.ofEpochSecond(epochSecond, nanos);
+    }
+
+    /** Returns the value of {@code count} ASCII digits, or -1 if any is not a digit. */
+    private static int digits(char[] c, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = c[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> isLeapYear(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    // Same arithmetic as LocalDate.toEpochDay, restricted to years 0000-9999
+    private static long epochDay(int year, int month, int day) {
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+}
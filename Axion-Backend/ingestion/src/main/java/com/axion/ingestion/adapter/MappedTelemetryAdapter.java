@@ -0,0 +1,241 @@
+package com.axion.ingestion.adapter;
+
+import com.axion.ingestion.adapter.VendorMappingSpec.FieldSpec;
+import com.axion.ingestion.adapter.VendorMappingSpec.TimestampFormat;
+import com.axion.ingestion.exception.InvalidPayloadException;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.model.ConnectionMetadata;
+import com.axion.ingestion.model.TelemetryPayload;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Adapter for one vendor format, driven by a {@link VendorMappingSpec}. The
+ * spec is compiled once into a tree of source field names whose leaves are
+ * direct setters with their unit conversion, so reading a message is a single
+ * pass over the tokens with one map lookup per field and no path building.
+ */
+public class MappedTelemetryAdapter extends AbstractStreamingTelemetryAdapter {
+
+    private static final Map<String, String> CANONICAL_PATHS = new LinkedHashMap<>();
+    private static final Map<String, BiConsumer<TelemetryPayload, Double>> METRIC_SETTERS = new HashMap<>();
+
+    static {
+        CANONICAL_PATHS.put("vehicle_id", "vehicle_id");
+        CANONICAL_PATHS.put("timestamp", "timestamp");
+        CANONICAL_PATHS.put("battery_soc_pct", "telemetry.battery_soc_pct");
+        CANONICAL_PATHS.put("speed_kmph", "telemetry.speed_kmph");
+        CANONICAL_PATHS.put("battery_temp_c", "telemetry.battery_temp_c");
+        CANONICAL_PATHS.put("motor_temp_c", "telemetry.motor_temp_c");
+        CANONICAL_PATHS.put("ambient_temp_c", "telemetry.ambient_temp_c");
+        CANONICAL_PATHS.put("odometer_km", "telemetry.odometer_km");
+        CANONICAL_PATHS.put("sequence_number", "connection.sequence_number");
+
+        METRIC_SETTERS.put("battery_soc_pct", TelemetryPayload::setBatterySocPct);
+        METRIC_SETTERS.put("speed_kmph", TelemetryPayload::setSpeedKmph);
+        METRIC_SETTERS.put("battery_temp_c", TelemetryPayload::setBatteryTempC);
+        METRIC_SETTERS.put("motor_temp_c", TelemetryPayload::setMotorTempC);
+        METRIC_SETTERS.put("ambient_temp_c", TelemetryPayload::setAmbientTempC);
+        METRIC_SETTERS.put("odometer_km", TelemetryPayload::setOdometerKm);
+    }
+
+    private final String vendor;
+    private final Node root;
+
+    public MappedTelemetryAdapter(VendorMappingSpec spec) {
+        if (spec.getVendor() == null || spec.getVendor().isBlank()) {
+            throw new IllegalArgumentException("Vendor mapping without a vendor name");
+        }
+        this.vendor = spec.getVendor();
+        this.root = compile(spec);
+    }
+
+    public String getVendor() {
+        return vendor;
+    }
+
+    @Override
+    public CanonicalTelemetryEnvelope adapt(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            throw MALFORMED;
+        }
+
+        CanonicalTelemetryEnvelope envelope = new CanonicalTelemetryEnvelope();
+        envelope.setSchemaVersion("1.0");
+        envelope.setVendor(vendor);
+        TelemetryPayload telemetry = new TelemetryPayload();
+        ConnectionMetadata connection = new ConnectionMetadata();
+        connection.setProtocol("REST");
+        envelope.setConnection(connection);
+
+        InvalidPayloadException rejection = readObject(parser, root, envelope, telemetry);
+        if (rejection != null) {
+            throw rejection;
+        }
+
+        envelope.setTelemetry(telemetry);
+        envelope.setIngestionTs(Instant.now());
+
+        return envelope;
+    }
+
+    private InvalidPayloadException readObject(JsonParser parser, Node node,
+            CanonicalTelemetryEnvelope envelope, TelemetryPayload telemetry) throws IOException {
+        InvalidPayloadException rejection = null;
+
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            Node child = node.children.get(field);
+            if (child == null) {
+                parser.skipChildren();
+            } else if (child.binding != null) {
+                rejection = first(rejection, child.binding.apply(parser, token, envelope, telemetry));
+            } else if (token == JsonToken.START_OBJECT) {
+                rejection = first(rejection, readObject(parser, child, envelope, telemetry));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return rejection;
+    }
+
+    private static Node compile(VendorMappingSpec spec) {
+        for (String target : spec.getFields().keySet()) {
+            if (!CANONICAL_PATHS.containsKey(target)) {
+                throw new IllegalArgumentException(
+                        "Unknown canonical field '" + target + "' in mapping for vendor " + spec.getVendor());
+            }
+        }
+
+        Node root = new Node();
+        for (Map.Entry<String, String> canonical : CANONICAL_PATHS.entrySet()) {
+            String target = canonical.getKey();
+            FieldSpec field = spec.getFields().get(target);
+            String path = field != null && field.getPath() != null ? field.getPath() : canonical.getValue();
+
+            Binding binding = switch (target) {
+                case "vehicle_id" -> new Binding(Binding.Kind.VEHICLE_ID, null, 1.0, 0.0, null);
+                case "timestamp" -> new Binding(Binding.Kind.TIMESTAMP, null, 1.0, 0.0,
+                        field != null ? field.getFormat() : TimestampFormat.ISO_8601);
+                case "sequence_number" -> new Binding(Binding.Kind.SEQUENCE_NUMBER, null, 1.0, 0.0, null);
+                default -> new Binding(Binding.Kind.METRIC, METRIC_SETTERS.get(target),
+                        field != null ? field.getScale() : 1.0,
+                        field != null ? field.getOffset() : 0.0, null);
+            };
+
+            Node node = root;
+            for (String name : path.split("\\.")) {
+                if (node.binding != null) {
+                    throw conflict(spec, path);
+                }
+                node = node.children.computeIfAbsent(name, n -> new Node());
+            }
+            if (node.binding != null || !node.children.isEmpty()) {
+                throw conflict(spec, path);
+            }
+            node.binding = binding;
+        }
+        return root;
+    }
+
+    private static IllegalArgumentException conflict(VendorMappingSpec spec, String path) {
+        return new IllegalArgumentException(
+                "Path '" + path + "' is mapped more than once in mapping for vendor " + spec.getVendor());
+    }
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        Binding binding;
+    }
+
+    private record Binding(Kind kind, BiConsumer<TelemetryPayload, Double> setter,
+            double scale, double offset, TimestampFormat format) {
+
+        enum Kind {
+            VEHICLE_ID,
+            TIMESTAMP,
+            SEQUENCE_NUMBER,
+            METRIC
+        }
+
+        InvalidPayloadException apply(JsonParser parser, JsonToken token,
+                CanonicalTelemetryEnvelope envelope, TelemetryPayload telemetry) throws IOException {
+            if (token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            switch (kind) {
+                case VEHICLE_ID -> {
+                    if (token == JsonToken.VALUE_STRING || token == JsonToken.VALUE_NUMBER_INT) {
+                        envelope.setVehicleId(parser.getText());
+                        return null;
+                    }
+                    parser.skipChildren();
+                    return INVALID_VEHICLE_ID;
+                }
+                case TIMESTAMP -> {
+                    Instant timestamp;
+                    try {
+                        timestamp = timestamp(parser, token);
+                    } catch (DateTimeException | ArithmeticException e) {
+                        // Epoch values past the range of Instant
+                        timestamp = null;
+                    }
+                    if (timestamp != null) {
+                        envelope.setTimestamp(timestamp);
+                        return null;
+                    }
+                    parser.skipChildren();
+                    return INVALID_TIMESTAMP;
+                }
+                case SEQUENCE_NUMBER -> {
+                    // Advisory, a value of the wrong type is dropped rather than rejecting the reading
+                    if (token == JsonToken.VALUE_NUMBER_INT) {
+                        envelope.getConnection().setSequenceNumber(parser.getLongValue());
+                    }
+                    parser.skipChildren();
+                    return null;
+                }
+                default -> {
+                    if (token.isNumeric()) {
+                        setter.accept(telemetry, parser.getDoubleValue() * scale + offset);
+                        return null;
+                    }
+                    parser.skipChildren();
+                    return INVALID_TELEMETRY;
+                }
+            }
+        }
+
+        private Instant timestamp(JsonParser parser, JsonToken token) throws IOException {
+            return switch (format) {
+                case ISO_8601 -> token == JsonToken.VALUE_STRING
+                        ? IsoInstantParser.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength())
+                        : null;
+                case EPOCH_MILLIS -> token == JsonToken.VALUE_NUMBER_INT
+                        ? Instant.ofEpochMilli(parser.getLongValue())
+                        : null;
+                case EPOCH_SECONDS -> {
+                    if (token == JsonToken.VALUE_NUMBER_INT) {
+                        yield Instant.ofEpochSecond(parser.getLongValue());
+                    }
+                    if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+                        double seconds = parser.getDoubleValue();
+                        long whole = (long) Math.floor(seconds);
+                        yield Instant.ofEpochSecond(whole, Math.round((seconds - whole) * 1_000_000_000L));
+                    }
+                    yield null;
+                }
+            };
+        }
+    }
+}
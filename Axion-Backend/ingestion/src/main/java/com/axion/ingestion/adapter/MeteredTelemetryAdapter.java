@@ -0,0 +1,47 @@
+package com.axion.ingestion.adapter;
+
+import com.axion.ingestion.exception.InvalidPayloadException;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.fasterxml.jackson.core.JsonParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+
+/**
+ * Counts the readings an adapter accepts and rejects, tagged by vendor, as
+ * {@code axion.ingestion.adapter.messages}.
+ */
+public class MeteredTelemetryAdapter extends AbstractStreamingTelemetryAdapter {
+
+    private final AbstractStreamingTelemetryAdapter delegate;
+    private final Counter accepted;
+    private final Counter rejected;
+
+    public MeteredTelemetryAdapter(AbstractStreamingTelemetryAdapter delegate, String vendor,
+            MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.accepted = counter(meterRegistry, vendor, "accepted");
+        this.rejected = counter(meterRegistry, vendor, "rejected");
+    }
+
+    @Override
+    public CanonicalTelemetryEnvelope adapt(JsonParser parser) throws IOException {
+        try {
+            CanonicalTelemetryEnvelope envelope = delegate.adapt(parser);
+            accepted.increment();
+            return envelope;
+        } catch (InvalidPayloadException | IOException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String vendor, String outcome) {
+        return Counter.builder("axion.ingestion.adapter.messages")
+                .description("Telemetry readings processed by a vendor adapter")
+                .tag("vendor", vendor)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,149 @@
+package com.axion.ingestion.adapter;
+
+import com.axion.ingestion.exception.InvalidPayloadException;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.model.ConnectionMetadata;
+import com.axion.ingestion.model.TelemetryPayload;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Reads the canonical telemetry format, the one the simulator and any vendor
+ * without a registered mapping send.
+ */
+public class StreamingTelemetryAdapter extends AbstractStreamingTelemetryAdapter {
+
+    @Override
+    public CanonicalTelemetryEnvelope adapt(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            throw MALFORMED;
+        }
+
+        CanonicalTelemetryEnvelope envelope = new CanonicalTelemetryEnvelope();
+        envelope.setSchemaVersion("1.0");
+        envelope.setVendor("UNKNOWN");
+        ConnectionMetadata connection = new ConnectionMetadata();
+        connection.setProtocol("REST");
+        InvalidPayloadException rejection = null;
+
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "vehicle_id" -> {
+                    if (token == JsonToken.VALUE_STRING) {
+                        envelope.setVehicleId(parser.getText());
+                    } else if (token != JsonToken.VALUE_NULL) {
+                        rejection = first(rejection, INVALID_VEHICLE_ID);
+                        parser.skipChildren();
+                    }
+                }
+                case "vendor" -> {
+                    if (token == JsonToken.VALUE_STRING) {
+                        envelope.setVendor(parser.getText());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "timestamp" -> {
+                    Instant timestamp = token == JsonToken.VALUE_STRING
+                            ? IsoInstantParser.parse(parser.getTextCharacters(),
+                                    parser.getTextOffset(), parser.getTextLength())
+                            : null;
+                    if (timestamp != null) {
+                        envelope.setTimestamp(timestamp);
+                    } else if (token != JsonToken.VALUE_NULL) {
+                        rejection = first(rejection, INVALID_TIMESTAMP);
+                        parser.skipChildren();
+                    }
+                }
+                case "telemetry" -> {
+                    if (token == JsonToken.START_OBJECT) {
+                        TelemetryPayload telemetry = new TelemetryPayload();
+                        rejection = first(rejection, readTelemetry(parser, telemetry));
+                        envelope.setTelemetry(telemetry);
+                    } else if (token != JsonToken.VALUE_NULL) {
+                        rejection = first(rejection, INVALID_TELEMETRY);
+                        parser.skipChildren();
+                    }
+                }
+                case "connection" -> {
+                    if (token == JsonToken.START_OBJECT) {
+                        readConnection(parser, connection);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (rejection != null) {
+            throw rejection;
+        }
+
+        envelope.setIngestionTs(Instant.now());
+        envelope.setConnection(connection);
+
+        return envelope;
+    }
+
+    // Connection metadata is advisory, values of the wrong type are dropped rather than rejecting the reading
+    private void readConnection(JsonParser parser, ConnectionMetadata connection) throws IOException {
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "sequence_number" -> {
+                    if (token == JsonToken.VALUE_NUMBER_INT) {
+                        connection.setSequenceNumber(parser.getLongValue());
+                    }
+                }
+                case "packet_loss_pct" -> connection.setPacketLossPct(number(parser, token));
+                case "signal_strength" -> {
+                    if (token == JsonToken.VALUE_NUMBER_INT) {
+                        connection.setSignalStrength(parser.getIntValue());
+                    }
+                }
+                case "is_heartbeat" -> {
+                    if (token.isBoolean()) {
+                        connection.setIsHeartbeat(token == JsonToken.VALUE_TRUE);
+                    }
+                }
+                default -> {
+                }
+            }
+            parser.skipChildren();
+        }
+    }
+
+    private InvalidPayloadException readTelemetry(JsonParser parser, TelemetryPayload telemetry) throws IOException {
+        InvalidPayloadException rejection = null;
+
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "battery_soc_pct" -> telemetry.setBatterySocPct(number(parser, token));
+                case "speed_kmph" -> telemetry.setSpeedKmph(number(parser, token));
+                case "battery_temp_c" -> telemetry.setBatteryTempC(number(parser, token));
+                case "motor_temp_c" -> telemetry.setMotorTempC(number(parser, token));
+                case "ambient_temp_c" -> telemetry.setAmbientTempC(number(parser, token));
+                case "odometer_km" -> telemetry.setOdometerKm(number(parser, token));
+                default -> {
+                    parser.skipChildren();
+                    continue;
+                }
+            }
+            if (!token.isNumeric() && token != JsonToken.VALUE_NULL) {
+                rejection = INVALID_TELEMETRY;
+                parser.skipChildren();
+            }
+        }
+        return rejection;
+    }
+}
@@ -2,6 +2,12 @@ package com.axion.ingestion.adapter;
 
 import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
 
+import java.nio.charset.StandardCharsets;
+
 public interface TelemetryAdapter {
     CanonicalTelemetryEnvelope adapt(String rawPayload);
+
+    default CanonicalTelemetryEnvelope adapt(byte[] rawPayload, int offset, int length) {
+        return adapt(new String(rawPayload, offset, length, StandardCharsets.UTF_8));
+    }
 }
@@ -0,0 +1,126 @@
+package com.axion.ingestion.adapter;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Resolves the adapter for an incoming reading by vendor (the {@code X-Vendor}
+ * header on REST) or by MQTT topic. Vendor mappings are loaded and compiled
+ * once at startup; anything unmatched is read as the canonical format.
+ */
+@Component
+public class TelemetryAdapterRegistry {
+
+    public static final String VENDOR_HEADER = "X-Vendor";
+
+    private static final String CANONICAL = "canonical";
+
+    private final AbstractStreamingTelemetryAdapter canonical;
+    private final Map<String, AbstractStreamingTelemetryAdapter> byVendor =
+            new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final List<TopicRoute> topicRoutes = new ArrayList<>();
+
+    public TelemetryAdapterRegistry(
+            @Value("${axion.ingestion.vendor-mappings:classpath:vendor-mappings.json}") Resource mappings,
+            MeterRegistry meterRegistry) throws IOException {
+
+        this.canonical = new MeteredTelemetryAdapter(new StreamingTelemetryAdapter(), CANONICAL, meterRegistry);
+
+        for (VendorMappingSpec spec : load(mappings)) {
+            MappedTelemetryAdapter mapped = new MappedTelemetryAdapter(spec);
+            AbstractStreamingTelemetryAdapter adapter =
+                    new MeteredTelemetryAdapter(mapped, mapped.getVendor(), meterRegistry);
+
+            register(spec.getVendor(), adapter);
+            for (String header : spec.getHeaders()) {
+                register(header, adapter);
+            }
+            for (String filter : spec.getTopics()) {
+                topicRoutes.add(new TopicRoute(filter, adapter));
+            }
+        }
+    }
+
+    public AbstractStreamingTelemetryAdapter canonical() {
+        return canonical;
+    }
+
+    public AbstractStreamingTelemetryAdapter forVendor(String vendor) {
+        if (vendor == null || vendor.isEmpty()) {
+            return canonical;
+        }
+        return byVendor.getOrDefault(vendor, canonical);
+    }
+
+    public AbstractStreamingTelemetryAdapter forTopic(String topic) {
+        if (topic != null) {
+            for (TopicRoute route : topicRoutes) {
+                if (matches(route.filter(), topic)) {
+                    return route.adapter();
+                }
+            }
+        }
+        return canonical;
+    }
+
+    /** MQTT topic filters vendor mappings want to receive, in addition to the canonical ones. */
+    public List<String> topicFilters() {
+        List<String> filters = new ArrayList<>();
+        for (TopicRoute route : topicRoutes) {
+            filters.add(route.filter());
+        }
+        return Collections.unmodifiableList(filters);
+    }
+
+    private void register(String key, AbstractStreamingTelemetryAdapter adapter) {
+        if (byVendor.putIfAbsent(key, adapter) != null) {
+            throw new IllegalStateException("Vendor mapping key '" + key + "' is defined more than once");
+        }
+    }
+
+    private static List<VendorMappingSpec> load(Resource mappings) throws IOException {
+        if (!mappings.exists()) {
+            return List.of();
+        }
+        try (InputStream in = mappings.getInputStream()) {
+            return new ObjectMapper().readValue(in, new TypeReference<List<VendorMappingSpec>>() {
+            });
+        }
+    }
+
+    /** MQTT filter matching: '+' matches one topic level, a trailing '#' any remainder. */
+    static boolean matches(String filter, String topic) {
+        int t = 0;
+        for (int f = 0; f < filter.length(); f++) {
+            char c = filter.charAt(f);
+            if (c == '#') {
+                return true;
+            }
+            if (c == '+') {
+                while (t < topic.length() && topic.charAt(t) != '/') {
+                    t++;
+                }
+            } else if (t < topic.length() && topic.charAt(t) == c) {
+                t++;
+            } else {
+                return false;
+            }
+        }
+        return t == topic.length();
+    }
+
+    private record TopicRoute(String filter, AbstractStreamingTelemetryAdapter adapter) {
+    }
+}
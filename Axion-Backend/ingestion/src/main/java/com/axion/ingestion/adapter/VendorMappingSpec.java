@@ -0,0 +1,72 @@
+package com.axion.ingestion.adapter;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Declarative description of one vendor's telemetry format, loaded from
+ * {@code axion.ingestion.vendor-mappings}. Keys of {@code fields} are canonical
+ * field names ({@code vehicle_id}, {@code timestamp}, {@code battery_soc_pct},
+ * {@code speed_kmph}, {@code battery_temp_c}, {@code motor_temp_c},
+ * {@code ambient_temp_c}, {@code odometer_km}, {@code sequence_number}); any
+ * field not listed is read from its canonical location. For example:
+ *
+ * <pre>
+ * {
+ *   "vendor": "ACME",
+ *   "headers": ["acme"],
+ *   "topics": ["oem/acme/+/telemetry"],
+ *   "fields": {
+ *     "vehicle_id":      { "path": "vin" },
+ *     "timestamp":       { "path": "ts", "format": "EPOCH_MILLIS" },
+ *     "battery_soc_pct": { "path": "battery.soc", "scale": 100 },
+ *     "speed_kmph":      { "path": "speed_mph", "scale": 1.609344 },
+ *     "battery_temp_c":  { "path": "battery.temp_f", "scale": 0.5555555556, "offset": -17.7777777778 }
+ *   }
+ * }
+ * </pre>
+ *
+ * Numeric values are converted as {@code value * scale + offset}.
+ */
+@RequiredArgsConstructor
+@Getter
+@Setter
+public class VendorMappingSpec {
+
+    private String vendor;
+
+    // Extra values of the X-Vendor header that select this mapping
+    private List<String> headers = new ArrayList<>();
+
+    // MQTT topic filters, '+' and '#' wildcards allowed
+    private List<String> topics = new ArrayList<>();
+
+    private Map<String, FieldSpec> fields = new LinkedHashMap<>();
+
+    @RequiredArgsConstructor
+    @Getter
+    @Setter
+    public static class FieldSpec {
+
+        // Dot-separated location in the vendor document, e.g. "battery.soc"
+        private String path;
+
+        private double scale = 1.0;
+        private double offset = 0.0;
+
+        // Only for timestamp
+        private TimestampFormat format = TimestampFormat.ISO_8601;
+    }
+
+    public enum TimestampFormat {
+        ISO_8601,
+        EPOCH_MILLIS,
+        EPOCH_SECONDS
+    }
+}
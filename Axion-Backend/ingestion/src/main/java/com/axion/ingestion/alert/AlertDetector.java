@@ -0,0 +1,198 @@
+package com.axion.ingestion.alert;
+
+import com.axion.ingestion.health.HealthScoreEngine;
+import com.axion.ingestion.health.HealthState;
+import com.axion.ingestion.model.DigitalTwinState;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Decides which twin changes are worth an alert. Per vehicle it remembers
+ * the health state and connectivity last alerted on, and compares each newly
+ * written twin against them rather than against the previous twin:
+ * <ul>
+ * <li>getting worse (a worse health state, going offline) alerts right away;</li>
+ * <li>recovering alerts only once the score clears the lower bound of the
+ *     better state by {@code hysteresis} points, and no earlier than
+ *     {@code cooldown} after the vehicle's last alert of that type.</li>
+ * </ul>
+ * A vehicle hovering around a threshold therefore raises one alert, not one
+ * per reading. Health is only judged while the vehicle is online; going
+ * offline is its own alert.
+ * <p>
+ * The member state Redis held before each write comes back atomically with
+ * it. Unless that is the state this node last wrote, the vehicle was written
+ * elsewhere since: by another node, after its partition moved, or before a
+ * restart. The detector then starts over from what Redis held, so nodes
+ * sharing the fleet never alert the same transition twice, and a restart
+ * does not re-alert the whole fleet; only the cooldowns are lost.
+ */
+class AlertDetector {
+
+    private final HealthScoreEngine healthScoreEngine;
+    private final long cooldownMillis;
+    private final int hysteresis;
+
+    private final ConcurrentHashMap<String, Alerted> vehicles = new ConcurrentHashMap<>();
+
+    AlertDetector(HealthScoreEngine healthScoreEngine, long cooldownMillis, int hysteresis) {
+        this.healthScoreEngine = healthScoreEngine;
+        this.cooldownMillis = cooldownMillis;
+        this.hysteresis = hysteresis;
+    }
+
+    /**
+     * Compares a twin just written with what was alerted for its vehicle,
+     * handing any alerts to the sink. For a known vehicle nothing is
+     * allocated unless it alerts.
+     *
+     * @param previousMember the vehicle's member state in Redis before the
+     *                       write, "&lt;healthState&gt;:&lt;online 0|1&gt;:&lt;vendor&gt;",
+     *                       null or empty for a new vehicle
+     */
+    void observe(DigitalTwinState twin, String previousMember, long now, Consumer<VehicleAlert> sink) {
+        Alerted alerted = vehicles.get(twin.getVehicleId());
+        if (alerted == null) {
+            alerted = vehicles.computeIfAbsent(twin.getVehicleId(), id -> new Alerted());
+        }
+        synchronized (alerted) {
+            if (!alerted.wrote(previousMember)) {
+                alerted.reset(previousMember);
+            }
+            alerted.written(twin);
+            alerted.lastObserved = now;
+
+            if (alerted.online == null) {
+                alerted.online = twin.isOnline();
+            } else if (alerted.online && !twin.isOnline()) {
+                alerted.online = false;
+                alerted.lastConnectivityAlert = now;
+                sink.accept(alert(twin, AlertType.CONNECTIVITY, AlertSeverity.CRITICAL, "ONLINE", "OFFLINE", now));
+            } else if (!alerted.online && twin.isOnline() && now - alerted.lastConnectivityAlert >= cooldownMillis) {
+                alerted.online = true;
+                alerted.lastConnectivityAlert = now;
+                sink.accept(alert(twin, AlertType.CONNECTIVITY, AlertSeverity.INFO, "OFFLINE", "ONLINE", now));
+            }
+
+            if (!twin.isOnline() || twin.getHealthState() == null || twin.getHealthScore() == null) {
+                return;
+            }
+            HealthState current = HealthState.valueOf(twin.getHealthState());
+            HealthState previous = alerted.health;
+            if (previous == null ? current != HealthState.HEALTHY : current.compareTo(previous) > 0) {
+                alerted.health = current;
+                alerted.lastHealthAlert = now;
+                AlertSeverity severity = current == HealthState.CRITICAL ? AlertSeverity.CRITICAL : AlertSeverity.WARNING;
+                sink.accept(healthAlert(twin, severity, previous, current, now));
+            } else if (previous == null) {
+                alerted.health = current;
+            } else if (current.compareTo(previous) < 0 && now - alerted.lastHealthAlert >= cooldownMillis) {
+                HealthState recovered = recovered(twin.getHealthScore(), current);
+                if (recovered.compareTo(previous) < 0) {
+                    alerted.health = recovered;
+                    alerted.lastHealthAlert = now;
+                    sink.accept(healthAlert(twin, AlertSeverity.INFO, previous, recovered, now));
+                }
+            }
+        }
+    }
+
+    // The best state, no better than the current one, whose lower bound the score clears by the hysteresis
+    private HealthState recovered(int score, HealthState current) {
+        HealthState[] states = HealthState.values();
+        for (int i = current.ordinal(); i < states.length - 1; i++) {
+            if (score >= healthScoreEngine.minScore(states[i]) + hysteresis) {
+                return states[i];
+            }
+        }
+        return HealthState.CRITICAL;
+    }
+
+    /**
+     * Forgets vehicles not observed since the cutoff; they start over from
+     * Redis when next written.
+     */
+    void releaseIdle(long cutoff) {
+        vehicles.values().removeIf(alerted -> alerted.lastObserved < cutoff);
+    }
+
+    int size() {
+        return vehicles.size();
+    }
+
+    private VehicleAlert healthAlert(DigitalTwinState twin, AlertSeverity severity, HealthState from,
+            HealthState to, long now) {
+        VehicleAlert alert = alert(twin, AlertType.HEALTH, severity, from == null ? null : from.name(), to.name(), now);
+        alert.setReasons(healthScoreEngine.evaluate(twin).getExplanations());
+        return alert;
+    }
+
+    private static VehicleAlert alert(DigitalTwinState twin, AlertType type, AlertSeverity severity,
+            String from, String to, long now) {
+        VehicleAlert alert = new VehicleAlert();
+        alert.setVehicleId(twin.getVehicleId());
+        alert.setVendor(twin.getVendor());
+        alert.setType(type);
+        alert.setSeverity(severity);
+        alert.setFrom(from);
+        alert.setTo(to);
+        alert.setHealthScore(twin.getHealthScore());
+        alert.setEventTs(twin.getLastEventTs());
+        alert.setReceivedAt(twin.getLastSeen());
+        alert.setDetectedAt(Instant.ofEpochMilli(now));
+        return alert;
+    }
+
+    private static final class Alerted {
+        HealthState health;
+        Boolean online;
+        long lastHealthAlert;
+        long lastConnectivityAlert;
+        volatile long lastObserved;
+
+        // The member state of the twin this node last wrote, held as its parts so that comparing does not allocate
+        boolean wroteAny;
+        String writtenHealth;
+        boolean writtenOnline;
+        String writtenVendor;
+
+        void reset(String member) {
+            health = null;
+            online = null;
+            lastHealthAlert = Long.MIN_VALUE / 2;
+            lastConnectivityAlert = Long.MIN_VALUE / 2;
+            if (member == null || member.isEmpty()) {
+                return;
+            }
+            String[] parts = member.split(":", 3);
+            online = parts.length > 1 ? "1".equals(parts[1]) : null;
+            // An offline twin's state reflects being offline, so it says nothing about the health alerted on
+            if (Boolean.TRUE.equals(online) && !parts[0].isEmpty()) {
+                health = HealthState.valueOf(parts[0]);
+            }
+        }
+
+        void written(DigitalTwinState twin) {
+            wroteAny = true;
+            writtenHealth = twin.getHealthState() == null ? "" : twin.getHealthState();
+            writtenOnline = twin.isOnline();
+            writtenVendor = twin.getVendor() == null ? "" : twin.getVendor();
+        }
+
+        // Whether the member is "<healthState>:<online 0|1>:<vendor>" of the twin last written
+        boolean wrote(String member) {
+            if (!wroteAny || member == null) {
+                return false;
+            }
+            int colon = writtenHealth.length();
+            return member.length() == colon + 3 + writtenVendor.length()
+                    && member.startsWith(writtenHealth)
+                    && member.charAt(colon) == ':'
+                    && member.charAt(colon + 1) == (writtenOnline ? '1' : '0')
+                    && member.charAt(colon + 2) == ':'
+                    && member.endsWith(writtenVendor);
+        }
+    }
+}
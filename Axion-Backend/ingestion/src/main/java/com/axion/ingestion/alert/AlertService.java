@@ -0,0 +1,124 @@
+package com.axion.ingestion.alert;
+
+import com.axion.ingestion.health.HealthScoreEngine;
+import com.axion.ingestion.model.DigitalTwinState;
+import com.axion.ingestion.producer.AlertKafkaProducer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Raises alerts for the twin transitions {@link AlertDetector} lets
+ * through. Each alert is published to {@code axion.alerts.topic} without
+ * waiting for the broker, and kept in a bounded in-memory list of the most
+ * recent ones.
+ * <p>
+ * {@code axion.alerts.latency} times each alert from the receipt of the
+ * reading that raised it, tagged {@code stage=detected} when the alert was
+ * decided and {@code stage=published} when the broker acknowledged it.
+ * OFFLINE alerts are raised by silence, not a reading, and are not timed.
+ */
+@Service
+public class AlertService {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertService.class);
+
+    private final AlertDetector detector;
+    private final RecentAlerts recent;
+    private final AlertKafkaProducer producer;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long idleMillis;
+
+    private final Timer detected;
+    private final Timer published;
+
+    // Created once, so observing does not allocate a method reference per twin
+    private final Consumer<VehicleAlert> raise = this::raise;
+
+    public AlertService(HealthScoreEngine healthScoreEngine, AlertKafkaProducer producer, MeterRegistry meterRegistry,
+            @Value("${axion.alerts.enabled:true}") boolean enabled,
+            @Value("${axion.alerts.cooldown-ms:300000}") long cooldownMillis,
+            @Value("${axion.alerts.hysteresis:5}") int hysteresis,
+            @Value("${axion.alerts.recent-capacity:1000}") int recentCapacity,
+            @Value("${axion.alerts.idle-ms:3600000}") long idleMillis) {
+        this.detector = new AlertDetector(healthScoreEngine, cooldownMillis, hysteresis);
+        this.recent = new RecentAlerts(recentCapacity);
+        this.producer = producer;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.idleMillis = idleMillis;
+        this.detected = latency(meterRegistry, "detected");
+        this.published = latency(meterRegistry, "published");
+        Gauge.builder("axion.alerts.vehicles", detector, AlertDetector::size).register(meterRegistry);
+    }
+
+    private static Timer latency(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("axion.alerts.latency")
+                .tag("stage", stage)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks a twin that was just written for transitions worth an alert.
+     *
+     * @param previousMember the vehicle's member state before the write, see
+     *                       {@link AlertDetector#observe}
+     */
+    public void observe(DigitalTwinState twin, String previousMember) {
+        if (enabled) {
+            detector.observe(twin, previousMember, System.currentTimeMillis(), raise);
+        }
+    }
+
+    /**
+     * The most recent alerts matching the filters, newest first, see
+     * {@link RecentAlerts#query}.
+     */
+    public List<VehicleAlert> recent(String vehicleId, AlertType type, AlertSeverity minSeverity,
+            Instant since, int limit) {
+        return recent.query(vehicleId, type, minSeverity, since, limit);
+    }
+
+    public int getRecentCapacity() {
+        return recent.capacity();
+    }
+
+    private void raise(VehicleAlert alert) {
+        recent.add(alert);
+        meterRegistry.counter("axion.alerts.raised",
+                "type", alert.getType().name(), "severity", alert.getSeverity().name()).increment();
+
+        boolean timed = alert.getReceivedAt() != null && !"OFFLINE".equals(alert.getTo());
+        if (timed) {
+            detected.record(Duration.between(alert.getReceivedAt(), alert.getDetectedAt()));
+        }
+        producer.publishAsync(alert).whenComplete((result, error) -> {
+            if (error != null) {
+                meterRegistry.counter("axion.alerts.publish.failed").increment();
+                log.warn("Dropped {} alert for {}: {}", alert.getTo(), alert.getVehicleId(), error.getMessage());
+            } else if (timed) {
+                published.record(Duration.between(alert.getReceivedAt(), Instant.now()));
+            }
+        });
+    }
+
+    /**
+     * Forgets what was alerted for vehicles not written for {@code idle-ms}.
+     */
+    @Scheduled(fixedDelayString = "${axion.alerts.sweep-interval-ms:60000}")
+    public void releaseIdle() {
+        detector.releaseIdle(System.currentTimeMillis() - idleMillis);
+    }
+}
@@ -0,0 +1,8 @@
+package com.axion.ingestion.alert;
+
+public enum AlertSeverity {
+    // Recoveries
+    INFO,
+    WARNING,
+    CRITICAL
+}
@@ -0,0 +1,8 @@
+package com.axion.ingestion.alert;
+
+public enum AlertType {
+    // Health state changes, HEALTHY / DEGRADED / CRITICAL
+    HEALTH,
+    // ONLINE / OFFLINE changes
+    CONNECTIVITY
+}
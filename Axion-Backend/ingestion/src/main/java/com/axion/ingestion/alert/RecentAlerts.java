@@ -0,0 +1,54 @@
+package com.axion.ingestion.alert;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The last {@code capacity} alerts in a ring, the oldest overwritten first,
+ * so memory stays fixed however busy the fleet gets.
+ */
+class RecentAlerts {
+
+    private final VehicleAlert[] ring;
+    private long added;
+
+    RecentAlerts(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("axion.alerts.recent-capacity must be at least 1");
+        }
+        this.ring = new VehicleAlert[capacity];
+    }
+
+    synchronized void add(VehicleAlert alert) {
+        ring[(int) (added++ % ring.length)] = alert;
+    }
+
+    int capacity() {
+        return ring.length;
+    }
+
+    /**
+     * Alerts matching every given filter, newest first.
+     *
+     * @param vehicleId   null for any vehicle
+     * @param type        null for any type
+     * @param minSeverity null for any severity
+     * @param since       null for any time, else alerts detected at or after it
+     */
+    synchronized List<VehicleAlert> query(String vehicleId, AlertType type, AlertSeverity minSeverity,
+            Instant since, int limit) {
+        List<VehicleAlert> matches = new ArrayList<>(Math.min(limit, ring.length));
+        long oldest = Math.max(0, added - ring.length);
+        for (long i = added - 1; i >= oldest && matches.size() < limit; i--) {
+            VehicleAlert alert = ring[(int) (i % ring.length)];
+            if ((since == null || !alert.getDetectedAt().isBefore(since))
+                    && (vehicleId == null || vehicleId.equals(alert.getVehicleId()))
+                    && (type == null || type == alert.getType())
+                    && (minSeverity == null || alert.getSeverity().compareTo(minSeverity) >= 0)) {
+                matches.add(alert);
+            }
+        }
+        return matches;
+    }
+}
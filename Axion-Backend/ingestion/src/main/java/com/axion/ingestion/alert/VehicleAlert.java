@@ -0,0 +1,37 @@
+package com.axion.ingestion.alert;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A state transition of a vehicle, as published on the alerts topic and
+ * listed by {@code GET /api/v1/alerts}.
+ */
+@RequiredArgsConstructor
+@Getter
+@Setter
+public class VehicleAlert {
+
+    private String vehicleId;
+    private String vendor;
+
+    private AlertType type;
+    private AlertSeverity severity;
+
+    // Health state or ONLINE / OFFLINE; from is null for a vehicle seen for the first time
+    private String from;
+    private String to;
+
+    private Integer healthScore;
+    private List<String> reasons;
+
+    // Event timestamp and receive time of the reading that raised the alert, the last one heard for OFFLINE
+    private Instant eventTs;
+    private Instant receivedAt;
+
+    private Instant detectedAt;
+}
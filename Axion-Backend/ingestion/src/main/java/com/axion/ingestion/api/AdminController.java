@@ -0,0 +1,40 @@
+package com.axion.ingestion.api;
+
+import com.axion.ingestion.dto.RescoreJobResponse;
+import com.axion.ingestion.service.FleetRescoreJob;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/admin")
+public class AdminController {
+
+    private final FleetRescoreJob rescoreJob;
+
+    public AdminController(FleetRescoreJob rescoreJob) {
+        this.rescoreJob = rescoreJob;
+    }
+
+    /**
+     * Re-scores every twin with the current health rules in the background;
+     * 409 with the running job's progress if one is still going.
+     */
+    @PostMapping("/rescore")
+    public ResponseEntity<RescoreJobResponse> startRescore() {
+        RescoreJobResponse started = rescoreJob.start();
+        if (started == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(rescoreJob.getProgress());
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(started);
+    }
+
+    @GetMapping("/rescore")
+    public ResponseEntity<RescoreJobResponse> getRescore() {
+        RescoreJobResponse progress = rescoreJob.getProgress();
+        return progress == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(progress);
+    }
+}
@@ -0,0 +1,57 @@
+package com.axion.ingestion.api;
+
+import com.axion.ingestion.alert.AlertService;
+import com.axion.ingestion.alert.AlertSeverity;
+import com.axion.ingestion.alert.AlertType;
+import com.axion.ingestion.alert.VehicleAlert;
+import com.axion.ingestion.exception.InvalidQueryException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/alerts")
+public class AlertController {
+
+    private final AlertService alertService;
+
+    public AlertController(AlertService alertService) {
+        this.alertService = alertService;
+    }
+
+    /**
+     * The most recent alerts, newest first. {@code severity} is the lowest
+     * severity included; only the last {@code axion.alerts.recent-capacity}
+     * alerts are kept.
+     */
+    @GetMapping
+    public List<VehicleAlert> getRecentAlerts(
+            @RequestParam(required = false) String vehicleId,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String severity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant since,
+            @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > alertService.getRecentCapacity()) {
+            throw new InvalidQueryException("limit must be between 1 and " + alertService.getRecentCapacity());
+        }
+        return alertService.recent(vehicleId, parse(AlertType.class, "type", type),
+                parse(AlertSeverity.class, "severity", severity), since, limit);
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> values, String name, String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(values, value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidQueryException(name + " must be one of " + Arrays.toString(values.getEnumConstants()));
+        }
+    }
+}
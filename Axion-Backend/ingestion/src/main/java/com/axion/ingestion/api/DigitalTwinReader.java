@@ -0,0 +1,159 @@
+package com.axion.ingestion.api;
+
+import com.axion.ingestion.dto.FleetVehicleResponse;
+import com.axion.ingestion.model.DigitalTwinState;
+import com.axion.ingestion.service.DigitalTwinService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Twin reads for the API, optionally through an in-process near cache
+ * ({@code axion.twin.near-cache.enabled}).
+ * <p>
+ * The cache is size bounded with Caffeine's TinyLFU eviction. Entries are
+ * invalidated as soon as {@link DigitalTwinService#CHANGES_CHANNEL} announces
+ * a change to the vehicle, so every API node sees writes made through any
+ * consumer. Writes that only move {@code lastSeen} or {@code lastEventTs}
+ * (keep-alives, repeated readings) are not announced, so a cached twin's
+ * timestamps may lag by up to the expiry, although its version, and so its
+ * ETag, has moved. Entries also
+ * expire after a short time, which bounds staleness should the subscription
+ * drop. Hits, misses and evictions are exported as the {@code cache.*} metrics
+ * tagged {@code cache=digitalTwins}.
+ */
+@Component
+public class DigitalTwinReader {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final DigitalTwinService digitalTwinService;
+
+    // null when the near cache is disabled
+    private final Cache<String, DigitalTwinState> cache;
+
+    // Invalidations per stripe of vehicle ids, so a bulk load can tell whether
+    // one of its twins changed while it was reading them
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public DigitalTwinReader(DigitalTwinService digitalTwinService, RedisMessageListenerContainer listeners,
+            MeterRegistry meterRegistry,
+            @Value("${axion.twin.near-cache.enabled:false}") boolean enabled,
+            @Value("${axion.twin.near-cache.maximum-size:50000}") long maximumSize,
+            @Value("${axion.twin.near-cache.expire-after-write-ms:30000}") long expireAfterWriteMs) {
+        this.digitalTwinService = digitalTwinService;
+
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "digitalTwins");
+
+        listeners.addMessageListener(
+                (message, pattern) -> invalidate(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(DigitalTwinService.CHANGES_CHANNEL));
+    }
+
+    // Under the entry's lock, so it is ordered with the check in cacheUnlessChanged
+    private void invalidate(String vehicleId) {
+        cache.asMap().compute(vehicleId, (id, cached) -> {
+            generations.incrementAndGet(stripe(id));
+            return null;
+        });
+    }
+
+    public DigitalTwinState find(String vehicleId) {
+        if (cache == null) {
+            return digitalTwinService.find(vehicleId);
+        }
+        // A null result is not cached, so unknown vehicles are looked up again
+        return cache.get(vehicleId, digitalTwinService::find);
+    }
+
+    /**
+     * Every live twin, in fleet index order. With the cache enabled only the
+     * twins not already cached are fetched from Redis.
+     */
+    public List<DigitalTwinState> findAll() {
+        return findAll(digitalTwinService.findAllIds());
+    }
+
+    /**
+     * The given twins, in the given order, skipping vehicles without one.
+     */
+    public List<DigitalTwinState> findAll(Collection<String> vehicleIds) {
+        if (cache == null) {
+            return digitalTwinService.findAll(vehicleIds);
+        }
+
+        Map<String, DigitalTwinState> twins = new HashMap<>(cache.getAllPresent(vehicleIds));
+        Map<String, Long> missing = new HashMap<>();
+        for (String vehicleId : vehicleIds) {
+            if (!twins.containsKey(vehicleId)) {
+                missing.put(vehicleId, generations.get(stripe(vehicleId)));
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (DigitalTwinState twin : digitalTwinService.findAll(missing.keySet())) {
+                twins.put(twin.getVehicleId(), twin);
+                cacheUnlessChanged(twin, missing.get(twin.getVehicleId()));
+            }
+        }
+
+        List<DigitalTwinState> result = new ArrayList<>(twins.size());
+        for (String vehicleId : vehicleIds) {
+            DigitalTwinState twin = twins.get(vehicleId);
+            if (twin != null) {
+                result.add(twin);
+            }
+        }
+        return result;
+    }
+
+    // A change announced since the generation was read may not be in the twin, which is then
+    // returned but not cached. Caffeine's bulk load would cache it regardless.
+    private void cacheUnlessChanged(DigitalTwinState twin, long generation) {
+        cache.asMap().compute(twin.getVehicleId(),
+                (id, cached) -> generations.get(stripe(id)) == generation ? twin : cached);
+    }
+
+    private static int stripe(String vehicleId) {
+        int h = vehicleId.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    /**
+     * Listing entries of the given vehicles, in the given order. Served from
+     * cached twins when the cache is enabled, otherwise read with only the
+     * listed fields where the twin layout allows it.
+     */
+    public List<FleetVehicleResponse> findVehicles(Collection<String> vehicleIds) {
+        if (cache == null) {
+            return digitalTwinService.findVehicles(vehicleIds);
+        }
+        List<FleetVehicleResponse> vehicles = new ArrayList<>(vehicleIds.size());
+        for (DigitalTwinState twin : findAll(vehicleIds)) {
+            vehicles.add(FleetVehicleResponse.from(twin));
+        }
+        return vehicles;
+    }
+}
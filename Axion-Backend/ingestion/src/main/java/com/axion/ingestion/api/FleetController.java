@@ -1,96 +1,202 @@
 package com.axion.ingestion.api;
 
+import com.axion.ingestion.dto.FleetChangesResponse;
 import com.axion.ingestion.dto.FleetSummaryResponse;
-import com.axion.ingestion.dto.FleetVehicleResponse;
+import com.axion.ingestion.dto.FleetVehiclePage;
+import com.axion.ingestion.dto.RollupResponse;
+import com.axion.ingestion.dto.TwinChangeEvent;
+import com.axion.ingestion.exception.InvalidQueryException;
 import com.axion.ingestion.model.DigitalTwinState;
-import org.springframework.data.redis.core.RedisTemplate;
+import com.axion.ingestion.rollup.RollupStore;
+import com.axion.ingestion.service.DigitalTwinService;
+import com.axion.ingestion.service.FleetChanges;
+import com.axion.ingestion.service.FleetPage;
+import com.axion.ingestion.service.FleetQuery;
+import com.axion.ingestion.stream.TwinChangeStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Flux;
 
+import java.time.Instant;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/v1/fleet")
 public class FleetController {
 
-    private final RedisTemplate<String, DigitalTwinState> redisTemplate;
-
-    public FleetController(RedisTemplate<String, DigitalTwinState> redisTemplate) {
-        this.redisTemplate = redisTemplate;
+    private final DigitalTwinService digitalTwinService;
+    private final DigitalTwinReader twinReader;
+    private final TwinChangeStream changeStream;
+    private final RollupStore rollupStore;
+    private final int maxPageSize;
+
+    public FleetController(DigitalTwinService digitalTwinService, DigitalTwinReader twinReader,
+            TwinChangeStream changeStream, RollupStore rollupStore,
+            @Value("${axion.fleet.listing.max-page-size:1000}") int maxPageSize) {
+        this.digitalTwinService = digitalTwinService;
+        this.twinReader = twinReader;
+        this.changeStream = changeStream;
+        this.rollupStore = rollupStore;
+        this.maxPageSize = maxPageSize;
     }
 
+    /**
+     * Fleet counters, tagged with their own version, which only moves when
+     * one of them does. Expired twins leave the counters, and move the
+     * version, when the scheduled prune takes them out, see
+     * {@link DigitalTwinService#pruneIndex}; polling does not prune.
+     */
     @GetMapping("/summary")
-    public FleetSummaryResponse getFleetSummary() {
-
-        Set<String> keys = redisTemplate.keys("digital_twin:*");
-
-        FleetSummaryResponse summary = new FleetSummaryResponse();
-
-        if (keys == null)
-            return summary;
-
-        summary.setTotalVehicles(keys.size());
-
-        for (String key : keys) {
-            DigitalTwinState state = redisTemplate.opsForValue().get(key);
-            if (state == null)
-                continue;
-
-            if (state.isOnline())
-                summary.setOnlineVehicles(summary.getOnlineVehicles() + 1);
-
-            switch (state.getHealthState()) {
-                case "HEALTHY" -> summary.setHealthy(summary.getHealthy() + 1);
-                case "DEGRADED" -> summary.setDegraded(summary.getDegraded() + 1);
-                case "CRITICAL" -> summary.setCritical(summary.getCritical() + 1);
-            }
+    public FleetSummaryResponse getFleetSummary(WebRequest request) {
+        if (request.checkNotModified(summaryEtag(digitalTwinService.getSummaryVersion()))) {
+            return null;
         }
-
-        return summary;
+        return digitalTwinService.getFleetSummary();
     }
 
+    /**
+     * One page of the fleet, filtered and sorted through the listing indexes.
+     * Multi-valued filters are comma separated and match any of the values;
+     * pass the returned {@code nextCursor} as {@code cursor} for the next page.
+     * This used to return the whole fleet as a bare array; clients written
+     * against that read {@code vehicles} now and follow the cursor.
+     */
     @GetMapping("/vehicles")
-    public java.util.List<FleetVehicleResponse> listVehicles() {
+    public FleetVehiclePage listVehicles(
+            @RequestParam(name = "healthState", required = false) Set<String> healthStates,
+            @RequestParam(name = "vendor", required = false) Set<String> vendors,
+            @RequestParam(required = false) Boolean online,
+            @RequestParam(required = false) Double batteryMin,
+            @RequestParam(required = false) Double batteryMax,
+            @RequestParam(defaultValue = "vehicleId") String sort,
+            @RequestParam(defaultValue = "asc") String order,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest request) {
+
+        if (!FleetQuery.SORT_KEYS.contains(sort)) {
+            throw new InvalidQueryException("sort must be one of " + FleetQuery.SORT_KEYS);
+        }
+        if (!"asc".equals(order) && !"desc".equals(order)) {
+            throw new InvalidQueryException("order must be asc or desc");
+        }
+        if (limit < 1 || limit > maxPageSize) {
+            throw new InvalidQueryException("limit must be between 1 and " + maxPageSize);
+        }
 
-        Set<String> keys = redisTemplate.keys("digital_twin:*");
-        java.util.List<FleetVehicleResponse> vehicles = new java.util.ArrayList<>();
+        // Every twin write, lastSeen alone included, moves the fleet version, so an unchanged
+        // version means an unchanged page. A twin that expired still matches until the
+        // scheduled prune moves the version, a few seconds at most.
+        if (request.checkNotModified(fleetEtag(digitalTwinService.getFleetVersion()))) {
+            return null;
+        }
 
-        if (keys == null)
-            return vehicles;
+        FleetQuery query = new FleetQuery();
+        if (healthStates != null) {
+            query.setHealthStates(healthStates.stream().map(String::toUpperCase).collect(Collectors.toSet()));
+        }
+        if (vendors != null) {
+            query.setVendors(vendors);
+        }
+        query.setOnline(online);
+        query.setBatteryMin(batteryMin);
+        query.setBatteryMax(batteryMax);
+        query.setSort(sort);
+        query.setDescending("desc".equals(order));
+        query.setLimit(limit);
+        query.setCursor(cursor);
+
+        FleetPage page = digitalTwinService.findPage(query);
+
+        FleetVehiclePage response = new FleetVehiclePage();
+        response.setVehicles(twinReader.findVehicles(page.getVehicleIds()));
+        response.setNextCursor(page.getNextCursor());
+        return response;
+    }
 
-        for (String key : keys) {
-            DigitalTwinState state = redisTemplate.opsForValue().get(key);
-            if (state == null)
-                continue;
+    /**
+     * Vehicles changed or removed since the given fleet version, for clients
+     * keeping a local copy of the listing. Start from the version of a full
+     * load (the ETag of {@code /vehicles}) and pass the
+     * returned {@code version} on the next call.
+     */
+    @GetMapping("/vehicles/changes")
+    public FleetChangesResponse listVehicleChanges(
+            @RequestParam long since,
+            @RequestParam(defaultValue = "1000") int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new InvalidQueryException("limit must be between 1 and " + maxPageSize);
+        }
 
-            FleetVehicleResponse v = new FleetVehicleResponse();
-            v.setVehicleId(state.getVehicleId());
-            v.setVendor(state.getVendor());
-            v.setOnline(state.isOnline());
-            v.setHealthScore(state.getHealthScore());
-            v.setHealthState(state.getHealthState());
-            v.setLastSeen(state.getLastSeen());
+        FleetChanges changes = digitalTwinService.findChanges(since, limit);
 
-            if (state.getTelemetry() != null) {
-                v.setBattery(state.getTelemetry().getBatterySocPct());
-                v.setTemperature(state.getTelemetry().getBatteryTempC());
-            }
+        FleetChangesResponse response = new FleetChangesResponse();
+        response.setVersion(changes.getVersion());
+        response.setMore(changes.isMore());
+        response.setResync(changes.isResync());
+        response.setUpdated(twinReader.findVehicles(changes.getUpdatedIds()));
+        response.setRemoved(changes.getRemovedIds());
+        return response;
+    }
 
-            vehicles.add(v);
-        }
+    /**
+     * Server-sent stream of twin changes, optionally limited to some vehicles
+     * and/or health states (comma separated). Clients load the initial state
+     * from {@code /summary} and {@code /vehicles} and then apply the events.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<TwinChangeEvent>> streamChanges(
+            @RequestParam(name = "vehicleId", required = false) Set<String> vehicleIds,
+            @RequestParam(name = "healthState", required = false) Set<String> healthStates,
+            @RequestParam(name = "coalesceMs", defaultValue = "1000") long coalesceMillis) {
+        return changeStream.open(vehicleIds == null ? Set.of() : vehicleIds,
+                healthStates == null ? Set.of() : healthStates, coalesceMillis);
+    }
 
-        return vehicles;
+    /**
+     * Fleet-wide min, max, avg and last readings per closed window of the
+     * given resolution, see {@link VehicleController#getRollups}.
+     */
+    @GetMapping("/rollups")
+    public RollupResponse getRollups(
+            @RequestParam(defaultValue = "1m") String resolution,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        return rollupStore.query(null, resolution, from, to);
     }
 
     @GetMapping("/{vehicleId}")
     public org.springframework.http.ResponseEntity<DigitalTwinState> getVehicle(
-            @org.springframework.web.bind.annotation.PathVariable String vehicleId) {
-        String key = "digital_twin:" + vehicleId;
-        DigitalTwinState state = redisTemplate.opsForValue().get(key);
+            @org.springframework.web.bind.annotation.PathVariable String vehicleId, WebRequest request) {
+        Long version = digitalTwinService.getVersion(vehicleId);
+        if (version != null && request.checkNotModified(twinEtag(vehicleId, version))) {
+            return null;
+        }
+        DigitalTwinState state = twinReader.find(vehicleId);
         if (state == null) {
             return org.springframework.http.ResponseEntity.notFound().build();
         }
         return org.springframework.http.ResponseEntity.ok(state);
     }
+
+    // The version itself, so clients can use it as the since of a changes query
+    static String fleetEtag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    static String summaryEtag(long version) {
+        return "\"summary-" + version + "\"";
+    }
+
+    static String twinEtag(String vehicleId, long version) {
+        return "\"" + vehicleId + "-" + version + "\"";
+    }
 }
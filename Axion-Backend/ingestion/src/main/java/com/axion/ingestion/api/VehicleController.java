@@ -1,27 +1,58 @@
 package com.axion.ingestion.api;
 
 import com.axion.ingestion.dto.DigitalTwinResponse;
+import com.axion.ingestion.dto.RollupResponse;
+import com.axion.ingestion.dto.VehicleHistoryResponse;
+import com.axion.ingestion.exception.InvalidQueryException;
+import com.axion.ingestion.history.TelemetryHistoryStore;
 import com.axion.ingestion.model.DigitalTwinState;
-import org.springframework.data.redis.core.RedisTemplate;
+import com.axion.ingestion.rollup.RollupStore;
+import com.axion.ingestion.service.DigitalTwinService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.time.Instant;
 
 @RestController
 @RequestMapping("/api/v1/vehicles")
 public class VehicleController {
 
-    private final RedisTemplate<String, DigitalTwinState> redisTemplate;
+    private static final Duration DEFAULT_HISTORY_RANGE = Duration.ofHours(1);
+    // History is kept as epoch millis; bounds far enough apart to hold any reading, close enough not to overflow
+    private static final Instant EARLIEST_HISTORY = Instant.ofEpochMilli(Long.MIN_VALUE / 4);
+    private static final Instant LATEST_HISTORY = Instant.ofEpochMilli(Long.MAX_VALUE / 4);
+
+    private final DigitalTwinService digitalTwinService;
+    private final DigitalTwinReader twinReader;
+    private final TelemetryHistoryStore historyStore;
+    private final RollupStore rollupStore;
+    private final int maxHistoryPoints;
 
-    public VehicleController(RedisTemplate<String, DigitalTwinState> redisTemplate) {
-        this.redisTemplate = redisTemplate;
+    public VehicleController(DigitalTwinService digitalTwinService, DigitalTwinReader twinReader,
+            TelemetryHistoryStore historyStore, RollupStore rollupStore,
+            @Value("${axion.history.max-points:2000}") int maxHistoryPoints) {
+        this.digitalTwinService = digitalTwinService;
+        this.twinReader = twinReader;
+        this.historyStore = historyStore;
+        this.rollupStore = rollupStore;
+        this.maxHistoryPoints = maxHistoryPoints;
     }
 
     @GetMapping("/{vehicleId}")
     public ResponseEntity<DigitalTwinResponse> getVehicle(
-            @PathVariable String vehicleId) {
+            @PathVariable String vehicleId, WebRequest request) {
 
-        String key = "digital_twin:" + vehicleId;
-        DigitalTwinState state = redisTemplate.opsForValue().get(key);
+        Long version = digitalTwinService.getVersion(vehicleId);
+        if (version != null && request.checkNotModified(FleetController.twinEtag(vehicleId, version))) {
+            return null;
+        }
+
+        DigitalTwinState state = twinReader.find(vehicleId);
 
         if (state == null) {
             return ResponseEntity.notFound().build();
@@ -31,6 +62,78 @@ public class VehicleController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * The vehicle's readings between {@code from} and {@code to} (ISO-8601,
+     * the last hour by default), averaged into buckets of {@code step}, e.g.
+     * {@code 30s}, {@code 5m} or {@code PT1H}. Without a step the range is
+     * split into at most 500 buckets.
+     */
+    @GetMapping("/{vehicleId}/history")
+    public VehicleHistoryResponse getHistory(
+            @PathVariable String vehicleId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String step) {
+
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(DEFAULT_HISTORY_RANGE);
+        if (!start.isBefore(end)) {
+            throw new InvalidQueryException("from must be before to");
+        }
+        start = clamp(start);
+        end = clamp(end);
+        if (!start.isBefore(end)) {
+            throw new InvalidQueryException("from and to are both outside the recorded history");
+        }
+        long range = Duration.between(start, end).toMillis();
+
+        long stepMillis;
+        if (step == null) {
+            stepMillis = Math.max(1000, (range + 499) / 500);
+        } else {
+            try {
+                stepMillis = DurationStyle.detectAndParse(step).toMillis();
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                throw new InvalidQueryException("step must be a duration such as 30s, 5m or PT1H");
+            }
+            if (stepMillis < 1) {
+                throw new InvalidQueryException("step must be at least 1ms");
+            }
+        }
+        if ((range - 1) / stepMillis + 1 > maxHistoryPoints) {
+            throw new InvalidQueryException("from, to and step give more than " + maxHistoryPoints + " points");
+        }
+
+        VehicleHistoryResponse response = new VehicleHistoryResponse();
+        response.setVehicleId(vehicleId);
+        response.setFrom(start);
+        response.setTo(end);
+        response.setStepMs(stepMillis);
+        response.setPoints(historyStore.query(vehicleId, start, end, stepMillis));
+        return response;
+    }
+
+    private static Instant clamp(Instant instant) {
+        if (instant.isBefore(EARLIEST_HISTORY)) {
+            return EARLIEST_HISTORY;
+        }
+        return instant.isAfter(LATEST_HISTORY) ? LATEST_HISTORY : instant;
+    }
+
+    /**
+     * The vehicle's min, max, avg and last readings per closed window of the
+     * given resolution ({@code 1m}, {@code 5m} or {@code 1h}) starting in
+     * [from, to), by default the last 60 windows.
+     */
+    @GetMapping("/{vehicleId}/rollups")
+    public RollupResponse getRollups(
+            @PathVariable String vehicleId,
+            @RequestParam(defaultValue = "1m") String resolution,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        return rollupStore.query(vehicleId, resolution, from, to);
+    }
+
     private DigitalTwinResponse map(DigitalTwinState state) {
         DigitalTwinResponse r = new DigitalTwinResponse();
         r.setVehicleId(state.getVehicleId());
@@ -38,6 +141,7 @@ public class VehicleController {
         r.setLastSeen(state.getLastSeen());
         r.setHealthScore(state.getHealthScore());
         r.setHealthState(state.getHealthState());
+        r.setPacketLossPct(state.getPacketLossPct());
         r.setTelemetry(state.getTelemetry());
         return r;
     }
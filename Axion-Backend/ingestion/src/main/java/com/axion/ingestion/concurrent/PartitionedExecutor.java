@@ -0,0 +1,154 @@
+package com.axion.ingestion.concurrent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs tasks on a fixed set of single-threaded workers, each with its own
+ * bounded queue. Tasks submitted with the same key always land on the same
+ * worker, so they run one at a time and in submission order, while tasks for
+ * different keys run in parallel.
+ * <p>
+ * A task that throws is logged and counted; its worker carries on with the
+ * next one. Once {@link #shutdown} has been called no task is accepted.
+ */
+public class PartitionedExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionedExecutor.class);
+
+    public enum OverflowPolicy {
+        /** The submitting thread waits for room in the worker's queue. */
+        BLOCK,
+        /** The task is discarded and counted as dropped. */
+        DROP
+    }
+
+    private final ThreadPoolExecutor[] workers;
+    private final OverflowPolicy overflowPolicy;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public PartitionedExecutor(String name, int workerCount, int queueCapacity, OverflowPolicy overflowPolicy) {
+        if (workerCount < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Worker count and queue capacity must be positive");
+        }
+        this.overflowPolicy = overflowPolicy;
+        this.workers = new ThreadPoolExecutor[workerCount];
+
+        for (int i = 0; i < workerCount; i++) {
+            String threadName = name + "-" + i;
+            ThreadFactory threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            };
+            workers[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+
+    /**
+     * Queues the task on the worker owning {@code key}.
+     *
+     * @return {@code false} if the task was dropped because the worker's queue
+     *         was full (DROP policy) or the executor has been shut down
+     */
+    public boolean execute(Object key, Runnable task) {
+        ThreadPoolExecutor worker = workers[partition(key)];
+        if (worker.isShutdown()) {
+            dropped.increment();
+            return false;
+        }
+        // Tasks go straight onto the worker's queue, which keeps FIFO order per
+        // worker; the executor only supplies the thread draining it.
+        Runnable guarded = () -> run(task);
+        worker.prestartCoreThread();
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                worker.getQueue().put(guarded);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dropped.increment();
+                return false;
+            }
+        } else if (!worker.getQueue().offer(guarded)) {
+            dropped.increment();
+            return false;
+        }
+        // Shut down meanwhile: the worker may already have exited, leaving the
+        // task stranded in its queue. Take it back unless it was picked up.
+        if (worker.isShutdown() && worker.getQueue().remove(guarded)) {
+            dropped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.warn("Task on {} failed", Thread.currentThread().getName(), e);
+        }
+    }
+
+    public int partition(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        h ^= (h >>> 16);
+        return Math.floorMod(h, workers.length);
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    /** Tasks waiting in all worker queues. */
+    public int getQueuedTasks() {
+        int queued = 0;
+        for (ThreadPoolExecutor worker : workers) {
+            queued += worker.getQueue().size();
+        }
+        return queued;
+    }
+
+    public long getDroppedTasks() {
+        return dropped.sum();
+    }
+
+    /** Tasks that threw. */
+    public long getFailedTasks() {
+        return failed.sum();
+    }
+
+    /**
+     * Stops accepting tasks and waits up to {@code timeoutMillis} for the
+     * queued ones to finish.
+     */
+    public void shutdown(long timeoutMillis) {
+        for (ThreadPoolExecutor worker : workers) {
+            worker.shutdown();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            for (ThreadPoolExecutor worker : workers) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !worker.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                    worker.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (ThreadPoolExecutor worker : workers) {
+                worker.shutdownNow();
+            }
+        }
+    }
+}
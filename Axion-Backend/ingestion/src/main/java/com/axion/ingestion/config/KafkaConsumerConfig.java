@@ -1,13 +1,16 @@
 package com.axion.ingestion.config;
 
 import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.serde.TelemetryEnvelopeDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 
 import java.util.HashMap;
@@ -16,6 +19,18 @@ import java.util.Map;
 @Configuration
 public class KafkaConsumerConfig {
 
+    // "batch" hands each poll to TelemetryBatchConsumer, "record" one record at a time to TelemetryConsumer,
+    // "parallel" spreads records over TelemetryParallelConsumer's workers by vehicle
+    @Value("${axion.kafka.consumer.mode:batch}")
+    private String mode;
+
+    // Listener threads per instance; partitions are shared out among them
+    @Value("${axion.kafka.consumer.concurrency:1}")
+    private int concurrency;
+
+    @Value("${axion.kafka.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+
     @Bean
     public ConsumerFactory<String, CanonicalTelemetryEnvelope> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
@@ -25,10 +40,13 @@ public class KafkaConsumerConfig {
 
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG,
-                JsonDeserializer.class);
+                TelemetryEnvelopeDeserializer.class);
 
+        // JSON fallback for records written before a topic switched to binary
         props.put(JsonDeserializer.TRUSTED_PACKAGES, "*");
+        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, CanonicalTelemetryEnvelope.class);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
 
         return new DefaultKafkaConsumerFactory<>(props);
     }
@@ -39,6 +57,14 @@ public class KafkaConsumerConfig {
         ConcurrentKafkaListenerContainerFactory<String, CanonicalTelemetryEnvelope> factory = new ConcurrentKafkaListenerContainerFactory<>();
 
         factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
+        factory.setBatchListener("batch".equals(mode));
+        if ("parallel".equals(mode)) {
+            // Records complete out of order on the workers; the container only
+            // commits an offset once every offset before it has been acknowledged.
+            factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+            factory.getContainerProperties().setAsyncAcks(true);
+        }
         return factory;
     }
 }
@@ -1,11 +1,15 @@
 package com.axion.ingestion.config;
 
+import com.axion.ingestion.alert.VehicleAlert;
 import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.serde.TelemetryEnvelopeSerializer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -13,6 +17,24 @@ import java.util.Map;
 @Configuration
 public class KafkaProducerConfig {
 
+    @Value("${axion.kafka.producer.linger-ms:5}")
+    private int lingerMs;
+
+    @Value("${axion.kafka.producer.batch-size:65536}")
+    private int batchSize;
+
+    @Value("${axion.kafka.producer.compression-type:lz4}")
+    private String compressionType;
+
+    @Value("${axion.kafka.producer.buffer-memory:33554432}")
+    private long bufferMemory;
+
+    @Value("${axion.kafka.producer.max-block-ms:2000}")
+    private long maxBlockMs;
+
+    @Value("${axion.kafka.serde.binary-topics:telemetry.normal}")
+    private String binaryTopics;
+
     @Bean
     public ProducerFactory<String, CanonicalTelemetryEnvelope> producerFactory() {
 
@@ -23,8 +45,8 @@ public class KafkaProducerConfig {
 
         // Serialization
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
-                org.springframework.kafka.support.serializer.JsonSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, TelemetryEnvelopeSerializer.class);
+        props.put(TelemetryEnvelopeSerializer.BINARY_TOPICS, binaryTopics);   // JSON on every other topic
 
         // Reliability guarantees
         props.put(ProducerConfig.ACKS_CONFIG, "all");          // Leader + ISR
@@ -34,9 +56,16 @@ public class KafkaProducerConfig {
         // Ordering guarantees
         props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
 
+        // Batching
+        props.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        props.put(ProducerConfig.BUFFER_MEMORY_CONFIG, bufferMemory);
+
         // Timeout tuning
         props.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, 30000);
         props.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, 120000);
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs); // send() never parks a caller longer than this
 
         return new DefaultKafkaProducerFactory<>(props);
     }
@@ -45,4 +74,38 @@ public class KafkaProducerConfig {
     public KafkaTemplate<String, CanonicalTelemetryEnvelope> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
+
+    /**
+     * Alerts are rare and latency matters more than batching, so they get
+     * their own producer that sends right away.
+     */
+    @Bean
+    public ProducerFactory<String, VehicleAlert> alertProducerFactory() {
+
+        Map<String, Object> props = new HashMap<>();
+
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        props.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.RETRIES_CONFIG, 5);
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 0);
+
+        props.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, 30000);
+        props.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, 120000);
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
+
+        return new DefaultKafkaProducerFactory<>(props);
+    }
+
+    @Bean
+    public KafkaTemplate<String, VehicleAlert> alertKafkaTemplate() {
+        return new KafkaTemplate<>(alertProducerFactory());
+    }
 }
@@ -1,33 +1,30 @@
 package com.axion.ingestion.config;
 
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import com.axion.ingestion.adapter.RestTelemetryAdapter;
-import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
-import com.axion.ingestion.producer.TelemetryKafkaProducer;
-import com.axion.ingestion.validation.TelemetryValidator;
-import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.integration.channel.DirectChannel;
-import org.springframework.integration.core.MessageProducer;
 import org.springframework.integration.mqtt.core.DefaultMqttPahoClientFactory;
-import org.springframework.integration.mqtt.inbound.MqttPahoMessageDrivenChannelAdapter;
-import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
-import org.springframework.stereotype.Component;
 
+/**
+ * MQTT client settings. The inbound connections themselves are registered by
+ * {@link com.axion.ingestion.mqtt.MqttInboundConnections}, since their number
+ * is configurable.
+ */
 @Configuration
 public class MqttConfig {
 
-    private static final String BROKER_URL = "tcp://localhost:1883";
-    private static final String CLIENT_ID = "axion-ingestion-service";
+    @Value("${axion.mqtt.broker-url:tcp://localhost:1883}")
+    private String brokerUrl;
 
     @Bean
     public DefaultMqttPahoClientFactory mqttClientFactory() {
         DefaultMqttPahoClientFactory factory = new DefaultMqttPahoClientFactory();
 
         MqttConnectOptions options = new MqttConnectOptions();
-        options.setServerURIs(new String[]{BROKER_URL});
+        options.setServerURIs(new String[]{brokerUrl});
         options.setCleanSession(true);
         options.setAutomaticReconnect(true);
 
@@ -39,17 +36,4 @@ public class MqttConfig {
     public MessageChannel mqttInputChannel() {
         return new DirectChannel();
     }
-
-    @Bean
-    public MessageProducer mqttInbound() {
-        MqttPahoMessageDrivenChannelAdapter adapter = new MqttPahoMessageDrivenChannelAdapter(
-                CLIENT_ID, mqttClientFactory(), "axion/telemetry/+", "axion/heartbeat/+"
-        );
-
-        adapter.setCompletionTimeout(5000);
-        adapter.setQos(1);
-        adapter.setOutputChannel(mqttInputChannel());
-
-        return adapter;
-    }
 }
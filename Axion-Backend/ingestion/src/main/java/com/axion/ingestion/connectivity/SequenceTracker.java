@@ -0,0 +1,142 @@
+package com.axion.ingestion.connectivity;
+
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Packet loss per vehicle, derived from the sequence numbers of its
+ * readings. Each vehicle has a window over its last {@value #WINDOW}
+ * sequence numbers, kept as a bitmap of the ones received: a jump ahead
+ * leaves the numbers skipped as gaps, a number already in the window is a
+ * duplicate, a missing one arriving late fills its gap again. Loss is the
+ * share of the window still missing, once the window covers
+ * {@code min-window} numbers. A number older than the window means the
+ * vehicle restarted its sequence, and starts the window over.
+ * <p>
+ * Readings are recorded from many consumer threads. Vehicles are looked up
+ * in a concurrent map and each window is guarded by its own monitor, so
+ * threads only wait on each other for readings of the same vehicle, which
+ * Kafka keeps on one partition anyway. Windows of vehicles not heard from
+ * for {@code idle-ms} are dropped.
+ */
+@Component
+public class SequenceTracker {
+
+    static final int WINDOW = Long.SIZE;
+
+    private final boolean enabled;
+    private final int minWindow;
+    private final long idleMillis;
+
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    private final Counter gaps;
+    private final Counter duplicates;
+    private final Counter reordered;
+    private final Counter restarts;
+
+    public SequenceTracker(MeterRegistry meterRegistry,
+            @Value("${axion.connectivity.enabled:true}") boolean enabled,
+            @Value("${axion.connectivity.min-window:20}") int minWindow,
+            @Value("${axion.connectivity.idle-ms:3600000}") long idleMillis) {
+        if (minWindow < 1 || minWindow > WINDOW) {
+            throw new IllegalArgumentException("axion.connectivity.min-window must be between 1 and " + WINDOW);
+        }
+        this.enabled = enabled;
+        this.minWindow = minWindow;
+        this.idleMillis = idleMillis;
+        this.gaps = meterRegistry.counter("axion.connectivity.gaps");
+        this.duplicates = meterRegistry.counter("axion.connectivity.duplicates");
+        this.reordered = meterRegistry.counter("axion.connectivity.reordered");
+        this.restarts = meterRegistry.counter("axion.connectivity.restarts");
+        Gauge.builder("axion.connectivity.vehicles", windows, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    /**
+     * Adds the sequence number of the event, if it has one.
+     */
+    public void record(CanonicalTelemetryEnvelope event) {
+        if (!enabled || event == null || event.getConnection() == null
+                || event.getConnection().getSequenceNumber() == null) {
+            return;
+        }
+        long sequence = event.getConnection().getSequenceNumber();
+        Window window = windows.computeIfAbsent(event.getVehicleId(), id -> new Window());
+        synchronized (window) {
+            window.lastRecorded = System.currentTimeMillis();
+            if (window.span == 0) {
+                window.start(sequence);
+                return;
+            }
+            long behind = window.highest - sequence;
+            if (behind < 0) {
+                long ahead = -behind;
+                if (ahead > 1) {
+                    gaps.increment(ahead - 1);
+                }
+                window.received = ahead >= WINDOW ? 1 : window.received << ahead | 1;
+                window.highest = sequence;
+                window.span = (int) Math.min(WINDOW, window.span + ahead);
+            } else if (behind >= WINDOW) {
+                restarts.increment();
+                window.start(sequence);
+            } else if ((window.received & 1L << behind) != 0) {
+                duplicates.increment();
+            } else {
+                reordered.increment();
+                window.received |= 1L << behind;
+                window.span = (int) Math.max(window.span, behind + 1);
+            }
+        }
+    }
+
+    /**
+     * Share of the vehicle's recent sequence numbers that did not arrive, in
+     * percent, or null while it has not sent enough of them.
+     */
+    public Double packetLossPct(String vehicleId) {
+        Window window = enabled ? windows.get(vehicleId) : null;
+        if (window == null) {
+            return null;
+        }
+        synchronized (window) {
+            if (window.span < minWindow) {
+                return null;
+            }
+            long covered = window.span == WINDOW ? -1L : (1L << window.span) - 1;
+            int missing = window.span - Long.bitCount(window.received & covered);
+            return missing * 100.0 / window.span;
+        }
+    }
+
+    /**
+     * Drops the windows of vehicles not heard from for {@code idle-ms}.
+     */
+    @Scheduled(fixedDelayString = "${axion.connectivity.sweep-interval-ms:60000}")
+    public void releaseIdle() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        windows.values().removeIf(window -> window.lastRecorded < cutoff);
+    }
+
+    private static final class Window {
+        long highest;
+        // Bit i set when highest - i was received
+        long received;
+        // Sequence numbers covered so far, up to WINDOW
+        int span;
+        volatile long lastRecorded;
+
+        void start(long sequence) {
+            highest = sequence;
+            received = 1;
+            span = 1;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.axion.ingestion.consumer;
+
+import com.axion.ingestion.history.TelemetryHistoryStore;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.rollup.RollupAggregator;
+import com.axion.ingestion.service.DigitalTwinService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Applies each poll as one batch, see {@link DigitalTwinService#updateBatch},
+ * records its readings in the {@link TelemetryHistoryStore} and folds them
+ * into the {@link RollupAggregator} windows. A poll whose readings could not
+ * be logged fails, so that it is delivered again.
+ * Used with {@code axion.kafka.consumer.mode=batch}, the default.
+ */
+@Component
+@ConditionalOnProperty(name = "axion.kafka.consumer.mode", havingValue = "batch", matchIfMissing = true)
+public class TelemetryBatchConsumer {
+
+    private final DigitalTwinService digitalTwinService;
+    private final TelemetryHistoryStore historyStore;
+    private final RollupAggregator rollupAggregator;
+
+    public TelemetryBatchConsumer(DigitalTwinService digitalTwinService, TelemetryHistoryStore historyStore,
+            RollupAggregator rollupAggregator) {
+        this.digitalTwinService = digitalTwinService;
+        this.historyStore = historyStore;
+        this.rollupAggregator = rollupAggregator;
+    }
+
+    @KafkaListener(topics = "telemetry.normal", groupId = "digital-twin-updater")
+    public void consume(List<CanonicalTelemetryEnvelope> events) {
+        digitalTwinService.updateBatch(events);
+        historyStore.append(events);
+        rollupAggregator.add(events);
+    }
+}
@@ -1,22 +1,37 @@
 package com.axion.ingestion.consumer;
 
 import com.axion.ingestion.service.DigitalTwinService;
+import com.axion.ingestion.history.TelemetryHistoryStore;
 import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.rollup.RollupAggregator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
+/**
+ * Applies records one at a time. Used with {@code axion.kafka.consumer.mode=record}.
+ */
 @Component
+@ConditionalOnProperty(name = "axion.kafka.consumer.mode", havingValue = "record")
 public class TelemetryConsumer {
 
     private final DigitalTwinService digitalTwinService;
+    private final TelemetryHistoryStore historyStore;
+    private final RollupAggregator rollupAggregator;
 
-    public TelemetryConsumer(DigitalTwinService digitalTwinService) {
+    public TelemetryConsumer(DigitalTwinService digitalTwinService, TelemetryHistoryStore historyStore,
+            RollupAggregator rollupAggregator) {
         this.digitalTwinService = digitalTwinService;
+        this.historyStore = historyStore;
+        this.rollupAggregator = rollupAggregator;
     }
 
     @KafkaListener(topics = "telemetry.normal", groupId = "digital-twin-updater")
     public void consume(CanonicalTelemetryEnvelope event) {
-        System.out.println("CONSUMED EVENT for " + event.getVehicleId());
         digitalTwinService.update(event);
+        historyStore.append(List.of(event));
+        rollupAggregator.add(List.of(event));
     }
 }
@@ -0,0 +1,141 @@
+package com.axion.ingestion.consumer;
+
+import com.axion.ingestion.concurrent.PartitionedExecutor;
+import com.axion.ingestion.concurrent.PartitionedExecutor.OverflowPolicy;
+import com.axion.ingestion.history.TelemetryHistoryStore;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.rollup.RollupAggregator;
+import com.axion.ingestion.service.DigitalTwinService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Key-ordered parallel consumer, used with {@code axion.kafka.consumer.mode=parallel}.
+ * <p>
+ * Each record is queued on the worker owning its key (the vehicle id), so one
+ * vehicle's records are applied in offset order while different vehicles of
+ * the same partition are applied at the same time. Records are acknowledged
+ * as their worker finishes them; the container commits an offset only when
+ * all earlier offsets of the partition have been acknowledged, so a restart
+ * never skips unprocessed records.
+ * <p>
+ * A record that fails is retried on its worker, with the delay doubling from
+ * {@code retry-backoff-ms}, holding back the vehicles queued behind it. One
+ * still failing after {@code max-attempts} is left unacknowledged: later
+ * records are applied but their offsets are not committed, so a restart or
+ * rebalance delivers it again.
+ */
+@Component
+@ConditionalOnProperty(name = "axion.kafka.consumer.mode", havingValue = "parallel")
+public class TelemetryParallelConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(TelemetryParallelConsumer.class);
+
+    private final DigitalTwinService digitalTwinService;
+    private final TelemetryHistoryStore historyStore;
+    private final RollupAggregator rollupAggregator;
+    private final PartitionedExecutor workers;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final Counter failed;
+    private final Counter retried;
+    private final Counter inline;
+
+    public TelemetryParallelConsumer(DigitalTwinService digitalTwinService, TelemetryHistoryStore historyStore,
+            RollupAggregator rollupAggregator, MeterRegistry meterRegistry,
+            @Value("${axion.kafka.consumer.parallel.workers:8}") int workerCount,
+            @Value("${axion.kafka.consumer.parallel.queue-capacity:1000}") int queueCapacity,
+            @Value("${axion.kafka.consumer.parallel.max-attempts:5}") int maxAttempts,
+            @Value("${axion.kafka.consumer.parallel.retry-backoff-ms:200}") long retryBackoffMillis) {
+        this.digitalTwinService = digitalTwinService;
+        this.historyStore = historyStore;
+        this.rollupAggregator = rollupAggregator;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoffMillis;
+        // BLOCK: a full queue holds up the listener thread, which stops polling
+        this.workers = new PartitionedExecutor("twin-worker", workerCount, queueCapacity, OverflowPolicy.BLOCK);
+        this.failed = meterRegistry.counter("axion.kafka.consumer.failed");
+        this.retried = meterRegistry.counter("axion.kafka.consumer.retried");
+        this.inline = meterRegistry.counter("axion.kafka.consumer.inline");
+        Gauge.builder("axion.kafka.consumer.queued", workers, PartitionedExecutor::getQueuedTasks)
+                .register(meterRegistry);
+    }
+
+    @KafkaListener(topics = "telemetry.normal", groupId = "digital-twin-updater")
+    public void consume(ConsumerRecord<String, CanonicalTelemetryEnvelope> record, Acknowledgment ack) {
+        CanonicalTelemetryEnvelope event = record.value();
+        if (event == null) {
+            ack.acknowledge();
+            return;
+        }
+        String key = record.key() != null ? record.key() : event.getVehicleId();
+        if (!workers.execute(key, () -> apply(record, event, ack))) {
+            // Rejected, i.e. shutting down or interrupted. Left unacknowledged the
+            // record would stall its partition, so it is applied here instead. Should
+            // an earlier record of the vehicle still be queued, the upsert keeps the
+            // newer of the two whichever lands first.
+            inline.increment();
+            apply(record, event, ack);
+        }
+    }
+
+    private void apply(ConsumerRecord<String, CanonicalTelemetryEnvelope> record,
+            CanonicalTelemetryEnvelope event, Acknowledgment ack) {
+        // Steps already applied are not repeated on a retry, so history and rollups see the event once
+        int applied = 0;
+        long backoff = retryBackoffMillis;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (applied == 0) {
+                    digitalTwinService.update(event);
+                    applied++;
+                }
+                if (applied == 1) {
+                    historyStore.append(List.of(event));
+                    applied++;
+                }
+                rollupAggregator.add(List.of(event));
+                ack.acknowledge();
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !sleep(backoff)) {
+                    failed.increment();
+                    log.error("Twin update failed for {} at {}-{}@{} after {} attempts, left unacknowledged: {}",
+                            event.getVehicleId(), record.topic(), record.partition(), record.offset(), attempt,
+                            e.getMessage());
+                    return;
+                }
+                retried.increment();
+                backoff *= 2;
+            }
+        }
+    }
+
+    // False if interrupted, i.e. shutting down
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown(5000);
+    }
+}
@@ -1,10 +1,14 @@
 package com.axion.ingestion.controller;
 
+import com.axion.ingestion.adapter.TelemetryAdapterRegistry;
+import com.axion.ingestion.dto.BatchIngestionResponse;
 import com.axion.ingestion.service.TelemetryIngestionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Mono;
@@ -29,10 +33,26 @@ public class TelemetryIngestionController {
         })
         @PostMapping
         public Mono<ResponseEntity<Void>> ingest(
-                        @RequestBody String payload) {
-                System.out.println("RECEIVED TELEMETRY REST REQUEST: " + payload);
-
-                return ingestionService.ingestRest(payload)
+                        @RequestHeader(name = TelemetryAdapterRegistry.VENDOR_HEADER, required = false) String vendor,
+                        @RequestBody byte[] payload) {
+                return ingestionService.ingestRest(payload, vendor)
                                 .thenReturn(ResponseEntity.accepted().build());
         }
+
+        @Operation(summary = "Ingest a batch of vehicle telemetry", description = "Accepts a JSON array or newline-delimited JSON of raw telemetry readings and reports the outcome of every record")
+        @ApiResponses({
+                        @ApiResponse(responseCode = "202", description = "Batch processed, see per-record results"),
+                        @ApiResponse(responseCode = "400", description = "Batch body is not a JSON array or NDJSON stream")
+        })
+        @PostMapping(path = "/batch", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+        public Mono<ResponseEntity<BatchIngestionResponse>> ingestBatch(
+                        @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                        @RequestHeader(name = TelemetryAdapterRegistry.VENDOR_HEADER, required = false) String vendor,
+                        @RequestBody byte[] payload) {
+
+                boolean ndjson = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType);
+
+                return ingestionService.ingestBatch(payload, ndjson, vendor)
+                                .map(response -> ResponseEntity.accepted().body(response));
+        }
 }
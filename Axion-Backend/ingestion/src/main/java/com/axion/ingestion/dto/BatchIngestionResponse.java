@@ -0,0 +1,19 @@
+package com.axion.ingestion.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+@Getter
+@Setter
+public class BatchIngestionResponse {
+
+    private int received;
+    private int accepted;
+    private int rejected;
+
+    private List<BatchRecordResult> results;
+}
@@ -18,5 +18,7 @@ public class DigitalTwinResponse {
     private Integer healthScore;
     private String healthState;
 
+    private Double packetLossPct;
+
     private Object telemetry;
 }
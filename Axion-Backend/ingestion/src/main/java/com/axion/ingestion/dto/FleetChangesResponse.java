@@ -0,0 +1,25 @@
+package com.axion.ingestion.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+@Getter
+@Setter
+public class FleetChangesResponse {
+
+    // Pass as since on the next call
+    private long version;
+
+    // More changes are waiting, ask again straight away
+    private boolean more;
+
+    // The requested version is too old (or unknown), reload the full listing
+    private boolean resync;
+
+    private List<FleetVehicleResponse> updated;
+    private List<String> removed;
+}
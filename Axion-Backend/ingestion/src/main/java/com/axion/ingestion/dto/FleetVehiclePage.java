@@ -0,0 +1,18 @@
+package com.axion.ingestion.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+@Getter
+@Setter
+public class FleetVehiclePage {
+
+    private List<FleetVehicleResponse> vehicles;
+
+    // Pass as cursor to get the next page; null after the last page
+    private String nextCursor;
+}
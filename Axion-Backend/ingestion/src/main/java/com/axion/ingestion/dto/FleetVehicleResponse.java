@@ -1,5 +1,6 @@
 package com.axion.ingestion.dto;
 
+import com.axion.ingestion.model.DigitalTwinState;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -17,4 +18,20 @@ public class FleetVehicleResponse {
     private Instant lastSeen;
     private Double battery;
     private Double temperature;
+
+    public static FleetVehicleResponse from(DigitalTwinState state) {
+        FleetVehicleResponse v = new FleetVehicleResponse();
+        v.setVehicleId(state.getVehicleId());
+        v.setVendor(state.getVendor());
+        v.setOnline(state.isOnline());
+        v.setHealthScore(state.getHealthScore());
+        v.setHealthState(state.getHealthState());
+        v.setLastSeen(state.getLastSeen());
+
+        if (state.getTelemetry() != null) {
+            v.setBattery(state.getTelemetry().getBatterySocPct());
+            v.setTemperature(state.getTelemetry().getBatteryTempC());
+        }
+        return v;
+    }
 }
@@ -0,0 +1,30 @@
+package com.axion.ingestion.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * One bucket of a vehicle's history: the average of each reading over the
+ * bucket, null where the bucket holds none.
+ */
+@RequiredArgsConstructor
+@Getter
+@Setter
+public class HistoryPoint {
+
+    // Start of the bucket
+    private Instant timestamp;
+
+    // Points averaged into this bucket
+    private int samples;
+
+    private Double speedKmph;
+    private Double batterySocPct;
+    private Double batteryTempC;
+    private Double motorTempC;
+    private Double ambientTempC;
+    private Double odometerKm;
+}
@@ -0,0 +1,24 @@
+package com.axion.ingestion.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Aggregates of one metric over a rollup window.
+ */
+@RequiredArgsConstructor
+@Getter
+@Setter
+public class MetricRollup {
+
+    // Readings in the window
+    private long count;
+
+    private double min;
+    private double max;
+    private double avg;
+
+    // Reading with the newest event timestamp
+    private double last;
+}
@@ -0,0 +1,28 @@
+package com.axion.ingestion.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@RequiredArgsConstructor
+@Getter
+@Setter
+public class RescoreJobResponse {
+
+    private int jobId;
+    // RUNNING, COMPLETED or FAILED
+    private String state;
+    private Instant startedAt;
+    private Instant finishedAt;
+    // Twins to re-score, null until the fleet has been listed
+    private Long total;
+    private long scanned;
+    // Twins whose score changed and was written
+    private long rescored;
+    // Twins whose score changed but a consumer updated first
+    private long skipped;
+    private double twinsPerSecond;
+    private String error;
+}
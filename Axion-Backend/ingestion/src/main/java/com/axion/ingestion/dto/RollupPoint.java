@@ -0,0 +1,24 @@
+package com.axion.ingestion.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * One closed rollup window, with null for a metric that had no readings.
+ */
+@RequiredArgsConstructor
+@Getter
+@Setter
+public class RollupPoint {
+
+    // Start of the window
+    private Instant timestamp;
+
+    private MetricRollup batterySocPct;
+    private MetricRollup batteryTempC;
+    private MetricRollup motorTempC;
+    private MetricRollup speedKmph;
+}
@@ -0,0 +1,23 @@
+package com.axion.ingestion.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.List;
+
+@RequiredArgsConstructor
+@Getter
+@Setter
+public class RollupResponse {
+
+    // Null for the fleet-wide rollups
+    private String vehicleId;
+    private String resolution;
+    private Instant from;
+    private Instant to;
+
+    // Closed windows starting in [from, to), oldest first
+    private List<RollupPoint> windows;
+}
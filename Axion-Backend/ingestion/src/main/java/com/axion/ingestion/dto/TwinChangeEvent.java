@@ -0,0 +1,26 @@
+package com.axion.ingestion.dto;
+
+import com.axion.ingestion.model.DigitalTwinState;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * One message of the twin change stream: the twins that changed since the
+ * previous message, the vehicles that left the stream (expired, or no longer
+ * matching the client's filter) and the fleet counters, when they moved
+ * since the previous message.
+ */
+@RequiredArgsConstructor
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TwinChangeEvent {
+
+    private List<DigitalTwinState> updated;
+    private List<String> removed;
+    private FleetSummaryResponse summary;
+}
@@ -0,0 +1,22 @@
+package com.axion.ingestion.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.List;
+
+@RequiredArgsConstructor
+@Getter
+@Setter
+public class VehicleHistoryResponse {
+
+    private String vehicleId;
+    private Instant from;
+    private Instant to;
+    private long stepMs;
+
+    // Buckets with readings, oldest first
+    private List<HistoryPoint> points;
+}
@@ -18,6 +18,13 @@ public class GlobalExceptionHandler {
                 .body(error("INVALID_PAYLOAD", ex.getMessage()));
     }
 
+    @ExceptionHandler(InvalidQueryException.class)
+    public ResponseEntity<?> handleInvalidQuery(InvalidQueryException ex) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(error("INVALID_QUERY", ex.getMessage()));
+    }
+
     @ExceptionHandler(ValidationException.class)
     public ResponseEntity<?> handleValidation(ValidationException ex) {
         return ResponseEntity
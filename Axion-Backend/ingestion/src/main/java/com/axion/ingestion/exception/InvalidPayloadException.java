@@ -4,4 +4,17 @@ public class InvalidPayloadException extends RuntimeException {
     public InvalidPayloadException(String message) {
         super(message);
     }
+
+    private InvalidPayloadException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+
+    /**
+     * Creates an exception without a captured stack trace. Intended for
+     * rejecting bad input on hot ingest paths, where the trace is never read;
+     * such instances are immutable and may be shared.
+     */
+    public static InvalidPayloadException withoutStackTrace(String message) {
+        return new InvalidPayloadException(message, false);
+    }
 }
@@ -0,0 +1,7 @@
+package com.axion.ingestion.exception;
+
+public class InvalidQueryException extends RuntimeException {
+    public InvalidQueryException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,248 @@
+package com.axion.ingestion.health;
+
+import com.axion.ingestion.model.DigitalTwinState;
+import com.axion.ingestion.model.TelemetrySnapshot;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A {@link HealthRuleSpec} flattened into parallel primitive arrays, one
+ * entry per rule, with a copy per vendor that has overrides. Comparisons are
+ * normalized to "greater than": below-comparators negate the value and the
+ * thresholds, and a level left out is NaN, which nothing exceeds.
+ * Immutable, so a new rule set is swapped in by replacing the reference.
+ */
+final class CompiledHealthRules {
+
+    // Two reason bits per rule must fit next to the score and state, see HealthScore
+    static final int MAX_RULES = 27;
+
+    private static final List<String> METRICS =
+            List.of("batterySocPct", "batteryTempC", "motorTempC", "ambientTempC", "speedKmph", "offline",
+                    "batteryTempRate", "socDrainRate", "packetLossPct");
+    private static final int SOC = 0;
+    private static final int BATTERY_TEMP = 1;
+    private static final int MOTOR_TEMP = 2;
+    private static final int AMBIENT_TEMP = 3;
+    private static final int SPEED = 4;
+    private static final int OFFLINE = 5;
+    private static final int BATTERY_TEMP_RATE = 6;
+    private static final int SOC_DRAIN_RATE = 7;
+    private static final int PACKET_LOSS = 8;
+
+    private final int healthyMin;
+    private final int degradedMin;
+
+    private final int[] metric;
+    private final double[] sign;
+    private final boolean[] inclusive;
+    private final double[] warning;
+    private final double[] critical;
+    private final int[] warningPenalty;
+    private final int[] criticalPenalty;
+    private final String[] warningReason;
+    private final String[] criticalReason;
+
+    // Rules with vendor overrides applied, case-insensitive, only set on the default rules
+    private final Map<String, CompiledHealthRules> byVendor;
+
+    private CompiledHealthRules(HealthRuleSpec spec, String vendor, Map<String, CompiledHealthRules> byVendor) {
+        int count = spec.getRules().size();
+        this.healthyMin = spec.getHealthyMin();
+        this.degradedMin = spec.getDegradedMin();
+        this.metric = new int[count];
+        this.sign = new double[count];
+        this.inclusive = new boolean[count];
+        this.warning = new double[count];
+        this.critical = new double[count];
+        this.warningPenalty = new int[count];
+        this.criticalPenalty = new int[count];
+        this.warningReason = new String[count];
+        this.criticalReason = new String[count];
+        this.byVendor = byVendor;
+
+        for (int i = 0; i < count; i++) {
+            HealthRuleSpec.RuleSpec rule = spec.getRules().get(i);
+            metric[i] = METRICS.indexOf(rule.getMetric());
+            if (metric[i] < 0) {
+                throw new IllegalArgumentException("Rule " + i + ": metric must be one of " + METRICS);
+            }
+            if (rule.getComparator() == null) {
+                throw new IllegalArgumentException("Rule " + i + ": comparator is required");
+            }
+            switch (rule.getComparator()) {
+                case "LT" -> sign[i] = -1;
+                case "LE" -> {
+                    sign[i] = -1;
+                    inclusive[i] = true;
+                }
+                case "GT" -> sign[i] = 1;
+                case "GE" -> {
+                    sign[i] = 1;
+                    inclusive[i] = true;
+                }
+                default -> throw new IllegalArgumentException("Rule " + i + ": comparator must be LT, LE, GT or GE");
+            }
+
+            HealthRuleSpec.Thresholds override = vendor == null ? null : rule.getVendors().get(vendor);
+            Double warningThreshold = override != null && override.getWarning() != null
+                    ? override.getWarning() : rule.getWarning();
+            Double criticalThreshold = override != null && override.getCritical() != null
+                    ? override.getCritical() : rule.getCritical();
+            if (warningThreshold == null && criticalThreshold == null) {
+                throw new IllegalArgumentException("Rule " + i + ": needs a warning or a critical threshold");
+            }
+            warning[i] = warningThreshold == null ? Double.NaN : sign[i] * warningThreshold;
+            critical[i] = criticalThreshold == null ? Double.NaN : sign[i] * criticalThreshold;
+            warningPenalty[i] = override != null && override.getWarningPenalty() != null
+                    ? override.getWarningPenalty() : rule.getWarningPenalty();
+            criticalPenalty[i] = override != null && override.getCriticalPenalty() != null
+                    ? override.getCriticalPenalty() : rule.getCriticalPenalty();
+            warningReason[i] = rule.getWarningReason() != null ? rule.getWarningReason() : rule.getMetric() + " warning";
+            criticalReason[i] = rule.getCriticalReason() != null ? rule.getCriticalReason() : rule.getMetric() + " critical";
+        }
+    }
+
+    static CompiledHealthRules compile(HealthRuleSpec spec) {
+        if (spec.getRules().size() > MAX_RULES) {
+            throw new IllegalArgumentException("At most " + MAX_RULES + " health rules are supported");
+        }
+        if (spec.getDegradedMin() > spec.getHealthyMin()) {
+            throw new IllegalArgumentException("degradedMin must not exceed healthyMin");
+        }
+        Map<String, CompiledHealthRules> byVendor = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (HealthRuleSpec.RuleSpec rule : spec.getRules()) {
+            for (String vendor : rule.getVendors().keySet()) {
+                byVendor.computeIfAbsent(vendor, v -> new CompiledHealthRules(spec, v, Map.of()));
+            }
+        }
+        return new CompiledHealthRules(spec, null, byVendor);
+    }
+
+    int size() {
+        return metric.length;
+    }
+
+    /**
+     * Lowest score still in the given state.
+     */
+    int minScore(HealthState state) {
+        return switch (state) {
+            case HEALTHY -> healthyMin;
+            case DEGRADED -> degradedMin;
+            case CRITICAL -> 0;
+        };
+    }
+
+    private CompiledHealthRules forVendor(String vendor) {
+        if (vendor == null || byVendor.isEmpty()) {
+            return this;
+        }
+        CompiledHealthRules rules = byVendor.get(vendor);
+        return rules != null ? rules : this;
+    }
+
+    /**
+     * Scores a reading without allocating. The trend metrics are NaN when
+     * not known, see {@link TrendTracker}.
+     *
+     * @return the result packed as described in {@link HealthScore}
+     */
+    long evaluate(DigitalTwinState twin, double batteryTempRate, double socDrainRate) {
+        return evaluate(twin, batteryTempRate, socDrainRate, 0);
+    }
+
+    /**
+     * Scores a reading as above, taking a further penalty off the score.
+     */
+    long evaluate(DigitalTwinState twin, double batteryTempRate, double socDrainRate, int penalty) {
+        CompiledHealthRules rules = forVendor(twin.getVendor());
+        int score = 100 - penalty;
+        long reasons = 0;
+        for (int i = 0; i < rules.metric.length; i++) {
+            int metric = rules.metric[i];
+            double value = rules.sign[i] * (metric == BATTERY_TEMP_RATE ? batteryTempRate
+                    : metric == SOC_DRAIN_RATE ? socDrainRate : value(metric, twin));
+            if (rules.inclusive[i] ? value >= rules.critical[i] : value > rules.critical[i]) {
+                score -= rules.criticalPenalty[i];
+                reasons |= 1L << (2 * i + 1);
+            } else if (rules.inclusive[i] ? value >= rules.warning[i] : value > rules.warning[i]) {
+                score -= rules.warningPenalty[i];
+                reasons |= 1L << (2 * i);
+            }
+        }
+        score = Math.max(0, Math.min(100, score));
+        HealthState state = score >= rules.healthyMin ? HealthState.HEALTHY
+                : score >= rules.degradedMin ? HealthState.DEGRADED : HealthState.CRITICAL;
+        return HealthScore.pack(score, state, reasons);
+    }
+
+    /**
+     * What the trend rules among the given reasons took off the score.
+     */
+    int trendPenalty(String vendor, long reasons) {
+        CompiledHealthRules rules = forVendor(vendor);
+        int penalty = 0;
+        for (int i = 0; i < rules.metric.length; i++) {
+            if (rules.metric[i] != BATTERY_TEMP_RATE && rules.metric[i] != SOC_DRAIN_RATE) {
+                continue;
+            }
+            if ((reasons & 1L << (2 * i + 1)) != 0) {
+                penalty += rules.criticalPenalty[i];
+            } else if ((reasons & 1L << (2 * i)) != 0) {
+                penalty += rules.warningPenalty[i];
+            }
+        }
+        return penalty;
+    }
+
+    private static double value(int metric, DigitalTwinState twin) {
+        if (metric == OFFLINE) {
+            return twin.isOnline() ? 0 : 1;
+        }
+        if (metric == PACKET_LOSS) {
+            return twin.getPacketLossPct() != null ? twin.getPacketLossPct() : Double.NaN;
+        }
+        TelemetrySnapshot telemetry = twin.getTelemetry();
+        if (telemetry == null) {
+            return Double.NaN;
+        }
+        Double value = switch (metric) {
+            case SOC -> telemetry.getBatterySocPct();
+            case BATTERY_TEMP -> telemetry.getBatteryTempC();
+            case MOTOR_TEMP -> telemetry.getMotorTempC();
+            case AMBIENT_TEMP -> telemetry.getAmbientTempC();
+            case SPEED -> telemetry.getSpeedKmph();
+            default -> null;
+        };
+        return value != null ? value : Double.NaN;
+    }
+
+    /**
+     * Renders the reasons of a result of {@link #evaluate} for the vendor.
+     */
+    List<String> describe(String vendor, long reasons) {
+        if (reasons == 0) {
+            return Collections.emptyList();
+        }
+        CompiledHealthRules rules = forVendor(vendor);
+        List<String> explanations = new ArrayList<>();
+        for (int i = 0; i < rules.metric.length; i++) {
+            if ((reasons & 1L << (2 * i + 1)) != 0) {
+                explanations.add(render(rules.criticalReason[i], rules.sign[i] * rules.critical[i]));
+            } else if ((reasons & 1L << (2 * i)) != 0) {
+                explanations.add(render(rules.warningReason[i], rules.sign[i] * rules.warning[i]));
+            }
+        }
+        return explanations;
+    }
+
+    private static String render(String reason, double threshold) {
+        return reason.replace("{threshold}", BigDecimal.valueOf(threshold).stripTrailingZeros().toPlainString());
+    }
+}
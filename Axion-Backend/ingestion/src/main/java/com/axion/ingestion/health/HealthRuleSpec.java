@@ -0,0 +1,84 @@
+package com.axion.ingestion.health;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Declarative health rules, loaded from {@code axion.health.rules}. Every
+ * vehicle starts at 100 and loses the penalty of each rule it breaks; a rule
+ * is broken at critical level when {@code value <comparator> critical}, else
+ * at warning level when {@code value <comparator> warning}. Missing readings
+ * never break a rule. For example:
+ *
+ * <pre>
+ * {
+ *   "healthyMin": 80,
+ *   "degradedMin": 50,
+ *   "rules": [
+ *     {
+ *       "metric": "batterySocPct", "comparator": "LT",
+ *       "warning": 30, "warningPenalty": 30, "warningReason": "Battery SOC below optimal range (&lt;{threshold}%)",
+ *       "critical": 15, "criticalPenalty": 60, "criticalReason": "Battery SOC critically low (&lt;{threshold}%)",
+ *       "vendors": { "ACME": { "warning": 25, "critical": 10 } }
+ *     }
+ *   ]
+ * }
+ * </pre>
+ *
+ * Metrics are {@code batterySocPct}, {@code batteryTempC}, {@code motorTempC},
+ * {@code ambientTempC}, {@code speedKmph}, {@code offline} (1 when offline,
+ * else 0), and the trends {@code batteryTempRate} (°C per minute) and
+ * {@code socDrainRate} (SOC % per minute beyond what driving explains), see
+ * {@link TrendTracker}, and {@code packetLossPct}, see
+ * {@link com.axion.ingestion.connectivity.SequenceTracker}; comparators {@code LT}, {@code LE}, {@code GT} and {@code GE}.
+ * {@code {threshold}} in a reason is replaced by the threshold that was
+ * broken. Vendor entries override any of the thresholds and penalties.
+ */
+@RequiredArgsConstructor
+@Getter
+@Setter
+public class HealthRuleSpec {
+
+    // Lowest score still HEALTHY, and still DEGRADED
+    private int healthyMin = 80;
+    private int degradedMin = 50;
+
+    private List<RuleSpec> rules = new ArrayList<>();
+
+    @RequiredArgsConstructor
+    @Getter
+    @Setter
+    public static class RuleSpec {
+
+        private String metric;
+        private String comparator;
+
+        // Either level may be left out
+        private Double warning;
+        private int warningPenalty;
+        private String warningReason;
+
+        private Double critical;
+        private int criticalPenalty;
+        private String criticalReason;
+
+        private Map<String, Thresholds> vendors = new LinkedHashMap<>();
+    }
+
+    @RequiredArgsConstructor
+    @Getter
+    @Setter
+    public static class Thresholds {
+
+        private Double warning;
+        private Integer warningPenalty;
+        private Double critical;
+        private Integer criticalPenalty;
+    }
+}
@@ -0,0 +1,31 @@
+package com.axion.ingestion.health;
+
+/**
+ * A health evaluation packed into a long, so scoring every reading does not
+ * allocate: the score in bits 0-6, the {@link HealthState} ordinal in bits
+ * 7-8 and the reason mask from bit 9 on, where bit 2i of the mask marks rule
+ * i broken at warning level and bit 2i + 1 at critical level.
+ */
+public final class HealthScore {
+
+    private static final HealthState[] STATES = HealthState.values();
+
+    private HealthScore() {
+    }
+
+    static long pack(int score, HealthState state, long reasons) {
+        return score | (long) state.ordinal() << 7 | reasons << 9;
+    }
+
+    public static int score(long health) {
+        return (int) (health & 0x7F);
+    }
+
+    public static HealthState state(long health) {
+        return STATES[(int) (health >>> 7) & 0x3];
+    }
+
+    public static long reasons(long health) {
+        return health >>> 9;
+    }
+}
@@ -1,64 +1,132 @@
 package com.axion.ingestion.health;
 
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
 import com.axion.ingestion.model.DigitalTwinState;
-import com.axion.ingestion.model.TelemetrySnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Scores twins against the rules in {@code axion.health.rules}, see
+ * {@link HealthRuleSpec}. The rules are compiled once per load; a changed
+ * file is picked up every {@code axion.health.reload-interval-ms} and swapped
+ * in atomically, evaluations in flight finish on the rules they started with.
+ * A file that fails to load or compile leaves the current rules in place.
+ * <p>
+ * Trend rules read the vehicle's recent readings from the
+ * {@link TrendTracker}, fed through {@link #observe}.
+ */
 @Component
 public class HealthScoreEngine {
 
-    public HealthScoreResult evaluate(DigitalTwinState twin) {
-        int score = 100;
-        List<String> reasons = new ArrayList<>();
+    private static final Logger log = LoggerFactory.getLogger(HealthScoreEngine.class);
 
-        TelemetrySnapshot t = twin.getTelemetry();
+    private final Resource source;
+    private final TrendTracker trends;
+    private volatile CompiledHealthRules rules;
+    // Also reloaded by the fleet re-score job, so the scheduler and a run can race
+    private final AtomicLong loadedModified;
 
-        // ---- Battery SOC ----
-        if (t.getBatterySocPct() != null) {
-            if (t.getBatterySocPct() < HealthRules.SOC_CRITICAL) {
-                score -= HealthRules.PENALTY_CRITICAL;
-                reasons.add("Battery SOC critically low (<15%)");
-            } else if (t.getBatterySocPct() < HealthRules.SOC_WARNING) {
-                score -= HealthRules.PENALTY_WARNING;
-                reasons.add("Battery SOC below optimal range (<30%)");
-            }
-        }
+    public HealthScoreEngine(@Value("${axion.health.rules:classpath:health-rules.json}") Resource source,
+            TrendTracker trends) throws IOException {
+        this.source = source;
+        this.trends = trends;
+        this.loadedModified = new AtomicLong(lastModified(source));
+        this.rules = load(source);
+    }
 
-        // ---- Battery Temperature ----
-        if (t.getBatteryTempC() != null) {
-            if (t.getBatteryTempC() > HealthRules.BATTERY_TEMP_CRITICAL) {
-                score -= HealthRules.PENALTY_CRITICAL;
-                reasons.add("Battery temperature critically high (>55°C)");
-            } else if (t.getBatteryTempC() > HealthRules.BATTERY_TEMP_WARNING) {
-                score -= HealthRules.PENALTY_WARNING;
-                reasons.add("Battery temperature above normal (>45°C)");
-            }
-        }
+    /**
+     * Adds the reading to the vehicle's trends, call before scoring its twin.
+     */
+    public void observe(CanonicalTelemetryEnvelope event) {
+        trends.record(event);
+    }
+
+    /**
+     * Scores the twin without allocating, for the ingestion path, and sets
+     * the penalty its trend rules took on it, for {@link #rescore}.
+     *
+     * @return the result packed as described in {@link HealthScore}
+     */
+    public long score(DigitalTwinState twin) {
+        CompiledHealthRules current = rules;
+        long health = evaluate(current, twin);
+        twin.setTrendPenalty(current.trendPenalty(twin.getVendor(), HealthScore.reasons(health)));
+        return health;
+    }
+
+    /**
+     * Scores a stored twin on a node that may not have seen its readings, and
+     * so has no trends for it: the trend rules are left out and the penalty
+     * they took when the twin was written is kept instead.
+     *
+     * @return the result packed as described in {@link HealthScore}
+     */
+    public long rescore(DigitalTwinState twin) {
+        return rules.evaluate(twin, Double.NaN, Double.NaN, twin.getTrendPenalty());
+    }
 
-        // ---- Connectivity ----
-        if (!twin.isOnline()) {
-            score -= HealthRules.PENALTY_CRITICAL;
-            reasons.add("Vehicle offline");
+    /**
+     * Scores the twin, with the reasons rendered on demand.
+     */
+    public HealthScoreResult evaluate(DigitalTwinState twin) {
+        CompiledHealthRules current = rules;
+        long health = evaluate(current, twin);
+        return new HealthScoreResult(HealthScore.score(health), HealthScore.state(health),
+                HealthScore.reasons(health), current, twin.getVendor());
+    }
+
+    private long evaluate(CompiledHealthRules rules, DigitalTwinState twin) {
+        if (!trends.isEnabled()) {
+            return rules.evaluate(twin, Double.NaN, Double.NaN);
         }
+        long rates = trends.rates(twin.getVehicleId());
+        return rules.evaluate(twin, TrendTracker.batteryTempRate(rates), TrendTracker.socDrainRate(rates));
+    }
 
-        // Clamp score
-        score = Math.max(score, 0);
+    /**
+     * Lowest score still in the given state under the current rules.
+     */
+    public int minScore(HealthState state) {
+        return rules.minScore(state);
+    }
 
-        HealthState state = deriveState(score);
+    @Scheduled(fixedDelayString = "${axion.health.reload-interval-ms:10000}")
+    public void reloadIfChanged() {
+        long modified = lastModified(source);
+        long loaded = loadedModified.get();
+        // Whoever moves the time loads the file; not retried until it changes again
+        if (modified == loaded || !loadedModified.compareAndSet(loaded, modified)) {
+            return;
+        }
+        try {
+            rules = load(source);
+            log.info("Reloaded {} health rules from {}", rules.size(), source.getDescription());
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Keeping the current health rules, {} is invalid: {}", source.getDescription(), e.getMessage());
+        }
+    }
 
-        return new HealthScoreResult(score, state, reasons);
+    private static CompiledHealthRules load(Resource source) throws IOException {
+        try (InputStream in = source.getInputStream()) {
+            return CompiledHealthRules.compile(new ObjectMapper().readValue(in, HealthRuleSpec.class));
+        }
     }
 
-    private HealthState deriveState(int score) {
-        if (score >= 80) {
-            return HealthState.HEALTHY;
-        } else if (score >= 50) {
-            return HealthState.DEGRADED;
-        } else {
-            return HealthState.CRITICAL;
+    // 0 for resources without a modification time, e.g. inside a jar, which are never reloaded
+    private static long lastModified(Resource source) {
+        try {
+            return source.lastModified();
+        } catch (IOException e) {
+            return 0;
         }
     }
-}
\ No newline at end of file
+}
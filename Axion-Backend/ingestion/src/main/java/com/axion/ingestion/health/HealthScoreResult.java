@@ -1,17 +1,28 @@
 package com.axion.ingestion.health;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
 
 import java.util.List;
 
 @RequiredArgsConstructor
 @Getter
-@Setter
 public class HealthScoreResult {
 
     private final int score;
     private final HealthState state;
-    private final List<String> explanations;
+
+    // Broken rules, see HealthScore
+    private final long reasons;
+
+    // The rule set that produced the result, rendering its reasons on demand
+    @Getter(AccessLevel.NONE)
+    private final CompiledHealthRules rules;
+    @Getter(AccessLevel.NONE)
+    private final String vendor;
+
+    public List<String> getExplanations() {
+        return rules.describe(vendor, reasons);
+    }
 }
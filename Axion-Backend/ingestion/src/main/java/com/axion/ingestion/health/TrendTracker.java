@@ -0,0 +1,304 @@
+package com.axion.ingestion.health;
+
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.model.TelemetryPayload;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Recent readings of every vehicle, for the trend metrics of the health
+ * rules: how fast the battery heats up, and how much faster SOC drains than
+ * the distance driven explains.
+ * <p>
+ * Each vehicle gets a slot in flat arrays holding a ring buffer of its last
+ * {@code window-size} readings per channel, plus running least-squares sums
+ * of each channel over the ring, so a reading is added, the evicted one
+ * subtracted and a slope read in constant time. Sums are taken relative to
+ * the oldest reading and recomputed from the ring each time it wraps, which
+ * keeps them precise. The arrays grow with the fleet up to
+ * {@code max-vehicles}; slots of vehicles not heard from for
+ * {@code idle-ms} are reused.
+ * <p>
+ * Scoring reads both trends under one lock, packed into a long as two floats
+ * so that it does not allocate, see {@link #rates}.
+ */
+@Component
+public class TrendTracker {
+
+    private static final int BATTERY_TEMP = 0;
+    private static final int SOC = 1;
+    private static final int ODOMETER = 2;
+    private static final int SPEED = 3;
+    private static final int CHANNELS = 4;
+
+    // Running sums per channel: points, sum of t, of t squared, of x and of t * x, t in minutes
+    private static final int N = 0;
+    private static final int T = 1;
+    private static final int TT = 2;
+    private static final int X = 3;
+    private static final int TX = 4;
+    private static final int SUMS = 5;
+
+    private static final double MILLIS_PER_MINUTE = 60_000.0;
+
+    private final boolean enabled;
+    private final int windowSize;
+    private final int maxVehicles;
+    private final long minSpanMillis;
+    private final long idleMillis;
+    private final double socPctPerKm;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private int capacity;
+    private int[] freeSlots;
+    private int freeCount;
+    private int usedSlots;
+
+    // Per slot
+    private int[] size;
+    private int[] head;
+    private long[] origin;
+    private long[] lastRecorded;
+    // Per slot and position in the ring
+    private long[] timestamps;
+    // Per slot, channel and position in the ring, NaN where a reading was missing
+    private float[] values;
+    // Per slot, channel and sum
+    private double[] sums;
+
+    private final Counter untracked;
+
+    public TrendTracker(MeterRegistry meterRegistry,
+            @Value("${axion.health.trend.enabled:true}") boolean enabled,
+            @Value("${axion.health.trend.window-size:8}") int windowSize,
+            @Value("${axion.health.trend.max-vehicles:100000}") int maxVehicles,
+            @Value("${axion.health.trend.min-span-ms:30000}") long minSpanMillis,
+            @Value("${axion.health.trend.idle-ms:3600000}") long idleMillis,
+            @Value("${axion.health.trend.soc-pct-per-km:0.25}") double socPctPerKm) {
+        if (windowSize < 2) {
+            throw new IllegalArgumentException("axion.health.trend.window-size must be at least 2");
+        }
+        this.enabled = enabled;
+        this.windowSize = windowSize;
+        this.maxVehicles = maxVehicles;
+        this.minSpanMillis = minSpanMillis;
+        this.idleMillis = idleMillis;
+        this.socPctPerKm = socPctPerKm;
+        this.untracked = meterRegistry.counter("axion.health.trend.untracked");
+        Gauge.builder("axion.health.trend.vehicles", slots, Map::size).register(meterRegistry);
+        allocate(Math.min(maxVehicles, 1024));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        freeSlots = freeSlots == null ? new int[capacity] : Arrays.copyOf(freeSlots, capacity);
+        size = size == null ? new int[capacity] : Arrays.copyOf(size, capacity);
+        head = head == null ? new int[capacity] : Arrays.copyOf(head, capacity);
+        origin = origin == null ? new long[capacity] : Arrays.copyOf(origin, capacity);
+        lastRecorded = lastRecorded == null ? new long[capacity] : Arrays.copyOf(lastRecorded, capacity);
+        timestamps = timestamps == null ? new long[capacity * windowSize]
+                : Arrays.copyOf(timestamps, capacity * windowSize);
+        values = values == null ? new float[capacity * CHANNELS * windowSize]
+                : Arrays.copyOf(values, capacity * CHANNELS * windowSize);
+        sums = sums == null ? new double[capacity * CHANNELS * SUMS]
+                : Arrays.copyOf(sums, capacity * CHANNELS * SUMS);
+    }
+
+    /**
+     * Adds the reading of the event. Readings not newer than the vehicle's
+     * last one are ignored.
+     */
+    public void record(CanonicalTelemetryEnvelope event) {
+        if (!enabled || event == null || event.getTimestamp() == null || event.getTelemetry() == null) {
+            return;
+        }
+        TelemetryPayload telemetry = event.getTelemetry();
+        long timestamp = event.getTimestamp().toEpochMilli();
+        synchronized (this) {
+            int slot = slot(event.getVehicleId());
+            if (slot < 0) {
+                untracked.increment();
+                return;
+            }
+            int n = size[slot];
+            int ring = slot * windowSize;
+            int index = head[slot];
+            if (n > 0 && timestamp <= timestamps[ring + (index + windowSize - 1) % windowSize]) {
+                return;
+            }
+            if (n == 0) {
+                origin[slot] = timestamp;
+            } else if (n == windowSize) {
+                for (int c = 0; c < CHANNELS; c++) {
+                    accumulate(slot, c, timestamps[ring + index], values[(slot * CHANNELS + c) * windowSize + index], -1);
+                }
+            }
+
+            timestamps[ring + index] = timestamp;
+            values[(slot * CHANNELS + BATTERY_TEMP) * windowSize + index] = reading(telemetry.getBatteryTempC());
+            values[(slot * CHANNELS + SOC) * windowSize + index] = reading(telemetry.getBatterySocPct());
+            values[(slot * CHANNELS + ODOMETER) * windowSize + index] = reading(telemetry.getOdometerKm());
+            values[(slot * CHANNELS + SPEED) * windowSize + index] = reading(telemetry.getSpeedKmph());
+            head[slot] = (index + 1) % windowSize;
+            size[slot] = Math.min(n + 1, windowSize);
+            lastRecorded[slot] = System.currentTimeMillis();
+
+            if (head[slot] == 0) {
+                rebase(slot);
+            } else {
+                for (int c = 0; c < CHANNELS; c++) {
+                    accumulate(slot, c, timestamp, values[(slot * CHANNELS + c) * windowSize + index], 1);
+                }
+            }
+        }
+    }
+
+    private static float reading(Double value) {
+        return value != null ? value.floatValue() : Float.NaN;
+    }
+
+    private void accumulate(int slot, int channel, long timestamp, float value, int sign) {
+        if (Float.isNaN(value)) {
+            return;
+        }
+        double t = (timestamp - origin[slot]) / MILLIS_PER_MINUTE;
+        int s = (slot * CHANNELS + channel) * SUMS;
+        sums[s + N] += sign;
+        sums[s + T] += sign * t;
+        sums[s + TT] += sign * t * t;
+        sums[s + X] += sign * value;
+        sums[s + TX] += sign * t * value;
+    }
+
+    // Recomputes the sums relative to the oldest reading in the ring
+    private void rebase(int slot) {
+        int ring = slot * windowSize;
+        int n = size[slot];
+        int oldest = (head[slot] + windowSize - n) % windowSize;
+        origin[slot] = timestamps[ring + oldest];
+        Arrays.fill(sums, slot * CHANNELS * SUMS, (slot + 1) * CHANNELS * SUMS, 0);
+        for (int i = 0; i < n; i++) {
+            int index = (oldest + i) % windowSize;
+            for (int c = 0; c < CHANNELS; c++) {
+                accumulate(slot, c, timestamps[ring + index], values[(slot * CHANNELS + c) * windowSize + index], 1);
+            }
+        }
+    }
+
+    private int slot(String vehicleId) {
+        Integer slot = slots.get(vehicleId);
+        if (slot != null) {
+            return slot;
+        }
+        int free;
+        if (freeCount > 0) {
+            free = freeSlots[--freeCount];
+        } else if (usedSlots < capacity) {
+            free = usedSlots++;
+        } else if (usedSlots < maxVehicles) {
+            allocate((int) Math.min(maxVehicles, 2L * capacity));
+            free = usedSlots++;
+        } else {
+            return -1;
+        }
+        size[free] = 0;
+        head[free] = 0;
+        Arrays.fill(sums, free * CHANNELS * SUMS, (free + 1) * CHANNELS * SUMS, 0);
+        slots.put(vehicleId, free);
+        return free;
+    }
+
+    /**
+     * Both trends of the vehicle, read with {@link #batteryTempRate(long)} and
+     * {@link #socDrainRate(long)}; NaN without enough readings.
+     */
+    public synchronized long rates(String vehicleId) {
+        Integer slot = enabled ? slots.get(vehicleId) : null;
+        if (slot == null || !spanned(slot)) {
+            return pack(Double.NaN, Double.NaN);
+        }
+        return pack(slope(slot, BATTERY_TEMP), excessDrain(slot));
+    }
+
+    static long pack(double batteryTempRate, double socDrainRate) {
+        return (long) Float.floatToRawIntBits((float) batteryTempRate) << 32
+                | Float.floatToRawIntBits((float) socDrainRate) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Battery temperature change in °C per minute over the recent readings.
+     */
+    public static double batteryTempRate(long rates) {
+        return Float.intBitsToFloat((int) (rates >>> 32));
+    }
+
+    /**
+     * SOC lost in % per minute beyond what the distance covered explains at
+     * {@code soc-pct-per-km}, 0 while charging. Distance comes from the
+     * odometer, or from the average speed when the vehicle does not report
+     * one.
+     */
+    public static double socDrainRate(long rates) {
+        return Float.intBitsToFloat((int) rates);
+    }
+
+    private double excessDrain(int slot) {
+        double drain = -slope(slot, SOC);
+        if (Double.isNaN(drain)) {
+            return Double.NaN;
+        }
+        double kmPerMinute = slope(slot, ODOMETER);
+        if (Double.isNaN(kmPerMinute)) {
+            int s = (slot * CHANNELS + SPEED) * SUMS;
+            kmPerMinute = sums[s + N] > 0 ? sums[s + X] / sums[s + N] / 60 : 0;
+        }
+        return Math.max(0, drain - Math.max(0, kmPerMinute) * socPctPerKm);
+    }
+
+    private boolean spanned(int slot) {
+        int ring = slot * windowSize;
+        int n = size[slot];
+        long newest = timestamps[ring + (head[slot] + windowSize - 1) % windowSize];
+        long oldest = timestamps[ring + (head[slot] + windowSize - n) % windowSize];
+        return n >= 3 && newest - oldest >= minSpanMillis;
+    }
+
+    private double slope(int slot, int channel) {
+        int s = (slot * CHANNELS + channel) * SUMS;
+        double n = sums[s + N];
+        double denominator = n * sums[s + TT] - sums[s + T] * sums[s + T];
+        if (n < 2 || denominator <= 1e-9) {
+            return Double.NaN;
+        }
+        return (n * sums[s + TX] - sums[s + T] * sums[s + X]) / denominator;
+    }
+
+    /**
+     * Frees the slots of vehicles not heard from for {@code idle-ms}.
+     */
+    @Scheduled(fixedDelayString = "${axion.health.trend.sweep-interval-ms:60000}")
+    public synchronized void releaseIdle() {
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        Iterator<Map.Entry<String, Integer>> iterator = slots.entrySet().iterator();
+        while (iterator.hasNext()) {
+            int slot = iterator.next().getValue();
+            if (lastRecorded[slot] < cutoff) {
+                iterator.remove();
+                freeSlots[freeCount++] = slot;
+            }
+        }
+    }
+}
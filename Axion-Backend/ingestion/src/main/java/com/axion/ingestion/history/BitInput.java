@@ -0,0 +1,40 @@
+package com.axion.ingestion.history;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads a bit string written by {@link BitOutput} from a buffer, e.g. a
+ * slice of a mapped segment.
+ */
+final class BitInput {
+
+    private final ByteBuffer buffer;
+    private long position;
+
+    BitInput(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    boolean readBit() {
+        int index = (int) (position >>> 3);
+        int bit = (buffer.get(index) >>> (7 - (int) (position & 7))) & 1;
+        position++;
+        return bit == 1;
+    }
+
+    long readBits(int count) {
+        long value = 0;
+        int remaining = count;
+        while (remaining > 0) {
+            int index = (int) (position >>> 3);
+            int offset = (int) (position & 7);
+            int available = 8 - offset;
+            int take = Math.min(available, remaining);
+            int chunk = ((buffer.get(index) & 0xFF) >>> (available - take)) & ((1 << take) - 1);
+            value = (value << take) | chunk;
+            position += take;
+            remaining -= take;
+        }
+        return value;
+    }
+}
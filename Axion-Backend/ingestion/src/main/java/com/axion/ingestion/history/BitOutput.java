@@ -0,0 +1,58 @@
+package com.axion.ingestion.history;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Growable bit string, written most significant bit first.
+ */
+final class BitOutput {
+
+    private long[] words = new long[4];
+    private long bits;
+
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    // The low {@code count} bits of value, 1 to 64
+    void writeBits(long value, int count) {
+        int word = (int) (bits >>> 6);
+        int used = (int) (bits & 63);
+        if (word + 1 >= words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+        if (count < 64) {
+            value &= (1L << count) - 1;
+        }
+        int free = 64 - used;
+        if (count <= free) {
+            words[word] |= value << (free - count);
+        } else {
+            words[word] |= value >>> (count - free);
+            words[word + 1] |= value << (64 - (count - free));
+        }
+        bits += count;
+    }
+
+    long bitLength() {
+        return bits;
+    }
+
+    int byteLength() {
+        return (int) ((bits + 7) >>> 3);
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        int length = byteLength();
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) (words[i >>> 3] >>> (56 - 8 * (i & 7))));
+        }
+    }
+
+    byte[] toByteArray() {
+        ByteBuffer buffer = ByteBuffer.allocate(byteLength());
+        writeTo(buffer);
+        return buffer.array();
+    }
+}
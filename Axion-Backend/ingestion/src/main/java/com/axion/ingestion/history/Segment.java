@@ -0,0 +1,177 @@
+package com.axion.ingestion.history;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One sealed, immutable segment file, read through a memory mapping.
+ * <pre>
+ * header   magic, version, min and max timestamp, vehicle count, column count
+ * index    per vehicle, sorted by id: id offset and length, point count, and
+ *          offset and length of each column
+ * ids      UTF-8 vehicle ids
+ * columns  grouped by column: every vehicle's timestamps, then every
+ *          vehicle's first metric, and so on
+ * </pre>
+ * A lookup binary-searches the index in place and decodes only that vehicle's
+ * columns, so nothing but the mapping is held per segment.
+ */
+final class Segment {
+
+    private static final int MAGIC = 0x41585453; // AXTS
+    private static final int VERSION = 1;
+    private static final int HEADER = 4 + 4 + 8 + 8 + 4 + 4;
+    static final int COLUMNS = 1 + SeriesEncoder.METRICS;
+    private static final int ENTRY = 4 + 4 + 4 + COLUMNS * 8;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final int vehicles;
+
+    private Segment(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(28) != COLUMNS) {
+            throw new IOException("Not a history segment: " + path);
+        }
+        this.minTimestamp = buffer.getLong(8);
+        this.maxTimestamp = buffer.getLong(16);
+        this.vehicles = buffer.getInt(24);
+    }
+
+    static Segment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new Segment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the series, sorted by UTF-8 id, to a new segment at the given
+     * path. The file only appears under its name once complete.
+     */
+    static Segment write(Path path, List<Map.Entry<byte[], SeriesEncoder>> series) throws IOException {
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+        long size = HEADER + (long) ENTRY * series.size();
+        for (Map.Entry<byte[], SeriesEncoder> entry : series) {
+            size += entry.getKey().length + entry.getValue().byteSize();
+            minTimestamp = Math.min(minTimestamp, entry.getValue().firstTimestamp());
+            maxTimestamp = Math.max(maxTimestamp, entry.getValue().lastTimestamp());
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Segment of " + size + " bytes exceeds the 2 GB limit, lower axion.history.seal-bytes");
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(MAGIC).putInt(VERSION).putLong(minTimestamp).putLong(maxTimestamp)
+                    .putInt(series.size()).putInt(COLUMNS);
+
+            int position = HEADER + ENTRY * series.size();
+            for (int v = 0; v < series.size(); v++) {
+                byte[] id = series.get(v).getKey();
+                out.putInt(HEADER + ENTRY * v, position);
+                out.putInt(HEADER + ENTRY * v + 4, id.length);
+                out.putInt(HEADER + ENTRY * v + 8, series.get(v).getValue().count());
+                out.put(position, id);
+                position += id.length;
+            }
+            for (int c = 0; c < COLUMNS; c++) {
+                for (int v = 0; v < series.size(); v++) {
+                    BitOutput column = series.get(v).getValue().column(c);
+                    out.putInt(HEADER + ENTRY * v + 12 + 8 * c, position);
+                    out.putInt(HEADER + ENTRY * v + 16 + 8 * c, column.byteLength());
+                    out.position(position);
+                    column.writeTo(out);
+                    position += column.byteLength();
+                }
+            }
+            out.force();
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+        return open(path);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long minTimestamp() {
+        return minTimestamp;
+    }
+
+    long maxTimestamp() {
+        return maxTimestamp;
+    }
+
+    boolean overlaps(long from, long to) {
+        return minTimestamp < to && maxTimestamp >= from;
+    }
+
+    /**
+     * Hands the vehicle's points in [from, to) to the consumer.
+     */
+    void read(String vehicleId, long from, long to, SeriesEncoder.PointConsumer consumer) {
+        int entry = find(vehicleId.getBytes(StandardCharsets.UTF_8));
+        if (entry < 0) {
+            return;
+        }
+        int base = HEADER + ENTRY * entry;
+        ByteBuffer[] values = new ByteBuffer[SeriesEncoder.METRICS];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = column(base, 1 + i);
+        }
+        SeriesEncoder.decode(buffer.getInt(base + 8), column(base, 0), values, (timestamp, readings) -> {
+            if (timestamp >= from && timestamp < to) {
+                consumer.accept(timestamp, readings);
+            }
+        });
+    }
+
+    private ByteBuffer column(int base, int column) {
+        return buffer.slice(buffer.getInt(base + 12 + 8 * column), buffer.getInt(base + 16 + 8 * column));
+    }
+
+    private int find(byte[] id) {
+        int low = 0;
+        int high = vehicles - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int base = HEADER + ENTRY * mid;
+            int compared = compare(buffer.getInt(base), buffer.getInt(base + 4), id);
+            if (compared < 0) {
+                low = mid + 1;
+            } else if (compared > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(int offset, int length, byte[] id) {
+        int common = Math.min(length, id.length);
+        for (int i = 0; i < common; i++) {
+            int compared = Byte.compareUnsigned(buffer.get(offset + i), id[i]);
+            if (compared != 0) {
+                return compared;
+            }
+        }
+        return Integer.compare(length, id.length);
+    }
+}
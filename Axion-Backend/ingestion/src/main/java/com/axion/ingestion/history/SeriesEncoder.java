@@ -0,0 +1,193 @@
+package com.axion.ingestion.history;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compresses one vehicle's points into a timestamp column and one column per
+ * metric, as in Facebook's Gorilla: timestamps as delta-of-deltas, which are
+ * mostly a single 0 bit at a steady reporting interval, and values XORed with
+ * the previous one, which costs a bit for an unchanged reading and only the
+ * differing middle bits otherwise. Missing readings are stored as NaN.
+ */
+final class SeriesEncoder {
+
+    static final int METRICS = TelemetryHistoryStore.METRICS.length;
+
+    private final BitOutput timestamps = new BitOutput();
+    private final BitOutput[] values = new BitOutput[METRICS];
+
+    private int count;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long lastDelta;
+    private final long[] lastBits = new long[METRICS];
+    private final int[] lastLeading = new int[METRICS];
+    private final int[] lastTrailing = new int[METRICS];
+
+    SeriesEncoder() {
+        for (int i = 0; i < METRICS; i++) {
+            values[i] = new BitOutput();
+        }
+    }
+
+    int count() {
+        return count;
+    }
+
+    long firstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    // Points must come in timestamp order
+    void append(long timestamp, double[] readings) {
+        if (count == 0) {
+            timestamps.writeBits(timestamp, 64);
+            firstTimestamp = timestamp;
+        } else {
+            long delta = timestamp - lastTimestamp;
+            writeDeltaOfDelta(delta - lastDelta);
+            lastDelta = delta;
+        }
+        lastTimestamp = timestamp;
+
+        for (int i = 0; i < METRICS; i++) {
+            writeValue(i, Double.doubleToRawLongBits(readings[i]));
+        }
+        count++;
+    }
+
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            timestamps.writeBit(false);
+        } else if (dod >= -64 && dod < 64) {
+            timestamps.writeBits(0b10, 2);
+            timestamps.writeBits(dod, 7);
+        } else if (dod >= -256 && dod < 256) {
+            timestamps.writeBits(0b110, 3);
+            timestamps.writeBits(dod, 9);
+        } else if (dod >= -2048 && dod < 2048) {
+            timestamps.writeBits(0b1110, 4);
+            timestamps.writeBits(dod, 12);
+        } else {
+            timestamps.writeBits(0b1111, 4);
+            timestamps.writeBits(dod, 64);
+        }
+    }
+
+    private void writeValue(int metric, long bits) {
+        BitOutput out = values[metric];
+        if (count == 0) {
+            out.writeBits(bits, 64);
+            lastBits[metric] = bits;
+            lastLeading[metric] = -1;
+            return;
+        }
+        long xor = bits ^ lastBits[metric];
+        lastBits[metric] = bits;
+        if (xor == 0) {
+            out.writeBit(false);
+            return;
+        }
+        out.writeBit(true);
+        int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (lastLeading[metric] >= 0 && leading >= lastLeading[metric] && trailing >= lastTrailing[metric]) {
+            // Fits the previous window of meaningful bits
+            out.writeBit(false);
+            out.writeBits(xor >>> lastTrailing[metric], 64 - lastLeading[metric] - lastTrailing[metric]);
+        } else {
+            int meaningful = 64 - leading - trailing;
+            out.writeBit(true);
+            out.writeBits(leading, 5);
+            out.writeBits(meaningful - 1, 6);
+            out.writeBits(xor >>> trailing, meaningful);
+            lastLeading[metric] = leading;
+            lastTrailing[metric] = trailing;
+        }
+    }
+
+    /**
+     * Column 0 holds the timestamps, column 1 + i metric i.
+     */
+    BitOutput column(int column) {
+        return column == 0 ? timestamps : values[column - 1];
+    }
+
+    long byteSize() {
+        long size = timestamps.byteLength();
+        for (BitOutput value : values) {
+            size += value.byteLength();
+        }
+        return size;
+    }
+
+    /**
+     * Hands the points of the given columns, in the layout written by this
+     * encoder, to the consumer in timestamp order.
+     */
+    static void decode(int count, ByteBuffer timestampColumn, ByteBuffer[] valueColumns, PointConsumer consumer) {
+        BitInput timestamps = new BitInput(timestampColumn);
+        BitInput[] values = new BitInput[METRICS];
+        for (int i = 0; i < METRICS; i++) {
+            values[i] = new BitInput(valueColumns[i]);
+        }
+        long[] bits = new long[METRICS];
+        int[] leading = new int[METRICS];
+        int[] trailing = new int[METRICS];
+        double[] readings = new double[METRICS];
+
+        long timestamp = 0;
+        long delta = 0;
+        for (int n = 0; n < count; n++) {
+            if (n == 0) {
+                timestamp = timestamps.readBits(64);
+            } else {
+                delta += readDeltaOfDelta(timestamps);
+                timestamp += delta;
+            }
+            for (int i = 0; i < METRICS; i++) {
+                if (n == 0) {
+                    bits[i] = values[i].readBits(64);
+                } else if (values[i].readBit()) {
+                    if (values[i].readBit()) {
+                        leading[i] = (int) values[i].readBits(5);
+                        int meaningful = (int) values[i].readBits(6) + 1;
+                        trailing[i] = 64 - leading[i] - meaningful;
+                    }
+                    int meaningful = 64 - leading[i] - trailing[i];
+                    bits[i] ^= values[i].readBits(meaningful) << trailing[i];
+                }
+                readings[i] = Double.longBitsToDouble(bits[i]);
+            }
+            consumer.accept(timestamp, readings);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitInput in) {
+        if (!in.readBit()) {
+            return 0;
+        }
+        if (!in.readBit()) {
+            return signExtend(in.readBits(7), 7);
+        }
+        if (!in.readBit()) {
+            return signExtend(in.readBits(9), 9);
+        }
+        if (!in.readBit()) {
+            return signExtend(in.readBits(12), 12);
+        }
+        return in.readBits(64);
+    }
+
+    private static long signExtend(long value, int bits) {
+        return (value << (64 - bits)) >> (64 - bits);
+    }
+
+    interface PointConsumer {
+        void accept(long timestamp, double[] readings);
+    }
+}
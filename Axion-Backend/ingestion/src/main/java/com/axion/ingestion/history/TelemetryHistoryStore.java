@@ -0,0 +1,429 @@
+package com.axion.ingestion.history;
+
+import com.axion.ingestion.dto.HistoryPoint;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.model.TelemetryPayload;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Embedded, append-only store of every vehicle's telemetry readings.
+ * <p>
+ * Incoming points are compressed in memory per vehicle, see
+ * {@link SeriesEncoder}, and logged to a {@link WriteAheadLog}. Every
+ * {@code seal-interval-ms} of wall clock, or sooner once the open data reaches
+ * {@code seal-bytes}, it is sealed into an immutable {@link Segment} file, so
+ * the files partition the history by time. Queries read the segments
+ * overlapping the range plus the open data and average the points into
+ * buckets; segments past the retention are deleted whole.
+ * <p>
+ * The open data is striped over 16 shards by vehicle, each
+ * behind its own monitor, and a batch is logged before any shard is locked.
+ * Appends share the rotation lock, which sealing takes exclusively to swap
+ * the open data and its log together.
+ */
+@Component
+public class TelemetryHistoryStore {
+
+    private static final Logger log = LoggerFactory.getLogger(TelemetryHistoryStore.class);
+
+    // Column order in the encoders and files
+    static final String[] METRICS = {
+            "speedKmph", "batterySocPct", "batteryTempC", "motorTempC", "ambientTempC", "odometerKm"
+    };
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String LOG_SUFFIX = ".wal";
+    private static final int SHARD_BITS = 4;
+
+    private final Path directory;
+    private final long retentionMillis;
+    private final long sealIntervalMillis;
+    private final long sealBytes;
+
+    private final Shard[] shards = new Shard[1 << SHARD_BITS];
+    private final ReadWriteLock rotation = new ReentrantReadWriteLock();
+    private final AtomicLong openBytes = new AtomicLong();
+    private long openWindow;
+    private WriteAheadLog openLog;
+    private int logSequence;
+
+    // Log of the open data handed to a segment that is not written yet, touched by maintain() only
+    private WriteAheadLog sealingLog;
+    private long sealingWindow;
+
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+
+    private final Counter appended;
+    private final Counter outOfOrder;
+    private final Counter logFailures;
+
+    public TelemetryHistoryStore(MeterRegistry meterRegistry,
+            @Value("${axion.history.dir:data/history}") String directory,
+            @Value("${axion.history.retention-ms:604800000}") long retentionMillis,
+            @Value("${axion.history.seal-interval-ms:600000}") long sealIntervalMillis,
+            @Value("${axion.history.seal-bytes:268435456}") long sealBytes) {
+        this.directory = Path.of(directory);
+        this.retentionMillis = retentionMillis;
+        this.sealIntervalMillis = sealIntervalMillis;
+        this.sealBytes = sealBytes;
+        this.appended = meterRegistry.counter("axion.history.points");
+        this.outOfOrder = meterRegistry.counter("axion.history.out-of-order");
+        this.logFailures = meterRegistry.counter("axion.history.log.failed");
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard();
+        }
+        Gauge.builder("axion.history.open.bytes", openBytes, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("axion.history.segments", segments, List::size).register(meterRegistry);
+    }
+
+    /**
+     * Opens the existing segments and replays the logs of data that was not
+     * sealed before the last shutdown into a new segment.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> logs = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.sorted().toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.add(Segment.open(file));
+                } else if (name.endsWith(LOG_SUFFIX)) {
+                    logs.add(file);
+                } else if (name.endsWith(".tmp")) {
+                    // A segment whose write was cut short, its log is still here
+                    Files.delete(file);
+                }
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        for (Path file : logs) {
+            long truncated = WriteAheadLog.replay(file, this::add);
+            if (truncated > 0) {
+                log.warn("Truncated {} damaged bytes from the end of {}", truncated, file.getFileName());
+            }
+        }
+        Map<String, SeriesEncoder> recovered = new HashMap<>();
+        for (Shard shard : shards) {
+            recovered.putAll(shard.open);
+            shard.open = new HashMap<>();
+        }
+        if (!recovered.isEmpty()) {
+            writeSegment(sorted(recovered), now / sealIntervalMillis);
+            log.info("Recovered {} vehicles of unsealed telemetry history", recovered.size());
+        }
+        for (Path file : logs) {
+            Files.delete(file);
+        }
+        openBytes.set(0);
+        openWindow = now / sealIntervalMillis;
+        openLog = newLog(now);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        rotation.writeLock().lock();
+        try {
+            openLog.close();
+        } finally {
+            rotation.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records the readings of the given events. Points older than the
+     * vehicle's newest open point are dropped, the store is append-only.
+     *
+     * @throws UncheckedIOException if the batch could not be logged, in which
+     *         case none of it is kept and it can be appended again
+     */
+    public void append(Collection<CanonicalTelemetryEnvelope> events) {
+        List<Point> points = new ArrayList<>(events.size());
+        WriteAheadLog.Batch batch = new WriteAheadLog.Batch();
+        for (CanonicalTelemetryEnvelope event : events) {
+            if (event == null || event.getTimestamp() == null || event.getTelemetry() == null) {
+                continue;
+            }
+            Point point = new Point(event.getVehicleId(), event.getTimestamp().toEpochMilli(),
+                    readings(event.getTelemetry()));
+            points.add(point);
+            batch.add(point.vehicleId(), point.timestamp(), point.readings());
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        rotation.readLock().lock();
+        try {
+            try {
+                openLog.append(batch);
+            } catch (IOException e) {
+                logFailures.increment();
+                throw new UncheckedIOException("Writing the telemetry history log failed", e);
+            }
+            for (Point point : points) {
+                if (add(point.vehicleId(), point.timestamp(), point.readings())) {
+                    appended.increment();
+                } else {
+                    outOfOrder.increment();
+                }
+            }
+        } finally {
+            rotation.readLock().unlock();
+        }
+    }
+
+    private boolean add(String vehicleId, long timestamp, double[] readings) {
+        Shard shard = shard(vehicleId);
+        long grown;
+        synchronized (shard) {
+            SeriesEncoder series = shard.open.get(vehicleId);
+            if (series == null) {
+                series = new SeriesEncoder();
+                shard.open.put(vehicleId, series);
+            } else if (timestamp < series.lastTimestamp()) {
+                return false;
+            }
+            long before = series.byteSize();
+            series.append(timestamp, readings);
+            grown = series.byteSize() - before;
+        }
+        openBytes.addAndGet(grown);
+        return true;
+    }
+
+    private Shard shard(String vehicleId) {
+        return shards[(vehicleId.hashCode() * 0x9E3779B9) >>> (32 - SHARD_BITS)];
+    }
+
+    private static double[] readings(TelemetryPayload telemetry) {
+        return new double[] {
+                value(telemetry.getSpeedKmph()), value(telemetry.getBatterySocPct()),
+                value(telemetry.getBatteryTempC()), value(telemetry.getMotorTempC()),
+                value(telemetry.getAmbientTempC()), value(telemetry.getOdometerKm())
+        };
+    }
+
+    private static double value(Double reading) {
+        return reading == null ? Double.NaN : reading;
+    }
+
+    /**
+     * Seals the open data once its time window has passed or it has grown
+     * past the size limit, and deletes segments past the retention.
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void maintain() {
+        try {
+            long now = System.currentTimeMillis();
+            // A failed seal is retried before anything new is sealed
+            if (sealingLog == null && due(now)) {
+                WriteAheadLog nextLog = newLog(now);
+                rotation.writeLock().lock();
+                try {
+                    for (Shard shard : shards) {
+                        synchronized (shard) {
+                            shard.sealing = shard.open;
+                            shard.open = new HashMap<>();
+                        }
+                    }
+                    sealingLog = openLog;
+                    sealingWindow = openWindow;
+                    openBytes.set(0);
+                    openWindow = now / sealIntervalMillis;
+                    openLog = nextLog;
+                } finally {
+                    rotation.writeLock().unlock();
+                }
+            }
+            if (sealingLog != null) {
+                seal();
+            }
+            for (Segment segment : segments) {
+                if (segment.maxTimestamp() < now - retentionMillis) {
+                    segments.remove(segment);
+                    Files.deleteIfExists(segment.path());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Maintaining the telemetry history failed: {}", e.getMessage());
+        }
+    }
+
+    // Named by creation time, the order they are replayed in
+    private WriteAheadLog newLog(long now) throws IOException {
+        return new WriteAheadLog(directory.resolve("history-" + now + "-" + (++logSequence) + LOG_SUFFIX));
+    }
+
+    // A damaged log is sealed straight away, so that appends can go to a new one
+    private boolean due(long now) {
+        long bytes = openBytes.get();
+        return bytes > 0 && (now / sealIntervalMillis != openWindow || bytes >= sealBytes || openLog.isDamaged());
+    }
+
+    private void seal() throws IOException {
+        // Readers only copy from the sealed encoders, which no longer change
+        Map<String, SeriesEncoder> sealing = new HashMap<>();
+        for (Shard shard : shards) {
+            sealing.putAll(shard.sealing);
+        }
+        Segment segment = writeSegment(sorted(sealing), sealingWindow);
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.sealing = null;
+            }
+        }
+        sealingLog.close();
+        Files.delete(sealingLog.path());
+        sealingLog = null;
+        log.debug("Sealed telemetry history segment {}", segment.path().getFileName());
+    }
+
+    private Segment writeSegment(List<Map.Entry<byte[], SeriesEncoder>> series, long window) throws IOException {
+        Path path = directory.resolve("segment-" + window * sealIntervalMillis + "-" + System.currentTimeMillis()
+                + SEGMENT_SUFFIX);
+        Segment segment = Segment.write(path, series);
+        segments.add(segment);
+        return segment;
+    }
+
+    private static List<Map.Entry<byte[], SeriesEncoder>> sorted(Map<String, SeriesEncoder> series) {
+        List<Map.Entry<byte[], SeriesEncoder>> entries = new ArrayList<>(series.size());
+        for (Map.Entry<String, SeriesEncoder> entry : series.entrySet()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(
+                    entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue()));
+        }
+        entries.sort((a, b) -> Arrays.compareUnsigned(a.getKey(), b.getKey()));
+        return entries;
+    }
+
+    /**
+     * The vehicle's readings in [from, to), averaged per metric over buckets
+     * of {@code step} starting at {@code from}. Buckets without readings are
+     * left out.
+     */
+    public List<HistoryPoint> query(String vehicleId, Instant from, Instant to, long stepMillis) {
+        long start = from.toEpochMilli();
+        long end = to.toEpochMilli();
+        int buckets = (int) ((end - start - 1) / stepMillis + 1);
+        int[] samples = new int[buckets];
+        double[][] sums = new double[buckets][METRICS.length];
+        int[][] counts = new int[buckets][METRICS.length];
+
+        SeriesEncoder.PointConsumer accumulate = (timestamp, readings) -> {
+            if (timestamp < start || timestamp >= end) {
+                return;
+            }
+            int bucket = (int) ((timestamp - start) / stepMillis);
+            samples[bucket]++;
+            for (int i = 0; i < readings.length; i++) {
+                if (!Double.isNaN(readings[i])) {
+                    sums[bucket][i] += readings[i];
+                    counts[bucket][i]++;
+                }
+            }
+        };
+
+        for (Segment segment : segments) {
+            if (segment.overlaps(start, end)) {
+                segment.read(vehicleId, start, end, accumulate);
+            }
+        }
+        for (Snapshot snapshot : snapshot(vehicleId)) {
+            snapshot.decode(accumulate);
+        }
+
+        List<HistoryPoint> points = new ArrayList<>();
+        for (int b = 0; b < buckets; b++) {
+            if (samples[b] == 0) {
+                continue;
+            }
+            HistoryPoint point = new HistoryPoint();
+            point.setTimestamp(Instant.ofEpochMilli(start + b * stepMillis));
+            point.setSamples(samples[b]);
+            point.setSpeedKmph(average(sums[b], counts[b], 0));
+            point.setBatterySocPct(average(sums[b], counts[b], 1));
+            point.setBatteryTempC(average(sums[b], counts[b], 2));
+            point.setMotorTempC(average(sums[b], counts[b], 3));
+            point.setAmbientTempC(average(sums[b], counts[b], 4));
+            point.setOdometerKm(average(sums[b], counts[b], 5));
+            points.add(point);
+        }
+        return points;
+    }
+
+    private static Double average(double[] sums, int[] counts, int metric) {
+        return counts[metric] == 0 ? null : sums[metric] / counts[metric];
+    }
+
+    // Copies of the vehicle's open and sealing columns, decoded outside the lock
+    private List<Snapshot> snapshot(String vehicleId) {
+        List<Snapshot> snapshots = new ArrayList<>(2);
+        Shard shard = shard(vehicleId);
+        synchronized (shard) {
+            if (shard.sealing != null && shard.sealing.containsKey(vehicleId)) {
+                snapshots.add(new Snapshot(shard.sealing.get(vehicleId)));
+            }
+            if (shard.open.containsKey(vehicleId)) {
+                snapshots.add(new Snapshot(shard.open.get(vehicleId)));
+            }
+        }
+        return snapshots;
+    }
+
+    private record Point(String vehicleId, long timestamp, double[] readings) {
+    }
+
+    // The open data of the vehicles hashed to it, and of those being sealed, guarded by its monitor
+    private static final class Shard {
+        private Map<String, SeriesEncoder> open = new HashMap<>();
+        private Map<String, SeriesEncoder> sealing;
+    }
+
+    private static final class Snapshot {
+        private final int count;
+        private final ByteBuffer[] columns = new ByteBuffer[Segment.COLUMNS];
+
+        Snapshot(SeriesEncoder series) {
+            count = series.count();
+            for (int c = 0; c < columns.length; c++) {
+                columns[c] = ByteBuffer.wrap(series.column(c).toByteArray());
+            }
+        }
+
+        void decode(SeriesEncoder.PointConsumer consumer) {
+            SeriesEncoder.decode(count, columns[0], Arrays.copyOfRange(columns, 1, columns.length), consumer);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.axion.ingestion.history;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the points held in memory and not yet sealed into a
+ * segment, replayed on startup. Every batch is written straight to the OS, so
+ * it survives the process dying but not the machine.
+ * <p>
+ * Each record is framed by its length and CRC-32. Replay stops at the first
+ * record that is cut short or damaged and truncates the log there; a failed
+ * write is truncated away before the error is thrown, so later batches are
+ * not written behind a damaged record.
+ */
+final class WriteAheadLog implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final int MIN_PAYLOAD = 4 + 8 + 8 * SeriesEncoder.METRICS;
+    private static final int MAX_PAYLOAD = 1 << 20;
+
+    private final Path path;
+    private final RandomAccessFile file;
+    private long size;
+    private boolean damaged;
+
+    WriteAheadLog(Path path) throws IOException {
+        this.path = path;
+        this.file = new RandomAccessFile(path.toFile(), "rw");
+        this.size = file.length();
+        file.seek(size);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Writes the batch, or none of it: the log is cut back to its previous
+     * length if the write fails. Once that fails too, every later append
+     * fails until the log is sealed and replaced.
+     */
+    synchronized void append(Batch batch) throws IOException {
+        if (damaged) {
+            throw new IOException("Log " + path.getFileName() + " is damaged by an earlier failed write");
+        }
+        try {
+            file.write(batch.bytes.toByteArray());
+            size = file.getFilePointer();
+        } catch (IOException e) {
+            try {
+                file.setLength(size);
+                file.seek(size);
+            } catch (IOException truncate) {
+                damaged = true;
+                e.addSuppressed(truncate);
+            }
+            throw e;
+        }
+    }
+
+    synchronized boolean isDamaged() {
+        return damaged;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * Records framed off the write path, so appending only copies bytes.
+     */
+    static final class Batch {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream payload = new ByteArrayOutputStream(MIN_PAYLOAD + 32);
+        private final DataOutputStream out = new DataOutputStream(payload);
+        private final CRC32 crc = new CRC32();
+
+        void add(String vehicleId, long timestamp, double[] readings) {
+            payload.reset();
+            try {
+                byte[] id = vehicleId.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(id.length);
+                out.write(id);
+                out.writeLong(timestamp);
+                for (double reading : readings) {
+                    out.writeDouble(reading);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            crc.reset();
+            crc.update(payload.toByteArray());
+            bytes.writeBytes(ByteBuffer.allocate(HEADER_BYTES).putInt(payload.size()).putInt((int) crc.getValue())
+                    .array());
+            bytes.writeBytes(payload.toByteArray());
+        }
+
+        boolean isEmpty() {
+            return bytes.size() == 0;
+        }
+    }
+
+    interface RecordConsumer {
+        void accept(String vehicleId, long timestamp, double[] readings);
+    }
+
+    /**
+     * Replays the log's intact records in order. Returns the number of bytes
+     * truncated from the first record cut short or damaged on.
+     */
+    static long replay(Path path, RecordConsumer consumer) throws IOException {
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            byte[] payload;
+            while ((payload = next(in)) != null) {
+                ByteBuffer record = ByteBuffer.wrap(payload);
+                byte[] id = new byte[record.getInt()];
+                record.get(id);
+                long timestamp = record.getLong();
+                double[] readings = new double[SeriesEncoder.METRICS];
+                for (int i = 0; i < readings.length; i++) {
+                    readings[i] = record.getDouble();
+                }
+                consumer.accept(new String(id, StandardCharsets.UTF_8), timestamp, readings);
+                valid += HEADER_BYTES + payload.length;
+            }
+        }
+        long truncated = Files.size(path) - valid;
+        if (truncated > 0) {
+            try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+                file.setLength(valid);
+            }
+        }
+        return truncated;
+    }
+
+    // The next record's payload, or null at the end of the log and at a record cut short or damaged
+    private static byte[] next(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length < MIN_PAYLOAD || length > MAX_PAYLOAD) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return (int) crc.getValue() == checksum ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+}
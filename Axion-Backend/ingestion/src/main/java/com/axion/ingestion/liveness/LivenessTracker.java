@@ -0,0 +1,119 @@
+package com.axion.ingestion.liveness;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Offline deadlines of the vehicles this node watches. Every time a vehicle
+ * is heard from its deadline moves to {@code lastSeen + offline-after}, an
+ * O(1) move in a {@link TimingWheel}; {@link #expired} hands out the vehicles
+ * whose deadline has passed.
+ * <p>
+ * The ids are spread over {@code STRIPES} wheels, each with its own lock,
+ * so consumer threads reporting vehicles rarely wait on each other or on
+ * the scheduler draining expired ones.
+ * <p>
+ * Nodes split the fleet by vehicle id: with {@code shard-count} nodes each
+ * watches the ids hashing to its {@code shard-index} and ignores the rest.
+ */
+@Component
+public class LivenessTracker {
+
+    private static final int STRIPE_BITS = 4;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+
+    private final long offlineAfterMillis;
+    private final int shardCount;
+    private final int shardIndex;
+    private final List<TimingWheel<String>> wheels = new ArrayList<>(STRIPES);
+
+    public LivenessTracker(MeterRegistry meterRegistry,
+            @Value("${axion.liveness.offline-after-ms:120000}") long offlineAfterMillis,
+            @Value("${axion.liveness.tick-ms:1000}") long tickMillis,
+            @Value("${axion.liveness.shard-count:1}") int shardCount,
+            @Value("${axion.liveness.shard-index:0}") int shardIndex) {
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException(
+                    "axion.liveness.shard-index must be between 0 and shard-count - 1, got " + shardIndex + " of " + shardCount);
+        }
+        this.offlineAfterMillis = offlineAfterMillis;
+        this.shardCount = shardCount;
+        this.shardIndex = shardIndex;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < STRIPES; i++) {
+            wheels.add(new TimingWheel<>(tickMillis, now));
+        }
+        Gauge.builder("axion.liveness.tracked", this, LivenessTracker::size).register(meterRegistry);
+    }
+
+    public long getOfflineAfterMillis() {
+        return offlineAfterMillis;
+    }
+
+    // String.hashCode is specified, so every node agrees on the owner
+    public boolean owns(String vehicleId) {
+        return Math.floorMod(vehicleId.hashCode(), shardCount) == shardIndex;
+    }
+
+    /**
+     * Records that the vehicle was heard from at the given time, pushing its
+     * offline deadline back.
+     */
+    public void heard(String vehicleId, long lastSeenMillis) {
+        if (owns(vehicleId)) {
+            TimingWheel<String> wheel = wheel(vehicleId);
+            synchronized (wheel) {
+                wheel.schedule(vehicleId, lastSeenMillis + offlineAfterMillis);
+            }
+        }
+    }
+
+    /**
+     * Makes an owned vehicle that is not being watched due right away, so its
+     * twin gets checked and the real deadline scheduled from there.
+     */
+    public void recheck(String vehicleId) {
+        if (owns(vehicleId)) {
+            TimingWheel<String> wheel = wheel(vehicleId);
+            synchronized (wheel) {
+                if (!wheel.contains(vehicleId)) {
+                    wheel.schedule(vehicleId, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Vehicles whose deadline passed by the given time. They are no longer
+     * watched until heard from again.
+     */
+    public List<String> expired(long nowMillis) {
+        List<String> expired = new ArrayList<>();
+        for (TimingWheel<String> wheel : wheels) {
+            synchronized (wheel) {
+                wheel.advance(nowMillis, expired::add);
+            }
+        }
+        return expired;
+    }
+
+    public int size() {
+        int size = 0;
+        for (TimingWheel<String> wheel : wheels) {
+            synchronized (wheel) {
+                size += wheel.size();
+            }
+        }
+        return size;
+    }
+
+    // The top bits of a multiplicative hash, independent of the low bits owns() looks at
+    private TimingWheel<String> wheel(String vehicleId) {
+        return wheels.get((vehicleId.hashCode() * 0x9E3779B9) >>> (Integer.SIZE - STRIPE_BITS));
+    }
+}
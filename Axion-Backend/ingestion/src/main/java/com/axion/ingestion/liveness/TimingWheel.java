@@ -0,0 +1,149 @@
+package com.axion.ingestion.liveness;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel holding one deadline per key. Scheduling,
+ * rescheduling and cancelling are O(1): each key's entry sits in a doubly
+ * linked slot list and is simply moved. Four levels of 64 slots cover 64^4
+ * ticks; later deadlines are parked in the last level and placed again each
+ * time it comes round. Deadlines fire at tick granularity, never early.
+ * Not thread safe.
+ */
+final class TimingWheel<K> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private static final class Entry<K> {
+        final K key;
+        long deadlineTick;
+        Entry<K> prev;
+        Entry<K> next;
+
+        Entry(K key) {
+            this.key = key;
+        }
+    }
+
+    private final long tickMillis;
+    // Sentinel heads of circular slot lists, per level
+    private final Entry<K>[][] slots;
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+    private long currentTick;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        this.slots = new Entry[LEVELS][SLOTS];
+        for (Entry<K>[] level : slots) {
+            for (int i = 0; i < SLOTS; i++) {
+                Entry<K> head = new Entry<>(null);
+                head.prev = head;
+                head.next = head;
+                level[i] = head;
+            }
+        }
+    }
+
+    /**
+     * Sets the key's deadline, replacing any earlier one. Deadlines already
+     * passed fire on the next tick.
+     */
+    void schedule(K key, long deadlineMillis) {
+        Entry<K> entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry<>(key);
+            entries.put(key, entry);
+        } else {
+            unlink(entry);
+        }
+        // Rounded up, so a deadline never fires before it is due
+        entry.deadlineTick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        place(entry);
+    }
+
+    boolean cancel(K key) {
+        Entry<K> entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        unlink(entry);
+        return true;
+    }
+
+    boolean contains(K key) {
+        return entries.containsKey(key);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Moves the wheel to the given time, handing every key whose deadline
+     * has passed to {@code expired}. Expired keys are no longer scheduled.
+     */
+    void advance(long nowMillis, Consumer<K> expired) {
+        long target = nowMillis / tickMillis;
+        while (currentTick < target) {
+            currentTick++;
+            // Entries of a higher level slot move down when the levels below wrap
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, (int) (currentTick >>> (SLOT_BITS * level)) & MASK);
+                }
+            }
+            Entry<K> head = slots[0][(int) currentTick & MASK];
+            while (head.next != head) {
+                Entry<K> entry = head.next;
+                unlink(entry);
+                entries.remove(entry.key);
+                expired.accept(entry.key);
+            }
+        }
+    }
+
+    private void cascade(int level, int slot) {
+        Entry<K> head = slots[level][slot];
+        if (head.next == head) {
+            return;
+        }
+        // Detached first: parked entries may land in this same slot again
+        Entry<K> entry = head.next;
+        head.prev.next = null;
+        head.next = head;
+        head.prev = head;
+        while (entry != null) {
+            Entry<K> next = entry.next;
+            place(entry);
+            entry = next;
+        }
+    }
+
+    // The lowest level whose higher-order bits the deadline shares with now
+    private void place(Entry<K> entry) {
+        int level = 0;
+        while (level < LEVELS - 1
+                && (entry.deadlineTick >>> (SLOT_BITS * (level + 1))) != (currentTick >>> (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        Entry<K> head = slots[level][(int) (entry.deadlineTick >>> (SLOT_BITS * level)) & MASK];
+        entry.prev = head.prev;
+        entry.next = head;
+        head.prev.next = entry;
+        head.prev = entry;
+    }
+
+    private static <K> void unlink(Entry<K> entry) {
+        entry.prev.next = entry.next;
+        entry.next.prev = entry.prev;
+        entry.prev = null;
+        entry.next = null;
+    }
+}
@@ -16,12 +16,21 @@ public class DigitalTwinState {
 
     private Instant lastSeen;
 
+    // Event timestamp of the telemetry the twin was built from, used to reject out-of-order events
+    private Instant lastEventTs;
+
     private boolean online;
 
     private TelemetrySnapshot telemetry;
 
+    // Derived from sequence gaps, or as reported by the vehicle when it sends no sequence numbers
+    private Double packetLossPct;
+
     private Integer healthScore;
 
     private String healthState;
 
+    // Taken off the score by the trend rules, which only the node consuming the vehicle can evaluate
+    private int trendPenalty;
+
 }
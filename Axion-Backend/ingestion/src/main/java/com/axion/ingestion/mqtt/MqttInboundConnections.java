@@ -0,0 +1,92 @@
+package com.axion.ingestion.mqtt;
+
+import com.axion.ingestion.adapter.TelemetryAdapterRegistry;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.integration.dsl.IntegrationFlow;
+import org.springframework.integration.dsl.context.IntegrationFlowContext;
+import org.springframework.integration.mqtt.core.MqttPahoClientFactory;
+import org.springframework.integration.mqtt.inbound.MqttPahoMessageDrivenChannelAdapter;
+import org.springframework.integration.mqtt.support.DefaultPahoMessageConverter;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opens the inbound MQTT client connections, all feeding {@code mqttInputChannel}.
+ * <p>
+ * With more than one connection every subscription is made as an MQTT shared
+ * subscription ({@code $share/<group>/<filter>}), so the broker spreads the
+ * messages across the connections instead of delivering each one to all of
+ * them. Per-vehicle order across connections then depends on the broker's
+ * shared-subscription strategy; use a sticky one (e.g. hash by topic) where
+ * the broker offers it.
+ */
+@Component
+public class MqttInboundConnections implements SmartInitializingSingleton {
+
+    static final String[] TOPICS = {"axion/telemetry/+", "axion/heartbeat/+"};
+
+    private final IntegrationFlowContext flowContext;
+    private final MqttPahoClientFactory clientFactory;
+    private final MessageChannel mqttInputChannel;
+    private final TelemetryAdapterRegistry adapterRegistry;
+    private final String clientId;
+    private final int connections;
+    private final String sharedGroup;
+
+    public MqttInboundConnections(IntegrationFlowContext flowContext, MqttPahoClientFactory clientFactory,
+            @Qualifier("mqttInputChannel") MessageChannel mqttInputChannel, TelemetryAdapterRegistry adapterRegistry,
+            @Value("${axion.mqtt.client-id:axion-ingestion-service}") String clientId,
+            @Value("${axion.mqtt.connections:1}") int connections,
+            @Value("${axion.mqtt.shared-group:}") String sharedGroup) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("axion.mqtt.connections must be at least 1");
+        }
+        if (connections > 1 && sharedGroup.isBlank()) {
+            throw new IllegalStateException("axion.mqtt.connections > 1 requires axion.mqtt.shared-group, "
+                    + "otherwise every connection receives every message");
+        }
+        this.flowContext = flowContext;
+        this.clientFactory = clientFactory;
+        this.mqttInputChannel = mqttInputChannel;
+        this.adapterRegistry = adapterRegistry;
+        this.clientId = clientId;
+        this.connections = connections;
+        this.sharedGroup = sharedGroup;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        String[] filters = subscriptions();
+        for (int i = 0; i < connections; i++) {
+            String id = connections == 1 ? clientId : clientId + "-" + i;
+            MqttPahoMessageDrivenChannelAdapter adapter =
+                    new MqttPahoMessageDrivenChannelAdapter(id, clientFactory, filters);
+
+            // The adapters read the raw bytes, so no String is built per message
+            DefaultPahoMessageConverter converter = new DefaultPahoMessageConverter();
+            converter.setPayloadAsBytes(true);
+            adapter.setConverter(converter);
+            adapter.setCompletionTimeout(5000);
+            adapter.setQos(1);
+
+            flowContext.registration(IntegrationFlow.from(adapter).channel(mqttInputChannel).get())
+                    .id("mqttInbound-" + i)
+                    .register();
+        }
+    }
+
+    private String[] subscriptions() {
+        List<String> filters = new ArrayList<>(List.of(TOPICS));
+        filters.addAll(adapterRegistry.topicFilters());
+
+        if (!sharedGroup.isBlank()) {
+            filters.replaceAll(filter -> "$share/" + sharedGroup + "/" + filter);
+        }
+        return filters.toArray(new String[0]);
+    }
+}
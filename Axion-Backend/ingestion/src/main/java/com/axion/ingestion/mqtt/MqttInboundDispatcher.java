@@ -0,0 +1,86 @@
+package com.axion.ingestion.mqtt;
+
+import com.axion.ingestion.concurrent.PartitionedExecutor;
+import com.axion.ingestion.concurrent.PartitionedExecutor.OverflowPolicy;
+import com.axion.ingestion.service.HeartbeatService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves MQTT messages off the Paho callback threads onto a pool of workers.
+ * Messages are partitioned by topic, and every vehicle publishes on its own
+ * topic ({@code axion/telemetry/{vehicleId}} or a vendor equivalent), so one
+ * vehicle's messages are always handled by the same worker, in arrival order.
+ * <p>
+ * Each worker has a bounded queue. When it is full the {@code axion.mqtt.overflow}
+ * policy applies: {@code BLOCK} parks the callback thread, which stops the
+ * client reading and lets the broker buffer; {@code DROP} discards the message
+ * and counts it in {@code axion.mqtt.inbound.dropped}.
+ * <p>
+ * Heartbeats skip the workers entirely: the vehicle id is taken from the
+ * {@code axion/heartbeat/{vehicleId}} topic and handed to {@link HeartbeatService}.
+ */
+@Component
+public class MqttInboundDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(MqttInboundDispatcher.class);
+
+    private static final String HEARTBEAT_TOPIC_PREFIX = "axion/heartbeat/";
+
+    private final MqttMessageHandler handler;
+    private final HeartbeatService heartbeats;
+    private final PartitionedExecutor workers;
+    private final Counter dropped;
+    private final Counter failed;
+
+    public MqttInboundDispatcher(MqttMessageHandler handler, HeartbeatService heartbeats, MeterRegistry meterRegistry,
+            @Value("${axion.mqtt.workers:4}") int workerCount,
+            @Value("${axion.mqtt.queue-capacity:10000}") int queueCapacity,
+            @Value("${axion.mqtt.overflow:BLOCK}") OverflowPolicy overflow) {
+        this.handler = handler;
+        this.heartbeats = heartbeats;
+        this.workers = new PartitionedExecutor("mqtt-worker", workerCount, queueCapacity, overflow);
+        this.dropped = meterRegistry.counter("axion.mqtt.inbound.dropped");
+        this.failed = meterRegistry.counter("axion.mqtt.inbound.failed");
+        Gauge.builder("axion.mqtt.inbound.queued", workers, PartitionedExecutor::getQueuedTasks)
+                .register(meterRegistry);
+    }
+
+    @ServiceActivator(inputChannel = "mqttInputChannel")
+    public void dispatch(Message<byte[]> message) {
+        String topic = message.getHeaders().get(MqttHeaders.RECEIVED_TOPIC, String.class);
+        if (topic != null && topic.startsWith(HEARTBEAT_TOPIC_PREFIX)) {
+            if (topic.length() > HEARTBEAT_TOPIC_PREFIX.length()) {
+                heartbeats.record(topic.substring(HEARTBEAT_TOPIC_PREFIX.length()));
+            }
+            return;
+        }
+        if (!workers.execute(topic, () -> handle(message))) {
+            dropped.increment();
+        }
+    }
+
+    private void handle(Message<byte[]> message) {
+        try {
+            handler.handle(message);
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.warn("Rejected MQTT message on {}: {}",
+                    message.getHeaders().get(MqttHeaders.RECEIVED_TOPIC), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown(5000);
+    }
+}
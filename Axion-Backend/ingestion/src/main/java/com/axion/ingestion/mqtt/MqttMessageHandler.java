@@ -1,31 +1,47 @@
 package com.axion.ingestion.mqtt;
 
-import com.axion.ingestion.adapter.RestTelemetryAdapter;
+import com.axion.ingestion.adapter.TelemetryAdapterRegistry;
 import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
 import com.axion.ingestion.producer.TelemetryKafkaProducer;
 import com.axion.ingestion.validation.TelemetryValidator;
-import org.springframework.integration.annotation.ServiceActivator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.integration.mqtt.support.MqttHeaders;
 import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
 
+/**
+ * Adapts, validates and publishes one MQTT message. Called on the inbound
+ * worker that owns the message's topic, see {@link MqttInboundDispatcher}.
+ */
+@Component
 public class MqttMessageHandler {
 
-    private final RestTelemetryAdapter adapter = new RestTelemetryAdapter();
+    private static final Logger log = LoggerFactory.getLogger(MqttMessageHandler.class);
+
+    private final TelemetryAdapterRegistry adapters;
     private final TelemetryValidator validator = new TelemetryValidator();
     private final TelemetryKafkaProducer producer;
 
-    public MqttMessageHandler(TelemetryKafkaProducer producer) {
+    public MqttMessageHandler(TelemetryAdapterRegistry adapters, TelemetryKafkaProducer producer) {
+        this.adapters = adapters;
         this.producer = producer;
     }
 
-    @ServiceActivator(inputChannel = "mqttInputChannel")
-    public void handle(Message<String> message) {
+    public void handle(Message<byte[]> message) {
 
-        String payload = message.getPayload();
+        byte[] payload = message.getPayload();
+        String topic = message.getHeaders().get(MqttHeaders.RECEIVED_TOPIC, String.class);
 
-        CanonicalTelemetryEnvelope envelope = adapter.adapt(payload);
+        CanonicalTelemetryEnvelope envelope = adapters.forTopic(topic).adapt(payload);
         envelope.getConnection().setProtocol("MQTT");
 
         validator.validate(envelope);
-        producer.publish(envelope);
+        // Fire-and-forget so the worker is never parked on a broker round trip
+        producer.publishAsync(envelope).whenComplete((result, error) -> {
+            if (error != null) {
+                log.warn("Dropped MQTT telemetry for {}: {}", envelope.getVehicleId(), error.getMessage());
+            }
+        });
     }
 }
@@ -0,0 +1,34 @@
+package com.axion.ingestion.producer;
+
+import com.axion.ingestion.alert.VehicleAlert;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+@Component
+public class AlertKafkaProducer {
+
+    private final KafkaTemplate<String, VehicleAlert> kafkaTemplate;
+    private final String topic;
+
+    public AlertKafkaProducer(KafkaTemplate<String, VehicleAlert> kafkaTemplate,
+            @Value("${axion.alerts.topic:vehicle.alerts}") String topic) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.topic = topic;
+    }
+
+    /**
+     * Hands the alert to the producer, keyed by vehicle so a vehicle's alerts
+     * stay in order. Completes once the broker has acknowledged it.
+     */
+    public CompletableFuture<SendResult<String, VehicleAlert>> publishAsync(VehicleAlert alert) {
+        try {
+            return kafkaTemplate.send(topic, alert.getVehicleId(), alert);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
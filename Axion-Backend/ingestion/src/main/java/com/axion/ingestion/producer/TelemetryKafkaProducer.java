@@ -2,8 +2,14 @@ package com.axion.ingestion.producer;
 
 import com.axion.ingestion.exception.IngestionUnavailableException;
 import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
 
 @Component
 public class TelemetryKafkaProducer {
@@ -12,17 +18,48 @@ public class TelemetryKafkaProducer {
 
     private final KafkaTemplate<String, CanonicalTelemetryEnvelope> kafkaTemplate;
 
-    public TelemetryKafkaProducer(KafkaTemplate<String, CanonicalTelemetryEnvelope> kafkaTemplate) {
+    // Sends handed to the producer but not yet acknowledged by the broker
+    private final Semaphore inFlight;
+
+    public TelemetryKafkaProducer(KafkaTemplate<String, CanonicalTelemetryEnvelope> kafkaTemplate,
+            @Value("${axion.kafka.producer.max-in-flight-sends:20000}") int maxInFlight) {
         this.kafkaTemplate = kafkaTemplate;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Publishes the envelope when the returned {@link Mono} is subscribed and
+     * completes once the broker has acknowledged it. No thread is parked while
+     * the send is outstanding.
+     */
+    public Mono<Void> publish(CanonicalTelemetryEnvelope envelope) {
+        return Mono.fromFuture(() -> publishAsync(envelope)).then();
     }
 
-    public void publish(CanonicalTelemetryEnvelope envelope) {
+    /**
+     * Hands the envelope to the producer without waiting for the broker ack, so
+     * many sends can share one producer batch. Fails fast with
+     * {@link IngestionUnavailableException} once {@code max-in-flight-sends}
+     * sends are outstanding, and surfaces broker failures the same way.
+     */
+    public CompletableFuture<SendResult<String, CanonicalTelemetryEnvelope>> publishAsync(
+            CanonicalTelemetryEnvelope envelope) {
+        if (!inFlight.tryAcquire()) {
+            return CompletableFuture.failedFuture(new IngestionUnavailableException(
+                    "Kafka is not keeping up, telemetry not accepted"));
+        }
+
+        CompletableFuture<SendResult<String, CanonicalTelemetryEnvelope>> future;
         try {
-            kafkaTemplate.send(TOPIC, envelope.getVehicleId(), envelope).get();
+            future = kafkaTemplate.send(TOPIC, envelope.getVehicleId(), envelope);
         } catch (Exception e) {
-            throw new IngestionUnavailableException(
-                    "Kafka unavailable, telemetry not accepted", e
-            );
+            inFlight.release();
+            return CompletableFuture.failedFuture(new IngestionUnavailableException(
+                    "Kafka unavailable, telemetry not accepted", e));
         }
+
+        return future.whenComplete((result, error) -> inFlight.release())
+                .exceptionallyCompose(e -> CompletableFuture.failedFuture(
+                        new IngestionUnavailableException("Kafka unavailable, telemetry not accepted", e)));
     }
 }
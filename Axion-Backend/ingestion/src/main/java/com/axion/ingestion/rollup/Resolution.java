@@ -0,0 +1,42 @@
+package com.axion.ingestion.rollup;
+
+import java.util.Arrays;
+
+/**
+ * Length of the tumbling windows a rollup aggregates over. Windows are
+ * aligned to the epoch, so e.g. every 5 minute window starts at a multiple
+ * of 5 minutes.
+ */
+public enum Resolution {
+
+    ONE_MINUTE("1m", 60_000),
+    FIVE_MINUTES("5m", 300_000),
+    ONE_HOUR("1h", 3_600_000);
+
+    private final String label;
+    private final long millis;
+
+    Resolution(String label, long millis) {
+        this.label = label;
+        this.millis = millis;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    long windowStart(long timestamp) {
+        return Math.floorDiv(timestamp, millis) * millis;
+    }
+
+    /**
+     * @return the resolution with the given label, e.g. {@code 5m}, or null
+     */
+    public static Resolution fromLabel(String label) {
+        return Arrays.stream(values()).filter(r -> r.label.equals(label)).findFirst().orElse(null);
+    }
+}
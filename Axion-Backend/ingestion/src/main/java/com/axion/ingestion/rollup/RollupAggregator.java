@@ -0,0 +1,226 @@
+package com.axion.ingestion.rollup;
+
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.model.TelemetryPayload;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental min, max, avg and last of a few metrics per vehicle and across
+ * the fleet, over tumbling 1 minute, 5 minute and 1 hour windows of event
+ * time.
+ * <p>
+ * Each reading is folded into the open windows it falls in as it is
+ * consumed. A window closes once the wall clock passes its end plus the
+ * allowed lateness; readings for a closed window are dropped and counted.
+ * Closed windows are flushed to the {@link RollupStore}, which merges them
+ * with what other nodes flushed for the same window. Windows the store failed
+ * to merge are kept and written again by the next flush, up to
+ * {@code max-pending-windows}, past which the oldest are dropped.
+ */
+@Component
+public class RollupAggregator {
+
+    private static final Logger log = LoggerFactory.getLogger(RollupAggregator.class);
+
+    // Metric order in the windows and the stored encoding
+    static final String[] METRICS = {"batterySocPct", "batteryTempC", "motorTempC", "speedKmph"};
+
+    private static final Resolution[] RESOLUTIONS = Resolution.values();
+
+    private final RollupStore store;
+    private final long allowedLatenessMillis;
+    private final int maxPendingWindows;
+
+    private final Object lock = new Object();
+    // Open windows of every resolution, per vehicle and of the whole fleet
+    private final Map<String, List<RollupWindow>> vehicles = new HashMap<>();
+    private final List<RollupWindow> fleet = new ArrayList<>();
+    // Closed windows a flush failed to write, oldest first
+    private final ArrayDeque<RollupWindow> pending = new ArrayDeque<>();
+
+    private final Counter late;
+    private final Counter flushed;
+    private final Counter flushFailures;
+    private final Counter dropped;
+
+    public RollupAggregator(MeterRegistry meterRegistry, RollupStore store,
+            @Value("${axion.rollup.allowed-lateness-ms:30000}") long allowedLatenessMillis,
+            @Value("${axion.rollup.max-pending-windows:100000}") int maxPendingWindows) {
+        this.store = store;
+        this.allowedLatenessMillis = allowedLatenessMillis;
+        this.maxPendingWindows = maxPendingWindows;
+        this.late = meterRegistry.counter("axion.rollup.late");
+        this.flushed = meterRegistry.counter("axion.rollup.windows.flushed");
+        this.flushFailures = meterRegistry.counter("axion.rollup.flush.failed");
+        this.dropped = meterRegistry.counter("axion.rollup.windows.dropped");
+        Gauge.builder("axion.rollup.vehicles", vehicles, Map::size).register(meterRegistry);
+        Gauge.builder("axion.rollup.windows.pending", this, RollupAggregator::pendingWindows).register(meterRegistry);
+    }
+
+    private int pendingWindows() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    public void add(Collection<CanonicalTelemetryEnvelope> events) {
+        add(events, System.currentTimeMillis());
+    }
+
+    void add(Collection<CanonicalTelemetryEnvelope> events, long now) {
+        double[] readings = new double[METRICS.length];
+        synchronized (lock) {
+            for (CanonicalTelemetryEnvelope event : events) {
+                if (event == null || event.getTimestamp() == null || event.getTelemetry() == null) {
+                    continue;
+                }
+                long timestamp = event.getTimestamp().toEpochMilli();
+                // Far future timestamps would hold windows open for as long
+                if (timestamp > now + allowedLatenessMillis) {
+                    late.increment();
+                    continue;
+                }
+                readings(event.getTelemetry(), readings);
+
+                List<RollupWindow> windows = vehicles.get(event.getVehicleId());
+                boolean added = false;
+                for (Resolution resolution : RESOLUTIONS) {
+                    long start = resolution.windowStart(timestamp);
+                    if (closed(start + resolution.getMillis(), now)) {
+                        continue;
+                    }
+                    if (windows == null) {
+                        windows = new ArrayList<>(4);
+                        vehicles.put(event.getVehicleId(), windows);
+                    }
+                    window(windows, event.getVehicleId(), resolution, start).add(timestamp, readings);
+                    window(fleet, null, resolution, start).add(timestamp, readings);
+                    added = true;
+                }
+                if (!added) {
+                    late.increment();
+                }
+            }
+        }
+    }
+
+    private boolean closed(long end, long now) {
+        return end + allowedLatenessMillis <= now;
+    }
+
+    private static RollupWindow window(List<RollupWindow> windows, String vehicleId, Resolution resolution, long start) {
+        for (RollupWindow window : windows) {
+            if (window.start() == start && window.resolution() == resolution) {
+                return window;
+            }
+        }
+        RollupWindow window = new RollupWindow(vehicleId, resolution, start);
+        windows.add(window);
+        return window;
+    }
+
+    private static void readings(TelemetryPayload telemetry, double[] readings) {
+        readings[0] = reading(telemetry.getBatterySocPct());
+        readings[1] = reading(telemetry.getBatteryTempC());
+        readings[2] = reading(telemetry.getMotorTempC());
+        readings[3] = reading(telemetry.getSpeedKmph());
+    }
+
+    private static double reading(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    @Scheduled(fixedDelayString = "${axion.rollup.flush-interval-ms:1000}")
+    public void flush() {
+        flush(System.currentTimeMillis(), false);
+    }
+
+    /**
+     * Hands the open windows over too, the windows continued after a restart
+     * are merged with them in the store.
+     */
+    @PreDestroy
+    public void flushAll() {
+        flush(System.currentTimeMillis(), true);
+    }
+
+    /**
+     * Writes the closed windows, or all of them, to the store, after those
+     * earlier flushes failed to write.
+     *
+     * @return the number of windows written
+     */
+    int flush(long now, boolean all) {
+        List<RollupWindow> closed = new ArrayList<>();
+        synchronized (lock) {
+            closed.addAll(pending);
+            pending.clear();
+            Iterator<List<RollupWindow>> iterator = vehicles.values().iterator();
+            while (iterator.hasNext()) {
+                List<RollupWindow> windows = iterator.next();
+                takeClosed(windows, now, all, closed);
+                if (windows.isEmpty()) {
+                    iterator.remove();
+                }
+            }
+            takeClosed(fleet, now, all, closed);
+        }
+        if (closed.isEmpty()) {
+            return 0;
+        }
+        List<RollupWindow> failed;
+        try {
+            failed = store.write(closed, now);
+        } catch (RuntimeException e) {
+            failed = closed;
+            log.warn("Flushing {} rollup windows failed: {}", closed.size(), e.getMessage());
+        }
+        int written = closed.size() - failed.size();
+        flushed.increment(written);
+        if (!failed.isEmpty()) {
+            flushFailures.increment(failed.size());
+            keep(failed);
+        }
+        return written;
+    }
+
+    // Keeps the windows for the next flush, ahead of any failed since, dropping the oldest past the limit
+    private void keep(List<RollupWindow> failed) {
+        synchronized (lock) {
+            for (int i = failed.size() - 1; i >= 0; i--) {
+                pending.addFirst(failed.get(i));
+            }
+            while (pending.size() > maxPendingWindows) {
+                pending.pollFirst();
+                dropped.increment();
+            }
+        }
+    }
+
+    private void takeClosed(List<RollupWindow> windows, long now, boolean all, List<RollupWindow> closed) {
+        Iterator<RollupWindow> iterator = windows.iterator();
+        while (iterator.hasNext()) {
+            RollupWindow window = iterator.next();
+            if (all || closed(window.end(), now)) {
+                closed.add(window);
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.axion.ingestion.rollup;
+
+import com.axion.ingestion.dto.MetricRollup;
+import com.axion.ingestion.dto.RollupPoint;
+import com.axion.ingestion.dto.RollupResponse;
+import com.axion.ingestion.exception.InvalidQueryException;
+import com.axion.ingestion.model.DigitalTwinState;
+import com.axion.ingestion.service.LuaScripts;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Closed rollup windows in Redis, one sorted set per vehicle or the fleet and
+ * resolution, scored by window start. Each resolution is kept for its own
+ * retention.
+ */
+@Component
+public class RollupStore {
+
+    static final String KEY_PREFIX = "rollup:";
+
+    private static final RedisScript<Long> MERGE = LuaScripts.load(Long.class, "rollup-merge.lua");
+
+    private static final StringRedisSerializer STRINGS = StringRedisSerializer.UTF_8;
+
+    private final RedisTemplate<String, DigitalTwinState> redisTemplate;
+    private final Map<Resolution, Long> retentionMillis = new EnumMap<>(Resolution.class);
+    private final int maxWindows;
+
+    public RollupStore(RedisTemplate<String, DigitalTwinState> redisTemplate,
+            @Value("${axion.rollup.retention.1m-ms:86400000}") long minuteRetentionMillis,
+            @Value("${axion.rollup.retention.5m-ms:604800000}") long fiveMinuteRetentionMillis,
+            @Value("${axion.rollup.retention.1h-ms:7776000000}") long hourRetentionMillis,
+            @Value("${axion.rollup.max-windows:2000}") int maxWindows) {
+        this.redisTemplate = redisTemplate;
+        this.retentionMillis.put(Resolution.ONE_MINUTE, minuteRetentionMillis);
+        this.retentionMillis.put(Resolution.FIVE_MINUTES, fiveMinuteRetentionMillis);
+        this.retentionMillis.put(Resolution.ONE_HOUR, hourRetentionMillis);
+        this.maxWindows = maxWindows;
+    }
+
+    static String key(String vehicleId, Resolution resolution) {
+        return KEY_PREFIX + resolution.getLabel() + (vehicleId == null ? ":fleet" : ":vehicle:" + vehicleId);
+    }
+
+    /**
+     * Merges the windows into the stored ones in one pipeline, see
+     * {@code rollup-merge.lua}, so partial windows written for the same
+     * start, by other nodes or before a restart, add up.
+     *
+     * @return the windows whose merge failed, to be written again; a failure
+     *         before the pipeline ran throws instead
+     */
+    List<RollupWindow> write(List<RollupWindow> windows, long now) {
+        if (windows.isEmpty()) {
+            return List.of();
+        }
+        // Loaded up front rather than retried on NOSCRIPT like the twin scripts, see
+        // LuaScripts.evalPipelined: a merge must never run twice. Windows close rarely
+        // enough for the extra SCRIPT LOAD not to matter.
+        try {
+            merge(windows, now);
+            return List.of();
+        } catch (RedisPipelineException e) {
+            // Results in call order, the SCRIPT LOAD first; the merges that went through stay merged
+            List<Object> results = e.getPipelineResult();
+            List<RollupWindow> failed = new ArrayList<>();
+            for (int i = 0; i < windows.size(); i++) {
+                if (i + 1 >= results.size() || results.get(i + 1) instanceof Exception) {
+                    failed.add(windows.get(i));
+                }
+            }
+            return failed;
+        }
+    }
+
+    private void merge(List<RollupWindow> windows, long now) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.scriptingCommands().scriptLoad(LuaScripts.source(MERGE));
+            for (RollupWindow window : windows) {
+                long retention = retentionMillis.get(window.resolution());
+                connection.scriptingCommands().evalSha(MERGE.getSha1(), ReturnType.INTEGER, 1,
+                        STRINGS.serialize(key(window.vehicleId(), window.resolution())),
+                        STRINGS.serialize(Long.toString(window.start())),
+                        STRINGS.serialize(window.encode()),
+                        STRINGS.serialize(Long.toString(now - retention)),
+                        STRINGS.serialize(Long.toString(retention)));
+            }
+            return null;
+        }, STRINGS);
+    }
+
+    /**
+     * Closed windows of the vehicle, or of the fleet for a null vehicle id,
+     * starting in [from, to). Without a range the last 60 windows.
+     */
+    public RollupResponse query(String vehicleId, String resolutionLabel, Instant from, Instant to) {
+        Resolution resolution = Resolution.fromLabel(resolutionLabel);
+        if (resolution == null) {
+            throw new InvalidQueryException("resolution must be one of " + Arrays.stream(Resolution.values())
+                    .map(Resolution::getLabel).collect(Collectors.joining(", ")));
+        }
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofMillis(60 * resolution.getMillis()));
+        if (!start.isBefore(end)) {
+            throw new InvalidQueryException("from must be before to");
+        }
+        if (Duration.between(start, end).toMillis() / resolution.getMillis() > maxWindows) {
+            throw new InvalidQueryException("from and to span more than " + maxWindows + " windows");
+        }
+
+        byte[] key = STRINGS.serialize(key(vehicleId, resolution));
+        Set<byte[]> members = redisTemplate.execute((RedisCallback<Set<byte[]>>) connection ->
+                connection.zSetCommands().zRangeByScore(key,
+                        start.toEpochMilli(), Math.nextDown((double) end.toEpochMilli())));
+
+        List<RollupPoint> windows = new ArrayList<>();
+        if (members != null) {
+            for (byte[] member : members) {
+                windows.add(toPoint(RollupWindow.decode(vehicleId, resolution, STRINGS.deserialize(member))));
+            }
+        }
+
+        RollupResponse response = new RollupResponse();
+        response.setVehicleId(vehicleId);
+        response.setResolution(resolution.getLabel());
+        response.setFrom(start);
+        response.setTo(end);
+        response.setWindows(windows);
+        return response;
+    }
+
+    private static RollupPoint toPoint(RollupWindow window) {
+        RollupPoint point = new RollupPoint();
+        point.setTimestamp(Instant.ofEpochMilli(window.start()));
+        point.setBatterySocPct(metric(window, 0));
+        point.setBatteryTempC(metric(window, 1));
+        point.setMotorTempC(metric(window, 2));
+        point.setSpeedKmph(metric(window, 3));
+        return point;
+    }
+
+    private static MetricRollup metric(RollupWindow window, int i) {
+        if (window.count[i] == 0) {
+            return null;
+        }
+        MetricRollup metric = new MetricRollup();
+        metric.setCount(window.count[i]);
+        metric.setMin(window.min[i]);
+        metric.setMax(window.max[i]);
+        metric.setAvg(window.sum[i] / window.count[i]);
+        metric.setLast(window.last[i]);
+        return metric;
+    }
+}
@@ -0,0 +1,101 @@
+package com.axion.ingestion.rollup;
+
+/**
+ * Running min, max, sum and last reading of each rolled up metric over one
+ * window, held in primitive arrays indexed by metric. A missing reading is
+ * passed as NaN and skipped.
+ */
+final class RollupWindow {
+
+    static final int METRICS = RollupAggregator.METRICS.length;
+
+    // Null for the fleet-wide window
+    private final String vehicleId;
+    private final Resolution resolution;
+    private final long start;
+
+    final long[] count = new long[METRICS];
+    final double[] min = new double[METRICS];
+    final double[] max = new double[METRICS];
+    final double[] sum = new double[METRICS];
+    final double[] last = new double[METRICS];
+    final long[] lastTimestamp = new long[METRICS];
+
+    RollupWindow(String vehicleId, Resolution resolution, long start) {
+        this.vehicleId = vehicleId;
+        this.resolution = resolution;
+        this.start = start;
+    }
+
+    String vehicleId() {
+        return vehicleId;
+    }
+
+    Resolution resolution() {
+        return resolution;
+    }
+
+    long start() {
+        return start;
+    }
+
+    long end() {
+        return start + resolution.getMillis();
+    }
+
+    void add(long timestamp, double[] readings) {
+        for (int i = 0; i < METRICS; i++) {
+            double reading = readings[i];
+            if (Double.isNaN(reading)) {
+                continue;
+            }
+            if (count[i] == 0) {
+                min[i] = reading;
+                max[i] = reading;
+            } else {
+                min[i] = Math.min(min[i], reading);
+                max[i] = Math.max(max[i], reading);
+            }
+            sum[i] += reading;
+            count[i]++;
+            // Late points may arrive out of order, last is the one with the newest timestamp
+            if (count[i] == 1 || timestamp >= lastTimestamp[i]) {
+                last[i] = reading;
+                lastTimestamp[i] = timestamp;
+            }
+        }
+    }
+
+    /**
+     * Encodes the window as stored by {@code rollup-merge.lua}: the start,
+     * then count, min, max, sum, last and last timestamp of each metric,
+     * comma separated.
+     */
+    String encode() {
+        StringBuilder out = new StringBuilder(32 + METRICS * 64).append(start);
+        for (int i = 0; i < METRICS; i++) {
+            out.append(',').append(count[i])
+                    .append(',').append(count[i] == 0 ? 0 : min[i])
+                    .append(',').append(count[i] == 0 ? 0 : max[i])
+                    .append(',').append(sum[i])
+                    .append(',').append(count[i] == 0 ? 0 : last[i])
+                    .append(',').append(lastTimestamp[i]);
+        }
+        return out.toString();
+    }
+
+    static RollupWindow decode(String vehicleId, Resolution resolution, String encoded) {
+        String[] fields = encoded.split(",");
+        RollupWindow window = new RollupWindow(vehicleId, resolution, Long.parseLong(fields[0]));
+        for (int i = 0; i < METRICS; i++) {
+            int base = 1 + 6 * i;
+            window.count[i] = (long) Double.parseDouble(fields[base]);
+            window.min[i] = Double.parseDouble(fields[base + 1]);
+            window.max[i] = Double.parseDouble(fields[base + 2]);
+            window.sum[i] = Double.parseDouble(fields[base + 3]);
+            window.last[i] = Double.parseDouble(fields[base + 4]);
+            window.lastTimestamp[i] = (long) Double.parseDouble(fields[base + 5]);
+        }
+        return window;
+    }
+}
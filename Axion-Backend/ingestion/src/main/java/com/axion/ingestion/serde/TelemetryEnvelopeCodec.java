@@ -0,0 +1,205 @@
+package com.axion.ingestion.serde;
+
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.model.ConnectionMetadata;
+import com.axion.ingestion.model.TelemetryPayload;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Compact binary encoding of {@link CanonicalTelemetryEnvelope}. The wire
+ * layout is chosen by the envelope's {@code schemaVersion}; version 1
+ * ({@code "1.0"}) is:
+ *
+ * <pre>
+ * u8    magic (0xAE)
+ * u8    wire version (1)
+ * i32   presence bitmap, one bit per nullable field below
+ * i64   timestamp, ingestionTs   epoch microseconds
+ * f64   speedKmph, batterySocPct, batteryTempC, motorTempC, ambientTempC, odometerKm
+ * i32   signalStrength
+ * i64   sequenceNumber
+ * f64   packetLossPct
+ * str   vehicleId, vendor, protocol   (u16 length + UTF-8)
+ * </pre>
+ *
+ * Absent fields take no space. {@code isHeartbeat} lives entirely in the
+ * bitmap. Timestamps are carried at microsecond precision.
+ */
+public final class TelemetryEnvelopeCodec {
+
+    public static final byte MAGIC = (byte) 0xAE;
+
+    private static final byte V1 = 1;
+    private static final String V1_SCHEMA = "1.0";
+
+    private static final int TIMESTAMP = 1;
+    private static final int INGESTION_TS = 1 << 1;
+    private static final int TELEMETRY = 1 << 2;
+    private static final int SPEED = 1 << 3;
+    private static final int SOC = 1 << 4;
+    private static final int BATTERY_TEMP = 1 << 5;
+    private static final int MOTOR_TEMP = 1 << 6;
+    private static final int AMBIENT_TEMP = 1 << 7;
+    private static final int ODOMETER = 1 << 8;
+    private static final int CONNECTION = 1 << 9;
+    private static final int SIGNAL_STRENGTH = 1 << 10;
+    private static final int SEQUENCE_NUMBER = 1 << 11;
+    private static final int PACKET_LOSS = 1 << 12;
+    private static final int HEARTBEAT_PRESENT = 1 << 13;
+    private static final int HEARTBEAT_VALUE = 1 << 14;
+    private static final int VEHICLE_ID = 1 << 15;
+    private static final int VENDOR = 1 << 16;
+    private static final int PROTOCOL = 1 << 17;
+
+    // magic + version + bitmap
+    private static final int HEADER_BYTES = 6;
+
+    private TelemetryEnvelopeCodec() {
+    }
+
+    public static boolean supports(CanonicalTelemetryEnvelope envelope) {
+        return V1_SCHEMA.equals(envelope.getSchemaVersion());
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length >= HEADER_BYTES && data[0] == MAGIC;
+    }
+
+    public static byte[] encode(CanonicalTelemetryEnvelope envelope) {
+        if (!supports(envelope)) {
+            throw new SerializationException("No binary layout for schema version " + envelope.getSchemaVersion());
+        }
+
+        TelemetryPayload t = envelope.getTelemetry();
+        ConnectionMetadata c = envelope.getConnection();
+        byte[] vehicleId = utf8(envelope.getVehicleId());
+        byte[] vendor = utf8(envelope.getVendor());
+        byte[] protocol = c != null ? utf8(c.getProtocol()) : null;
+
+        int bits = 0;
+        int size = HEADER_BYTES;
+        if (envelope.getTimestamp() != null) { bits |= TIMESTAMP; size += 8; }
+        if (envelope.getIngestionTs() != null) { bits |= INGESTION_TS; size += 8; }
+        if (t != null) {
+            bits |= TELEMETRY;
+            if (t.getSpeedKmph() != null) { bits |= SPEED; size += 8; }
+            if (t.getBatterySocPct() != null) { bits |= SOC; size += 8; }
+            if (t.getBatteryTempC() != null) { bits |= BATTERY_TEMP; size += 8; }
+            if (t.getMotorTempC() != null) { bits |= MOTOR_TEMP; size += 8; }
+            if (t.getAmbientTempC() != null) { bits |= AMBIENT_TEMP; size += 8; }
+            if (t.getOdometerKm() != null) { bits |= ODOMETER; size += 8; }
+        }
+        if (c != null) {
+            bits |= CONNECTION;
+            if (c.getSignalStrength() != null) { bits |= SIGNAL_STRENGTH; size += 4; }
+            if (c.getSequenceNumber() != null) { bits |= SEQUENCE_NUMBER; size += 8; }
+            if (c.getPacketLossPct() != null) { bits |= PACKET_LOSS; size += 8; }
+            if (c.getIsHeartbeat() != null) {
+                bits |= HEARTBEAT_PRESENT;
+                if (c.getIsHeartbeat()) { bits |= HEARTBEAT_VALUE; }
+            }
+        }
+        if (vehicleId != null) { bits |= VEHICLE_ID; size += 2 + vehicleId.length; }
+        if (vendor != null) { bits |= VENDOR; size += 2 + vendor.length; }
+        if (protocol != null) { bits |= PROTOCOL; size += 2 + protocol.length; }
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.put(MAGIC).put(V1).putInt(bits);
+        if ((bits & TIMESTAMP) != 0) out.putLong(micros(envelope.getTimestamp()));
+        if ((bits & INGESTION_TS) != 0) out.putLong(micros(envelope.getIngestionTs()));
+        if ((bits & SPEED) != 0) out.putDouble(t.getSpeedKmph());
+        if ((bits & SOC) != 0) out.putDouble(t.getBatterySocPct());
+        if ((bits & BATTERY_TEMP) != 0) out.putDouble(t.getBatteryTempC());
+        if ((bits & MOTOR_TEMP) != 0) out.putDouble(t.getMotorTempC());
+        if ((bits & AMBIENT_TEMP) != 0) out.putDouble(t.getAmbientTempC());
+        if ((bits & ODOMETER) != 0) out.putDouble(t.getOdometerKm());
+        if ((bits & SIGNAL_STRENGTH) != 0) out.putInt(c.getSignalStrength());
+        if ((bits & SEQUENCE_NUMBER) != 0) out.putLong(c.getSequenceNumber());
+        if ((bits & PACKET_LOSS) != 0) out.putDouble(c.getPacketLossPct());
+        if (vehicleId != null) putString(out, vehicleId);
+        if (vendor != null) putString(out, vendor);
+        if (protocol != null) putString(out, protocol);
+        return out.array();
+    }
+
+    public static CanonicalTelemetryEnvelope decode(byte[] data) {
+        if (!isBinary(data)) {
+            throw new SerializationException("Not a binary telemetry envelope");
+        }
+        if (data[1] != V1) {
+            throw new SerializationException("Unsupported binary telemetry version " + data[1]);
+        }
+
+        try {
+            ByteBuffer in = ByteBuffer.wrap(data, 2, data.length - 2);
+            int bits = in.getInt();
+
+            CanonicalTelemetryEnvelope envelope = new CanonicalTelemetryEnvelope();
+            envelope.setSchemaVersion(V1_SCHEMA);
+            if ((bits & TIMESTAMP) != 0) envelope.setTimestamp(instant(in.getLong()));
+            if ((bits & INGESTION_TS) != 0) envelope.setIngestionTs(instant(in.getLong()));
+
+            if ((bits & TELEMETRY) != 0) {
+                TelemetryPayload t = new TelemetryPayload();
+                if ((bits & SPEED) != 0) t.setSpeedKmph(in.getDouble());
+                if ((bits & SOC) != 0) t.setBatterySocPct(in.getDouble());
+                if ((bits & BATTERY_TEMP) != 0) t.setBatteryTempC(in.getDouble());
+                if ((bits & MOTOR_TEMP) != 0) t.setMotorTempC(in.getDouble());
+                if ((bits & AMBIENT_TEMP) != 0) t.setAmbientTempC(in.getDouble());
+                if ((bits & ODOMETER) != 0) t.setOdometerKm(in.getDouble());
+                envelope.setTelemetry(t);
+            }
+
+            ConnectionMetadata c = null;
+            if ((bits & CONNECTION) != 0) {
+                c = new ConnectionMetadata();
+                if ((bits & SIGNAL_STRENGTH) != 0) c.setSignalStrength(in.getInt());
+                if ((bits & SEQUENCE_NUMBER) != 0) c.setSequenceNumber(in.getLong());
+                if ((bits & PACKET_LOSS) != 0) c.setPacketLossPct(in.getDouble());
+                if ((bits & HEARTBEAT_PRESENT) != 0) c.setIsHeartbeat((bits & HEARTBEAT_VALUE) != 0);
+                envelope.setConnection(c);
+            }
+
+            if ((bits & VEHICLE_ID) != 0) envelope.setVehicleId(getString(in));
+            if ((bits & VENDOR) != 0) envelope.setVendor(getString(in));
+            if ((bits & PROTOCOL) != 0 && c != null) c.setProtocol(getString(in));
+            return envelope;
+        } catch (RuntimeException e) {
+            throw new SerializationException("Corrupt binary telemetry envelope", e);
+        }
+    }
+
+    private static long micros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    private static Instant instant(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+
+    private static byte[] utf8(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new SerializationException("String field longer than 65535 bytes");
+        }
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer out, byte[] value) {
+        out.putShort((short) value.length).put(value);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = Short.toUnsignedInt(in.getShort());
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+}
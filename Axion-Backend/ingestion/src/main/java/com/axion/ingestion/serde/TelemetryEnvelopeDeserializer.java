@@ -0,0 +1,45 @@
+package com.axion.ingestion.serde;
+
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.Map;
+
+/**
+ * Reads both encodings {@link TelemetryEnvelopeSerializer} may produce: binary
+ * records are recognised by their magic byte, anything else is handed to
+ * Spring's {@link JsonDeserializer}. Topics can therefore switch encoding
+ * without draining them first.
+ */
+public class TelemetryEnvelopeDeserializer implements Deserializer<CanonicalTelemetryEnvelope> {
+
+    private final JsonDeserializer<CanonicalTelemetryEnvelope> json = new JsonDeserializer<>();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+    }
+
+    @Override
+    public CanonicalTelemetryEnvelope deserialize(String topic, byte[] data) {
+        if (TelemetryEnvelopeCodec.isBinary(data)) {
+            return TelemetryEnvelopeCodec.decode(data);
+        }
+        return json.deserialize(topic, data);
+    }
+
+    @Override
+    public CanonicalTelemetryEnvelope deserialize(String topic, Headers headers, byte[] data) {
+        if (TelemetryEnvelopeCodec.isBinary(data)) {
+            return TelemetryEnvelopeCodec.decode(data);
+        }
+        return json.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
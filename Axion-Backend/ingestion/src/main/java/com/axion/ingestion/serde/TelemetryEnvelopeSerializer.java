@@ -0,0 +1,55 @@
+package com.axion.ingestion.serde;
+
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes envelopes with {@link TelemetryEnvelopeCodec} on the topics listed in
+ * {@link #BINARY_TOPICS}, and as JSON everywhere else or when the envelope's
+ * schema version has no binary layout.
+ */
+public class TelemetryEnvelopeSerializer implements Serializer<CanonicalTelemetryEnvelope> {
+
+    /** Comma-separated topics that carry the binary encoding. */
+    public static final String BINARY_TOPICS = "axion.serde.binary.topics";
+
+    private final JsonSerializer<CanonicalTelemetryEnvelope> json = new JsonSerializer<>();
+    private Set<String> binaryTopics = Set.of();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+        Object topics = configs.get(BINARY_TOPICS);
+        if (topics != null && !topics.toString().isBlank()) {
+            // Set.copyOf, unlike Set.of, tolerates a topic listed twice
+            binaryTopics = Set.copyOf(List.of(topics.toString().trim().split("\\s*,\\s*")));
+        }
+    }
+
+    @Override
+    public byte[] serialize(String topic, CanonicalTelemetryEnvelope envelope) {
+        if (envelope != null && binaryTopics.contains(topic) && TelemetryEnvelopeCodec.supports(envelope)) {
+            return TelemetryEnvelopeCodec.encode(envelope);
+        }
+        return json.serialize(topic, envelope);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, CanonicalTelemetryEnvelope envelope) {
+        if (envelope != null && binaryTopics.contains(topic) && TelemetryEnvelopeCodec.supports(envelope)) {
+            return TelemetryEnvelopeCodec.encode(envelope);
+        }
+        return json.serialize(topic, headers, envelope);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
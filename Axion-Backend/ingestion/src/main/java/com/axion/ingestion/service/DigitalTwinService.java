@@ -1,44 +1,241 @@
 package com.axion.ingestion.service;
 
+import com.axion.ingestion.alert.AlertService;
+import com.axion.ingestion.connectivity.SequenceTracker;
+import com.axion.ingestion.dto.FleetSummaryResponse;
+import com.axion.ingestion.dto.FleetVehicleResponse;
+import com.axion.ingestion.exception.InvalidQueryException;
+import com.axion.ingestion.health.HealthScore;
 import com.axion.ingestion.health.HealthScoreEngine;
-import com.axion.ingestion.health.HealthScoreResult;
+import com.axion.ingestion.liveness.LivenessTracker;
 import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
 import com.axion.ingestion.model.DigitalTwinState;
 import com.axion.ingestion.model.TelemetrySnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 @Service
 public class DigitalTwinService {
 
+    private static final Logger log = LoggerFactory.getLogger(DigitalTwinService.class);
+
     private final RedisTemplate<String, DigitalTwinState> redisTemplate;
 
-    private HealthScoreEngine healthScoringEngine = new HealthScoreEngine();
+    private final HealthScoreEngine healthScoringEngine;
+
+    private static final String KEY_PREFIX = "digital_twin:";
+    private static final String HASH_KEY_PREFIX = "twin:";
+
+    // The scripts publish the vehicle id here whenever its twin changes or expires
+    public static final String CHANGES_CHANNEL = "digital_twin:changes";
+
+    // Vehicle ids scored by the expiry time of their twin, so members whose
+    // score has passed are exactly the twins Redis has expired
+    private static final String INDEX_KEY = "fleet:index";
+
+    // Set once the index is known to hold every twin, see findAllIds
+    private static final String INDEX_COMPLETE_KEY = "fleet:index:complete";
+
+    // Per-vehicle "<healthState>:<online>" and the fleet counters derived from them
+    private static final String MEMBERS_KEY = "fleet:members";
+    private static final String SUMMARY_KEY = "fleet:summary";
+
+    // Listing indexes, maintained by the scripts alongside the member states
+    private static final String LISTING_PREFIX = "fleet:idx:";
+    private static final String ONLINE_KEY = LISTING_PREFIX + "online";
+    private static final String LAST_SEEN_KEY = LISTING_PREFIX + "lastSeen";
+
+    // Incremented by every twin change; each twin's version is the value it
+    // got at its last change, expired twins are kept a while in REMOVED_KEY
+    private static final String VERSION_KEY = "fleet:version";
+    private static final String TWIN_VERSIONS_KEY = LISTING_PREFIX + "version";
+    private static final String REMOVED_KEY = "fleet:removed";
+    private static final String REMOVED_FLOOR_KEY = "fleet:removed:floor";
+
+    private static final int MGET_CHUNK = 500;
+    // A recount not continued for this long, e.g. its node stopped, is dropped
+    private static final Duration RECOUNT_TIMEOUT = Duration.ofMinutes(1);
+
+    // Expired vehicles accounted for per prune, keeping each script call short
+    private static final int EXPIRE_LIMIT = 1000;
 
-    private static final Duration TTL = Duration.ofSeconds(120);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> UPSERT = LuaScripts.load(List.class, "fleet-members.lua", "twin-upsert.lua");
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> UPSERT_HASH = LuaScripts.load(List.class, "fleet-members.lua", "twin-upsert-hash.lua");
+    private static final RedisScript<Long> KEEP_ALIVE = LuaScripts.load(Long.class, "fleet-members.lua", "twin-keep-alive.lua");
+    private static final RedisScript<Long> KEEP_ALIVE_HASH = LuaScripts.load(Long.class, "fleet-members.lua", "twin-keep-alive-hash.lua");
+    private static final RedisScript<List> LIVENESS = LuaScripts.load(List.class, "fleet-members.lua", "twin-liveness.lua");
+    private static final RedisScript<Long> PRUNE = LuaScripts.load(Long.class, "fleet-members.lua", "fleet-prune.lua");
+    private static final RedisScript<Long> RECONCILE = LuaScripts.load(Long.class, "fleet-members.lua", "fleet-reconcile.lua");
+    private static final RedisScript<Long> RECOUNT = LuaScripts.load(Long.class, "fleet-members.lua", "fleet-recount.lua");
+    private static final RedisScript<Long> BACKFILL = LuaScripts.load(Long.class, "fleet-backfill.lua");
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SUMMARY = LuaScripts.load(List.class, "fleet-members.lua", "fleet-summary.lua");
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> PAGE = LuaScripts.load(List.class, "fleet-page.lua");
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CHANGES = LuaScripts.load(List.class, "fleet-changes.lua");
+
+    private static final StringRedisSerializer STRINGS = StringRedisSerializer.UTF_8;
+
+    // Index entries a listing page may examine while applying filters
+    private final int listingScanLimit;
+
+    private final TwinLayout layout;
+    private final String keyPrefix;
+
+    private final LivenessTracker livenessTracker;
+
+    private final SequenceTracker sequenceTracker;
+
+    private final AlertService alertService;
+
+    // Twins expire once they have been offline for the retention period
+    private final Duration ttl;
+
+    private volatile boolean indexComplete;
 
     public DigitalTwinService(RedisTemplate<String, DigitalTwinState> redisTemplate,
-            HealthScoreEngine healthScoreEngine) {
+            HealthScoreEngine healthScoreEngine, LivenessTracker livenessTracker, SequenceTracker sequenceTracker,
+            AlertService alertService,
+            @Value("${axion.fleet.listing.scan-limit:5000}") int listingScanLimit,
+            @Value("${axion.twin.layout:BLOB}") TwinLayout layout,
+            @Value("${axion.liveness.retention-ms:86400000}") long retentionMillis) {
         this.redisTemplate = redisTemplate;
         this.healthScoringEngine = healthScoreEngine;
+        this.livenessTracker = livenessTracker;
+        this.sequenceTracker = sequenceTracker;
+        this.alertService = alertService;
+        this.listingScanLimit = listingScanLimit;
+        this.layout = layout;
+        this.keyPrefix = layout == TwinLayout.HASH ? HASH_KEY_PREFIX : KEY_PREFIX;
+        this.ttl = Duration.ofMillis(livenessTracker.getOfflineAfterMillis() + retentionMillis);
     }
 
     public void update(CanonicalTelemetryEnvelope event) {
-        String key = "digital_twin:" + event.getVehicleId();
+        sequenceTracker.record(event);
+        healthScoringEngine.observe(event);
+        upsert(List.of(toTwin(event)));
+    }
 
-        DigitalTwinState existing = redisTemplate.opsForValue().get(key);
+    /**
+     * Applies a batch of events, e.g. one Kafka poll, in one Redis round
+     * trip: only the newest event per vehicle is kept and every twin is
+     * written through the upsert script, all in one pipeline.
+     *
+     * @return the number of twins written
+     */
+    public int updateBatch(List<CanonicalTelemetryEnvelope> events) {
+        Map<String, CanonicalTelemetryEnvelope> newest = new LinkedHashMap<>();
+        for (CanonicalTelemetryEnvelope event : events) {
+            if (event == null) {
+                continue;
+            }
+            // Every reading counts towards packet loss and the trends, not only the newest
+            sequenceTracker.record(event);
+            healthScoringEngine.observe(event);
+            // Later records win ties, matching the order a record listener would apply them
+            newest.merge(event.getVehicleId(), event,
+                    (current, candidate) -> candidate.getTimestamp().isBefore(current.getTimestamp()) ? current : candidate);
+        }
 
-        if (existing != null && existing.getLastSeen() != null
-                && event.getTimestamp().isBefore(existing.getLastSeen())) {
-            return;
+        List<DigitalTwinState> twins = new ArrayList<>(newest.size());
+        for (CanonicalTelemetryEnvelope event : newest.values()) {
+            twins.add(toTwin(event));
+        }
+        return upsert(twins);
+    }
+
+    /**
+     * Writes each twin unless Redis already holds one built from a newer
+     * event. The check, the write and the TTL refresh happen in one script,
+     * so concurrent consumers of the same vehicle cannot overwrite a newer
+     * twin with an older one. In the hash layout only the fields that
+     * changed are written. Each written twin is checked for alerts against
+     * the member state the script replaced.
+     */
+    private int upsert(List<DigitalTwinState> twins) {
+        if (twins.isEmpty()) {
+            return 0;
         }
+        @SuppressWarnings("unchecked")
+        RedisSerializer<DigitalTwinState> values = (RedisSerializer<DigitalTwinState>) redisTemplate.getValueSerializer();
+        byte[] ttl = STRINGS.serialize(Long.toString(this.ttl.toMillis()));
+        byte[] expiresAt = STRINGS.serialize(Long.toString(System.currentTimeMillis() + this.ttl.toMillis()));
+        byte[] index = STRINGS.serialize(INDEX_KEY);
+        byte[] members = STRINGS.serialize(MEMBERS_KEY);
+        byte[] summary = STRINGS.serialize(SUMMARY_KEY);
 
+        @SuppressWarnings("rawtypes")
+        RedisScript<List> script = layout == TwinLayout.HASH ? UPSERT_HASH : UPSERT;
+
+        List<byte[][]> calls = new ArrayList<>(twins.size());
+        for (DigitalTwinState twin : twins) {
+            List<byte[]> keysAndArgs = new ArrayList<>(List.of(
+                    STRINGS.serialize(keyPrefix + twin.getVehicleId()), index, members, summary,
+                    STRINGS.serialize(TwinHashCodec.epochSeconds(twin.getLastEventTs())), ttl,
+                    STRINGS.serialize(twin.getVehicleId()), expiresAt, STRINGS.serialize(memberState(twin)),
+                    score(twin.getHealthScore()), score(twin.getTelemetry().getBatterySocPct()),
+                    score(twin.getTelemetry().getBatteryTempC()),
+                    STRINGS.serialize(TwinHashCodec.epochSeconds(twin.getLastSeen()))));
+            if (layout == TwinLayout.HASH) {
+                for (String fieldOrValue : TwinHashCodec.encode(twin)) {
+                    keysAndArgs.add(STRINGS.serialize(fieldOrValue));
+                }
+            } else {
+                keysAndArgs.add(values.serialize(twin));
+            }
+            calls.add(keysAndArgs.toArray(new byte[0][]));
+        }
+        List<Object> written = LuaScripts.evalPipelined(redisTemplate, script, ReturnType.MULTI, 4, calls);
+
+        int count = 0;
+        for (int i = 0; i < twins.size(); i++) {
+            // { 1, previous member state } when written, { 0 } when out of order
+            List<?> result = (List<?>) written.get(i);
+            if (Long.valueOf(1).equals(result.get(0))) {
+                DigitalTwinState twin = twins.get(i);
+                livenessTracker.heard(twin.getVehicleId(), twin.getLastSeen().toEpochMilli());
+                alertService.observe(twin, (String) result.get(1));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private DigitalTwinState toTwin(CanonicalTelemetryEnvelope event) {
         DigitalTwinState updated = new DigitalTwinState();
         updated.setVehicleId(event.getVehicleId());
         updated.setVendor(event.getVendor());
         updated.setLastSeen(event.getIngestionTs());
+        updated.setLastEventTs(event.getTimestamp());
         updated.setOnline(true);
 
         TelemetrySnapshot snapshot = new TelemetrySnapshot();
@@ -47,16 +244,664 @@ public class DigitalTwinService {
         snapshot.setBatteryTempC(event.getTelemetry().getBatteryTempC());
         snapshot.setMotorTempC(event.getTelemetry().getMotorTempC());
         snapshot.setAmbientTempC(event.getTelemetry().getAmbientTempC());
-        snapshot.setOdometerkm(event.getTelemetry().getOdometerKm());
+        if (event.getTelemetry().getOdometerKm() != null) {
+            snapshot.setOdometerkm(event.getTelemetry().getOdometerKm());
+        }
 
         updated.setTelemetry(snapshot);
 
-        HealthScoreResult result = healthScoringEngine.evaluate(updated);
+        Double packetLoss = sequenceTracker.packetLossPct(event.getVehicleId());
+        if (packetLoss == null && event.getConnection() != null) {
+            packetLoss = event.getConnection().getPacketLossPct();
+        }
+        updated.setPacketLossPct(packetLoss);
+
+        applyHealthScore(updated);
+        return updated;
+    }
+
+    private void applyHealthScore(DigitalTwinState twin) {
+        long health = healthScoringEngine.score(twin);
+        twin.setHealthScore(HealthScore.score(health));
+        twin.setHealthState(HealthScore.state(health).name());
+    }
+
+    /**
+     * Marks the given twins online and moves their {@code lastSeen} forward,
+     * leaving telemetry untouched. All updates go out in one pipeline.
+     * Vehicles coming back from offline are re-scored afterwards; vehicles
+     * without a twin are skipped.
+     *
+     * @param lastSeenMillis receive time per vehicle id, in epoch milliseconds
+     * @return the number of twins refreshed
+     */
+    public int keepAlive(Map<String, Long> lastSeenMillis) {
+        if (lastSeenMillis.isEmpty()) {
+            return 0;
+        }
+        byte[] ttl = STRINGS.serialize(Long.toString(this.ttl.toMillis()));
+        byte[] expiresAt = STRINGS.serialize(Long.toString(System.currentTimeMillis() + this.ttl.toMillis()));
+        byte[] index = STRINGS.serialize(INDEX_KEY);
+        byte[] members = STRINGS.serialize(MEMBERS_KEY);
+        byte[] summary = STRINGS.serialize(SUMMARY_KEY);
+
+        RedisScript<Long> script = layout == TwinLayout.HASH ? KEEP_ALIVE_HASH : KEEP_ALIVE;
+
+        List<byte[][]> calls = new ArrayList<>(lastSeenMillis.size());
+        for (Map.Entry<String, Long> entry : lastSeenMillis.entrySet()) {
+            String lastSeen = BigDecimal.valueOf(entry.getValue(), 3).toPlainString();
+            calls.add(new byte[][] { STRINGS.serialize(keyPrefix + entry.getKey()), index, members, summary,
+                    STRINGS.serialize(lastSeen), ttl, STRINGS.serialize(entry.getKey()), expiresAt });
+        }
+        List<Object> refreshed = LuaScripts.evalPipelined(redisTemplate, script, ReturnType.INTEGER, 4, calls);
+        List<String> returned = new ArrayList<>();
+        int count = 0;
+        int i = 0;
+        for (Map.Entry<String, Long> entry : lastSeenMillis.entrySet()) {
+            Object result = refreshed.get(i++);
+            if (Long.valueOf(1).equals(result) || Long.valueOf(2).equals(result)) {
+                livenessTracker.heard(entry.getKey(), entry.getValue());
+                count++;
+            }
+            if (Long.valueOf(2).equals(result)) {
+                returned.add(entry.getKey());
+            }
+        }
+        if (!returned.isEmpty()) {
+            setLiveness(findAll(returned), true);
+        }
+        return count;
+    }
+
+    /**
+     * Marks the vehicles whose offline deadline has passed offline, re-scoring
+     * them. A vehicle that turns out to have been heard from meanwhile, e.g.
+     * by another node, gets its deadline moved to match instead.
+     */
+    @Scheduled(fixedDelayString = "${axion.liveness.tick-ms:1000}")
+    public void markSilentVehiclesOffline() {
+        try {
+            List<String> due = livenessTracker.expired(System.currentTimeMillis());
+            if (due.isEmpty()) {
+                return;
+            }
+            long cutoff = System.currentTimeMillis() - livenessTracker.getOfflineAfterMillis();
+            List<DigitalTwinState> silent = new ArrayList<>();
+            for (DigitalTwinState twin : findAll(due)) {
+                if (!twin.isOnline()) {
+                    continue;
+                }
+                if (twin.getLastSeen().toEpochMilli() > cutoff) {
+                    livenessTracker.heard(twin.getVehicleId(), twin.getLastSeen().toEpochMilli());
+                } else {
+                    silent.add(twin);
+                }
+            }
+            int offline = setLiveness(silent, false);
+            if (offline > 0) {
+                log.debug("Marked {} vehicles offline", offline);
+            }
+        } catch (RuntimeException e) {
+            // Vehicles still online in Redis come back through the next resync
+            log.warn("Marking silent vehicles offline failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Hands every online vehicle this node owns but does not watch to the
+     * liveness tracker: after a restart, and for vehicles whose twins were
+     * written by other nodes.
+     */
+    @Scheduled(fixedDelayString = "${axion.liveness.resync-interval-ms:60000}")
+    public void resyncLiveness() {
+        try {
+            redisTemplate.execute((RedisCallback<Void>) connection -> {
+                ScanOptions options = ScanOptions.scanOptions().count(1000).build();
+                try (Cursor<byte[]> cursor = connection.setCommands().sScan(STRINGS.serialize(ONLINE_KEY), options)) {
+                    cursor.forEachRemaining(vehicleId -> livenessTracker.recheck(STRINGS.deserialize(vehicleId)));
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Resyncing vehicle liveness failed: {}", e.getMessage());
+        }
+    }
+
+    // Re-scores the twins as online or offline; the script skips twins that changed since they were read
+    private int setLiveness(List<DigitalTwinState> twins, boolean online) {
+        if (twins.isEmpty()) {
+            return 0;
+        }
+        byte[] members = STRINGS.serialize(MEMBERS_KEY);
+        byte[] summary = STRINGS.serialize(SUMMARY_KEY);
+        byte[] layoutName = STRINGS.serialize(layout.name().toLowerCase());
+        byte[] onlineFlag = STRINGS.serialize(online ? "1" : "0");
+
+        List<byte[][]> calls = new ArrayList<>(twins.size());
+        for (DigitalTwinState twin : twins) {
+            twin.setOnline(online);
+            applyHealthScore(twin);
+            calls.add(new byte[][] { STRINGS.serialize(keyPrefix + twin.getVehicleId()), members, summary,
+                    layoutName, STRINGS.serialize(twin.getVehicleId()), onlineFlag,
+                    STRINGS.serialize(TwinHashCodec.epochSeconds(twin.getLastSeen())),
+                    STRINGS.serialize(TwinHashCodec.epochSeconds(twin.getLastEventTs())),
+                    score(twin.getHealthScore()), STRINGS.serialize(twin.getHealthState()) });
+        }
+        return observeWritten(twins, LuaScripts.evalPipelined(redisTemplate, LIVENESS, ReturnType.MULTI, 3, calls));
+    }
+
+    /**
+     * Writes back the health score and state the caller set on each twin, in
+     * one pipeline. A twin is skipped if a newer event, or a liveness change,
+     * reached it since it was read, so a concurrent consumer always wins.
+     * Written twins are judged for alerts like a reading, against the member
+     * state the re-score replaced.
+     *
+     * @return the number of twins written
+     */
+    public int saveScores(List<DigitalTwinState> twins) {
+        if (twins.isEmpty()) {
+            return 0;
+        }
+        byte[] members = STRINGS.serialize(MEMBERS_KEY);
+        byte[] summary = STRINGS.serialize(SUMMARY_KEY);
+        byte[] layoutName = STRINGS.serialize(layout.name().toLowerCase());
+        byte[] rescore = STRINGS.serialize("1");
+
+        List<byte[][]> calls = new ArrayList<>(twins.size());
+        for (DigitalTwinState twin : twins) {
+            calls.add(new byte[][] { STRINGS.serialize(keyPrefix + twin.getVehicleId()), members, summary,
+                    layoutName, STRINGS.serialize(twin.getVehicleId()),
+                    STRINGS.serialize(twin.isOnline() ? "1" : "0"),
+                    STRINGS.serialize(TwinHashCodec.epochSeconds(twin.getLastSeen())),
+                    STRINGS.serialize(TwinHashCodec.epochSeconds(twin.getLastEventTs())),
+                    score(twin.getHealthScore()), STRINGS.serialize(twin.getHealthState()), rescore });
+        }
+        return observeWritten(twins, LuaScripts.evalPipelined(redisTemplate, LIVENESS, ReturnType.MULTI, 3, calls));
+    }
+
+    public DigitalTwinState find(String vehicleId) {
+        List<DigitalTwinState> twins = findAll(List.of(vehicleId));
+        return twins.isEmpty() ? null : twins.get(0);
+    }
+
+    /**
+     * Loads every live twin, see {@link #findAllIds()}.
+     */
+    public List<DigitalTwinState> findAll() {
+        return findAll(findAllIds());
+    }
 
-        updated.setHealthScore(result.getScore());
-        updated.setHealthState(result.getState().name());
+    /**
+     * Ids of every live twin, from the fleet index. Twins written before the
+     * index existed, e.g. right after an upgrade, are only found by a SCAN
+     * over the twin keys: the first call adds them to the index and marks it
+     * complete, so later calls, on any node, never scan, even for an empty
+     * fleet.
+     */
+    public List<String> findAllIds() {
+        if (!indexComplete) {
+            completeIndex();
+        }
+        return indexedIds();
+    }
 
-        redisTemplate.opsForValue().set(key, updated, TTL);
-        System.out.println("SAVED TO REDIS: " + key);
+    private void completeIndex() {
+        byte[] marker = STRINGS.serialize(INDEX_COMPLETE_KEY);
+        if (!Boolean.TRUE.equals(redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                connection.keyCommands().exists(marker)))) {
+            List<String> ids = scanIds();
+            byte[] now = STRINGS.serialize(Long.toString(System.currentTimeMillis()));
+            byte[] ttl = STRINGS.serialize(Long.toString(this.ttl.toMillis()));
+            long added = 0;
+            for (int from = 0; from < ids.size(); from += MGET_CHUNK) {
+                List<String> chunk = ids.subList(from, Math.min(from + MGET_CHUNK, ids.size()));
+                byte[][] keysAndArgs = new byte[3 + 2 * chunk.size()][];
+                keysAndArgs[0] = STRINGS.serialize(INDEX_KEY);
+                keysAndArgs[1 + chunk.size()] = now;
+                keysAndArgs[2 + chunk.size()] = ttl;
+                for (int i = 0; i < chunk.size(); i++) {
+                    keysAndArgs[1 + i] = STRINGS.serialize(keyPrefix + chunk.get(i));
+                    keysAndArgs[3 + chunk.size() + i] = STRINGS.serialize(chunk.get(i));
+                }
+                Long chunkAdded = redisTemplate.execute((RedisCallback<Long>) connection ->
+                        LuaScripts.eval(connection, BACKFILL, ReturnType.INTEGER, 1 + chunk.size(), keysAndArgs));
+                added += chunkAdded == null ? 0 : chunkAdded;
+            }
+            if (added > 0) {
+                // Counters and listing indexes for the vehicles just added
+                reconcileFleetCounters();
+                log.info("Added {} twins written before the fleet index to it", added);
+            }
+            redisTemplate.execute((RedisCallback<Boolean>) connection ->
+                    connection.stringCommands().set(marker, STRINGS.serialize("1")));
+        }
+        indexComplete = true;
+    }
+
+    /**
+     * Loads the given twins with chunked MGETs (one HMGET each in the hash
+     * layout), skipping vehicles without one. In the blob layout heartbeats
+     * only move a twin's {@code lastSeen} in the listing index, so each MGET
+     * is pipelined with the scores there and the later of the two is kept.
+     */
+    public List<DigitalTwinState> findAll(Collection<? extends String> vehicleIds) {
+        if (layout == TwinLayout.HASH) {
+            return readHashes(vehicleIds, TwinHashCodec.FIELDS, TwinHashCodec::decode);
+        }
+
+        List<String> ids = List.copyOf(vehicleIds);
+        byte[] lastSeenKey = STRINGS.serialize(LAST_SEEN_KEY);
+        List<DigitalTwinState> twins = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += MGET_CHUNK) {
+            List<String> chunk = ids.subList(from, Math.min(from + MGET_CHUNK, ids.size()));
+            byte[][] rawKeys = new byte[chunk.size()][];
+            byte[][] rawIds = new byte[chunk.size()][];
+            for (int i = 0; i < chunk.size(); i++) {
+                rawKeys[i] = STRINGS.serialize(keyPrefix + chunk.get(i));
+                rawIds[i] = STRINGS.serialize(chunk.get(i));
+            }
+            List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.stringCommands().mGet(rawKeys);
+                connection.zSetCommands().zMScore(lastSeenKey, rawIds);
+                return null;
+            });
+            List<?> found = (List<?>) replies.get(0);
+            List<?> lastSeen = (List<?>) replies.get(1);
+            for (int i = 0; i < found.size(); i++) {
+                // Twins can expire between reading the index and the MGET
+                if (found.get(i) instanceof DigitalTwinState twin) {
+                    if (lastSeen.get(i) instanceof Double seconds) {
+                        keepLatestLastSeen(twin, Math.round(seconds * 1000));
+                    }
+                    twins.add(twin);
+                }
+            }
+        }
+        return twins;
+    }
+
+    private static void keepLatestLastSeen(DigitalTwinState twin, long lastSeenMillis) {
+        if (twin.getLastSeen() == null || twin.getLastSeen().toEpochMilli() < lastSeenMillis) {
+            twin.setLastSeen(Instant.ofEpochMilli(lastSeenMillis));
+        }
+    }
+
+    /**
+     * Listing entries of the given vehicles, skipping vehicles without a twin.
+     * The hash layout reads just the listed fields; the blob layout has to
+     * load whole twins.
+     */
+    public List<FleetVehicleResponse> findVehicles(Collection<? extends String> vehicleIds) {
+        if (layout == TwinLayout.HASH) {
+            return readHashes(vehicleIds, TwinHashCodec.LISTING_FIELDS, TwinHashCodec::decodeListing);
+        }
+        List<FleetVehicleResponse> vehicles = new ArrayList<>(vehicleIds.size());
+        for (DigitalTwinState twin : findAll(vehicleIds)) {
+            vehicles.add(FleetVehicleResponse.from(twin));
+        }
+        return vehicles;
+    }
+
+    // One HMGET per twin, all in one pipeline
+    private <T> List<T> readHashes(Collection<? extends String> vehicleIds, String[] fields,
+            Function<List<?>, T> decoder) {
+        byte[][] rawFields = new byte[fields.length][];
+        for (int i = 0; i < fields.length; i++) {
+            rawFields[i] = STRINGS.serialize(fields[i]);
+        }
+
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String vehicleId : vehicleIds) {
+                connection.hashCommands().hMGet(STRINGS.serialize(keyPrefix + vehicleId), rawFields);
+            }
+            return null;
+        }, STRINGS);
+
+        List<T> result = new ArrayList<>(replies.size());
+        for (Object reply : replies) {
+            // Twins can expire between reading the index and the HMGET
+            T decoded = decoder.apply((List<?>) reply);
+            if (decoded != null) {
+                result.add(decoded);
+            }
+        }
+        return result;
+    }
+
+    private List<String> indexedIds() {
+        Set<byte[]> members = redisTemplate.execute((RedisCallback<Set<byte[]>>) connection ->
+                connection.zSetCommands().zRangeByScore(STRINGS.serialize(INDEX_KEY),
+                        Range.rightUnbounded(Range.Bound.exclusive(System.currentTimeMillis()))));
+        List<String> ids = new ArrayList<>(members == null ? 0 : members.size());
+        if (members != null) {
+            for (byte[] member : members) {
+                ids.add(STRINGS.deserialize(member));
+            }
+        }
+        return ids;
+    }
+
+    private List<String> scanIds() {
+        List<String> ids = new ArrayList<>();
+        ScanOptions options = ScanOptions.scanOptions().match(keyPrefix + "*").count(1000).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            cursor.forEachRemaining(key -> ids.add(key.substring(keyPrefix.length())));
+        }
+        return ids;
+    }
+
+    /**
+     * One page of the vehicle listing, read from the listing indexes: the
+     * sort index is walked from the cursor and filters are checked by set
+     * membership, so no twin outside the page is loaded. With filters, at
+     * most {@code axion.fleet.listing.scan-limit} index entries are examined
+     * per page; a page can then come back short, with a cursor to go on from.
+     *
+     * @throws InvalidQueryException for a cursor not issued for this sort
+     */
+    public FleetPage findPage(FleetQuery query) {
+        String order = query.isDescending() ? "desc" : "asc";
+        String cursorScore = "";
+        String cursorId = "";
+        if (query.getCursor() != null) {
+            String[] cursor = decodeCursor(query.getCursor());
+            if (!cursor[0].equals(query.getSort()) || !cursor[1].equals(order)) {
+                throw new InvalidQueryException("Cursor belongs to a different sort order");
+            }
+            cursorScore = cursor[2];
+            cursorId = cursor[3];
+        }
+
+        List<String> keys = new ArrayList<>();
+        keys.add(LISTING_PREFIX + query.getSort());
+        keys.add(LISTING_PREFIX + "battery");
+        keys.add(LISTING_PREFIX + "online");
+        List<String> groups = new ArrayList<>();
+        addFilterGroup(keys, groups, "state:", query.getHealthStates());
+        addFilterGroup(keys, groups, "vendor:", query.getVendors());
+
+        List<String> args = new ArrayList<>(List.of(order, Integer.toString(query.getLimit()),
+                Integer.toString(listingScanLimit), cursorScore, cursorId,
+                query.getBatteryMin() == null ? "-inf" : query.getBatteryMin().toString(),
+                query.getBatteryMax() == null ? "+inf" : query.getBatteryMax().toString(),
+                query.getOnline() == null ? "" : query.getOnline() ? "1" : "0"));
+        args.addAll(groups);
+
+        byte[][] keysAndArgs = new byte[keys.size() + args.size()][];
+        for (int i = 0; i < keys.size(); i++) {
+            keysAndArgs[i] = STRINGS.serialize(keys.get(i));
+        }
+        for (int i = 0; i < args.size(); i++) {
+            keysAndArgs[keys.size() + i] = STRINGS.serialize(args.get(i));
+        }
+
+        List<?> result = redisTemplate.execute((RedisCallback<List<?>>) connection ->
+                LuaScripts.eval(connection, PAGE, ReturnType.MULTI, keys.size(), keysAndArgs));
+        if (result == null || result.size() < 2) {
+            return new FleetPage(List.of(), null);
+        }
+
+        List<String> vehicleIds = new ArrayList<>(result.size() - 2);
+        for (int i = 2; i < result.size(); i++) {
+            vehicleIds.add(STRINGS.deserialize((byte[]) result.get(i)));
+        }
+        String nextScore = STRINGS.deserialize((byte[]) result.get(0));
+        String nextId = STRINGS.deserialize((byte[]) result.get(1));
+        String nextCursor = nextScore.isEmpty() ? null : encodeCursor(query.getSort(), order, nextScore, nextId);
+        return new FleetPage(vehicleIds, nextCursor);
+    }
+
+    /**
+     * Current fleet version, moved by every twin change and expiry. Cheap
+     * enough to check on every request before doing any real reads.
+     */
+    public long getFleetVersion() {
+        byte[] version = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(STRINGS.serialize(VERSION_KEY)));
+        return version == null ? 0 : Long.parseLong(STRINGS.deserialize(version));
+    }
+
+    /**
+     * Version of the twin, the fleet version of its last change, or null
+     * for a vehicle without a twin.
+     */
+    public Long getVersion(String vehicleId) {
+        Double version = redisTemplate.execute((RedisCallback<Double>) connection ->
+                connection.zSetCommands().zScore(STRINGS.serialize(TWIN_VERSIONS_KEY), STRINGS.serialize(vehicleId)));
+        return version == null ? null : version.longValue();
+    }
+
+    /**
+     * Vehicles changed or removed after the given fleet version, oldest
+     * change first and at most {@code limit} of them. Only ids are returned,
+     * so the caller loads just the twins it needs.
+     */
+    public FleetChanges findChanges(long since, int limit) {
+        List<?> result = redisTemplate.execute((RedisCallback<List<?>>) connection ->
+                LuaScripts.eval(connection, CHANGES, ReturnType.MULTI, 4,
+                        STRINGS.serialize(VERSION_KEY), STRINGS.serialize(TWIN_VERSIONS_KEY),
+                        STRINGS.serialize(REMOVED_KEY), STRINGS.serialize(REMOVED_FLOOR_KEY),
+                        STRINGS.serialize(Long.toString(since)), STRINGS.serialize(Integer.toString(limit))));
+        if (result == null || result.size() < 4) {
+            return new FleetChanges(0, false, true, List.of(), List.of());
+        }
+
+        int updated = ((Long) result.get(3)).intValue();
+        List<String> updatedIds = new ArrayList<>(updated);
+        List<String> removedIds = new ArrayList<>(result.size() - 4 - updated);
+        for (int i = 4; i < result.size(); i++) {
+            (i < 4 + updated ? updatedIds : removedIds).add(STRINGS.deserialize((byte[]) result.get(i)));
+        }
+        return new FleetChanges((Long) result.get(0), (Long) result.get(1) == 1L, (Long) result.get(2) == 1L,
+                updatedIds, removedIds);
+    }
+
+    // A vehicle passes the group when it is in any of the group's sets
+    private static void addFilterGroup(List<String> keys, List<String> groups, String prefix, Set<String> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        for (String value : values) {
+            keys.add(LISTING_PREFIX + prefix + value);
+        }
+        groups.add(Integer.toString(values.size()));
+    }
+
+    // sort:order:score:vehicleId, the vehicle id last as it may contain colons
+    private static String encodeCursor(String... parts) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.join(":", parts).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 4);
+            if (parts.length == 4) {
+                return parts;
+            }
+        } catch (IllegalArgumentException e) {
+            // fall through
+        }
+        throw new InvalidQueryException("Malformed cursor");
+    }
+
+    /**
+     * Version of the fleet counters, moved only when one of them changes.
+     * Expiries are counted when the index is next pruned.
+     */
+    public long getSummaryVersion() {
+        byte[] version = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.hashCommands().hGet(STRINGS.serialize(SUMMARY_KEY), STRINGS.serialize("version")));
+        return version == null ? 0 : Long.parseLong(STRINGS.deserialize(version));
+    }
+
+    /**
+     * Fleet counters, read in the same atomic step that accounts for twins
+     * expired since the last prune, so the numbers always add up. When more
+     * twins expired than one step takes, it is repeated until none are left.
+     */
+    public FleetSummaryResponse getFleetSummary() {
+        FleetSummaryResponse summary = new FleetSummaryResponse();
+        long pending;
+        do {
+            List<?> fields = redisTemplate.execute((RedisCallback<List<?>>) connection ->
+                    LuaScripts.eval(connection, SUMMARY, ReturnType.MULTI, 3, fleetKeys(
+                            Long.toString(System.currentTimeMillis()), Integer.toString(EXPIRE_LIMIT))));
+            if (fields == null) {
+                return summary;
+            }
+            pending = 0;
+            for (int i = 0; i + 1 < fields.size(); i += 2) {
+                String field = STRINGS.deserialize((byte[]) fields.get(i));
+                long value = Long.parseLong(STRINGS.deserialize((byte[]) fields.get(i + 1)));
+                switch (field) {
+                    case "total" -> summary.setTotalVehicles(value);
+                    case "online" -> summary.setOnlineVehicles(value);
+                    case "HEALTHY" -> summary.setHealthy(value);
+                    case "DEGRADED" -> summary.setDegraded(value);
+                    case "CRITICAL" -> summary.setCritical(value);
+                    case "pending" -> pending = value;
+                    default -> {
+                    }
+                }
+            }
+        } while (pending > 0);
+        return summary;
+    }
+
+    /**
+     * Takes expired twins out of the index and the fleet counters, in steps
+     * of at most {@code EXPIRE_LIMIT} until none are left. Summary reads do
+     * the same; conditional requests leave it to this schedule, so their
+     * ETags catch up with expiries within the interval.
+     */
+    @Scheduled(fixedDelayString = "${axion.twin.index-prune-interval-ms:5000}")
+    public void pruneIndex() {
+        try {
+            Long pruned;
+            do {
+                pruned = redisTemplate.execute((RedisCallback<Long>) connection ->
+                        LuaScripts.eval(connection, PRUNE, ReturnType.INTEGER, 3, fleetKeys(
+                                Long.toString(System.currentTimeMillis()), Integer.toString(EXPIRE_LIMIT))));
+            } while (pruned != null && pruned == EXPIRE_LIMIT);
+        } catch (RuntimeException e) {
+            log.warn("Pruning the fleet index failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recomputes the member states, listing indexes and counters from the
+     * twins, correcting drift from e.g. twins deleted by hand. The twins are
+     * read here in chunks and handed to a script per chunk, so the scripts
+     * only touch the fleet keys they are given and each blocks Redis briefly;
+     * the summary is then recounted from the member states, a chunk per
+     * script call. Every node runs this; a node finding a recount under way
+     * continues it rather than starting another.
+     */
+    @Scheduled(initialDelayString = "${axion.fleet.reconcile-interval-ms:300000}",
+            fixedDelayString = "${axion.fleet.reconcile-interval-ms:300000}")
+    public void reconcileFleetCounters() {
+        try {
+            pruneIndex();
+            List<String> ids = indexedIds();
+            long live = 0;
+            for (int from = 0; from < ids.size(); from += MGET_CHUNK) {
+                live += reconcile(ids.subList(from, Math.min(from + MGET_CHUNK, ids.size())));
+            }
+            long counted = recount(true);
+            while (counted < 0) {
+                counted = recount(false);
+            }
+            log.debug("Reconciled fleet counters: {} vehicles with a twin, {} counted", live, counted);
+        } catch (RuntimeException e) {
+            log.warn("Reconciling the fleet counters failed: {}", e.getMessage());
+        }
+    }
+
+    // Counts the next chunk of members; -1 while more remain
+    private long recount(boolean start) {
+        Long counted = redisTemplate.execute((RedisCallback<Long>) connection ->
+                LuaScripts.eval(connection, RECOUNT, ReturnType.INTEGER, 4, STRINGS.serialize(INDEX_KEY),
+                        STRINGS.serialize(MEMBERS_KEY), STRINGS.serialize(SUMMARY_KEY), STRINGS.serialize(VERSION_KEY),
+                        STRINGS.serialize(Integer.toString(MGET_CHUNK)), STRINGS.serialize(start ? "1" : "0"),
+                        STRINGS.serialize(Long.toString(RECOUNT_TIMEOUT.toMillis()))));
+        return counted != null ? counted : 0;
+    }
+
+    private long reconcile(List<String> ids) {
+        byte[][] rawIds = new byte[ids.size()][];
+        for (int i = 0; i < ids.size(); i++) {
+            rawIds[i] = STRINGS.serialize(ids.get(i));
+        }
+        // Versions first: a twin changing after they were read is then skipped by the script
+        List<Double> versions = redisTemplate.execute((RedisCallback<List<Double>>) connection ->
+                connection.zSetCommands().zMScore(STRINGS.serialize(TWIN_VERSIONS_KEY), rawIds));
+        Map<String, DigitalTwinState> twins = new HashMap<>();
+        for (DigitalTwinState twin : findAll(ids)) {
+            twins.put(twin.getVehicleId(), twin);
+        }
+
+        List<byte[]> keysAndArgs = new ArrayList<>(7 + 7 * ids.size());
+        for (String key : new String[] { INDEX_KEY, MEMBERS_KEY, SUMMARY_KEY, TWIN_VERSIONS_KEY, VERSION_KEY,
+                REMOVED_KEY, REMOVED_FLOOR_KEY }) {
+            keysAndArgs.add(STRINGS.serialize(key));
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            Double version = versions == null ? null : versions.get(i);
+            DigitalTwinState twin = twins.get(ids.get(i));
+            keysAndArgs.add(rawIds[i]);
+            keysAndArgs.add(STRINGS.serialize(version == null ? "" : Long.toString(version.longValue())));
+            if (twin == null) {
+                for (int field = 0; field < 5; field++) {
+                    keysAndArgs.add(STRINGS.serialize(""));
+                }
+            } else {
+                keysAndArgs.add(STRINGS.serialize(memberState(twin)));
+                keysAndArgs.add(score(twin.getHealthScore()));
+                keysAndArgs.add(score(twin.getTelemetry() == null ? null : twin.getTelemetry().getBatterySocPct()));
+                keysAndArgs.add(score(twin.getTelemetry() == null ? null : twin.getTelemetry().getBatteryTempC()));
+                keysAndArgs.add(STRINGS.serialize(twin.getLastSeen() == null ? ""
+                        : TwinHashCodec.epochSeconds(twin.getLastSeen())));
+            }
+        }
+        Long live = redisTemplate.execute((RedisCallback<Long>) connection ->
+                LuaScripts.eval(connection, RECONCILE, ReturnType.INTEGER, 7, keysAndArgs.toArray(new byte[0][])));
+        return live == null ? 0 : live;
+    }
+
+    private static byte[][] fleetKeys(String... args) {
+        byte[][] keysAndArgs = new byte[3 + args.length][];
+        keysAndArgs[0] = STRINGS.serialize(INDEX_KEY);
+        keysAndArgs[1] = STRINGS.serialize(MEMBERS_KEY);
+        keysAndArgs[2] = STRINGS.serialize(SUMMARY_KEY);
+        for (int i = 0; i < args.length; i++) {
+            keysAndArgs[3 + i] = STRINGS.serialize(args[i]);
+        }
+        return keysAndArgs;
+    }
+
+    private static String memberState(DigitalTwinState twin) {
+        return (twin.getHealthState() == null ? "" : twin.getHealthState()) + ":" + (twin.isOnline() ? "1" : "0")
+                + ":" + (twin.getVendor() == null ? "" : twin.getVendor());
+    }
+
+    // Sort index score; empty takes the vehicle out of that index
+    private static byte[] score(Number value) {
+        return STRINGS.serialize(value == null ? "" : value.toString());
+    }
+
+    // Raises the alerts of the twins a liveness script wrote, against the member state it replaced
+    private int observeWritten(List<DigitalTwinState> twins, List<Object> results) {
+        int written = 0;
+        for (int i = 0; i < twins.size(); i++) {
+            // { 1, previous member state } when written, { 0 } when skipped
+            List<?> result = (List<?>) results.get(i);
+            if (Long.valueOf(1).equals(result.get(0))) {
+                alertService.observe(twins.get(i), (String) result.get(1));
+                written++;
+            }
+        }
+        return written;
     }
 }
@@ -0,0 +1,27 @@
+package com.axion.ingestion.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Vehicles changed or removed after a fleet version, see
+ * {@link DigitalTwinService#findChanges(long, int)}.
+ */
+@RequiredArgsConstructor
+@Getter
+public class FleetChanges {
+
+    // Version to ask from next time
+    private final long version;
+
+    // More changes follow; ask again from version straight away
+    private final boolean more;
+
+    // The changes are no longer known, the client must reload the fleet
+    private final boolean resync;
+
+    private final List<String> updatedIds;
+    private final List<String> removedIds;
+}
@@ -0,0 +1,18 @@
+package com.axion.ingestion.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Vehicle ids of one listing page, in sort order, and the cursor of the next
+ * page (null after the last one).
+ */
+@RequiredArgsConstructor
+@Getter
+public class FleetPage {
+
+    private final List<String> vehicleIds;
+    private final String nextCursor;
+}
@@ -0,0 +1,34 @@
+package com.axion.ingestion.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.util.Set;
+
+/**
+ * One page request of the vehicle listing. Empty sets and null bounds mean
+ * no filter on that attribute.
+ */
+@RequiredArgsConstructor
+@Getter
+@Setter
+public class FleetQuery {
+
+    // Sort keys backed by an index, see fleet-members.lua
+    public static final Set<String> SORT_KEYS = Set.of("vehicleId", "healthScore", "battery", "temperature", "lastSeen");
+
+    private Set<String> healthStates = Set.of();
+    private Set<String> vendors = Set.of();
+    private Boolean online;
+    private Double batteryMin;
+    private Double batteryMax;
+
+    private String sort = "vehicleId";
+    private boolean descending;
+
+    private int limit = 100;
+
+    // Opaque, as returned in the previous page; null for the first page
+    private String cursor;
+}
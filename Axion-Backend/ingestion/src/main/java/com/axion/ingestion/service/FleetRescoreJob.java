@@ -0,0 +1,239 @@
+package com.axion.ingestion.service;
+
+import com.axion.ingestion.dto.RescoreJobResponse;
+import com.axion.ingestion.health.HealthScore;
+import com.axion.ingestion.health.HealthScoreEngine;
+import com.axion.ingestion.model.DigitalTwinState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Re-scores every twin with the current health rules, so that tuning a
+ * threshold shows up across the fleet at once rather than as each vehicle
+ * next reports. The fleet's ids are split into chunks of
+ * {@code axion.rescore.chunk-size} on a fork-join pool of
+ * {@code axion.rescore.parallelism} threads; each chunk is read with
+ * chunked MGETs, scored, and only the twins whose score or state changed
+ * are written back in one pipeline. The small pool bounds how many of
+ * these pipelines compete with the consumers' at any time, and chunks are
+ * paced to at most {@code axion.rescore.max-twins-per-second} (0 for no
+ * limit), leaving Redis and the CPU room for live traffic.
+ * <p>
+ * Writes are conditional, see {@link DigitalTwinService#saveScores}: a twin
+ * a consumer updated meanwhile is skipped, its new score already reflects
+ * the current rules. One job runs at a time per node.
+ * <p>
+ * Trends are only known on the node consuming a vehicle, so the trend rules
+ * are not re-evaluated: each twin keeps the trend penalty it was written with,
+ * see {@link HealthScoreEngine#rescore}.
+ */
+@Component
+public class FleetRescoreJob {
+
+    private static final Logger log = LoggerFactory.getLogger(FleetRescoreJob.class);
+
+    public enum State { RUNNING, COMPLETED, FAILED }
+
+    private final DigitalTwinService digitalTwinService;
+    private final HealthScoreEngine healthScoreEngine;
+    private final int chunkSize;
+    private final int parallelism;
+    private final int maxTwinsPerSecond;
+
+    private final Counter rescored;
+    private final Counter unchanged;
+    private final Counter skipped;
+
+    private final AtomicInteger runs = new AtomicInteger();
+    private volatile Run current;
+
+    public FleetRescoreJob(DigitalTwinService digitalTwinService, HealthScoreEngine healthScoreEngine,
+            MeterRegistry meterRegistry,
+            @Value("${axion.rescore.chunk-size:500}") int chunkSize,
+            @Value("${axion.rescore.parallelism:2}") int parallelism,
+            @Value("${axion.rescore.max-twins-per-second:20000}") int maxTwinsPerSecond) {
+        if (chunkSize < 1 || parallelism < 1 || maxTwinsPerSecond < 0) {
+            throw new IllegalArgumentException("axion.rescore.chunk-size and parallelism must be positive, "
+                    + "max-twins-per-second not negative");
+        }
+        this.digitalTwinService = digitalTwinService;
+        this.healthScoreEngine = healthScoreEngine;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.maxTwinsPerSecond = maxTwinsPerSecond;
+        this.rescored = meterRegistry.counter("axion.rescore.twins", "result", "rescored");
+        this.unchanged = meterRegistry.counter("axion.rescore.twins", "result", "unchanged");
+        this.skipped = meterRegistry.counter("axion.rescore.twins", "result", "skipped");
+    }
+
+    /**
+     * Starts a job in the background, picking up a changed rules file first.
+     *
+     * @return the new job's progress, or {@code null} if one is still running
+     */
+    public synchronized RescoreJobResponse start() {
+        if (current != null && current.state == State.RUNNING) {
+            return null;
+        }
+        Run run = new Run(runs.incrementAndGet());
+        current = run;
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("fleet-rescore-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        pool.execute(() -> {
+            try {
+                healthScoreEngine.reloadIfChanged();
+                List<String> ids = digitalTwinService.findAllIds();
+                run.total = ids.size();
+                new Chunk(run, ids).invoke();
+                run.finish(State.COMPLETED, null);
+                log.info("Re-scored the fleet: {} of {} twins changed in {} ms", run.written.sum(), run.total,
+                        run.elapsed().toMillis());
+            } catch (RuntimeException e) {
+                run.finish(State.FAILED, e.getMessage());
+                log.warn("Re-scoring the fleet failed after {} twins: {}", run.scanned.sum(), e.getMessage());
+            } finally {
+                pool.shutdown();
+            }
+        });
+        return run.progress();
+    }
+
+    /**
+     * Progress of the running job, or the outcome of the last one;
+     * {@code null} before the first.
+     */
+    public RescoreJobResponse getProgress() {
+        Run run = current;
+        return run == null ? null : run.progress();
+    }
+
+    private void rescore(Run run, List<String> ids) {
+        pace(run, ids.size());
+        List<DigitalTwinState> twins = digitalTwinService.findAll(ids);
+        List<DigitalTwinState> changed = new ArrayList<>();
+        for (DigitalTwinState twin : twins) {
+            long health = healthScoreEngine.rescore(twin);
+            int score = HealthScore.score(health);
+            String state = HealthScore.state(health).name();
+            if (!Objects.equals(twin.getHealthScore(), score) || !state.equals(twin.getHealthState())) {
+                twin.setHealthScore(score);
+                twin.setHealthState(state);
+                changed.add(twin);
+            }
+        }
+        int written = digitalTwinService.saveScores(changed);
+
+        run.scanned.add(twins.size());
+        run.written.add(written);
+        run.skipped.add(changed.size() - written);
+        rescored.increment(written);
+        unchanged.increment(twins.size() - changed.size());
+        skipped.increment(changed.size() - written);
+    }
+
+    // Waits for the chunk's turn: each reserves the time its twins take at the maximum rate
+    private void pace(Run run, int twins) {
+        if (maxTwinsPerSecond == 0) {
+            return;
+        }
+        long cost = TimeUnit.SECONDS.toNanos(twins) / maxTwinsPerSecond;
+        long start = run.nextSlot.accumulateAndGet(cost,
+                (next, reserved) -> Math.max(next, System.nanoTime()) + reserved) - cost;
+        long wait;
+        while ((wait = start - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    // Halves the ids until a chunk is small enough to score and write in one go
+    private final class Chunk extends RecursiveAction {
+
+        private final Run run;
+        private final List<String> ids;
+
+        Chunk(Run run, List<String> ids) {
+            this.run = run;
+            this.ids = ids;
+        }
+
+        @Override
+        protected void compute() {
+            if (ids.size() <= chunkSize) {
+                rescore(run, ids);
+                return;
+            }
+            int middle = ids.size() / 2;
+            invokeAll(new Chunk(run, ids.subList(0, middle)), new Chunk(run, ids.subList(middle, ids.size())));
+        }
+    }
+
+    private static final class Run {
+        final int id;
+        final Instant startedAt = Instant.now();
+        final LongAdder scanned = new LongAdder();
+        final LongAdder written = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+        final AtomicLong nextSlot = new AtomicLong(System.nanoTime());
+        volatile long total = -1;
+        volatile State state = State.RUNNING;
+        volatile Instant finishedAt;
+        volatile String error;
+
+        Run(int id) {
+            this.id = id;
+        }
+
+        void finish(State state, String error) {
+            this.finishedAt = Instant.now();
+            this.error = error;
+            this.state = state;
+        }
+
+        Duration elapsed() {
+            Instant end = finishedAt;
+            return Duration.between(startedAt, end == null ? Instant.now() : end);
+        }
+
+        RescoreJobResponse progress() {
+            // Read the state first, so a finished job reports its final counts
+            State state = this.state;
+            long scanned = this.scanned.sum();
+            long elapsedMillis = Math.max(1, elapsed().toMillis());
+
+            RescoreJobResponse progress = new RescoreJobResponse();
+            progress.setJobId(id);
+            progress.setState(state.name());
+            progress.setStartedAt(startedAt);
+            progress.setFinishedAt(finishedAt);
+            progress.setTotal(total < 0 ? null : total);
+            progress.setScanned(scanned);
+            progress.setRescored(written.sum());
+            progress.setSkipped(skipped.sum());
+            progress.setTwinsPerSecond(scanned * 1000.0 / elapsedMillis);
+            progress.setError(error);
+            return progress;
+        }
+    }
+}
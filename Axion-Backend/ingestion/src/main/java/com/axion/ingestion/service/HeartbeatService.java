@@ -0,0 +1,64 @@
+package com.axion.ingestion.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Heartbeat fast path. A heartbeat only proves the vehicle is connected, so
+ * nothing is parsed: the receive time is recorded against the vehicle id and
+ * all heartbeats seen since the last flush are written as one pipelined
+ * keep-alive. A vehicle beating several times within the flush interval costs
+ * a single Redis update.
+ */
+@Service
+public class HeartbeatService {
+
+    private static final Logger log = LoggerFactory.getLogger(HeartbeatService.class);
+
+    private final DigitalTwinService digitalTwinService;
+
+    // Latest receive time per vehicle since the last flush
+    private final ConcurrentHashMap<String, Long> pending = new ConcurrentHashMap<>();
+
+    private final Counter received;
+    private final Counter written;
+
+    public HeartbeatService(DigitalTwinService digitalTwinService, MeterRegistry meterRegistry) {
+        this.digitalTwinService = digitalTwinService;
+        this.received = meterRegistry.counter("axion.heartbeat.received");
+        this.written = meterRegistry.counter("axion.heartbeat.written");
+    }
+
+    public void record(String vehicleId) {
+        received.increment();
+        pending.put(vehicleId, System.currentTimeMillis());
+    }
+
+    @Scheduled(fixedDelayString = "${axion.heartbeat.flush-interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, Long> batch = new HashMap<>();
+        for (Map.Entry<String, Long> entry : pending.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+            // Only removed if no newer heartbeat arrived meanwhile; that one goes out next flush
+            pending.remove(entry.getKey(), entry.getValue());
+        }
+
+        try {
+            written.increment(digitalTwinService.keepAlive(batch));
+        } catch (RuntimeException e) {
+            // The next heartbeat from each vehicle will carry the same information
+            log.warn("Heartbeat keep-alive for {} vehicles failed: {}", batch.size(), e.getMessage());
+        }
+    }
+}
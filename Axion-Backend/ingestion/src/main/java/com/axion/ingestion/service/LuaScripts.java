@@ -0,0 +1,107 @@
+package com.axion.ingestion.service;
+
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Loads the Redis scripts under {@code resources/redis} and runs them on a
+ * raw connection.
+ */
+public final class LuaScripts {
+
+    private LuaScripts() {
+    }
+
+    /**
+     * Concatenates the given script files, so shared functions can be put in
+     * front of the script that uses them.
+     */
+    public static <T> RedisScript<T> load(Class<T> resultType, String... paths) {
+        StringBuilder source = new StringBuilder();
+        for (String path : paths) {
+            try {
+                source.append(StreamUtils.copyToString(
+                        new ClassPathResource("redis/" + path).getInputStream(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot load Redis script " + path, e);
+            }
+            source.append('\n');
+        }
+        return RedisScript.of(source.toString(), resultType);
+    }
+
+    public static byte[] source(RedisScript<?> script) {
+        return script.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Runs the script by SHA, sending its source only if Redis does not have
+     * it cached. Not for use inside a pipeline, where the NOSCRIPT reply only
+     * arrives when the pipeline is closed.
+     */
+    public static <T> T eval(RedisConnection connection, RedisScript<?> script, ReturnType returnType,
+            int numKeys, byte[]... keysAndArgs) {
+        try {
+            return connection.scriptingCommands().evalSha(script.getSha1(), returnType, numKeys, keysAndArgs);
+        } catch (RuntimeException e) {
+            if (!isNoScript(e)) {
+                throw e;
+            }
+            return connection.scriptingCommands().eval(source(script), returnType, numKeys, keysAndArgs);
+        }
+    }
+
+    /**
+     * Runs the script once per entry of {@code calls}, each holding its keys
+     * followed by its arguments, in one pipeline of EVALSHAs. Should Redis not
+     * have the script cached, e.g. after a restart, it is loaded and the
+     * pipeline sent again. A pipeline that fails does not tell which of its
+     * calls ran, so the script must be safe to repeat with the same arguments.
+     *
+     * @return one reply per call, binary values read as UTF-8 strings
+     */
+    public static List<Object> evalPipelined(RedisTemplate<String, ?> redisTemplate, RedisScript<?> script,
+            ReturnType returnType, int numKeys, List<byte[][]> calls) {
+        if (calls.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return pipeline(redisTemplate, script, returnType, numKeys, calls);
+        } catch (RedisPipelineException e) {
+            if (!isNoScript(e)) {
+                throw e;
+            }
+            redisTemplate.execute((RedisCallback<String>) connection ->
+                    connection.scriptingCommands().scriptLoad(source(script)));
+            return pipeline(redisTemplate, script, returnType, numKeys, calls);
+        }
+    }
+
+    private static List<Object> pipeline(RedisTemplate<String, ?> redisTemplate, RedisScript<?> script,
+            ReturnType returnType, int numKeys, List<byte[][]> calls) {
+        return redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (byte[][] keysAndArgs : calls) {
+                connection.scriptingCommands().evalSha(script.getSha1(), returnType, numKeys, keysAndArgs);
+            }
+            return null;
+        }, StringRedisSerializer.UTF_8);
+    }
+
+    private static boolean isNoScript(RuntimeException e) {
+        String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        return message != null && message.startsWith("NOSCRIPT");
+    }
+}
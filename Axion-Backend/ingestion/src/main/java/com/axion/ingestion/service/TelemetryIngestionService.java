@@ -1,29 +1,189 @@
 package com.axion.ingestion.service;
 
-import com.axion.ingestion.adapter.RestTelemetryAdapter;
+import com.axion.ingestion.adapter.AbstractStreamingTelemetryAdapter;
+import com.axion.ingestion.adapter.TelemetryAdapterRegistry;
+import com.axion.ingestion.dto.BatchIngestionResponse;
+import com.axion.ingestion.dto.BatchRecordResult;
+import com.axion.ingestion.exception.InvalidPayloadException;
+import com.axion.ingestion.exception.ValidationException;
 import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
 import com.axion.ingestion.producer.TelemetryKafkaProducer;
 import com.axion.ingestion.validation.TelemetryValidator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 @Service
 public class TelemetryIngestionService {
 
-    private final RestTelemetryAdapter adapter = new RestTelemetryAdapter();
+    private final TelemetryAdapterRegistry adapters;
     private final TelemetryValidator validator = new TelemetryValidator();
     private final TelemetryKafkaProducer producer;
+    private final int maxBatchRecords;
 
-    public TelemetryIngestionService(TelemetryKafkaProducer producer) {
+    public TelemetryIngestionService(TelemetryAdapterRegistry adapters, TelemetryKafkaProducer producer,
+            @Value("${axion.ingestion.batch.max-records:10000}") int maxBatchRecords) {
+        this.adapters = adapters;
         this.producer = producer;
+        this.maxBatchRecords = maxBatchRecords;
+    }
+
+    public Mono<Void> ingestRest(byte[] rawPayload, String vendor) {
+        return Mono.fromCallable(() -> {
+            CanonicalTelemetryEnvelope envelope = adapters.forVendor(vendor).adapt(rawPayload);
+            validator.validate(envelope);
+            return envelope;
+        }).flatMap(producer::publish);
     }
 
-    public Mono<Void> ingestRest(String rawPayload) {
+    /**
+     * Ingests a batch upload, either a JSON array or newline-delimited JSON.
+     * Every record is adapted, validated and handed to Kafka as soon as it is
+     * read; the response is emitted once all sends have been acknowledged.
+     */
+    public Mono<BatchIngestionResponse> ingestBatch(byte[] body, boolean ndjson, String vendor) {
         return Mono.fromCallable(() -> {
-            CanonicalTelemetryEnvelope envelope = adapter.adapt(rawPayload);
+            AbstractStreamingTelemetryAdapter adapter = adapters.forVendor(vendor);
+            Batch batch = new Batch();
+            if (ndjson) {
+                readNdjson(adapter, body, batch);
+            } else {
+                readArray(adapter, body, batch);
+            }
+            return batch;
+        }).flatMap(batch -> Mono.fromFuture(batch.completion())
+                .then(Mono.fromSupplier(batch::toResponse)));
+    }
+
+    private void readArray(AbstractStreamingTelemetryAdapter adapter, byte[] body, Batch batch) {
+        try (JsonParser parser = adapter.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new InvalidPayloadException("Batch payload must be a JSON array");
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (batch.isFull()) {
+                    batch.truncate();
+                    return;
+                }
+                BatchRecordResult result = batch.nextResult();
+                try {
+                    ingestRecord(batch, result, adapter.adapt(parser));
+                } catch (InvalidPayloadException e) {
+                    batch.reject(result, "INVALID_PAYLOAD", e.getMessage());
+                } catch (IOException e) {
+                    // The array cannot be resynchronised after a syntax error, so
+                    // whatever follows the broken record is not read.
+                    batch.reject(result, "INVALID_PAYLOAD", "Malformed JSON, remaining records were not read");
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            throw new InvalidPayloadException("Malformed or invalid JSON payload");
+        }
+    }
+
+    private void readNdjson(AbstractStreamingTelemetryAdapter adapter, byte[] body, Batch batch) {
+        int start = 0;
+        for (int i = 0; i <= body.length; i++) {
+            if (i < body.length && body[i] != '\n') {
+                continue;
+            }
+            if (!isBlank(body, start, i)) {
+                if (batch.isFull()) {
+                    batch.truncate();
+                    return;
+                }
+                BatchRecordResult result = batch.nextResult();
+                try {
+                    ingestRecord(batch, result, adapter.adapt(body, start, i - start));
+                } catch (InvalidPayloadException e) {
+                    batch.reject(result, "INVALID_PAYLOAD", e.getMessage());
+                }
+            }
+            start = i + 1;
+        }
+    }
+
+    private void ingestRecord(Batch batch, BatchRecordResult result, CanonicalTelemetryEnvelope envelope) {
+        result.setVehicleId(envelope.getVehicleId());
+        try {
             validator.validate(envelope);
-            producer.publish(envelope);
-            return true;
-        }).then();
+        } catch (ValidationException e) {
+            batch.reject(result, "VALIDATION_FAILED", e.getMessage());
+            return;
+        }
+
+        batch.sends.add(producer.publishAsync(envelope).handle((sent, error) -> {
+            if (error == null) {
+                result.setStatus(BatchRecordResult.ACCEPTED);
+            } else {
+                batch.reject(result, "INGESTION_UNAVAILABLE", "Kafka unavailable, telemetry not accepted");
+            }
+            return null;
+        }));
+    }
+
+    private static boolean isBlank(byte[] body, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(body[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class Batch {
+
+        private final List<BatchRecordResult> results = new ArrayList<>();
+        private final List<CompletableFuture<Void>> sends = new ArrayList<>();
+
+        boolean isFull() {
+            return results.size() >= maxBatchRecords;
+        }
+
+        void truncate() {
+            reject(nextResult(), "BATCH_LIMIT_EXCEEDED",
+                    "Batch limit of " + maxBatchRecords + " records reached, remaining records were not read");
+        }
+
+        BatchRecordResult nextResult() {
+            BatchRecordResult result = new BatchRecordResult();
+            result.setIndex(results.size());
+            results.add(result);
+            return result;
+        }
+
+        void reject(BatchRecordResult result, String errorCode, String message) {
+            result.setStatus(BatchRecordResult.REJECTED);
+            result.setErrorCode(errorCode);
+            result.setMessage(message);
+        }
+
+        CompletableFuture<Void> completion() {
+            return CompletableFuture.allOf(sends.toArray(new CompletableFuture[0]));
+        }
+
+        BatchIngestionResponse toResponse() {
+            int accepted = 0;
+            for (BatchRecordResult result : results) {
+                if (BatchRecordResult.ACCEPTED.equals(result.getStatus())) {
+                    accepted++;
+                }
+            }
+
+            BatchIngestionResponse response = new BatchIngestionResponse();
+            response.setReceived(results.size());
+            response.setAccepted(accepted);
+            response.setRejected(results.size() - accepted);
+            response.setResults(results);
+            return response;
+        }
     }
 }
@@ -0,0 +1,143 @@
+package com.axion.ingestion.service;
+
+import com.axion.ingestion.dto.FleetVehicleResponse;
+import com.axion.ingestion.model.DigitalTwinState;
+import com.axion.ingestion.model.TelemetrySnapshot;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Maps twins to and from the fields of the {@link TwinLayout#HASH} layout.
+ * Values are plain strings, instants in the decimal epoch seconds Jackson
+ * writes, so the scripts treat both layouts alike. Absent values are written
+ * as empty strings, which the scripts turn into deleted fields.
+ */
+final class TwinHashCodec {
+
+    static final String[] FIELDS = {
+            "vehicleId", "vendor", "lastSeen", "lastEventTs", "online", "healthScore", "healthState",
+            "speedKmph", "batterySocPct", "batteryTempC", "motorTempC", "ambientTempC", "odometerKm",
+            "packetLossPct", "trendPenalty"
+    };
+
+    // What FleetVehicleResponse needs, in this order
+    static final String[] LISTING_FIELDS = {
+            "vehicleId", "vendor", "online", "healthScore", "healthState", "lastSeen", "batterySocPct", "batteryTempC"
+    };
+
+    private TwinHashCodec() {
+    }
+
+    /**
+     * Field, value pairs in {@link #FIELDS} order.
+     */
+    static String[] encode(DigitalTwinState twin) {
+        TelemetrySnapshot telemetry = twin.getTelemetry() == null ? new TelemetrySnapshot() : twin.getTelemetry();
+        String[] values = {
+                twin.getVehicleId(), twin.getVendor(), epochSeconds(twin.getLastSeen()),
+                epochSeconds(twin.getLastEventTs()), twin.isOnline() ? "1" : "0", string(twin.getHealthScore()),
+                twin.getHealthState(), string(telemetry.getSpeedKmph()), string(telemetry.getBatterySocPct()),
+                string(telemetry.getBatteryTempC()), string(telemetry.getMotorTempC()),
+                string(telemetry.getAmbientTempC()), string(telemetry.getOdometerkm()),
+                string(twin.getPacketLossPct()), Integer.toString(twin.getTrendPenalty())
+        };
+        String[] pairs = new String[FIELDS.length * 2];
+        for (int i = 0; i < FIELDS.length; i++) {
+            pairs[2 * i] = FIELDS[i];
+            pairs[2 * i + 1] = values[i] == null ? "" : values[i];
+        }
+        return pairs;
+    }
+
+    /**
+     * The twin from its {@link #FIELDS} values, or null if the hash does not exist.
+     */
+    static DigitalTwinState decode(List<?> values) {
+        if (values == null || value(values, 0) == null) {
+            return null;
+        }
+        DigitalTwinState twin = new DigitalTwinState();
+        twin.setVehicleId(value(values, 0));
+        twin.setVendor(value(values, 1));
+        twin.setLastSeen(instant(value(values, 2)));
+        twin.setLastEventTs(instant(value(values, 3)));
+        twin.setOnline("1".equals(value(values, 4)));
+        twin.setHealthScore(integer(value(values, 5)));
+        twin.setHealthState(value(values, 6));
+
+        TelemetrySnapshot telemetry = new TelemetrySnapshot();
+        telemetry.setSpeedKmph(number(value(values, 7)));
+        telemetry.setBatterySocPct(number(value(values, 8)));
+        telemetry.setBatteryTempC(number(value(values, 9)));
+        telemetry.setMotorTempC(number(value(values, 10)));
+        telemetry.setAmbientTempC(number(value(values, 11)));
+        Double odometer = number(value(values, 12));
+        if (odometer != null) {
+            telemetry.setOdometerkm(odometer);
+        }
+        twin.setTelemetry(telemetry);
+        twin.setPacketLossPct(number(value(values, 13)));
+        Integer trendPenalty = integer(value(values, 14));
+        twin.setTrendPenalty(trendPenalty != null ? trendPenalty : 0);
+        return twin;
+    }
+
+    /**
+     * The listing entry from its {@link #LISTING_FIELDS} values, or null if the hash does not exist.
+     */
+    static FleetVehicleResponse decodeListing(List<?> values) {
+        if (values == null || value(values, 0) == null) {
+            return null;
+        }
+        FleetVehicleResponse vehicle = new FleetVehicleResponse();
+        vehicle.setVehicleId(value(values, 0));
+        vehicle.setVendor(value(values, 1));
+        vehicle.setOnline("1".equals(value(values, 2)));
+        vehicle.setHealthScore(integer(value(values, 3)));
+        vehicle.setHealthState(value(values, 4));
+        vehicle.setLastSeen(instant(value(values, 5)));
+        vehicle.setBattery(number(value(values, 6)));
+        vehicle.setTemperature(number(value(values, 7)));
+        return vehicle;
+    }
+
+    // Same decimal-seconds form Jackson writes for an Instant, so the scripts compare like with like
+    static String epochSeconds(Instant instant) {
+        if (instant == null) {
+            return null;
+        }
+        return BigDecimal.valueOf(instant.getEpochSecond())
+                .add(BigDecimal.valueOf(instant.getNano(), 9))
+                .toPlainString();
+    }
+
+    private static String value(List<?> values, int index) {
+        Object value = values.get(index);
+        String text = value instanceof byte[] bytes ? new String(bytes, StandardCharsets.UTF_8) : (String) value;
+        return text == null || text.isEmpty() ? null : text;
+    }
+
+    private static String string(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private static Integer integer(String value) {
+        return value == null ? null : Integer.valueOf(value);
+    }
+
+    private static Double number(String value) {
+        return value == null ? null : Double.valueOf(value);
+    }
+
+    private static Instant instant(String value) {
+        if (value == null) {
+            return null;
+        }
+        BigDecimal seconds = new BigDecimal(value);
+        return Instant.ofEpochSecond(seconds.longValue(),
+                seconds.remainder(BigDecimal.ONE).movePointRight(9).longValue());
+    }
+}
@@ -0,0 +1,15 @@
+package com.axion.ingestion.service;
+
+/**
+ * How twins are stored in Redis ({@code axion.twin.layout}).
+ */
+public enum TwinLayout {
+
+    // One JSON document per twin under digital_twin:{id}; heartbeats keep
+    // lastSeen in the fleet:idx:lastSeen listing index instead of rewriting it
+    BLOB,
+
+    // One hash per twin under twin:{id}, a field per attribute, so updates
+    // write and listings read only the fields involved
+    HASH
+}
@@ -0,0 +1,238 @@
+package com.axion.ingestion.stream;
+
+import com.axion.ingestion.dto.FleetSummaryResponse;
+import com.axion.ingestion.dto.TwinChangeEvent;
+import com.axion.ingestion.model.DigitalTwinState;
+import com.axion.ingestion.service.DigitalTwinService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes twin changes to connected dashboards.
+ * <p>
+ * Vehicle ids announced on {@link DigitalTwinService#CHANGES_CHANNEL} are
+ * collected and, once per tick, the changed twins are loaded in one batch,
+ * no matter how many clients are connected. They are read from Redis rather
+ * than through the API's near cache, whose own listener may not have dropped
+ * them yet. The fleet counters are only read again when their version moved.
+ * Each client then applies its own filter and coalesces ticks over its own
+ * interval, so a vehicle changing many times in that interval is sent once.
+ * <p>
+ * A client that cannot keep up fills its bounded buffer and is disconnected
+ * with a final {@code slow-consumer} event, without holding up anyone else.
+ */
+@Component
+public class TwinChangeStream {
+
+    private static final Logger log = LoggerFactory.getLogger(TwinChangeStream.class);
+
+    private static final Duration KEEP_ALIVE = Duration.ofSeconds(15);
+
+    private final DigitalTwinService digitalTwinService;
+    private final RedisMessageListenerContainer listeners;
+    private final long tickMillis;
+    private final int clientBufferSize;
+
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean listening = new AtomicBoolean();
+    private final Sinks.Many<Tick> ticks = Sinks.many().multicast().directBestEffort();
+
+    // Only touched by the scheduled tick
+    private long summaryVersion = -1;
+
+    private final Counter droppedClients;
+
+    public TwinChangeStream(DigitalTwinService digitalTwinService,
+            RedisMessageListenerContainer listeners, MeterRegistry meterRegistry,
+            @Value("${axion.stream.tick-ms:250}") long tickMillis,
+            @Value("${axion.stream.client-buffer:64}") int clientBufferSize) {
+        this.digitalTwinService = digitalTwinService;
+        this.listeners = listeners;
+        this.tickMillis = tickMillis;
+        this.clientBufferSize = clientBufferSize;
+        this.droppedClients = meterRegistry.counter("axion.stream.clients.dropped");
+        Gauge.builder("axion.stream.clients", ticks, Sinks.Many::currentSubscriberCount).register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream for one client.
+     *
+     * @param vehicleIds   only these vehicles, or all when empty
+     * @param healthStates only twins in one of these states, or all when empty
+     * @param coalesceMillis minimum time between two events sent to the client
+     */
+    public Flux<ServerSentEvent<TwinChangeEvent>> open(Set<String> vehicleIds, Set<String> healthStates,
+            long coalesceMillis) {
+        listen();
+        ClientFilter filter = new ClientFilter(vehicleIds, healthStates);
+
+        Flux<ServerSentEvent<TwinChangeEvent>> changes = ticks.asFlux()
+                .map(filter::apply)
+                .buffer(Duration.ofMillis(Math.max(coalesceMillis, tickMillis)))
+                .filter(batch -> !batch.isEmpty())
+                .map(TwinChangeStream::coalesce)
+                .filter(event -> event.getUpdated() != null || event.getRemoved() != null
+                        || event.getSummary() != null)
+                .map(event -> ServerSentEvent.builder(event).event("twins").build());
+
+        return Flux.merge(changes, Flux.interval(KEEP_ALIVE)
+                        .map(i -> ServerSentEvent.<TwinChangeEvent>builder().comment("keep-alive").build()))
+                .onBackpressureBuffer(clientBufferSize, dropped -> { }, BufferOverflowStrategy.ERROR)
+                // Writing to the client happens on this thread, so a stalled
+                // socket only ever blocks its own stream
+                .publishOn(Schedulers.boundedElastic(), 1)
+                .onErrorResume(Exceptions::isOverflow, e -> {
+                    droppedClients.increment();
+                    return Flux.just(ServerSentEvent.<TwinChangeEvent>builder()
+                            .event("slow-consumer").comment("dropped, reconnect to resume").build());
+                });
+    }
+
+    @Scheduled(fixedDelayString = "${axion.stream.tick-ms:250}")
+    public void tick() {
+        if (changed.isEmpty()) {
+            return;
+        }
+        if (ticks.currentSubscriberCount() == 0) {
+            changed.clear();
+            return;
+        }
+
+        List<String> vehicleIds = new ArrayList<>(changed);
+        changed.removeAll(vehicleIds);
+
+        try {
+            List<DigitalTwinState> twins = digitalTwinService.findAll(vehicleIds);
+            Set<String> removed = new HashSet<>(vehicleIds);
+            for (DigitalTwinState twin : twins) {
+                removed.remove(twin.getVehicleId());
+            }
+            ticks.tryEmitNext(new Tick(twins, removed, changedSummary()));
+        } catch (RuntimeException e) {
+            log.warn("Loading {} changed twins for the stream failed: {}", vehicleIds.size(), e.getMessage());
+        }
+    }
+
+    // The counters if they moved since the last tick that sent them, otherwise null
+    private FleetSummaryResponse changedSummary() {
+        long version = digitalTwinService.getSummaryVersion();
+        if (version == summaryVersion) {
+            return null;
+        }
+        FleetSummaryResponse summary = digitalTwinService.getFleetSummary();
+        summaryVersion = version;
+        return summary;
+    }
+
+    private void listen() {
+        if (listening.compareAndSet(false, true)) {
+            listeners.addMessageListener(
+                    (message, pattern) -> changed.add(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(DigitalTwinService.CHANGES_CHANNEL));
+        }
+    }
+
+    private static TwinChangeEvent coalesce(List<TwinChangeEvent> events) {
+        Map<String, DigitalTwinState> updated = new LinkedHashMap<>();
+        Set<String> removed = new HashSet<>();
+        FleetSummaryResponse summary = null;
+
+        for (TwinChangeEvent event : events) {
+            if (event.getUpdated() != null) {
+                for (DigitalTwinState twin : event.getUpdated()) {
+                    updated.put(twin.getVehicleId(), twin);
+                    removed.remove(twin.getVehicleId());
+                }
+            }
+            if (event.getRemoved() != null) {
+                for (String vehicleId : event.getRemoved()) {
+                    updated.remove(vehicleId);
+                    removed.add(vehicleId);
+                }
+            }
+            if (event.getSummary() != null) {
+                summary = event.getSummary();
+            }
+        }
+
+        TwinChangeEvent merged = new TwinChangeEvent();
+        merged.setUpdated(updated.isEmpty() ? null : new ArrayList<>(updated.values()));
+        merged.setRemoved(removed.isEmpty() ? null : new ArrayList<>(removed));
+        merged.setSummary(summary);
+        return merged;
+    }
+
+    private record Tick(List<DigitalTwinState> twins, Set<String> removed, FleetSummaryResponse summary) {
+    }
+
+    /**
+     * Per-client view of the ticks. Remembers which vehicles the client has
+     * been sent, so a twin moving out of the requested health states is
+     * reported as removed.
+     */
+    private static final class ClientFilter {
+
+        private final Set<String> vehicleIds;
+        private final Set<String> healthStates;
+        private final Set<String> visible = new HashSet<>();
+
+        ClientFilter(Set<String> vehicleIds, Set<String> healthStates) {
+            this.vehicleIds = vehicleIds;
+            this.healthStates = healthStates;
+        }
+
+        TwinChangeEvent apply(Tick tick) {
+            List<DigitalTwinState> updated = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+
+            for (DigitalTwinState twin : tick.twins()) {
+                if (!vehicleIds.isEmpty() && !vehicleIds.contains(twin.getVehicleId())) {
+                    continue;
+                }
+                if (healthStates.isEmpty() || healthStates.contains(twin.getHealthState())) {
+                    updated.add(twin);
+                    visible.add(twin.getVehicleId());
+                } else if (visible.remove(twin.getVehicleId())) {
+                    removed.add(twin.getVehicleId());
+                }
+            }
+            for (String vehicleId : tick.removed()) {
+                if (visible.remove(vehicleId) || (healthStates.isEmpty()
+                        && (vehicleIds.isEmpty() || vehicleIds.contains(vehicleId)))) {
+                    removed.add(vehicleId);
+                }
+            }
+
+            TwinChangeEvent event = new TwinChangeEvent();
+            event.setUpdated(updated.isEmpty() ? null : updated);
+            event.setRemoved(removed.isEmpty() ? null : removed);
+            event.setSummary(tick.summary());
+            return event;
+        }
+    }
+}
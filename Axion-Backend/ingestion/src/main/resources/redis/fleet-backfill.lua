@@ -0,0 +1,22 @@
+-- Adds twins written before the fleet index existed to it, with the expiry of their key.
+-- KEYS[1] fleet index
+-- KEYS[2..] twin keys, found by a SCAN
+-- ARGV[1] now, epoch milliseconds
+-- ARGV[2] TTL in milliseconds, for twin keys without one
+-- ARGV[3..] vehicle ids, in the order of their keys
+-- Returns the number of vehicles added.
+local added = 0
+for i = 2, #KEYS do
+    local vehicleId = ARGV[i + 1]
+    if not redis.call('ZSCORE', KEYS[1], vehicleId) then
+        local ttl = redis.call('PTTL', KEYS[i])
+        if ttl ~= -2 then
+            if ttl < 0 then
+                ttl = tonumber(ARGV[2])
+            end
+            redis.call('ZADD', KEYS[1], tonumber(ARGV[1]) + ttl, vehicleId)
+            added = added + 1
+        end
+    end
+end
+return added
@@ -0,0 +1,50 @@
+-- Lists the vehicles changed or removed after a fleet version, oldest change
+-- first, reading the versions and the counter in one atomic step.
+-- KEYS[1] fleet version counter
+-- KEYS[2] twin versions, fleet:idx:version
+-- KEYS[3] removed vehicles
+-- KEYS[4] version of the newest removal no longer retained
+-- ARGV[1] version the client has seen
+-- ARGV[2] maximum number of vehicles to return
+-- Returns { version, more 0|1, resync 0|1, number of updated ids, updated ids..., removed ids... }.
+-- The version is the one to ask from next time: the current one, or the last
+-- one returned when there is more. resync means the client is too far behind
+-- (or ahead, after a Redis reset) and must reload everything.
+local since = tonumber(ARGV[1])
+local limit = tonumber(ARGV[2])
+local version = tonumber(redis.call('GET', KEYS[1]) or '0')
+local floor = tonumber(redis.call('GET', KEYS[4]) or '0')
+
+if since < floor or since > version then
+    return { version, 0, 1, 0 }
+end
+
+local updated = redis.call('ZRANGEBYSCORE', KEYS[2], '(' .. since, '+inf', 'WITHSCORES', 'LIMIT', 0, limit)
+local removed = redis.call('ZRANGEBYSCORE', KEYS[3], '(' .. since, '+inf', 'WITHSCORES', 'LIMIT', 0, limit)
+
+-- Merge both by version, keeping the oldest changes up to the limit
+local updatedIds, removedIds = {}, {}
+local i, j = 1, 1
+local last = nil
+while #updatedIds + #removedIds < limit and (i <= #updated or j <= #removed) do
+    if j > #removed or (i <= #updated and tonumber(updated[i + 1]) < tonumber(removed[j + 1])) then
+        updatedIds[#updatedIds + 1] = updated[i]
+        last = updated[i + 1]
+        i = i + 2
+    else
+        removedIds[#removedIds + 1] = removed[j]
+        last = removed[j + 1]
+        j = j + 2
+    end
+end
+
+-- Either range may have been cut by the limit too
+local more = i <= #updated or j <= #removed or #updated == 2 * limit or #removed == 2 * limit
+local result = { more and tonumber(last) or version, more and 1 or 0, 0, #updatedIds }
+for _, vehicleId in ipairs(updatedIds) do
+    result[#result + 1] = vehicleId
+end
+for _, vehicleId in ipairs(removedIds) do
+    result[#result + 1] = vehicleId
+end
+return result
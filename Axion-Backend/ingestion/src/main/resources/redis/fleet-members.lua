@@ -0,0 +1,160 @@
+-- Shared by the twin scripts: keeps the fleet summary counters in step with
+-- the per-vehicle member states they are derived from.
+--
+-- fleet:members  hash, vehicle id -> "<healthState>:<online 0|1>:<vendor>"
+-- fleet:summary  hash, total / online / HEALTHY / DEGRADED / CRITICAL, and a version
+--                incremented whenever one of the counters moves
+--
+-- The same transitions maintain the secondary indexes of the vehicle listing:
+-- fleet:idx:state:<healthState>, fleet:idx:vendor:<vendor>, fleet:idx:online
+-- are sets of vehicle ids, fleet:idx:<sort> sorted sets scored by the value
+-- (fleet:idx:vehicleId scores everything 0, ordering it by id).
+--
+-- Every write to a twin increments fleet:version and records the new value as
+-- the twin's version, in fleet:idx:version, so the ETags built on them move
+-- with lastSeen too; twins that expire move to fleet:removed with the version of
+-- their removal. Unless the write only moved lastSeen or lastEventTs, the vehicle
+-- id is also announced on digital_twin:changes, for caches and streams in the
+-- API nodes.
+
+local IDX = 'fleet:idx:'
+local SORTS = { 'healthScore', 'battery', 'temperature', 'lastSeen' }
+
+-- Removals kept for change queries; clients behind the oldest one must reload
+local REMOVED_RETAINED = 10000
+
+-- Counters of a recount under way, see fleet-recount.lua, and the vehicles they already count
+local RECOUNT_KEY = 'fleet:recount'
+local RECOUNT_SEEN_KEY = 'fleet:recount:seen'
+
+-- A write that only moved the twin's timestamps: versioned, not announced
+local function touched(vehicleId)
+    local version = redis.call('INCR', 'fleet:version')
+    redis.call('ZADD', IDX .. 'version', version, vehicleId)
+    redis.call('ZREM', 'fleet:removed', vehicleId)
+end
+
+local function changed(vehicleId)
+    touched(vehicleId)
+    redis.call('PUBLISH', 'digital_twin:changes', vehicleId)
+end
+
+local function removed(vehicleId)
+    local version = redis.call('INCR', 'fleet:version')
+    redis.call('ZREM', IDX .. 'version', vehicleId)
+    redis.call('ZADD', 'fleet:removed', version, vehicleId)
+    local dropped = redis.call('ZRANGE', 'fleet:removed', 0, -REMOVED_RETAINED - 1, 'WITHSCORES')
+    if #dropped > 0 then
+        redis.call('SET', 'fleet:removed:floor', dropped[#dropped])
+        redis.call('ZREMRANGEBYRANK', 'fleet:removed', 0, -REMOVED_RETAINED - 1)
+    end
+    redis.call('PUBLISH', 'digital_twin:changes', vehicleId)
+end
+
+-- Members written before the vendor was recorded have no third part
+local function parse(member)
+    local state, online, vendor = string.match(member, '^(%u*):(%d):?(.*)$')
+    return state, online, vendor
+end
+
+local function index(command, vehicleId, member)
+    local state, online, vendor = parse(member)
+    if state and state ~= '' then
+        redis.call(command, IDX .. 'state:' .. state, vehicleId)
+    end
+    if online == '1' then
+        redis.call(command, IDX .. 'online', vehicleId)
+    end
+    if vendor and vendor ~= '' then
+        redis.call(command, IDX .. 'vendor:' .. vendor, vehicleId)
+    end
+end
+
+-- Updates the sort indexes, values in the order of SORTS; an empty value drops the vehicle from that index
+local function sort(vehicleId, values)
+    redis.call('ZADD', IDX .. 'vehicleId', 0, vehicleId)
+    for i, name in ipairs(SORTS) do
+        local value = values[i]
+        if value == nil then
+            -- not given, leave as is
+        elseif value == '' then
+            redis.call('ZREM', IDX .. name, vehicleId)
+        else
+            redis.call('ZADD', IDX .. name, value, vehicleId)
+        end
+    end
+end
+
+local function unsort(vehicleId)
+    redis.call('ZREM', IDX .. 'vehicleId', vehicleId)
+    for _, name in ipairs(SORTS) do
+        redis.call('ZREM', IDX .. name, vehicleId)
+    end
+end
+
+local function count(summary, member, delta)
+    local state, online = parse(member)
+    redis.call('HINCRBY', summary, 'version', 1)
+    redis.call('HINCRBY', summary, 'total', delta)
+    if online == '1' then
+        redis.call('HINCRBY', summary, 'online', delta)
+    end
+    if state and state ~= '' then
+        redis.call('HINCRBY', summary, state, delta)
+    end
+end
+
+-- Keeps a recount under way in step with a transition: a vehicle it counts already moves its
+-- counts, one it has not reached yet is counted now, in its new state, and skipped when reached
+local function recounted(vehicleId, previous, member)
+    if redis.call('EXISTS', RECOUNT_KEY) == 0 then
+        return
+    end
+    if redis.call('SADD', RECOUNT_SEEN_KEY, vehicleId) == 0 and previous then
+        count(RECOUNT_KEY, previous, -1)
+    end
+    if member then
+        count(RECOUNT_KEY, member, 1)
+    end
+end
+
+-- Records the vehicle's current member state, moving the counters only on a transition.
+-- Returns the previous member state, false for a new vehicle.
+local function track(members, summary, vehicleId, member)
+    local previous = redis.call('HGET', members, vehicleId)
+    if previous == member then
+        return previous
+    end
+    if previous then
+        count(summary, previous, -1)
+        index('SREM', vehicleId, previous)
+    end
+    redis.call('HSET', members, vehicleId, member)
+    count(summary, member, 1)
+    index('SADD', vehicleId, member)
+    recounted(vehicleId, previous, member)
+    return previous
+end
+
+local function untrack(members, summary, vehicleId)
+    local previous = redis.call('HGET', members, vehicleId)
+    if previous then
+        count(summary, previous, -1)
+        index('SREM', vehicleId, previous)
+        redis.call('HDEL', members, vehicleId)
+        recounted(vehicleId, previous, false)
+    end
+    unsort(vehicleId)
+end
+
+-- Takes vehicles whose twin has expired out of the index, the counters and the listing indexes
+local function expire(index, members, summary, now, limit)
+    local expired = redis.call('ZRANGEBYSCORE', index, '-inf', now, 'LIMIT', 0, limit)
+    for _, vehicleId in ipairs(expired) do
+        untrack(members, summary, vehicleId)
+        redis.call('ZREM', index, vehicleId)
+        removed(vehicleId)
+    end
+    return #expired
+end
+
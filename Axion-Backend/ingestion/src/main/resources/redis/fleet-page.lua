@@ -0,0 +1,126 @@
+-- Reads one page of the vehicle listing by walking a sort index from the
+-- cursor and keeping the vehicles that pass the filters, checked by set
+-- membership. Without filters exactly the page is read; with filters at most
+-- ARGV[3] entries are examined, after which the page is returned short with a
+-- cursor to continue from.
+-- KEYS[1]    sort index, fleet:idx:<sort>
+-- KEYS[2]    battery index, for the battery range
+-- KEYS[3]    online set
+-- KEYS[4..]  filter sets, in the groups given by ARGV[9..]
+-- ARGV[1]    'asc' or 'desc'
+-- ARGV[2]    page size
+-- ARGV[3]    maximum number of index entries to examine
+-- ARGV[4]    cursor score, empty for the first page
+-- ARGV[5]    cursor vehicle id
+-- ARGV[6]    battery minimum, '-inf' for none
+-- ARGV[7]    battery maximum, '+inf' for none
+-- ARGV[8]    '1' online only, '0' offline only, empty for both
+-- ARGV[9..]  number of sets in each filter group; a vehicle must be in one set of every group
+-- Returns { next cursor score, next cursor vehicle id, vehicle ids... }, the
+-- cursor being empty once the index is exhausted.
+local asc = ARGV[1] == 'asc'
+local limit = tonumber(ARGV[2])
+local budget = tonumber(ARGV[3])
+local cursorScore, cursorId = ARGV[4], ARGV[5]
+local batteryMin, batteryMax = ARGV[6], ARGV[7]
+local online = ARGV[8]
+local bySortedBattery = KEYS[1] == KEYS[2]
+
+local groups = {}
+local key = 4
+for i = 9, #ARGV do
+    local group = {}
+    for _ = 1, tonumber(ARGV[i]) do
+        group[#group + 1] = KEYS[key]
+        key = key + 1
+    end
+    groups[#groups + 1] = group
+end
+
+local function inBatteryRange(score)
+    return score >= tonumber(batteryMin) and score <= tonumber(batteryMax)
+end
+
+local function matches(vehicleId)
+    if not bySortedBattery and (batteryMin ~= '-inf' or batteryMax ~= '+inf') then
+        local battery = redis.call('ZSCORE', KEYS[2], vehicleId)
+        if not battery or not inBatteryRange(tonumber(battery)) then
+            return false
+        end
+    end
+    if online ~= '' and redis.call('SISMEMBER', KEYS[3], vehicleId) ~= tonumber(online) then
+        return false
+    end
+    for _, group in ipairs(groups) do
+        local found = false
+        for _, set in ipairs(group) do
+            if redis.call('SISMEMBER', set, vehicleId) == 1 then
+                found = true
+                break
+            end
+        end
+        if not found then
+            return false
+        end
+    end
+    return true
+end
+
+-- Position to start from. A cursor whose vehicle still has the same score is
+-- found by rank; otherwise the walk starts at the first entry with the cursor
+-- score and skips the ties already returned.
+local rank = 0
+local skipTies = false
+if cursorScore ~= '' then
+    if redis.call('ZSCORE', KEYS[1], cursorId) == cursorScore then
+        rank = redis.call(asc and 'ZRANK' or 'ZREVRANK', KEYS[1], cursorId) + 1
+    elseif asc then
+        rank = redis.call('ZCOUNT', KEYS[1], '-inf', '(' .. cursorScore)
+        skipTies = true
+    else
+        rank = redis.call('ZCOUNT', KEYS[1], '(' .. cursorScore, '+inf')
+        skipTies = true
+    end
+elseif bySortedBattery and asc and batteryMin ~= '-inf' then
+    rank = redis.call('ZCOUNT', KEYS[1], '-inf', '(' .. batteryMin)
+elseif bySortedBattery and not asc and batteryMax ~= '+inf' then
+    rank = redis.call('ZCOUNT', KEYS[1], '(' .. batteryMax, '+inf')
+end
+
+local page = {}
+local scanned = 0
+local lastScore, lastId = '', ''
+local exhausted = false
+while #page < limit and scanned < budget and not exhausted do
+    local n = math.min(100, budget - scanned)
+    -- One entry more than is examined, so a page ending with the index has no cursor
+    local chunk = redis.call(asc and 'ZRANGE' or 'ZREVRANGE', KEYS[1], rank, rank + n, 'WITHSCORES')
+    exhausted = #chunk <= 2 * n
+    local examined = math.min(#chunk, 2 * n)
+    for i = 1, examined, 2 do
+        local vehicleId, score = chunk[i], chunk[i + 1]
+        if bySortedBattery and not inBatteryRange(tonumber(score)) then
+            exhausted = true
+            break
+        end
+        scanned = scanned + 1
+        local tie = skipTies and score == cursorScore
+                and ((asc and vehicleId <= cursorId) or (not asc and vehicleId >= cursorId))
+        if not tie and matches(vehicleId) then
+            page[#page + 1] = vehicleId
+        end
+        lastScore, lastId = score, vehicleId
+        if #page == limit then
+            exhausted = exhausted and i + 1 == examined
+            break
+        end
+    end
+    rank = rank + n
+end
+
+if exhausted then
+    lastScore, lastId = '', ''
+end
+table.insert(page, 1, lastId)
+table.insert(page, 1, lastScore)
+return page
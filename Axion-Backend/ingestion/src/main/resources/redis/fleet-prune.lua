@@ -0,0 +1,8 @@
+-- Removes expired twins from the index and the counters.
+-- KEYS[1] fleet index
+-- KEYS[2] fleet members
+-- KEYS[3] fleet summary
+-- ARGV[1] now, epoch milliseconds
+-- ARGV[2] maximum number of expired vehicles to process
+-- Returns the number of vehicles removed.
+return expire(KEYS[1], KEYS[2], KEYS[3], ARGV[1], ARGV[2])
@@ -0,0 +1,38 @@
+-- Brings the member states, counters and listing indexes of a chunk of vehicles back in line
+-- with their twins, fixing any drift. The caller reads the twins, so this script only touches
+-- fleet keys. A vehicle whose version moved since the caller read it changed meanwhile, and
+-- the script that changed it already recorded its new state, so it is left alone.
+-- KEYS[1] fleet index
+-- KEYS[2] fleet members
+-- KEYS[3] fleet summary
+-- KEYS[4] twin versions, fleet:idx:version
+-- KEYS[5] fleet version
+-- KEYS[6] removed vehicles, fleet:removed
+-- KEYS[7] removed floor, fleet:removed:floor
+-- ARGV seven per vehicle: vehicle id, its version as read or '' for none, member state or ''
+--      when it has no twin, then health score, battery, battery temperature and lastSeen
+-- Returns the number of vehicles with a twin.
+local live = 0
+for i = 1, #ARGV, 7 do
+    local vehicleId = ARGV[i]
+    local version = redis.call('ZSCORE', KEYS[4], vehicleId)
+    local read = ARGV[i + 1] ~= '' and tonumber(ARGV[i + 1]) or nil
+    if (version and tonumber(version)) == read then
+        if ARGV[i + 2] == '' then
+            untrack(KEYS[2], KEYS[3], vehicleId)
+            redis.call('ZREM', KEYS[1], vehicleId)
+            removed(vehicleId)
+        else
+            -- Re-added from scratch, the listing sets may have drifted from the member state
+            untrack(KEYS[2], KEYS[3], vehicleId)
+            track(KEYS[2], KEYS[3], vehicleId, ARGV[i + 2])
+            sort(vehicleId, { ARGV[i + 3], ARGV[i + 4], ARGV[i + 5], ARGV[i + 6] })
+            -- Twins written before versioning start at the current version
+            redis.call('ZADD', KEYS[4], 'NX', redis.call('GET', KEYS[5]) or 0, vehicleId)
+            live = live + 1
+        end
+    elseif ARGV[i + 2] ~= '' then
+        live = live + 1
+    end
+end
+return live
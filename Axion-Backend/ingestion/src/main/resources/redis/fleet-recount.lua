@@ -0,0 +1,56 @@
+-- Recounts the fleet summary from the member states, once fleet-reconcile.lua has been through
+-- every vehicle, and drops the member states of vehicles no longer in the index. Each call
+-- counts one HSCAN chunk of the members into fleet:recount, so Redis is never blocked for
+-- the whole fleet; transitions landing between chunks keep those counts in step, see
+-- recounted() in fleet-members.lua. The last chunk replaces the summary counters.
+-- KEYS[1] fleet index
+-- KEYS[2] fleet members
+-- KEYS[3] fleet summary
+-- KEYS[4] fleet version
+-- ARGV[1] members to scan per call
+-- ARGV[2] '1' to start a recount unless one is under way, '0' to continue it
+-- ARGV[3] milliseconds a recount left unfinished is kept before it is dropped
+-- Returns -1 while members remain, otherwise the number of vehicles counted (0 when
+-- there was no recount to continue).
+local cursor = redis.call('HGET', RECOUNT_KEY, 'cursor')
+if not cursor then
+    if ARGV[2] ~= '1' then
+        return 0
+    end
+    cursor = '0'
+    redis.call('DEL', RECOUNT_SEEN_KEY)
+    redis.call('HSET', RECOUNT_KEY, 'cursor', cursor, 'total', 0, 'online', 0, 'HEALTHY', 0, 'DEGRADED', 0,
+            'CRITICAL', 0)
+end
+
+local scan = redis.call('HSCAN', KEYS[2], cursor, 'COUNT', ARGV[1])
+local members = scan[2]
+for i = 1, #members, 2 do
+    local vehicleId = members[i]
+    if redis.call('ZSCORE', KEYS[1], vehicleId) then
+        -- HSCAN may return a member twice, and a transition may have counted it already
+        if redis.call('SADD', RECOUNT_SEEN_KEY, vehicleId) == 1 then
+            count(RECOUNT_KEY, members[i + 1], 1)
+        end
+    else
+        untrack(KEYS[2], KEYS[3], vehicleId)
+        removed(vehicleId)
+    end
+end
+
+if scan[1] ~= '0' then
+    redis.call('HSET', RECOUNT_KEY, 'cursor', scan[1])
+    redis.call('PEXPIRE', RECOUNT_KEY, ARGV[3])
+    redis.call('PEXPIRE', RECOUNT_SEEN_KEY, ARGV[3])
+    return -1
+end
+
+local counts = redis.call('HMGET', RECOUNT_KEY, 'total', 'online', 'HEALTHY', 'DEGRADED', 'CRITICAL')
+redis.call('DEL', RECOUNT_KEY, RECOUNT_SEEN_KEY)
+local version = tonumber(redis.call('HGET', KEYS[3], 'version') or '0')
+redis.call('DEL', KEYS[3])
+redis.call('HSET', KEYS[3], 'total', counts[1], 'online', counts[2], 'HEALTHY', counts[3],
+        'DEGRADED', counts[4], 'CRITICAL', counts[5], 'version', version + 1)
+-- The counters may have moved, so cached summaries must not match any more
+redis.call('INCR', KEYS[4])
+return tonumber(counts[1])
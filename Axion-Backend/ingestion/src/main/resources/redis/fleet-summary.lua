@@ -0,0 +1,14 @@
+-- Accounts for twins expired since the last prune, then returns the counters.
+-- Both happen atomically, so the snapshot is consistent.
+-- KEYS[1] fleet index
+-- KEYS[2] fleet members
+-- KEYS[3] fleet summary
+-- ARGV[1] now, epoch milliseconds
+-- ARGV[2] maximum number of expired vehicles to process
+-- Returns the counters as field, value pairs, followed by 'pending' and the number of expired
+-- vehicles left over for another call; the counters are only accurate once that is 0.
+expire(KEYS[1], KEYS[2], KEYS[3], ARGV[1], ARGV[2])
+local fields = redis.call('HGETALL', KEYS[3])
+fields[#fields + 1] = 'pending'
+fields[#fields + 1] = tostring(redis.call('ZCOUNT', KEYS[1], '-inf', ARGV[1]))
+return fields
@@ -0,0 +1,62 @@
+-- Merges a closed rollup window into the rollups of its vehicle or of the fleet.
+-- Windows are members of a sorted set scored by window start, encoded as the
+-- start followed by count, min, max, sum, last and last timestamp per metric.
+-- A window written before for the same start, e.g. the fleet window of another
+-- node or a late vehicle window, is merged with the new one.
+--
+-- KEYS[1]  rollup sorted set
+-- ARGV[1]  window start, epoch millis
+-- ARGV[2]  encoded window
+-- ARGV[3]  windows starting before this are dropped
+-- ARGV[4]  TTL of the set in millis, for vehicles that stop reporting
+
+local function split(encoded)
+    local fields = {}
+    for field in string.gmatch(encoded, '[^,]+') do
+        fields[#fields + 1] = tonumber(field)
+    end
+    return fields
+end
+
+local function num(x)
+    return string.format('%.17g', x)
+end
+
+local window = ARGV[2]
+local existing = redis.call('ZRANGEBYSCORE', KEYS[1], ARGV[1], ARGV[1])
+if #existing > 0 then
+    local a = split(existing[1])
+    local b = split(window)
+    local out = { ARGV[1] }
+    for base = 2, #b, 6 do
+        local count, minimum, maximum, sum, last, lastTs
+        if a[base] == 0 then
+            count, minimum, maximum, sum, last, lastTs = b[base], b[base + 1], b[base + 2], b[base + 3], b[base + 4], b[base + 5]
+        elseif b[base] == 0 then
+            count, minimum, maximum, sum, last, lastTs = a[base], a[base + 1], a[base + 2], a[base + 3], a[base + 4], a[base + 5]
+        else
+            count = a[base] + b[base]
+            minimum = math.min(a[base + 1], b[base + 1])
+            maximum = math.max(a[base + 2], b[base + 2])
+            sum = a[base + 3] + b[base + 3]
+            if b[base + 5] >= a[base + 5] then
+                last, lastTs = b[base + 4], b[base + 5]
+            else
+                last, lastTs = a[base + 4], a[base + 5]
+            end
+        end
+        out[#out + 1] = num(count)
+        out[#out + 1] = num(minimum)
+        out[#out + 1] = num(maximum)
+        out[#out + 1] = num(sum)
+        out[#out + 1] = num(last)
+        out[#out + 1] = num(lastTs)
+    end
+    redis.call('ZREM', KEYS[1], existing[1])
+    window = table.concat(out, ',')
+end
+
+redis.call('ZADD', KEYS[1], ARGV[1], window)
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', '(' .. ARGV[3])
+redis.call('PEXPIRE', KEYS[1], ARGV[4])
+return 1
@@ -0,0 +1,28 @@
+-- Hash layout variant of twin-keep-alive.lua, same KEYS and ARGV. Like there, lastEventTs
+-- is never touched.
+-- Returns 1 if the twin exists, 2 if it was offline and needs re-scoring, 0 otherwise.
+local current = redis.call('HMGET', KEYS[1], 'lastSeen', 'online', 'healthState', 'vendor')
+if not current[1] and redis.call('EXISTS', KEYS[1]) == 0 then
+    return 0
+end
+
+local lastSeen = current[1]
+local seen = tonumber(lastSeen) == nil or tonumber(lastSeen) < tonumber(ARGV[1])
+if seen then
+    redis.call('HSET', KEYS[1], 'lastSeen', ARGV[1])
+    lastSeen = ARGV[1]
+end
+if current[2] ~= '1' then
+    redis.call('HSET', KEYS[1], 'online', '1')
+end
+
+redis.call('PEXPIRE', KEYS[1], ARGV[2])
+redis.call('ZADD', KEYS[2], ARGV[4], ARGV[3])
+track(KEYS[3], KEYS[4], ARGV[3], (current[3] or '') .. ':1:' .. (current[4] or ''))
+sort(ARGV[3], { nil, nil, nil, lastSeen })
+if current[2] ~= '1' then
+    changed(ARGV[3])
+elseif seen then
+    touched(ARGV[3])
+end
+return current[2] == '1' and 1 or 2
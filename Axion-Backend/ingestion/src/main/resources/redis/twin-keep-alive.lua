@@ -0,0 +1,56 @@
+-- Marks a twin online and refreshes its TTL without rewriting the telemetry.
+-- Only lastSeen moves: lastEventTs, which twin-upsert.lua checks for out of order
+-- events, is left alone, so a heartbeat never makes the next telemetry look stale.
+-- The twin JSON is only rewritten when the twin was offline: a heartbeat moves
+-- lastSeen in the lastSeen listing index, which readers take it from when it is
+-- newer than the twin's, and reads the online flag off the member state.
+-- KEYS[1] twin key
+-- KEYS[2] fleet index
+-- KEYS[3] fleet members
+-- KEYS[4] fleet summary
+-- ARGV[1] lastSeen, epoch seconds as written by Jackson
+-- ARGV[2] TTL in milliseconds
+-- ARGV[3] vehicle id
+-- ARGV[4] expiry, epoch milliseconds
+-- Returns 1 if the twin exists, 2 if it was offline and needs re-scoring, 0 otherwise.
+if redis.call('PEXPIRE', KEYS[1], ARGV[2]) == 0 then
+    return 0
+end
+
+local twin
+local state, online, vendor
+local member = redis.call('HGET', KEYS[3], ARGV[3])
+if member then
+    state, online, vendor = parse(member)
+else
+    -- Not tracked yet, e.g. written before the member states existed
+    twin = redis.call('GET', KEYS[1])
+    state = string.match(twin, '"healthState":"(%u+)"')
+    online = string.match(twin, '"online":true') and '1' or '0'
+    vendor = string.match(twin, '"vendor":"([^"]*)"')
+end
+
+local current = tonumber(redis.call('ZSCORE', IDX .. 'lastSeen', ARGV[3]))
+local seen = current == nil or current < tonumber(ARGV[1])
+if seen then
+    current = ARGV[1]
+end
+local wasOffline = online ~= '1'
+if wasOffline then
+    twin = twin or redis.call('GET', KEYS[1])
+    twin = string.gsub(twin, '"lastSeen":[^,}]+', '"lastSeen":' .. current, 1)
+    twin = string.gsub(twin, '"online":%a+', '"online":true', 1)
+    redis.call('SET', KEYS[1], twin, 'KEEPTTL')
+end
+
+redis.call('ZADD', KEYS[2], ARGV[4], ARGV[3])
+track(KEYS[3], KEYS[4], ARGV[3], (state or '') .. ':1:' .. (vendor or ''))
+sort(ARGV[3], { nil, nil, nil, current })
+-- Moving lastSeen alone is versioned but not announced, it would invalidate every
+-- cached twin once a second
+if wasOffline then
+    changed(ARGV[3])
+elseif seen then
+    touched(ARGV[3])
+end
+return wasOffline and 2 or 1
@@ -0,0 +1,61 @@
+-- Sets a twin's online flag and the health scored for it, leaving the
+-- telemetry untouched. Applies only to a twin that is still online and still
+-- holds the event the score was computed from; going offline additionally
+-- requires that the vehicle has not been seen since the given time. A
+-- re-score (ARGV[8]) instead requires the twin to still be online or offline
+-- as given, so it never undoes a liveness change made meanwhile.
+-- KEYS[1] twin key
+-- KEYS[2] fleet members
+-- KEYS[3] fleet summary
+-- ARGV[1] twin layout, 'blob' or 'hash'
+-- ARGV[2] vehicle id
+-- ARGV[3] '0' to mark offline, '1' to re-score an online twin
+-- ARGV[4] lastSeen the twin must not be newer than (epoch seconds), for '0'
+-- ARGV[5] lastEventTs the score was computed from (epoch seconds)
+-- ARGV[6] health score
+-- ARGV[7] health state
+-- ARGV[8] '1' to re-score the twin as it is, optional
+-- Returns { 1, previous member state } if the twin was updated, { 0 } otherwise.
+local hash = ARGV[1] == 'hash'
+
+local twin, lastSeen, lastEventTs, online, vendor
+if hash then
+    local v = redis.call('HMGET', KEYS[1], 'lastSeen', 'lastEventTs', 'online', 'vendor')
+    lastSeen, lastEventTs, online, vendor = v[1], v[2], v[3] == '1', v[4]
+else
+    twin = redis.call('GET', KEYS[1])
+    if not twin then
+        return { 0 }
+    end
+    -- Heartbeats move lastSeen in the listing index only, see twin-keep-alive.lua
+    lastSeen = math.max(tonumber(string.match(twin, '"lastSeen":([^,}]+)')) or 0,
+            tonumber(redis.call('ZSCORE', IDX .. 'lastSeen', ARGV[2])) or 0)
+    lastEventTs = string.match(twin, '"lastEventTs":([^,}]+)')
+    online = string.match(twin, '"online":true') ~= nil
+    vendor = string.match(twin, '"vendor":"([^"]*)"')
+end
+
+if tonumber(lastEventTs) ~= tonumber(ARGV[5]) then
+    return { 0 }
+end
+if ARGV[8] == '1' then
+    if online ~= (ARGV[3] == '1') then
+        return { 0 }
+    end
+elseif not online or (ARGV[3] == '0' and (tonumber(lastSeen) or 0) > tonumber(ARGV[4])) then
+    return { 0 }
+end
+
+if hash then
+    redis.call('HSET', KEYS[1], 'online', ARGV[3], 'healthScore', ARGV[6], 'healthState', ARGV[7])
+else
+    twin = string.gsub(twin, '"online":%a+', '"online":' .. (ARGV[3] == '1' and 'true' or 'false'), 1)
+    twin = string.gsub(twin, '"healthScore":[^,}]+', '"healthScore":' .. ARGV[6], 1)
+    twin = string.gsub(twin, '"healthState":[^,}]+', '"healthState":"' .. ARGV[7] .. '"', 1)
+    redis.call('SET', KEYS[1], twin, 'KEEPTTL')
+end
+
+local previous = track(KEYS[2], KEYS[3], ARGV[2], ARGV[7] .. ':' .. ARGV[3] .. ':' .. (vendor or ''))
+sort(ARGV[2], { ARGV[6] })
+changed(ARGV[2])
+return { 1, previous or '' }
@@ -0,0 +1,52 @@
+-- Hash layout variant of twin-upsert.lua: only fields whose value differs
+-- from the stored one are written, and the change is announced only if one
+-- besides the two timestamps did. The version moves on every write.
+-- KEYS and ARGV[1..9] as in twin-upsert.lua
+-- ARGV[10..] field, value pairs; an empty value deletes the field
+-- Returns as twin-upsert.lua.
+local applied = tonumber(redis.call('HGET', KEYS[1], 'lastEventTs'))
+if applied and applied > tonumber(ARGV[1]) then
+    return { 0 }
+end
+
+local fields = {}
+for i = 10, #ARGV, 2 do
+    fields[#fields + 1] = ARGV[i]
+end
+local current = redis.call('HMGET', KEYS[1], unpack(fields))
+
+-- Every reading moves these, they alone do not make a change
+local TIMES = { lastSeen = true, lastEventTs = true }
+
+local set, del = {}, {}
+local moved = false
+for n, field in ipairs(fields) do
+    local value = ARGV[9 + 2 * n]
+    if value == '' then
+        if current[n] then
+            del[#del + 1] = field
+            moved = moved or not TIMES[field]
+        end
+    elseif current[n] ~= value then
+        set[#set + 1] = field
+        set[#set + 1] = value
+        moved = moved or not TIMES[field]
+    end
+end
+if #set > 0 then
+    redis.call('HSET', KEYS[1], unpack(set))
+end
+if #del > 0 then
+    redis.call('HDEL', KEYS[1], unpack(del))
+end
+redis.call('PEXPIRE', KEYS[1], ARGV[2])
+
+redis.call('ZADD', KEYS[2], ARGV[4], ARGV[3])
+local previous = track(KEYS[3], KEYS[4], ARGV[3], ARGV[5])
+sort(ARGV[3], { ARGV[6], ARGV[7], ARGV[8], ARGV[9] })
+if moved then
+    changed(ARGV[3])
+else
+    touched(ARGV[3])
+end
+return { 1, previous or '' }
@@ -0,0 +1,40 @@
+-- Writes a twin unless it already holds a newer event, in one atomic step.
+-- Every write moves the twin's version; the change is announced only if the
+-- twin differs in more than lastSeen and lastEventTs, which every reading moves.
+-- KEYS[1] twin key
+-- KEYS[2] fleet index
+-- KEYS[3] fleet members
+-- KEYS[4] fleet summary
+-- ARGV[1] event timestamp, epoch seconds as written by Jackson
+-- ARGV[2] TTL in milliseconds
+-- ARGV[3] vehicle id
+-- ARGV[4] expiry, epoch milliseconds
+-- ARGV[5] member state, "<healthState>:<online 0|1>:<vendor>"
+-- ARGV[6..9] health score, battery, battery temperature, lastSeen (epoch seconds);
+--            empty when unknown
+-- ARGV[10] twin JSON
+-- Returns { 1, previous member state or '' for a new vehicle } if the twin was written,
+-- { 0 } if the event was out of order.
+-- The twin JSON without lastSeen and lastEventTs
+local function untimed(json)
+    return (string.gsub(json, '"last[SE]%a*":[^,}]*,?', ''))
+end
+
+local twin = redis.call('GET', KEYS[1])
+if twin then
+    local applied = tonumber(string.match(twin, '"lastEventTs":([^,}]+)'))
+    if applied and applied > tonumber(ARGV[1]) then
+        return { 0 }
+    end
+end
+
+redis.call('SET', KEYS[1], ARGV[10], 'PX', ARGV[2])
+redis.call('ZADD', KEYS[2], ARGV[4], ARGV[3])
+local previous = track(KEYS[3], KEYS[4], ARGV[3], ARGV[5])
+sort(ARGV[3], { ARGV[6], ARGV[7], ARGV[8], ARGV[9] })
+if not twin or untimed(twin) ~= untimed(ARGV[10]) then
+    changed(ARGV[3])
+else
+    touched(ARGV[3])
+end
+return { 1, previous or '' }
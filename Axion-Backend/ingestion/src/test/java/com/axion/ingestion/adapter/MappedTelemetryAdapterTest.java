@@ -0,0 +1,126 @@
+package com.axion.ingestion.adapter;
+
+import com.axion.ingestion.exception.InvalidPayloadException;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class MappedTelemetryAdapterTest {
+
+    private static final String MAPPINGS = """
+            [
+              {
+                "vendor": "ACME",
+                "headers": ["acme-gw"],
+                "topics": ["oem/acme/+/telemetry"],
+                "fields": {
+                  "vehicle_id": { "path": "vin" },
+                  "timestamp": { "path": "meta.ts", "format": "EPOCH_MILLIS" },
+                  "sequence_number": { "path": "meta.seq" },
+                  "battery_soc_pct": { "path": "battery.soc", "scale": 100 },
+                  "speed_kmph": { "path": "speed_mph", "scale": 1.609344 },
+                  "battery_temp_c": { "path": "battery.temp_f", "scale": 0.5555555555555556, "offset": -17.77777777777778 }
+                }
+              }
+            ]
+            """;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TelemetryAdapterRegistry registry = registry();
+
+    @Test
+    void convertsVendorFieldsAndUnits() {
+        String payload = """
+                {
+                  "vin": "WVW123",
+                  "meta": { "ts": 1769365965000, "fw": "2.1", "seq": 41 },
+                  "battery": { "soc": 0.785, "temp_f": 113.0, "cells": [3.9, 3.9] },
+                  "speed_mph": 40,
+                  "telemetry": { "odometer_km": 1200.5 }
+                }
+                """;
+
+        CanonicalTelemetryEnvelope envelope = registry.forVendor("acme").adapt(bytes(payload));
+
+        assertThat(envelope.getVendor()).isEqualTo("ACME");
+        assertThat(envelope.getVehicleId()).isEqualTo("WVW123");
+        assertThat(envelope.getTimestamp()).isEqualTo(Instant.ofEpochMilli(1769365965000L));
+        assertThat(envelope.getTelemetry().getBatterySocPct()).isCloseTo(78.5, within(1e-9));
+        assertThat(envelope.getTelemetry().getSpeedKmph()).isCloseTo(64.37376, within(1e-9));
+        assertThat(envelope.getTelemetry().getBatteryTempC()).isCloseTo(45.0, within(1e-9));
+        // not overridden, read from the canonical location
+        assertThat(envelope.getTelemetry().getOdometerKm()).isEqualTo(1200.5);
+        assertThat(envelope.getConnection().getSequenceNumber()).isEqualTo(41L);
+    }
+
+    @Test
+    void resolvesByHeaderAndTopicAndFallsBackToCanonical() {
+        assertThat(registry.forVendor("ACME-GW")).isSameAs(registry.forVendor("acme"));
+        assertThat(registry.forTopic("oem/acme/WVW123/telemetry")).isSameAs(registry.forVendor("acme"));
+        assertThat(registry.forTopic("oem/acme/WVW123/status")).isSameAs(registry.canonical());
+        assertThat(registry.forVendor("other")).isSameAs(registry.canonical());
+        assertThat(registry.forVendor(null)).isSameAs(registry.canonical());
+    }
+
+    @Test
+    void countsReadingsPerVendor() {
+        registry.forVendor("acme").adapt(bytes("{\"vin\":\"WVW123\",\"battery\":{\"soc\":0.5}}"));
+        assertThatThrownBy(() -> registry.forVendor("acme").adapt(bytes("{\"vin\":\"WVW123\",\"speed_mph\":\"fast\"}")));
+
+        assertThat(meterRegistry.get("axion.ingestion.adapter.messages")
+                .tags("vendor", "ACME", "outcome", "accepted").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("axion.ingestion.adapter.messages")
+                .tags("vendor", "ACME", "outcome", "rejected").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void rejectsConflictingPaths() {
+        VendorMappingSpec spec = new VendorMappingSpec();
+        spec.setVendor("BROKEN");
+        VendorMappingSpec.FieldSpec speed = new VendorMappingSpec.FieldSpec();
+        speed.setPath("telemetry.battery_soc_pct");
+        spec.getFields().put("speed_kmph", speed);
+
+        assertThatThrownBy(() -> new MappedTelemetryAdapter(spec))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("mapped more than once");
+    }
+
+    @Test
+    void rejectsEpochTimestampsPastTheRangeOfInstant() {
+        VendorMappingSpec spec = new VendorMappingSpec();
+        spec.setVendor("SECONDS");
+        VendorMappingSpec.FieldSpec timestamp = new VendorMappingSpec.FieldSpec();
+        timestamp.setPath("ts");
+        timestamp.setFormat(VendorMappingSpec.TimestampFormat.EPOCH_SECONDS);
+        spec.getFields().put("timestamp", timestamp);
+        MappedTelemetryAdapter adapter = new MappedTelemetryAdapter(spec);
+
+        assertThat(adapter.adapt(bytes("{\"vehicle_id\":\"EV-1\",\"ts\":1769365965.5}")).getTimestamp())
+                .isEqualTo(Instant.ofEpochSecond(1769365965L, 500_000_000));
+        assertThatThrownBy(() -> adapter.adapt(bytes("{\"vehicle_id\":\"EV-1\",\"ts\":9000000000000000000}")))
+                .isInstanceOf(InvalidPayloadException.class);
+        assertThatThrownBy(() -> adapter.adapt(bytes("{\"vehicle_id\":\"EV-1\",\"ts\":1e300}")))
+                .isInstanceOf(InvalidPayloadException.class);
+    }
+
+    private TelemetryAdapterRegistry registry() {
+        try {
+            return new TelemetryAdapterRegistry(new ByteArrayResource(bytes(MAPPINGS)), meterRegistry);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
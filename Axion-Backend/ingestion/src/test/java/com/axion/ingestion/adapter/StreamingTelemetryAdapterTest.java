@@ -0,0 +1,115 @@
+package com.axion.ingestion.adapter;
+
+import com.axion.ingestion.exception.InvalidPayloadException;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamingTelemetryAdapterTest {
+
+    private final StreamingTelemetryAdapter adapter = new StreamingTelemetryAdapter();
+
+    @Test
+    void adaptsSimulatorPayload() {
+        String payload = """
+                {
+                  "schema_version": "1.0",
+                  "vehicle_id": "v001",
+                  "vendor": "SIMULATED",
+                  "timestamp": "2026-01-25T18:32:45.123456Z",
+                  "ingestion_ts": "2026-01-25T18:32:45.200000Z",
+                  "telemetry": {
+                    "speed_kmph": 64.2,
+                    "battery_soc_pct": 78,
+                    "battery_temp_c": 31.5,
+                    "motor_temp_c": 35.0,
+                    "odometer_km": 1000.25,
+                    "gear": "D"
+                  },
+                  "connection": { "sequence_number": 7, "is_heartbeat": false }
+                }
+                """;
+
+        CanonicalTelemetryEnvelope envelope = adapter.adapt(payload.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(envelope.getVehicleId()).isEqualTo("v001");
+        assertThat(envelope.getVendor()).isEqualTo("SIMULATED");
+        assertThat(envelope.getTimestamp()).isEqualTo(Instant.parse("2026-01-25T18:32:45.123456Z"));
+        assertThat(envelope.getTelemetry().getBatterySocPct()).isEqualTo(78.0);
+        assertThat(envelope.getTelemetry().getSpeedKmph()).isEqualTo(64.2);
+        assertThat(envelope.getTelemetry().getOdometerKm()).isEqualTo(1000.25);
+        assertThat(envelope.getTelemetry().getAmbientTempC()).isNull();
+        assertThat(envelope.getConnection().getProtocol()).isEqualTo("REST");
+        assertThat(envelope.getConnection().getSequenceNumber()).isEqualTo(7L);
+        assertThat(envelope.getConnection().getIsHeartbeat()).isFalse();
+    }
+
+    @Test
+    void parsesTimestampsLikeInstantParse() {
+        String[] samples = {
+                "1970-01-01T00:00:00Z",
+                "2024-02-29T23:59:59.999999999Z",
+                "2026-01-25T18:32:45.1Z",
+                "2026-01-25t18:32:45z",
+                "2026-01-25T18:32:45+05:30",
+                "2026-01-25T18:32:45.5-08:00",
+                "1969-12-31T23:59:59.000001Z",
+                "9999-12-31T23:59:59Z",
+        };
+        for (String sample : samples) {
+            assertThat(IsoInstantParser.parse(sample)).as(sample).isEqualTo(Instant.parse(sample));
+        }
+    }
+
+    @Test
+    void rejectsMalformedTimestamps() {
+        String[] samples = {
+                "2026-01-25T18:32:45",
+                "2026-02-30T00:00:00Z",
+                "2026-01-25 18:32:45Z",
+                "2026-01-25T24:00:00Z",
+                "2026-01-25T18:32:45.Z",
+                "2026-01-25T18:32:45.1234567890Z",
+                "2026-01-25T18:32:45+5",
+                "not-a-timestamp-at-all",
+        };
+        for (String sample : samples) {
+            assertThat(IsoInstantParser.parse(sample)).as(sample).isNull();
+        }
+    }
+
+    @Test
+    void rejectsWithoutStackTrace() {
+        String payload = "{\"vehicle_id\":\"v001\",\"timestamp\":\"yesterday\",\"telemetry\":{\"battery_soc_pct\":50}}";
+
+        assertThatThrownBy(() -> adapter.adapt(payload))
+                .isInstanceOf(InvalidPayloadException.class)
+                .hasMessage("timestamp must be an ISO-8601 instant")
+                .satisfies(e -> assertThat(e.getStackTrace()).isEmpty());
+    }
+
+    @Test
+    void leavesParserOnNextReadingAfterRejection() throws Exception {
+        String batch = "[{\"vehicle_id\":\"v001\",\"telemetry\":{\"battery_soc_pct\":\"full\",\"x\":[1,2]},\"timestamp\":\"2026-01-25T18:32:45Z\"},"
+                + "{\"vehicle_id\":\"v002\",\"timestamp\":\"2026-01-25T18:32:45Z\",\"telemetry\":{\"battery_soc_pct\":50}}]";
+
+        try (JsonParser parser = adapter.createParser(batch.getBytes(StandardCharsets.UTF_8))) {
+            assertThat(parser.nextToken()).isEqualTo(JsonToken.START_ARRAY);
+
+            parser.nextToken();
+            assertThatThrownBy(() -> adapter.adapt(parser)).isInstanceOf(InvalidPayloadException.class);
+            assertThat(parser.currentToken()).isEqualTo(JsonToken.END_OBJECT);
+
+            parser.nextToken();
+            assertThat(adapter.adapt(parser).getVehicleId()).isEqualTo("v002");
+            assertThat(parser.nextToken()).isEqualTo(JsonToken.END_ARRAY);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.axion.ingestion.alert;
+
+import com.axion.ingestion.health.HealthScoreEngine;
+import com.axion.ingestion.health.HealthState;
+import com.axion.ingestion.health.TrendTracker;
+import com.axion.ingestion.model.DigitalTwinState;
+import com.axion.ingestion.model.TelemetrySnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertDetectorTest {
+
+    private static final long COOLDOWN = 60_000;
+
+    private final AlertDetector detector = detector();
+    private final List<VehicleAlert> alerts = new ArrayList<>();
+    // Stands in for the members hash in Redis
+    private final Map<String, String> members = new HashMap<>();
+
+    AlertDetectorTest() throws IOException {
+    }
+
+    @Test
+    void escalatesAtOnceAndRecoversPastTheHysteresisAfterTheCooldown() {
+        observe(twin(true, 100), 0);
+        assertTrue(alerts.isEmpty());
+
+        observe(twin(true, 70), 1_000);
+        observe(twin(true, 40), 2_000);
+        assertAlert(0, AlertType.HEALTH, AlertSeverity.WARNING, "HEALTHY", "DEGRADED");
+        assertAlert(1, AlertType.HEALTH, AlertSeverity.CRITICAL, "DEGRADED", "CRITICAL");
+        assertEquals(40, alerts.get(1).getHealthScore());
+
+        // Back to DEGRADED, but within the cool-down, then too close to its lower bound of 50
+        observe(twin(true, 56), 3_000);
+        observe(twin(true, 52), 2_000 + COOLDOWN);
+        observe(twin(true, 40), 2_000 + COOLDOWN);
+        assertEquals(2, alerts.size());
+
+        observe(twin(true, 56), 2_000 + COOLDOWN);
+        assertAlert(2, AlertType.HEALTH, AlertSeverity.INFO, "CRITICAL", "DEGRADED");
+
+        // 82 is HEALTHY but within the hysteresis of 80; 90 is not
+        observe(twin(true, 82), 2_000 + 2 * COOLDOWN);
+        observe(twin(true, 90), 2_000 + 2 * COOLDOWN);
+        assertAlert(3, AlertType.HEALTH, AlertSeverity.INFO, "DEGRADED", "HEALTHY");
+        assertEquals(4, alerts.size());
+    }
+
+    @Test
+    void alertsGoingOfflineAndComingBackWithoutJudgingHealthWhileOffline() {
+        observe(twin(true, 100), 0);
+        observe(twin(false, 0), 1_000);
+        observe(twin(true, 100), 2_000);
+        assertEquals(1, alerts.size());
+        assertAlert(0, AlertType.CONNECTIVITY, AlertSeverity.CRITICAL, "ONLINE", "OFFLINE");
+
+        observe(twin(true, 100), 1_000 + COOLDOWN);
+        assertEquals(2, alerts.size());
+        assertAlert(1, AlertType.CONNECTIVITY, AlertSeverity.INFO, "OFFLINE", "ONLINE");
+    }
+
+    @Test
+    void startsFromTheMemberStateRedisHeld() {
+        // Already alerted before a restart: nothing new
+        observe(twin("EV-1", true, 40), "CRITICAL:1:V", 0);
+        // Offline in Redis, so only coming back online is news
+        observe(twin("EV-2", true, 40), "CRITICAL:0:V", 0);
+        // Online in Redis and now silent
+        observe(twin("EV-3", false, 0), "HEALTHY:1:V", 0);
+
+        assertEquals(3, alerts.size());
+        assertEquals("EV-2", alerts.get(0).getVehicleId());
+        assertAlert(0, AlertType.CONNECTIVITY, AlertSeverity.INFO, "OFFLINE", "ONLINE");
+        assertAlert(1, AlertType.HEALTH, AlertSeverity.CRITICAL, null, "CRITICAL");
+        assertEquals("EV-3", alerts.get(2).getVehicleId());
+        assertAlert(2, AlertType.CONNECTIVITY, AlertSeverity.CRITICAL, "ONLINE", "OFFLINE");
+
+        assertEquals(3, detector.size());
+        detector.releaseIdle(1);
+        assertEquals(0, detector.size());
+    }
+
+    @Test
+    void nodesTakingTurnsAlertATransitionOnce() throws IOException {
+        AlertDetector other = detector();
+
+        observe(twin(true, 100), 0);
+        observe(other, twin(true, 40), members.get("EV-1"), 1_000);
+        // This node last wrote HEALTHY, but Redis held CRITICAL: the other node already alerted
+        observe(twin(true, 45), 2_000);
+        observe(other, twin(true, 42), members.get("EV-1"), 3_000);
+
+        assertEquals(1, alerts.size());
+        assertAlert(0, AlertType.HEALTH, AlertSeverity.CRITICAL, "HEALTHY", "CRITICAL");
+
+        observe(twin(false, 0), 4_000);
+        observe(other, twin(false, 0), members.get("EV-1"), 5_000);
+        assertEquals(2, alerts.size());
+        assertAlert(1, AlertType.CONNECTIVITY, AlertSeverity.CRITICAL, "ONLINE", "OFFLINE");
+    }
+
+    @Test
+    void recentAlertsKeepTheNewestUpToCapacity() {
+        RecentAlerts recent = new RecentAlerts(3);
+        for (int i = 0; i < 5; i++) {
+            VehicleAlert alert = new VehicleAlert();
+            alert.setVehicleId("EV-" + i % 2);
+            alert.setType(AlertType.HEALTH);
+            alert.setSeverity(i == 3 ? AlertSeverity.CRITICAL : AlertSeverity.WARNING);
+            alert.setDetectedAt(Instant.ofEpochSecond(i));
+            recent.add(alert);
+        }
+
+        assertEquals(List.of(4L, 3L, 2L), seconds(recent.query(null, null, null, null, 10)));
+        assertEquals(List.of(4L, 2L), seconds(recent.query("EV-0", AlertType.HEALTH, null, null, 10)));
+        assertEquals(List.of(3L), seconds(recent.query(null, null, AlertSeverity.CRITICAL, null, 10)));
+        assertEquals(List.of(4L), seconds(recent.query(null, null, null, Instant.ofEpochSecond(4), 10)));
+        assertEquals(List.of(4L), seconds(recent.query(null, null, null, null, 1)));
+        assertEquals(List.of(), recent.query(null, AlertType.CONNECTIVITY, null, null, 10));
+    }
+
+    private static AlertDetector detector() throws IOException {
+        return new AlertDetector(new HealthScoreEngine(new ClassPathResource("health-rules.json"),
+                new TrendTracker(new SimpleMeterRegistry(), false, 8, 0, 0, 0, 0.25)), COOLDOWN, 5);
+    }
+
+    private void observe(DigitalTwinState twin, long now) {
+        observe(twin, members.get(twin.getVehicleId()), now);
+    }
+
+    private void observe(DigitalTwinState twin, String previousMember, long now) {
+        observe(detector, twin, previousMember, now);
+    }
+
+    // Writes the twin over the member state Redis held, as the upsert script does
+    private void observe(AlertDetector node, DigitalTwinState twin, String previousMember, long now) {
+        members.put(twin.getVehicleId(), twin.getHealthState() + ":" + (twin.isOnline() ? "1" : "0") + ":V");
+        node.observe(twin, previousMember, now, alerts::add);
+    }
+
+    private void assertAlert(int index, AlertType type, AlertSeverity severity, String from, String to) {
+        VehicleAlert alert = alerts.get(index);
+        assertEquals(type, alert.getType());
+        assertEquals(severity, alert.getSeverity());
+        assertEquals(from, alert.getFrom());
+        assertEquals(to, alert.getTo());
+    }
+
+    private static List<Long> seconds(List<VehicleAlert> alerts) {
+        return alerts.stream().map(alert -> alert.getDetectedAt().getEpochSecond()).toList();
+    }
+
+    private static DigitalTwinState twin(boolean online, int score) {
+        return twin("EV-1", online, score);
+    }
+
+    private static DigitalTwinState twin(String vehicleId, boolean online, int score) {
+        DigitalTwinState twin = new DigitalTwinState();
+        twin.setVehicleId(vehicleId);
+        twin.setVendor("V");
+        twin.setOnline(online);
+        twin.setHealthScore(score);
+        twin.setHealthState((score >= 80 ? HealthState.HEALTHY : score >= 50 ? HealthState.DEGRADED : HealthState.CRITICAL).name());
+        twin.setTelemetry(new TelemetrySnapshot());
+        return twin;
+    }
+}
@@ -0,0 +1,73 @@
+package com.axion.ingestion.api;
+
+import com.axion.ingestion.dto.RescoreJobResponse;
+import com.axion.ingestion.exception.GlobalExceptionHandler;
+import com.axion.ingestion.service.FleetRescoreJob;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AdminControllerTest {
+
+    private final StubRescoreJob job = new StubRescoreJob();
+    private final MockMvc mvc = MockMvcBuilders.standaloneSetup(new AdminController(job))
+            .setControllerAdvice(new GlobalExceptionHandler())
+            .build();
+
+    @Test
+    void startsAJobAndRefusesAnotherWhileItRuns() throws Exception {
+        mvc.perform(get("/api/v1/admin/rescore"))
+                .andExpect(status().isNotFound());
+
+        mvc.perform(post("/api/v1/admin/rescore"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobId").value(1))
+                .andExpect(jsonPath("$.state").value("RUNNING"));
+        // The running job's progress comes back with the conflict
+        mvc.perform(post("/api/v1/admin/rescore"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.jobId").value(1))
+                .andExpect(jsonPath("$.state").value("RUNNING"));
+
+        job.current.setState("COMPLETED");
+        mvc.perform(get("/api/v1/admin/rescore"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("COMPLETED"));
+        mvc.perform(post("/api/v1/admin/rescore"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobId").value(2));
+    }
+
+    // Runs nothing: a job stays RUNNING until the test finishes it
+    private static final class StubRescoreJob extends FleetRescoreJob {
+
+        RescoreJobResponse current;
+
+        StubRescoreJob() {
+            super(null, null, new SimpleMeterRegistry(), 1, 1, 0);
+        }
+
+        @Override
+        public synchronized RescoreJobResponse start() {
+            if (current != null && current.getState().equals("RUNNING")) {
+                return null;
+            }
+            RescoreJobResponse started = new RescoreJobResponse();
+            started.setJobId(current == null ? 1 : current.getJobId() + 1);
+            started.setState("RUNNING");
+            current = started;
+            return started;
+        }
+
+        @Override
+        public RescoreJobResponse getProgress() {
+            return current;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.axion.ingestion.api;
+
+import com.axion.ingestion.liveness.LivenessTracker;
+import com.axion.ingestion.model.DigitalTwinState;
+import com.axion.ingestion.service.DigitalTwinService;
+import com.axion.ingestion.service.TwinLayout;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DigitalTwinReaderTest {
+
+    private final StubTwinService twins = new StubTwinService();
+    private final CapturingListenerContainer listeners = new CapturingListenerContainer();
+    private final DigitalTwinReader reader = new DigitalTwinReader(twins, listeners, new SimpleMeterRegistry(),
+            true, 1000, 60_000);
+
+    @Test
+    void servesRepeatedReadsFromTheCache() {
+        twins.put("EV-1", 80);
+        twins.put("EV-2", 70);
+
+        reader.findAll(List.of("EV-1", "EV-2"));
+        List<DigitalTwinState> again = reader.findAll(List.of("EV-2", "EV-1", "EV-404"));
+        reader.find("EV-1");
+
+        assertThat(again).extracting(DigitalTwinState::getVehicleId).containsExactly("EV-2", "EV-1");
+        assertThat(twins.reads).isEqualTo(List.of(List.of("EV-1", "EV-2"), List.of("EV-404")));
+    }
+
+    @Test
+    void reloadsATwinOnceItsChangeIsAnnounced() {
+        twins.put("EV-1", 80);
+        reader.findAll(List.of("EV-1"));
+
+        twins.put("EV-1", 60);
+        listeners.announce("EV-1");
+
+        assertThat(reader.find("EV-1").getHealthScore()).isEqualTo(60);
+        assertThat(reader.findAll(List.of("EV-1"))).extracting(DigitalTwinState::getHealthScore).containsExactly(60);
+    }
+
+    @Test
+    void doesNotCacheATwinThatChangedWhileBeingLoaded() {
+        twins.put("EV-1", 80);
+        twins.put("EV-2", 70);
+        // The change lands, and is announced, after the bulk read saw the old twin
+        twins.afterRead = () -> {
+            twins.afterRead = null;
+            twins.put("EV-1", 60);
+            listeners.announce("EV-1");
+        };
+
+        List<DigitalTwinState> loaded = reader.findAll(List.of("EV-1", "EV-2"));
+
+        assertThat(loaded).extracting(DigitalTwinState::getHealthScore).containsExactly(80, 70);
+        assertThat(reader.findAll(List.of("EV-1", "EV-2")))
+                .extracting(DigitalTwinState::getHealthScore).containsExactly(60, 70);
+        assertThat(twins.reads).hasSize(2).last().isEqualTo(List.of("EV-1"));
+    }
+
+    @Test
+    void readsThroughWithTheCacheDisabled() {
+        CapturingListenerContainer unused = new CapturingListenerContainer();
+        DigitalTwinReader uncached = new DigitalTwinReader(twins, unused, new SimpleMeterRegistry(),
+                false, 1000, 60_000);
+        twins.put("EV-1", 80);
+
+        uncached.findAll(List.of("EV-1"));
+        uncached.findAll(List.of("EV-1"));
+
+        assertThat(twins.reads).hasSize(2);
+        assertThat(unused.listener).isNull();
+    }
+
+    // Keeps twins in memory and records which ids each bulk read asked for
+    private static final class StubTwinService extends DigitalTwinService {
+
+        final Map<String, DigitalTwinState> stored = new ConcurrentHashMap<>();
+        final List<List<String>> reads = new ArrayList<>();
+        Runnable afterRead;
+
+        StubTwinService() {
+            super(null, null, new LivenessTracker(new SimpleMeterRegistry(), 120_000, 1000, 1, 0), null, null,
+                    5000, TwinLayout.BLOB, 86_400_000);
+        }
+
+        void put(String vehicleId, int healthScore) {
+            DigitalTwinState twin = new DigitalTwinState();
+            twin.setVehicleId(vehicleId);
+            twin.setHealthScore(healthScore);
+            stored.put(vehicleId, twin);
+        }
+
+        @Override
+        public DigitalTwinState find(String vehicleId) {
+            reads.add(List.of(vehicleId));
+            return stored.get(vehicleId);
+        }
+
+        @Override
+        public List<DigitalTwinState> findAll(Collection<? extends String> vehicleIds) {
+            List<String> ids = new ArrayList<>(vehicleIds);
+            ids.sort(null);
+            reads.add(ids);
+            List<DigitalTwinState> found = new ArrayList<>();
+            for (String id : ids) {
+                if (stored.containsKey(id)) {
+                    found.add(stored.get(id));
+                }
+            }
+            if (afterRead != null) {
+                afterRead.run();
+            }
+            return found;
+        }
+    }
+
+    private static final class CapturingListenerContainer extends RedisMessageListenerContainer {
+
+        MessageListener listener;
+
+        @Override
+        public void addMessageListener(MessageListener listener, Topic topic) {
+            this.listener = listener;
+        }
+
+        void announce(String vehicleId) {
+            listener.onMessage(new DefaultMessage(DigitalTwinService.CHANGES_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                    vehicleId.getBytes(StandardCharsets.UTF_8)), null);
+        }
+    }
+}
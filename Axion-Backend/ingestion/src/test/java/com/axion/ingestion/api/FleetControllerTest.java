@@ -0,0 +1,278 @@
+package com.axion.ingestion.api;
+
+import com.axion.ingestion.dto.FleetSummaryResponse;
+import com.axion.ingestion.dto.FleetVehicleResponse;
+import com.axion.ingestion.exception.GlobalExceptionHandler;
+import com.axion.ingestion.liveness.LivenessTracker;
+import com.axion.ingestion.model.DigitalTwinState;
+import com.axion.ingestion.service.DigitalTwinService;
+import com.axion.ingestion.service.FleetPage;
+import com.axion.ingestion.service.FleetQuery;
+import com.axion.ingestion.service.TestRedis;
+import com.axion.ingestion.service.TwinLayout;
+import com.axion.ingestion.stream.TwinChangeStream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class FleetControllerTest {
+
+    private final StubTwinService twins = new StubTwinService();
+    private final CapturingListenerContainer listeners = new CapturingListenerContainer();
+    private final TwinChangeStream changeStream =
+            new TwinChangeStream(twins, listeners, new SimpleMeterRegistry(), 10, 64);
+    private final MockMvc mvc = MockMvcBuilders.standaloneSetup(new FleetController(twins,
+                    new DigitalTwinReader(twins, listeners, new SimpleMeterRegistry(), false, 1000, 60_000),
+                    changeStream, null, 1000))
+            .setControllerAdvice(new GlobalExceptionHandler())
+            .build();
+
+    @Test
+    void streamsChangesMatchingTheRequestedStates() throws Exception {
+        twins.put("EV-1", "HEALTHY");
+        twins.put("EV-2", "CRITICAL");
+
+        MvcResult result = mvc.perform(get("/api/v1/fleet/stream")
+                        .param("healthState", "HEALTHY")
+                        .param("coalesceMs", "0")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        listeners.announce("EV-1");
+        listeners.announce("EV-2");
+        changeStream.tick();
+
+        String body = awaitContent(result, "\n\n");
+        assertThat(result.getResponse().getContentType()).startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+        assertThat(body).startsWith("event:twins\ndata:")
+                .contains("\"vehicleId\":\"EV-1\"")
+                .doesNotContain("EV-2")
+                .contains("\"totalVehicles\":2");
+    }
+
+    @Test
+    void listsOnePageWithTheCursorOfTheNext() throws Exception {
+        twins.put("EV-1", "HEALTHY");
+        twins.put("EV-2", "CRITICAL");
+
+        mvc.perform(get("/api/v1/fleet/vehicles").param("healthState", "critical").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7\""))
+                .andExpect(jsonPath("$.vehicles[0].vehicleId").value("EV-2"))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+        assertThat(twins.query.getHealthStates()).containsExactly("CRITICAL");
+        assertThat(twins.query.getLimit()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsAPageLargerThanTheMaximum() throws Exception {
+        mvc.perform(get("/api/v1/fleet/vehicles").param("limit", "1001"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error_code").value("INVALID_QUERY"));
+    }
+
+    @Test
+    void answersAnUnchangedSummaryWithNotModified() throws Exception {
+        String etag = mvc.perform(get("/api/v1/fleet/summary"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mvc.perform(get("/api/v1/fleet/summary").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        twins.summaryVersion++;
+        mvc.perform(get("/api/v1/fleet/summary").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"summary-2\""));
+        // Pruning is left to its schedule, polls only read the version
+        assertThat(twins.calls).containsExactly("summaryVersion", "summary", "summaryVersion",
+                "summaryVersion", "summary");
+    }
+
+    @Test
+    void answersAnUnchangedListingWithNotModified() throws Exception {
+        mvc.perform(get("/api/v1/fleet/vehicles").header("If-None-Match", "\"7\""))
+                .andExpect(status().isNotModified());
+
+        assertThat(twins.calls).containsExactly("fleetVersion");
+    }
+
+    @Test
+    void answersAnUnchangedTwinWithNotModified() throws Exception {
+        twins.put("EV-1", "HEALTHY");
+
+        mvc.perform(get("/api/v1/fleet/EV-1").header("If-None-Match", "\"EV-1-3\""))
+                .andExpect(status().isNotModified());
+        mvc.perform(get("/api/v1/fleet/EV-1").header("If-None-Match", "\"EV-1-2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"EV-1-3\""))
+                .andExpect(jsonPath("$.vehicleId").value("EV-1"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void answersARepeatedReadingWithItsNewLastSeen(TwinLayout layout) throws Exception {
+        try (TestRedis redis = TestRedis.connect()) {
+            redis.flush();
+            DigitalTwinService service = redis.twinService(layout);
+            MockMvc redisMvc = MockMvcBuilders.standaloneSetup(new FleetController(service,
+                            new DigitalTwinReader(service, null, new SimpleMeterRegistry(), false, 1000, 60_000),
+                            null, null, 1000))
+                    .build();
+            Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+            service.update(TestRedis.event("EV-1", now.minusSeconds(20), now.minusSeconds(10)));
+            MockHttpServletResponse twin = redisMvc.perform(get("/api/v1/fleet/EV-1")).andReturn().getResponse();
+            String listing = redisMvc.perform(get("/api/v1/fleet/vehicles")).andReturn().getResponse().getHeader("ETag");
+
+            // The same reading again, received later: only lastSeen moves
+            service.update(TestRedis.event("EV-1", now.minusSeconds(20), now));
+
+            MockHttpServletResponse again = redisMvc.perform(get("/api/v1/fleet/EV-1")
+                            .header("If-None-Match", twin.getHeader("ETag")))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse();
+            assertThat(again.getContentAsString()).isNotEqualTo(twin.getContentAsString());
+            redisMvc.perform(get("/api/v1/fleet/vehicles").header("If-None-Match", listing))
+                    .andExpect(status().isOk());
+            redis.flush();
+        }
+    }
+
+    // The stream never completes, so the response is read while it is still being written
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        String content = result.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString();
+        }
+        return content;
+    }
+
+    private static final class StubTwinService extends DigitalTwinService {
+
+        final Map<String, DigitalTwinState> stored = new ConcurrentHashMap<>();
+        final List<String> calls = new ArrayList<>();
+        FleetQuery query;
+        long summaryVersion = 1;
+
+        StubTwinService() {
+            super(null, null, new LivenessTracker(new SimpleMeterRegistry(), 120_000, 1000, 1, 0), null, null,
+                    5000, TwinLayout.BLOB, 86_400_000);
+        }
+
+        void put(String vehicleId, String healthState) {
+            DigitalTwinState twin = new DigitalTwinState();
+            twin.setVehicleId(vehicleId);
+            twin.setHealthState(healthState);
+            stored.put(vehicleId, twin);
+        }
+
+        @Override
+        public List<DigitalTwinState> findAll(Collection<? extends String> vehicleIds) {
+            List<DigitalTwinState> found = new ArrayList<>();
+            for (String id : vehicleIds) {
+                if (stored.containsKey(id)) {
+                    found.add(stored.get(id));
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public FleetPage findPage(FleetQuery query) {
+            this.query = query;
+            List<String> ids = new ArrayList<>();
+            for (DigitalTwinState twin : stored.values()) {
+                if (query.getHealthStates().contains(twin.getHealthState())) {
+                    ids.add(twin.getVehicleId());
+                }
+            }
+            return new FleetPage(ids, "next");
+        }
+
+        @Override
+        public List<FleetVehicleResponse> findVehicles(Collection<? extends String> vehicleIds) {
+            List<FleetVehicleResponse> vehicles = new ArrayList<>();
+            for (DigitalTwinState twin : findAll(vehicleIds)) {
+                vehicles.add(FleetVehicleResponse.from(twin));
+            }
+            return vehicles;
+        }
+
+        @Override
+        public DigitalTwinState find(String vehicleId) {
+            return stored.get(vehicleId);
+        }
+
+        @Override
+        public Long getVersion(String vehicleId) {
+            return stored.containsKey(vehicleId) ? 3L : null;
+        }
+
+        @Override
+        public void pruneIndex() {
+            calls.add("prune");
+        }
+
+        @Override
+        public long getFleetVersion() {
+            calls.add("fleetVersion");
+            return 7;
+        }
+
+        @Override
+        public long getSummaryVersion() {
+            calls.add("summaryVersion");
+            return summaryVersion;
+        }
+
+        @Override
+        public FleetSummaryResponse getFleetSummary() {
+            calls.add("summary");
+            FleetSummaryResponse summary = new FleetSummaryResponse();
+            summary.setTotalVehicles(stored.size());
+            return summary;
+        }
+    }
+
+    private static final class CapturingListenerContainer extends RedisMessageListenerContainer {
+
+        MessageListener listener;
+
+        @Override
+        public void addMessageListener(MessageListener listener, Topic topic) {
+            this.listener = listener;
+        }
+
+        void announce(String vehicleId) {
+            listener.onMessage(new DefaultMessage(DigitalTwinService.CHANGES_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                    vehicleId.getBytes(StandardCharsets.UTF_8)), null);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.axion.ingestion.api;
+
+import com.axion.ingestion.dto.HistoryPoint;
+import com.axion.ingestion.exception.GlobalExceptionHandler;
+import com.axion.ingestion.history.TelemetryHistoryStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class VehicleControllerTest {
+
+    private final RecordingHistoryStore history = new RecordingHistoryStore();
+    private final MockMvc mvc = MockMvcBuilders.standaloneSetup(new VehicleController(null, null, history, null, 2000))
+            .setControllerAdvice(new GlobalExceptionHandler())
+            .build();
+
+    @Test
+    void clampsARangeTooLongForEpochMillis() throws Exception {
+        mvc.perform(get("/api/v1/vehicles/EV-1/history")
+                        .param("from", "-1000000000-01-01T00:00:00Z")
+                        .param("to", "+1000000000-01-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.vehicleId").value("EV-1"));
+
+        assertThat(history.from).isEqualTo(Instant.ofEpochMilli(Long.MIN_VALUE / 4));
+        assertThat(history.to).isEqualTo(Instant.ofEpochMilli(Long.MAX_VALUE / 4));
+        assertThat(history.stepMillis).isEqualTo((Long.MAX_VALUE / 4 * 2 + 499) / 500);
+    }
+
+    @Test
+    void rejectsAStepTooLongForMillis() throws Exception {
+        mvc.perform(get("/api/v1/vehicles/EV-1/history").param("step", "PT2562047788015216H"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error_code").value("INVALID_QUERY"));
+    }
+
+    private static final class RecordingHistoryStore extends TelemetryHistoryStore {
+
+        Instant from;
+        Instant to;
+        long stepMillis;
+
+        RecordingHistoryStore() {
+            super(new SimpleMeterRegistry(), "unused", 0, 0, 0);
+        }
+
+        @Override
+        public List<HistoryPoint> query(String vehicleId, Instant from, Instant to, long stepMillis) {
+            this.from = from;
+            this.to = to;
+            this.stepMillis = stepMillis;
+            return List.of();
+        }
+    }
+}
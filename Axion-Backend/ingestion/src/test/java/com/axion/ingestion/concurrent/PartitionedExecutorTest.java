@@ -0,0 +1,99 @@
+package com.axion.ingestion.concurrent;
+
+import com.axion.ingestion.concurrent.PartitionedExecutor.OverflowPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionedExecutorTest {
+
+    @Test
+    void keepsSubmissionOrderPerKey() throws InterruptedException {
+        PartitionedExecutor executor = new PartitionedExecutor("test", 4, 1000, OverflowPolicy.BLOCK);
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(20 * 500);
+
+        for (int i = 0; i < 500; i++) {
+            for (int v = 0; v < 20; v++) {
+                String vehicle = "EV-" + v;
+                int sequence = i;
+                executor.execute(vehicle, () -> {
+                    seen.computeIfAbsent(vehicle, k -> Collections.synchronizedList(new ArrayList<>())).add(sequence);
+                    done.countDown();
+                });
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Integer> sequences : seen.values()) {
+            for (int i = 0; i < sequences.size(); i++) {
+                assertEquals(i, sequences.get(i));
+            }
+        }
+        executor.shutdown(1000);
+    }
+
+    @Test
+    void dropsWhenQueueIsFull() throws InterruptedException {
+        PartitionedExecutor executor = new PartitionedExecutor("test", 1, 1, OverflowPolicy.DROP);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertTrue(executor.execute("EV-1", () -> {
+            running.countDown();
+            awaitQuietly(release);
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        assertTrue(executor.execute("EV-1", () -> { }));
+        assertFalse(executor.execute("EV-1", () -> { }));
+        assertEquals(1, executor.getDroppedTasks());
+
+        release.countDown();
+        executor.shutdown(1000);
+    }
+
+    @Test
+    void rejectsTasksOnceShutDown() {
+        for (OverflowPolicy policy : OverflowPolicy.values()) {
+            PartitionedExecutor executor = new PartitionedExecutor("test", 2, 10, policy);
+            executor.shutdown(1000);
+
+            assertFalse(executor.execute("EV-1", () -> { }));
+            assertEquals(1, executor.getDroppedTasks());
+            assertEquals(0, executor.getQueuedTasks());
+        }
+    }
+
+    @Test
+    void keepsRunningAfterATaskThrows() throws InterruptedException {
+        PartitionedExecutor executor = new PartitionedExecutor("test", 1, 10, OverflowPolicy.BLOCK);
+        CountDownLatch next = new CountDownLatch(1);
+
+        assertTrue(executor.execute("EV-1", () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertTrue(executor.execute("EV-1", next::countDown));
+
+        assertTrue(next.await(5, TimeUnit.SECONDS));
+        assertEquals(1, executor.getFailedTasks());
+        executor.shutdown(1000);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.axion.ingestion.connectivity;
+
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.model.ConnectionMetadata;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SequenceTrackerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SequenceTracker tracker = new SequenceTracker(registry, true, 20, 3_600_000);
+
+    @Test
+    void countsGapsDuplicatesAndLateArrivals() {
+        for (long sequence = 1; sequence <= 19; sequence++) {
+            tracker.record(event("EV-1", sequence));
+        }
+        assertNull(tracker.packetLossPct("EV-1"));
+        tracker.record(event("EV-1", 20));
+        assertEquals(0.0, tracker.packetLossPct("EV-1"));
+
+        // 25 and 26 go missing
+        for (long sequence = 21; sequence <= 40; sequence++) {
+            if (sequence != 25 && sequence != 26) {
+                tracker.record(event("EV-1", sequence));
+            }
+        }
+        assertEquals(5.0, tracker.packetLossPct("EV-1"));
+        assertEquals(2.0, registry.counter("axion.connectivity.gaps").count());
+
+        // 25 turns up late, then again
+        tracker.record(event("EV-1", 25));
+        tracker.record(event("EV-1", 25));
+        assertEquals(2.5, tracker.packetLossPct("EV-1"));
+        assertEquals(1.0, registry.counter("axion.connectivity.reordered").count());
+        assertEquals(1.0, registry.counter("axion.connectivity.duplicates").count());
+
+        // Only the last 64 numbers count
+        for (long sequence = 41; sequence <= 100; sequence++) {
+            tracker.record(event("EV-1", sequence));
+        }
+        assertEquals(0.0, tracker.packetLossPct("EV-1"));
+
+        // Far behind the window: the vehicle restarted its sequence
+        tracker.record(event("EV-1", 1));
+        assertEquals(1.0, registry.counter("axion.connectivity.restarts").count());
+        assertNull(tracker.packetLossPct("EV-1"));
+        assertNull(tracker.packetLossPct("EV-2"));
+    }
+
+    @Test
+    void concurrentReadersOfOneVehicleLoseNothing() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                int offset = thread;
+                futures.add(executor.submit(() -> {
+                    for (long sequence = 1 + offset; sequence <= 64; sequence += 4) {
+                        tracker.record(event("EV-1", sequence));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Whatever the interleaving, all 64 numbers fit the window
+        assertEquals(0.0, tracker.packetLossPct("EV-1"));
+        assertEquals(0.0, registry.counter("axion.connectivity.duplicates").count());
+    }
+
+    private static CanonicalTelemetryEnvelope event(String vehicleId, long sequence) {
+        ConnectionMetadata connection = new ConnectionMetadata();
+        connection.setSequenceNumber(sequence);
+        CanonicalTelemetryEnvelope event = new CanonicalTelemetryEnvelope();
+        event.setVehicleId(vehicleId);
+        event.setConnection(connection);
+        return event;
+    }
+}
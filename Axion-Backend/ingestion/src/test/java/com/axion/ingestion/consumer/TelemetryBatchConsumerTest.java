@@ -0,0 +1,139 @@
+package com.axion.ingestion.consumer;
+
+import com.axion.ingestion.history.TelemetryHistoryStore;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.model.DigitalTwinState;
+import com.axion.ingestion.rollup.RollupAggregator;
+import com.axion.ingestion.service.DigitalTwinService;
+import com.axion.ingestion.service.TestRedis;
+import com.axion.ingestion.service.TwinLayout;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TelemetryBatchConsumerTest {
+
+    private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+    private static TestRedis redis;
+
+    private final RecordingHistoryStore history = new RecordingHistoryStore();
+    private final RecordingRollupAggregator rollups = new RecordingRollupAggregator();
+
+    @BeforeAll
+    static void connect() {
+        redis = TestRedis.connect();
+    }
+
+    @AfterAll
+    static void disconnect() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void flushRedis() {
+        redis.flush();
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void appliesTheNewestReadingPerVehicle(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        List<CanonicalTelemetryEnvelope> events = List.of(
+                reading("EV-1", 2, 70), reading("EV-2", 1, 50), reading("EV-1", 3, 60), reading("EV-1", 1, 90));
+
+        new TelemetryBatchConsumer(twins, history, rollups).consume(events);
+
+        DigitalTwinState twin = twins.find("EV-1");
+        assertThat(twin.getLastEventTs()).isEqualTo(START.plusSeconds(3));
+        assertThat(twin.getTelemetry().getBatterySocPct()).isEqualTo(60.0);
+        assertThat(twins.find("EV-2").getTelemetry().getBatterySocPct()).isEqualTo(50.0);
+        // History and roll-ups see every reading, not only the newest
+        assertThat(history.appended).containsExactlyElementsOf(events);
+        assertThat(rollups.added).containsExactlyElementsOf(events);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void laterRecordsWinTies(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+
+        new TelemetryBatchConsumer(twins, history, rollups).consume(
+                List.of(reading("EV-1", 5, 40), reading("EV-1", 5, 45)));
+
+        assertThat(twins.find("EV-1").getTelemetry().getBatterySocPct()).isEqualTo(45.0);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void keepsTwinsThatHoldANewerReading(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        TelemetryBatchConsumer consumer = new TelemetryBatchConsumer(twins, history, rollups);
+        consumer.consume(List.of(reading("EV-1", 10, 70)));
+
+        consumer.consume(Arrays.asList(reading("EV-1", 5, 20), null, reading("EV-3", 5, 20)));
+
+        assertThat(twins.find("EV-1").getTelemetry().getBatterySocPct()).isEqualTo(70.0);
+        assertThat(twins.find("EV-3").getTelemetry().getBatterySocPct()).isEqualTo(20.0);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void writesEveryVehicleOfALargePoll(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        List<CanonicalTelemetryEnvelope> events = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            events.add(reading(String.format("EV-%04d", i % 1000), i / 1000, 50 + i / 1000));
+        }
+
+        assertThat(twins.updateBatch(events)).isEqualTo(1000);
+        assertThat(twins.findAllIds()).hasSize(1000);
+        assertThat(twins.findAll(List.of("EV-0000", "EV-0999")))
+                .extracting(twin -> twin.getTelemetry().getBatterySocPct()).containsOnly(51.0);
+    }
+
+    private static CanonicalTelemetryEnvelope reading(String vehicleId, int second, double batterySocPct) {
+        CanonicalTelemetryEnvelope event = TestRedis.event(vehicleId, START.plusSeconds(second), Instant.now());
+        event.getTelemetry().setBatterySocPct(batterySocPct);
+        return event;
+    }
+
+    private static final class RecordingHistoryStore extends TelemetryHistoryStore {
+
+        final List<CanonicalTelemetryEnvelope> appended = new ArrayList<>();
+
+        RecordingHistoryStore() {
+            super(new SimpleMeterRegistry(), "unused", 0, 0, 0);
+        }
+
+        @Override
+        public void append(Collection<CanonicalTelemetryEnvelope> events) {
+            appended.addAll(events);
+        }
+    }
+
+    private static final class RecordingRollupAggregator extends RollupAggregator {
+
+        final List<CanonicalTelemetryEnvelope> added = new ArrayList<>();
+
+        RecordingRollupAggregator() {
+            super(new SimpleMeterRegistry(), null, 0, 0);
+        }
+
+        @Override
+        public void add(Collection<CanonicalTelemetryEnvelope> events) {
+            added.addAll(events);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.axion.ingestion.consumer;
+
+import com.axion.ingestion.history.TelemetryHistoryStore;
+import com.axion.ingestion.liveness.LivenessTracker;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.rollup.RollupAggregator;
+import com.axion.ingestion.service.DigitalTwinService;
+import com.axion.ingestion.service.TestRedis;
+import com.axion.ingestion.service.TwinLayout;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TelemetryParallelConsumerTest {
+
+    private final RecordingTwinService twins = new RecordingTwinService();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TelemetryParallelConsumer consumer = new TelemetryParallelConsumer(twins, new NoHistory(),
+            new NoRollups(), meterRegistry, 2, 10, 3, 1);
+
+    @AfterEach
+    void stopWorkers() {
+        consumer.shutdown();
+    }
+
+    @Test
+    void acknowledgesRecordsOnceApplied() throws InterruptedException {
+        CountDownLatch acked = new CountDownLatch(3);
+
+        for (int i = 0; i < 3; i++) {
+            consumer.consume(record(i, "EV-" + i), acked::countDown);
+        }
+
+        assertThat(acked.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(twins.updated).containsExactlyInAnyOrder("EV-0", "EV-1", "EV-2");
+    }
+
+    @Test
+    void retriesAFailedUpdateBeforeAcknowledging() throws InterruptedException {
+        twins.failing = "EV-1";
+        twins.failures = 2;
+        CountDownLatch acked = new CountDownLatch(1);
+
+        consumer.consume(record(0, "EV-1"), acked::countDown);
+
+        assertThat(acked.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(twins.updated).containsExactly("EV-1");
+        assertThat(meterRegistry.counter("axion.kafka.consumer.retried").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("axion.kafka.consumer.failed").count()).isZero();
+    }
+
+    @Test
+    void leavesARecordStillFailingUnacknowledged() throws InterruptedException {
+        twins.failing = "EV-1";
+        // Every attempt at the first record, none at the second
+        twins.failures = 3;
+        List<Long> acked = new CopyOnWriteArrayList<>();
+        CountDownLatch next = new CountDownLatch(1);
+
+        consumer.consume(record(0, "EV-1"), () -> acked.add(0L));
+        // Queued behind it on the same worker, so applied once it has given up
+        consumer.consume(record(1, "EV-1"), () -> {
+            acked.add(1L);
+            next.countDown();
+        });
+
+        assertThat(next.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(acked).containsExactly(1L);
+        assertThat(meterRegistry.counter("axion.kafka.consumer.retried").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("axion.kafka.consumer.failed").count()).isEqualTo(1);
+    }
+
+    @Test
+    void appliesARejectedRecordInline() {
+        consumer.shutdown();
+        List<String> acked = new CopyOnWriteArrayList<>();
+
+        consumer.consume(record(7, "EV-1"), () -> acked.add(Thread.currentThread().getName()));
+
+        // Applied and acknowledged before consume returns, on the listener's thread
+        assertThat(twins.updated).containsExactly("EV-1");
+        assertThat(acked).containsExactly(Thread.currentThread().getName());
+        assertThat(meterRegistry.counter("axion.kafka.consumer.inline").count()).isEqualTo(1);
+    }
+
+    private static ConsumerRecord<String, CanonicalTelemetryEnvelope> record(long offset, String vehicleId) {
+        return new ConsumerRecord<>("telemetry.normal", 0, offset, vehicleId,
+                TestRedis.event(vehicleId, Instant.now(), Instant.now()));
+    }
+
+    private static final class RecordingTwinService extends DigitalTwinService {
+
+        final List<String> updated = new CopyOnWriteArrayList<>();
+        volatile String failing;
+        volatile int failures;
+
+        RecordingTwinService() {
+            super(null, null, new LivenessTracker(new SimpleMeterRegistry(), 120_000, 1000, 1, 0), null, null,
+                    5000, TwinLayout.BLOB, 86_400_000);
+        }
+
+        @Override
+        public void update(CanonicalTelemetryEnvelope event) {
+            if (event.getVehicleId().equals(failing) && failures-- > 0) {
+                throw new IllegalStateException("Redis is down");
+            }
+            updated.add(event.getVehicleId());
+        }
+    }
+
+    private static final class NoHistory extends TelemetryHistoryStore {
+
+        NoHistory() {
+            super(new SimpleMeterRegistry(), "unused", 0, 0, 0);
+        }
+
+        @Override
+        public void append(Collection<CanonicalTelemetryEnvelope> events) {
+        }
+    }
+
+    private static final class NoRollups extends RollupAggregator {
+
+        NoRollups() {
+            super(new SimpleMeterRegistry(), null, 0, 0);
+        }
+
+        @Override
+        public void add(Collection<CanonicalTelemetryEnvelope> events) {
+        }
+    }
+}
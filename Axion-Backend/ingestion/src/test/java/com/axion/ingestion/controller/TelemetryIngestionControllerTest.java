@@ -0,0 +1,80 @@
+package com.axion.ingestion.controller;
+
+import com.axion.ingestion.adapter.TelemetryAdapterRegistry;
+import com.axion.ingestion.exception.GlobalExceptionHandler;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.producer.StubKafkaTemplate;
+import com.axion.ingestion.producer.TelemetryKafkaProducer;
+import com.axion.ingestion.service.TelemetryIngestionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TelemetryIngestionControllerTest {
+
+    private final StubKafkaTemplate<CanonicalTelemetryEnvelope> kafka = new StubKafkaTemplate<>();
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TelemetryAdapterRegistry adapters = new TelemetryAdapterRegistry(
+                new ClassPathResource("vendor-mappings.json"), new SimpleMeterRegistry());
+        TelemetryIngestionService service =
+                new TelemetryIngestionService(adapters, new TelemetryKafkaProducer(kafka, 100), 3);
+        mvc = MockMvcBuilders.standaloneSetup(new TelemetryIngestionController(service))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void acceptsAJsonArrayWithPerRecordResults() throws Exception {
+        String body = "[" + reading("EV-1") + ",{\"vehicle_id\":\"EV-2\"}]";
+
+        perform(post("/api/v1/telemetry/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.received").value(2))
+                .andExpect(jsonPath("$.accepted").value(1))
+                .andExpect(jsonPath("$.results[1].status").value("REJECTED"))
+                .andExpect(jsonPath("$.results[1].errorCode").value("VALIDATION_FAILED"));
+    }
+
+    @Test
+    void truncatesAnOversizedNdjsonBatch() throws Exception {
+        String body = String.join("\n", reading("EV-1"), reading("EV-2"), reading("EV-3"), reading("EV-4"));
+
+        perform(post("/api/v1/telemetry/batch").contentType(MediaType.APPLICATION_NDJSON).content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.received").value(4))
+                .andExpect(jsonPath("$.accepted").value(3))
+                .andExpect(jsonPath("$.results[3].errorCode").value("BATCH_LIMIT_EXCEEDED"));
+    }
+
+    @Test
+    void rejectsABodyThatIsNotAnArray() throws Exception {
+        perform(post("/api/v1/telemetry/batch").contentType(MediaType.APPLICATION_JSON).content(reading("EV-1")))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error_code").value("INVALID_PAYLOAD"));
+    }
+
+    private ResultActions perform(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult started = mvc.perform(request).andReturn();
+        return mvc.perform(asyncDispatch(started));
+    }
+
+    private static String reading(String vehicleId) {
+        return "{\"vehicle_id\":\"" + vehicleId + "\",\"timestamp\":\"2026-01-25T18:32:45Z\","
+                + "\"telemetry\":{\"battery_soc_pct\":78.5}}";
+    }
+}
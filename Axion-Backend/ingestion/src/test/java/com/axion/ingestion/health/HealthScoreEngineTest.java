@@ -0,0 +1,173 @@
+package com.axion.ingestion.health;
+
+import com.axion.ingestion.model.DigitalTwinState;
+import com.axion.ingestion.model.TelemetrySnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HealthScoreEngineTest {
+
+    private static final String RULES = """
+            {
+              "rules": [
+                { "metric": "batterySocPct", "comparator": "LE", "warning": 30, "warningPenalty": 30,
+                  "critical": 15, "criticalPenalty": 60, "criticalReason": "SOC at or below {threshold}%",
+                  "vendors": { "acme": { "critical": 10, "criticalPenalty": 40 } } },
+                { "metric": "motorTempC", "comparator": "GT", "warning": 80.5, "warningPenalty": 10,
+                  "warningReason": "Motor above {threshold}°C" }
+              ]
+            }
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void defaultRulesScoreAsBefore() throws Exception {
+        HealthScoreEngine engine = new HealthScoreEngine(new ClassPathResource("health-rules.json"), noTrends());
+
+        HealthScoreResult healthy = engine.evaluate(twin("ANY", true, 80.0, 30.0, null));
+        assertEquals(100, healthy.getScore());
+        assertEquals(HealthState.HEALTHY, healthy.getState());
+        assertEquals(List.of(), healthy.getExplanations());
+
+        HealthScoreResult degraded = engine.evaluate(twin("ANY", true, 25.0, 30.0, null));
+        assertEquals(70, degraded.getScore());
+        assertEquals(HealthState.DEGRADED, degraded.getState());
+        assertEquals(List.of("Battery SOC below optimal range (<30%)"), degraded.getExplanations());
+
+        HealthScoreResult critical = engine.evaluate(twin("ANY", false, 10.0, 60.0, null));
+        assertEquals(0, critical.getScore());
+        assertEquals(HealthState.CRITICAL, critical.getState());
+        assertEquals(List.of("Battery SOC critically low (<15%)", "Battery temperature critically high (>55°C)",
+                "Vehicle offline"), critical.getExplanations());
+
+        long packed = engine.score(twin("ANY", true, null, 50.0, null));
+        assertEquals(70, HealthScore.score(packed));
+        assertEquals(HealthState.DEGRADED, HealthScore.state(packed));
+    }
+
+    @Test
+    void appliesVendorOverridesAndReloadsChangedRules() throws Exception {
+        Path file = directory.resolve("rules.json");
+        Files.writeString(file, RULES);
+        HealthScoreEngine engine = new HealthScoreEngine(new FileSystemResource(file), noTrends());
+
+        // Inclusive comparator, and ACME's critical level is 10
+        assertEquals(30, engine.evaluate(twin("OTHER", true, 15.0, null, 81.0)).getScore());
+        assertEquals(List.of("SOC at or below 15%", "Motor above 80.5°C"),
+                engine.evaluate(twin("OTHER", true, 15.0, null, 81.0)).getExplanations());
+        assertEquals(70, engine.evaluate(twin("ACME", true, 15.0, null, null)).getScore());
+        assertEquals(60, engine.evaluate(twin("ACME", true, 10.0, null, null)).getScore());
+        assertEquals(List.of("SOC at or below 10%"), engine.evaluate(twin("ACME", true, 10.0, null, null)).getExplanations());
+
+        // Results keep rendering with the rules that produced them
+        HealthScoreResult before = engine.evaluate(twin("OTHER", true, 15.0, null, null));
+        Files.writeString(file, RULES.replace("\"warning\": 30", "\"warning\": 50").replace("\"critical\": 15", "\"critical\": 5"));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+        engine.reloadIfChanged();
+        assertEquals(70, engine.evaluate(twin("OTHER", true, 15.0, null, null)).getScore());
+        assertEquals(List.of("SOC at or below 15%"), before.getExplanations());
+
+        // A broken file keeps the current rules
+        Files.writeString(file, RULES.replace("\"LE\"", "\"BELOW\""));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+        engine.reloadIfChanged();
+        assertEquals(70, engine.evaluate(twin("OTHER", true, 15.0, null, null)).getScore());
+    }
+
+    @Test
+    void loadsAChangedFileOnceWhenReloadsRace() throws Exception {
+        Path file = directory.resolve("rules.json");
+        Files.writeString(file, RULES);
+        AtomicInteger loads = new AtomicInteger();
+        HealthScoreEngine engine = new HealthScoreEngine(new FileSystemResource(file) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                loads.incrementAndGet();
+                return super.getInputStream();
+            }
+        }, noTrends());
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                engine.reloadIfChanged();
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Once on construction, once for the change
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void scoresWithoutAllocating() throws Exception {
+        Path file = directory.resolve("rules.json");
+        Files.writeString(file, RULES);
+        HealthScoreEngine engine = new HealthScoreEngine(new FileSystemResource(file), noTrends());
+        DigitalTwinState[] twins = {
+                twin("ACME", true, 12.0, 40.0, 90.0), twin("OTHER", false, 50.0, null, null), twin(null, true, null, null, null)
+        };
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long sum = 0;
+        for (int i = 0; i < 100_000; i++) {
+            sum += engine.score(twins[i % twins.length]);
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            sum += engine.score(twins[i % twins.length]);
+        }
+        allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+
+        assertTrue(sum != 0);
+        assertTrue(allocated < 1024, "allocated " + allocated + " bytes");
+    }
+
+    private static TrendTracker noTrends() {
+        return new TrendTracker(new SimpleMeterRegistry(), false, 8, 0, 0, 0, 0.25);
+    }
+
+    private static DigitalTwinState twin(String vendor, boolean online, Double soc, Double batteryTemp, Double motorTemp) {
+        DigitalTwinState twin = new DigitalTwinState();
+        twin.setVehicleId("EV-1");
+        twin.setVendor(vendor);
+        twin.setOnline(online);
+        TelemetrySnapshot telemetry = new TelemetrySnapshot();
+        telemetry.setBatterySocPct(soc);
+        telemetry.setBatteryTempC(batteryTemp);
+        telemetry.setMotorTempC(motorTemp);
+        twin.setTelemetry(telemetry);
+        return twin;
+    }
+}
@@ -0,0 +1,119 @@
+package com.axion.ingestion.health;
+
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.model.DigitalTwinState;
+import com.axion.ingestion.model.TelemetryPayload;
+import com.axion.ingestion.model.TelemetrySnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrendTrackerTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void batteryHeatingIsScored() throws Exception {
+        TrendTracker trends = new TrendTracker(registry, true, 8, 100, 30_000, 3_600_000, 0.25);
+        HealthScoreEngine engine = new HealthScoreEngine(new ClassPathResource("health-rules.json"), trends);
+
+        // 1.75°C every 30 s, wrapping the ring of 8 several times
+        for (int i = 0; i < 20; i++) {
+            engine.observe(event("EV-1", i * 30, 30 + 1.75 * i, 80.0, null, 0.0));
+        }
+        assertEquals(3.5, TrendTracker.batteryTempRate(trends.rates("EV-1")), 1e-6);
+
+        HealthScoreResult result = engine.evaluate(twin("EV-1", 40.0));
+        assertEquals(60, result.getScore());
+        assertEquals(List.of("Battery heating up very fast (>3°C/min)"), result.getExplanations());
+
+        // The penalty is kept on the twin for nodes without the vehicle's trends
+        DigitalTwinState twin = twin("EV-1", 40.0);
+        engine.score(twin);
+        assertEquals(40, twin.getTrendPenalty());
+        HealthScoreEngine elsewhere = new HealthScoreEngine(new ClassPathResource("health-rules.json"),
+                new TrendTracker(registry, true, 8, 100, 30_000, 3_600_000, 0.25));
+        assertEquals(60, HealthScore.score(elsewhere.rescore(twin)));
+    }
+
+    @Test
+    void drainBeyondDrivingNeedsEnoughReadings() {
+        TrendTracker trends = new TrendTracker(registry, true, 8, 100, 30_000, 3_600_000, 0.25);
+
+        // Not enough span yet
+        trends.record(event("EV-1", 0, 30.0, 80.0, 1000.0, null));
+        trends.record(event("EV-1", 10, 30.0, 79.9, 1000.1, null));
+        trends.record(event("EV-1", 20, 30.0, 79.8, 1000.2, null));
+        assertTrue(Double.isNaN(TrendTracker.socDrainRate(trends.rates("EV-1"))));
+
+        // 1% per minute while covering 2 km per minute, of which 0.5% is explained
+        for (int i = 3; i < 12; i++) {
+            trends.record(event("EV-1", i * 10, 30.0, 80 - i / 6.0, 1000 + i / 3.0, null));
+        }
+        assertEquals(0.5, TrendTracker.socDrainRate(trends.rates("EV-1")), 1e-3);
+
+        // Without an odometer the average speed stands in: 120 km/h explains the whole drain
+        for (int i = 0; i < 8; i++) {
+            trends.record(event("EV-2", i * 10, 30.0, 80 - i / 12.0, null, 120.0));
+        }
+        assertEquals(0.0, TrendTracker.socDrainRate(trends.rates("EV-2")), 1e-3);
+
+        // Older readings are ignored
+        trends.record(event("EV-2", 0, 90.0, 0.0, null, 0.0));
+        assertEquals(0.0, TrendTracker.batteryTempRate(trends.rates("EV-2")), 1e-6);
+    }
+
+    @Test
+    void vehiclesAreBoundedAndIdleSlotsReused() throws InterruptedException {
+        TrendTracker trends = new TrendTracker(registry, true, 4, 2, 0, 0, 0.25);
+
+        trends.record(event("EV-1", 0, 30.0, 80.0, null, null));
+        trends.record(event("EV-2", 0, 30.0, 80.0, null, null));
+        trends.record(event("EV-3", 0, 30.0, 80.0, null, null));
+        assertEquals(1.0, registry.counter("axion.health.trend.untracked").count());
+        assertEquals(2.0, registry.get("axion.health.trend.vehicles").gauge().value());
+
+        // idle-ms of 0 releases everything on the next sweep
+        Thread.sleep(5);
+        trends.releaseIdle();
+        assertEquals(0.0, registry.get("axion.health.trend.vehicles").gauge().value());
+        for (int i = 0; i < 4; i++) {
+            trends.record(event("EV-3", i * 60, 30.0 + i, 80.0, null, null));
+        }
+        assertEquals(1.0, TrendTracker.batteryTempRate(trends.rates("EV-3")), 1e-6);
+        assertTrue(Double.isNaN(TrendTracker.batteryTempRate(trends.rates("EV-1"))));
+    }
+
+    private static CanonicalTelemetryEnvelope event(String vehicleId, long seconds, Double batteryTemp, Double soc,
+            Double odometer, Double speed) {
+        TelemetryPayload telemetry = new TelemetryPayload();
+        telemetry.setBatteryTempC(batteryTemp);
+        telemetry.setBatterySocPct(soc);
+        telemetry.setOdometerKm(odometer);
+        telemetry.setSpeedKmph(speed);
+        CanonicalTelemetryEnvelope event = new CanonicalTelemetryEnvelope();
+        event.setVehicleId(vehicleId);
+        event.setTimestamp(START.plusSeconds(seconds));
+        event.setTelemetry(telemetry);
+        return event;
+    }
+
+    private static DigitalTwinState twin(String vehicleId, Double batteryTemp) {
+        DigitalTwinState twin = new DigitalTwinState();
+        twin.setVehicleId(vehicleId);
+        twin.setOnline(true);
+        TelemetrySnapshot telemetry = new TelemetrySnapshot();
+        telemetry.setBatterySocPct(80.0);
+        telemetry.setBatteryTempC(batteryTemp);
+        twin.setTelemetry(telemetry);
+        return twin;
+    }
+}
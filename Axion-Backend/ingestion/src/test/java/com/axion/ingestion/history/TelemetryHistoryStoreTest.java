@@ -0,0 +1,221 @@
+package com.axion.ingestion.history;
+
+import com.axion.ingestion.dto.HistoryPoint;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.model.TelemetryPayload;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TelemetryHistoryStoreTest {
+
+    private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void encoderRoundTripsIrregularTimestampsAndReadings() {
+        Random random = new Random(7);
+        SeriesEncoder encoder = new SeriesEncoder();
+        List<Long> timestamps = new ArrayList<>();
+        List<double[]> readings = new ArrayList<>();
+        long timestamp = START.toEpochMilli();
+        for (int i = 0; i < 2000; i++) {
+            // Mostly steady, with jitter, gaps and repeats
+            timestamp += switch (i % 7) {
+                case 0 -> 0;
+                case 1 -> random.nextInt(100_000_000);
+                default -> 1000 + random.nextInt(300) - 150;
+            };
+            double[] values = new double[SeriesEncoder.METRICS];
+            for (int m = 0; m < values.length; m++) {
+                values[m] = i % 11 == m ? Double.NaN : Math.round(random.nextGaussian() * 1000) / 10.0;
+            }
+            encoder.append(timestamp, values);
+            timestamps.add(timestamp);
+            readings.add(values);
+        }
+
+        ByteBuffer[] values = new ByteBuffer[SeriesEncoder.METRICS];
+        for (int m = 0; m < values.length; m++) {
+            values[m] = ByteBuffer.wrap(encoder.column(1 + m).toByteArray());
+        }
+        List<Long> decodedTimestamps = new ArrayList<>();
+        List<double[]> decodedReadings = new ArrayList<>();
+        SeriesEncoder.decode(encoder.count(), ByteBuffer.wrap(encoder.column(0).toByteArray()), values,
+                (t, r) -> {
+                    decodedTimestamps.add(t);
+                    decodedReadings.add(r.clone());
+                });
+
+        assertEquals(timestamps, decodedTimestamps);
+        for (int i = 0; i < readings.size(); i++) {
+            assertArrayEquals(readings.get(i), decodedReadings.get(i));
+        }
+    }
+
+    @Test
+    void queriesOpenSealedAndRecoveredDataAlike() throws Exception {
+        TelemetryHistoryStore store = store(directory.resolve("open"), Long.MAX_VALUE, Long.MAX_VALUE);
+        store.append(events("EV-1", 0, 120));
+        store.append(events("EV-2", 0, 120));
+        List<HistoryPoint> open = store.query("EV-1", START, START.plusSeconds(120), 60_000);
+
+        // Sealed on the next maintenance, as the 1ms window of the open data has passed
+        Path sealedDirectory = directory.resolve("sealed");
+        TelemetryHistoryStore sealing = store(sealedDirectory, Long.MAX_VALUE, 1);
+        sealing.append(events("EV-1", 0, 120));
+        Thread.sleep(2);
+        sealing.maintain();
+        assertEquals(1, count(sealedDirectory, ".seg"));
+        List<HistoryPoint> sealed = sealing.query("EV-1", START, START.plusSeconds(120), 60_000);
+
+        // Logged but never sealed: replayed into a segment on startup
+        sealing.append(events("EV-1", 120, 60));
+        sealing.stop();
+        TelemetryHistoryStore restarted = store(sealedDirectory, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertEquals(2, count(sealedDirectory, ".seg"));
+        assertEquals(1, count(sealedDirectory, ".wal"));
+        List<HistoryPoint> recovered = restarted.query("EV-1", START, START.plusSeconds(180), 60_000);
+
+        for (List<HistoryPoint> points : List.of(open, sealed)) {
+            assertEquals(2, points.size());
+            assertEquals(60, points.get(0).getSamples());
+            // Readings 0..59 and 60..119 of each metric
+            assertEquals(29.5, points.get(0).getBatterySocPct(), 1e-9);
+            assertEquals(89.5, points.get(1).getBatterySocPct(), 1e-9);
+            assertNull(points.get(0).getMotorTempC());
+        }
+        assertEquals(3, recovered.size());
+        assertEquals(149.5, recovered.get(2).getBatterySocPct(), 1e-9);
+        assertEquals(List.of(), restarted.query("EV-3", START, START.plusSeconds(180), 60_000));
+    }
+
+    @Test
+    void dropsOutOfOrderPointsAndExpiredSegments() throws Exception {
+        // Retains a minute, and the test points are from the start of 2026
+        TelemetryHistoryStore store = store(directory, 60_000, 1);
+        store.append(events("EV-1", 10, 1));
+        store.append(events("EV-1", 5, 1));
+        assertEquals(1, store.query("EV-1", START, START.plusSeconds(60), 60_000).get(0).getSamples());
+
+        Thread.sleep(2);
+        store.maintain();
+        assertEquals(0, count(directory, ".seg"));
+        assertEquals(1, count(directory, ".wal"));
+    }
+
+    @Test
+    void replaysALogUpToItsFirstDamagedRecord() throws Exception {
+        Path log = directory.resolve("history-1-1.wal");
+        WriteAheadLog.Batch batch = new WriteAheadLog.Batch();
+        for (int s = 0; s < 3; s++) {
+            batch.add("EV-1", START.plusSeconds(s).toEpochMilli(), new double[SeriesEncoder.METRICS]);
+        }
+        try (WriteAheadLog wal = new WriteAheadLog(log)) {
+            wal.append(batch);
+        }
+        long recordBytes = Files.size(log) / 3;
+        // Flips a reading of the second record, so that its checksum no longer matches
+        try (RandomAccessFile file = new RandomAccessFile(log.toFile(), "rw")) {
+            file.seek(2 * recordBytes - 1);
+            file.write(0x7F);
+        }
+
+        List<Long> replayed = new ArrayList<>();
+        long truncated = WriteAheadLog.replay(log, (vehicleId, timestamp, readings) -> replayed.add(timestamp));
+
+        assertEquals(List.of(START.toEpochMilli()), replayed);
+        assertEquals(2 * recordBytes, truncated);
+        assertEquals(recordBytes, Files.size(log));
+    }
+
+    @Test
+    void recoversTheLoggedPointsBeforeARecordCutShort() throws Exception {
+        TelemetryHistoryStore store = store(directory, Long.MAX_VALUE, Long.MAX_VALUE);
+        store.append(events("EV-1", 0, 10));
+        store.stop();
+        Path log;
+        try (Stream<Path> files = Files.list(directory)) {
+            log = files.filter(file -> file.toString().endsWith(".wal")).findFirst().orElseThrow();
+        }
+        // The process died part way through writing the next record
+        Files.write(log, new byte[] {0, 0, 0, 60, 1, 2}, StandardOpenOption.APPEND);
+
+        TelemetryHistoryStore restarted = store(directory, Long.MAX_VALUE, Long.MAX_VALUE);
+
+        List<HistoryPoint> points = restarted.query("EV-1", START, START.plusSeconds(60), 60_000);
+        assertEquals(10, points.get(0).getSamples());
+        assertEquals(1, count(directory, ".seg"));
+    }
+
+    @Test
+    void keepsNoneOfABatchThatCouldNotBeLogged() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TelemetryHistoryStore store = store(meterRegistry, directory, Long.MAX_VALUE, Long.MAX_VALUE);
+        store.append(events("EV-1", 0, 1));
+        // Closing the log makes every write to it fail
+        store.stop();
+
+        assertThrows(UncheckedIOException.class, () -> store.append(events("EV-1", 1, 1)));
+
+        assertEquals(1, store.query("EV-1", START, START.plusSeconds(60), 60_000).get(0).getSamples());
+        assertEquals(1, meterRegistry.counter("axion.history.log.failed").count());
+        assertEquals(1, meterRegistry.counter("axion.history.points").count());
+    }
+
+    private static TelemetryHistoryStore store(Path directory, long retentionMillis, long sealIntervalMillis)
+            throws IOException {
+        return store(new SimpleMeterRegistry(), directory, retentionMillis, sealIntervalMillis);
+    }
+
+    private static TelemetryHistoryStore store(MeterRegistry meterRegistry, Path directory, long retentionMillis,
+            long sealIntervalMillis) throws IOException {
+        TelemetryHistoryStore store = new TelemetryHistoryStore(meterRegistry, directory.toString(),
+                retentionMillis, sealIntervalMillis, Long.MAX_VALUE);
+        store.start();
+        return store;
+    }
+
+    private static long count(Path directory, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(suffix)).count();
+        }
+    }
+
+    // One event a second from the given second on, battery reading = its second
+    private static List<CanonicalTelemetryEnvelope> events(String vehicleId, int from, int count) {
+        List<CanonicalTelemetryEnvelope> events = new ArrayList<>();
+        for (int s = from; s < from + count; s++) {
+            CanonicalTelemetryEnvelope event = new CanonicalTelemetryEnvelope();
+            event.setVehicleId(vehicleId);
+            event.setTimestamp(START.plusSeconds(s));
+            TelemetryPayload telemetry = new TelemetryPayload();
+            telemetry.setBatterySocPct((double) s);
+            telemetry.setSpeedKmph(42.0);
+            event.setTelemetry(telemetry);
+            events.add(event);
+        }
+        return events;
+    }
+}
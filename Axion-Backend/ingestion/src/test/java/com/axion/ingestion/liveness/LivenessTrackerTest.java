@@ -0,0 +1,107 @@
+package com.axion.ingestion.liveness;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LivenessTrackerTest {
+
+    private final long now = System.currentTimeMillis();
+
+    @Test
+    void expiresAVehicleOnceItsDeadlinePassed() {
+        LivenessTracker tracker = tracker(1, 0);
+        tracker.heard("EV-1", now);
+        tracker.heard("EV-2", now + 30_000);
+
+        assertEquals(List.of(), tracker.expired(now + 119_000));
+        assertEquals(List.of("EV-1"), tracker.expired(now + 121_000));
+        assertEquals(List.of(), tracker.expired(now + 140_000));
+        assertEquals(List.of("EV-2"), tracker.expired(now + 151_000));
+        assertEquals(0, tracker.size());
+    }
+
+    @Test
+    void hearingAVehicleAgainPushesItsDeadlineBack() {
+        LivenessTracker tracker = tracker(1, 0);
+        tracker.heard("EV-1", now);
+        tracker.heard("EV-1", now + 60_000);
+
+        assertEquals(List.of(), tracker.expired(now + 121_000));
+        assertEquals(List.of("EV-1"), tracker.expired(now + 181_000));
+    }
+
+    @Test
+    void rechecksOnlyVehiclesNotBeingWatched() {
+        LivenessTracker tracker = tracker(1, 0);
+        tracker.heard("EV-1", now);
+
+        tracker.recheck("EV-1");
+        tracker.recheck("EV-2");
+
+        assertEquals(List.of("EV-2"), tracker.expired(now + 2_000));
+        assertEquals(1, tracker.size());
+    }
+
+    @Test
+    void watchesOnlyTheVehiclesOfItsShard() {
+        LivenessTracker first = tracker(2, 0);
+        LivenessTracker second = tracker(2, 1);
+        for (int i = 0; i < 100; i++) {
+            first.heard("EV-" + i, now);
+            second.heard("EV-" + i, now);
+        }
+
+        Set<String> expired = new HashSet<>(first.expired(now + 121_000));
+        List<String> others = second.expired(now + 121_000);
+
+        assertEquals(100, expired.size() + others.size());
+        others.forEach(vehicleId -> assertTrue(!expired.contains(vehicleId), vehicleId + " watched twice"));
+    }
+
+    @Test
+    void keepsEveryDeadlineReportedConcurrently() throws Exception {
+        LivenessTracker tracker = tracker(1, 0);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                done.add(threads.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        tracker.heard("EV-" + thread + "-" + i, now + i % 1000);
+                        tracker.recheck("EV-" + thread + "-" + i);
+                    }
+                }));
+            }
+            // The scheduler drains concurrently, finding nothing due yet
+            for (int i = 0; i < 100; i++) {
+                assertEquals(List.of(), tracker.expired(now + 100_000));
+            }
+            for (Future<?> future : done) {
+                future.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+
+        assertEquals(80_000, tracker.size());
+        List<String> expired = tracker.expired(now + 200_000);
+        assertEquals(80_000, expired.size());
+        assertEquals(80_000, new HashSet<>(expired).size());
+    }
+
+    private static LivenessTracker tracker(int shardCount, int shardIndex) {
+        return new LivenessTracker(new SimpleMeterRegistry(), 120_000, 1000, shardCount, shardIndex);
+    }
+}
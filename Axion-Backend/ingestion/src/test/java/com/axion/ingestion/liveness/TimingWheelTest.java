@@ -0,0 +1,72 @@
+package com.axion.ingestion.liveness;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    @Test
+    void firesEachDeadlineOnItsTickAcrossLevels() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 0);
+        Map<String, Long> deadlines = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            // Up to ~3 days of 1s ticks, reaching the third level
+            long deadline = (long) random.nextInt(300_000) * 1000;
+            deadlines.put("EV-" + i, deadline);
+            wheel.schedule("EV-" + i, deadline);
+        }
+
+        Map<String, Long> firedAt = new HashMap<>();
+        for (long now = 0; now <= 300_000_000L; now += 7_000) {
+            long time = now;
+            wheel.advance(now, key -> firedAt.put(key, time));
+        }
+
+        assertEquals(deadlines.size(), firedAt.size());
+        assertEquals(0, wheel.size());
+        for (Map.Entry<String, Long> entry : deadlines.entrySet()) {
+            long fired = firedAt.get(entry.getKey());
+            assertTrue(fired >= entry.getValue(), entry.getKey() + " fired early");
+            assertTrue(fired < entry.getValue() + 7_000 + 1000, entry.getKey() + " fired late");
+        }
+    }
+
+    @Test
+    void reschedulingReplacesTheDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 0);
+        wheel.schedule("EV-1", 120_000);
+        wheel.schedule("EV-2", 120_000);
+        wheel.schedule("EV-1", 240_000);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(200_000, fired::add);
+        assertEquals(List.of("EV-2"), fired);
+
+        wheel.advance(240_000, fired::add);
+        assertEquals(List.of("EV-2", "EV-1"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastDeadlinesFireOnTheNextTickAndCancelledOnesNever() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 1_000_000);
+        wheel.schedule("EV-1", 0);
+        wheel.schedule("EV-2", 1_000_500);
+        assertTrue(wheel.cancel("EV-2"));
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(1_000_999, fired::add);
+        assertEquals(List.of(), fired);
+        wheel.advance(1_001_000, fired::add);
+        assertEquals(List.of("EV-1"), fired);
+    }
+}
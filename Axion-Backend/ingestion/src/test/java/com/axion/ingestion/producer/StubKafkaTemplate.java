@@ -0,0 +1,62 @@
+package com.axion.ingestion.producer;
+
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * Records sends instead of talking to a broker. Sends complete at once
+ * unless {@link #holdAcks()} was called, failing for values the failure
+ * predicate matches; held sends are completed with {@link #ack} and
+ * {@link #fail}.
+ */
+public class StubKafkaTemplate<V> extends KafkaTemplate<String, V> {
+
+    public final List<V> sent = new ArrayList<>();
+    public final List<CompletableFuture<SendResult<String, V>>> pending = new ArrayList<>();
+
+    private boolean holdAcks;
+    private Predicate<V> failing = value -> false;
+
+    public StubKafkaTemplate() {
+        super(new DefaultKafkaProducerFactory<>(Map.of()));
+    }
+
+    public StubKafkaTemplate<V> holdAcks() {
+        this.holdAcks = true;
+        return this;
+    }
+
+    public StubKafkaTemplate<V> failing(Predicate<V> failing) {
+        this.failing = failing;
+        return this;
+    }
+
+    @Override
+    public synchronized CompletableFuture<SendResult<String, V>> send(String topic, String key, V data) {
+        sent.add(data);
+        CompletableFuture<SendResult<String, V>> future = new CompletableFuture<>();
+        if (holdAcks) {
+            pending.add(future);
+        } else if (failing.test(data)) {
+            future.completeExceptionally(new IllegalStateException("broker down"));
+        } else {
+            future.complete(null);
+        }
+        return future;
+    }
+
+    public void ack(int index) {
+        pending.get(index).complete(null);
+    }
+
+    public void fail(int index) {
+        pending.get(index).completeExceptionally(new IllegalStateException("broker down"));
+    }
+}
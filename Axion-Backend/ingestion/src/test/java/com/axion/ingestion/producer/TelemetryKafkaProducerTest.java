@@ -0,0 +1,84 @@
+package com.axion.ingestion.producer;
+
+import com.axion.ingestion.exception.IngestionUnavailableException;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TelemetryKafkaProducerTest {
+
+    private final StubKafkaTemplate<CanonicalTelemetryEnvelope> kafka =
+            new StubKafkaTemplate<CanonicalTelemetryEnvelope>().holdAcks();
+    private final TelemetryKafkaProducer producer = new TelemetryKafkaProducer(kafka, 2);
+
+    @Test
+    void failsFastAtTheCapWithoutSending() {
+        producer.publishAsync(envelope("EV-1"));
+        producer.publishAsync(envelope("EV-2"));
+
+        CompletableFuture<?> rejected = producer.publishAsync(envelope("EV-3"));
+
+        assertThat(rejected).isCompletedExceptionally();
+        assertThatThrownBy(rejected::join).hasCauseInstanceOf(IngestionUnavailableException.class);
+        assertThat(kafka.sent).hasSize(2);
+    }
+
+    @Test
+    void releasesThePermitOnAckAndOnFailure() {
+        CompletableFuture<?> first = producer.publishAsync(envelope("EV-1"));
+        CompletableFuture<?> second = producer.publishAsync(envelope("EV-2"));
+
+        kafka.ack(0);
+        assertThat(first).isCompleted();
+        assertThat(producer.publishAsync(envelope("EV-3"))).isNotDone();
+
+        kafka.fail(1);
+        assertThatThrownBy(second::join).isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IngestionUnavailableException.class);
+        assertThat(producer.publishAsync(envelope("EV-4"))).isNotDone();
+
+        // Both freed permits are taken again
+        assertThat(producer.publishAsync(envelope("EV-5"))).isCompletedExceptionally();
+        assertThat(kafka.sent).hasSize(4);
+    }
+
+    @Test
+    void releasesThePermitWhenTheSendThrows() {
+        TelemetryKafkaProducer throwing = new TelemetryKafkaProducer(new StubKafkaTemplate<>() {
+            @Override
+            public synchronized CompletableFuture<SendResult<String, CanonicalTelemetryEnvelope>> send(
+                    String topic, String key, CanonicalTelemetryEnvelope data) {
+                throw new IllegalStateException("producer closed");
+            }
+        }, 1);
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(throwing.publishAsync(envelope("EV-1"))::join)
+                    .hasCauseInstanceOf(IngestionUnavailableException.class)
+                    .hasRootCauseMessage("producer closed");
+        }
+    }
+
+    @Test
+    void publishSendsOnlyOnSubscribe() {
+        var mono = producer.publish(envelope("EV-1"));
+        assertThat(kafka.sent).isEmpty();
+
+        CompletableFuture<Void> done = mono.toFuture();
+        assertThat(kafka.sent).hasSize(1);
+        kafka.ack(0);
+        assertThat(done).isCompleted();
+    }
+
+    private static CanonicalTelemetryEnvelope envelope(String vehicleId) {
+        CanonicalTelemetryEnvelope envelope = new CanonicalTelemetryEnvelope();
+        envelope.setVehicleId(vehicleId);
+        return envelope;
+    }
+}
@@ -0,0 +1,151 @@
+package com.axion.ingestion.rollup;
+
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.model.TelemetryPayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RollupAggregatorTest {
+
+    // Start of an hour, and so of a window of every resolution
+    private static final long HOUR = Instant.parse("2026-01-01T10:00:00Z").toEpochMilli();
+
+    private final List<RollupWindow> written = new ArrayList<>();
+    // Set to fail the next write: RuntimeException throws, otherwise the fleet windows fail to merge
+    private RuntimeException failure;
+    private boolean fleetFailing;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RollupStore store = new RollupStore(null, 0, 0, 0, 0) {
+        @Override
+        List<RollupWindow> write(List<RollupWindow> windows, long now) {
+            if (failure != null) {
+                throw failure;
+            }
+            List<RollupWindow> failed = new ArrayList<>();
+            for (RollupWindow window : windows) {
+                if (fleetFailing && window.vehicleId() == null) {
+                    failed.add(window);
+                } else {
+                    written.add(window);
+                }
+            }
+            return failed;
+        }
+    };
+    private final RollupAggregator aggregator = new RollupAggregator(meterRegistry, store, 10_000, 100);
+
+    @Test
+    void aggregatesPerVehicleAndFleetAndClosesAfterTheLateness() {
+        aggregator.add(List.of(event("EV-1", 0, 80.0, 30.0), event("EV-1", 20, 70.0, null),
+                event("EV-2", 40, 60.0, 50.0)), HOUR + 45_000);
+
+        // The first minute is still within its lateness
+        assertEquals(0, aggregator.flush(HOUR + 69_999, false));
+        assertEquals(3, aggregator.flush(HOUR + 70_000, false));
+        RollupWindow vehicle = find("EV-1", Resolution.ONE_MINUTE);
+        assertEquals(2, vehicle.count[0]);
+        assertEquals(70.0, vehicle.min[0]);
+        assertEquals(80.0, vehicle.max[0]);
+        assertEquals(150.0, vehicle.sum[0]);
+        assertEquals(70.0, vehicle.last[0]);
+        assertEquals(1, vehicle.count[1]);
+        assertEquals(0, vehicle.count[2]);
+        RollupWindow fleet = find(null, Resolution.ONE_MINUTE);
+        assertEquals(3, fleet.count[0]);
+        assertEquals(60.0, fleet.min[0]);
+        assertEquals(50.0, fleet.max[1]);
+        assertEquals(60.0, fleet.last[0]);
+
+        // Too late for the first minute, still counted in the 5 minute and hour windows
+        aggregator.add(List.of(event("EV-1", 10, 10.0, null)), HOUR + 70_000);
+        assertEquals(0, meterRegistry.counter("axion.rollup.late").count());
+        aggregator.flush(HOUR + 3_610_000, false);
+        assertEquals(3, find("EV-1", Resolution.FIVE_MINUTES).count[0]);
+        assertEquals(10.0, find("EV-1", Resolution.ONE_HOUR).min[0]);
+        // The late point does not replace the newest reading
+        assertEquals(70.0, find("EV-1", Resolution.ONE_HOUR).last[0]);
+
+        aggregator.add(List.of(event("EV-1", 30, 10.0, null)), HOUR + 3_610_000);
+        assertEquals(1, meterRegistry.counter("axion.rollup.late").count());
+        assertEquals(0, aggregator.flush(HOUR + 3_610_000, true));
+    }
+
+    @Test
+    void writesTheWindowsOfAFailedFlushOnTheNext() {
+        aggregator.add(List.of(event("EV-1", 0, 80.0, 30.0), event("EV-2", 40, 60.0, 50.0)), HOUR + 45_000);
+
+        failure = new IllegalStateException("Redis is down");
+        assertEquals(0, aggregator.flush(HOUR + 70_000, false));
+        failure = null;
+        fleetFailing = true;
+        // Only the fleet window fails to merge this time
+        assertEquals(2, aggregator.flush(HOUR + 71_000, false));
+        fleetFailing = false;
+        assertEquals(1, aggregator.flush(HOUR + 72_000, false));
+
+        assertEquals(3, written.size());
+        assertEquals(2, find(null, Resolution.ONE_MINUTE).count[0]);
+        assertEquals(4, meterRegistry.counter("axion.rollup.flush.failed").count());
+        assertEquals(3, meterRegistry.counter("axion.rollup.windows.flushed").count());
+        assertEquals(0, aggregator.flush(HOUR + 73_000, false));
+    }
+
+    @Test
+    void dropsTheOldestFailedWindowsPastTheLimit() {
+        RollupAggregator small = new RollupAggregator(meterRegistry, store, 10_000, 1);
+        small.add(List.of(event("EV-1", 0, 80.0, 30.0)), HOUR + 45_000);
+
+        failure = new IllegalStateException("Redis is down");
+        small.flush(HOUR + 70_000, false);
+        failure = null;
+
+        // Vehicle windows are taken before the fleet's, so EV-1's was dropped
+        assertEquals(1, small.flush(HOUR + 71_000, false));
+        assertEquals(1, meterRegistry.counter("axion.rollup.windows.dropped").count());
+        assertEquals(1, written.size());
+        assertNull(written.get(0).vehicleId());
+    }
+
+    @Test
+    void encodesWindowsForTheStore() {
+        RollupWindow window = new RollupWindow("EV-1", Resolution.FIVE_MINUTES, HOUR);
+        window.add(HOUR + 1, new double[] {55.5, Double.NaN, 0.1, 12});
+        window.add(HOUR + 2, new double[] {54.25, Double.NaN, -3, 14});
+
+        RollupWindow decoded = RollupWindow.decode("EV-1", Resolution.FIVE_MINUTES, window.encode());
+        assertEquals(HOUR, decoded.start());
+        for (int i = 0; i < RollupWindow.METRICS; i++) {
+            assertEquals(window.count[i], decoded.count[i]);
+            assertEquals(window.sum[i], decoded.sum[i]);
+            assertEquals(window.last[i], decoded.last[i]);
+            assertEquals(window.lastTimestamp[i], decoded.lastTimestamp[i]);
+        }
+        assertEquals(-3.0, decoded.min[2]);
+        assertEquals(14.0, decoded.max[3]);
+    }
+
+    private RollupWindow find(String vehicleId, Resolution resolution) {
+        return written.stream()
+                .filter(w -> w.resolution() == resolution && Objects.equals(w.vehicleId(), vehicleId))
+                .findFirst().orElseThrow();
+    }
+
+    private static CanonicalTelemetryEnvelope event(String vehicleId, int second, Double soc, Double batteryTemp) {
+        CanonicalTelemetryEnvelope event = new CanonicalTelemetryEnvelope();
+        event.setVehicleId(vehicleId);
+        event.setTimestamp(Instant.ofEpochMilli(HOUR + second * 1000L));
+        TelemetryPayload telemetry = new TelemetryPayload();
+        telemetry.setBatterySocPct(soc);
+        telemetry.setBatteryTempC(batteryTemp);
+        event.setTelemetry(telemetry);
+        return event;
+    }
+}
@@ -0,0 +1,66 @@
+package com.axion.ingestion.serde;
+
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Map;
+
+/**
+ * Size and speed of the binary encoding against the JSON one it replaces.
+ * Not part of the build, run with
+ * <pre>
+ * mvn test -Dtest=TelemetryEnvelopeCodecBenchmark -Daxion.benchmark=true
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "axion.benchmark", matches = "true")
+class TelemetryEnvelopeCodecBenchmark {
+
+    private static final String TOPIC = "telemetry.normal";
+    private static final int ITERATIONS = 200_000;
+    private static final int ROUNDS = 3;
+
+    @Test
+    void compareWithJson() {
+        TelemetryEnvelopeSerializer jsonSerializer = new TelemetryEnvelopeSerializer();
+        jsonSerializer.configure(Map.of(), false);
+        TelemetryEnvelopeDeserializer deserializer = TelemetryEnvelopeCodecTest.deserializer();
+        CanonicalTelemetryEnvelope envelope = TelemetryEnvelopeCodecTest.envelope();
+
+        RecordHeaders headers = new RecordHeaders();
+        byte[] json = jsonSerializer.serialize(TOPIC, headers, envelope);
+        byte[] binary = TelemetryEnvelopeCodec.encode(envelope);
+
+        long sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += jsonSerializer.serialize(TOPIC, new RecordHeaders(), envelope).length;
+            }
+            long jsonEncode = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += deserializer.deserialize(TOPIC, headers, json).getVehicleId().length();
+            }
+            long jsonDecode = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += TelemetryEnvelopeCodec.encode(envelope).length;
+            }
+            long binaryEncode = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += TelemetryEnvelopeCodec.decode(binary).getVehicleId().length();
+            }
+            long binaryDecode = System.nanoTime() - start;
+
+            System.out.printf("json %d B, encode %d ns, decode %d ns | binary %d B, encode %d ns, decode %d ns (%d)%n",
+                    json.length, jsonEncode / ITERATIONS, jsonDecode / ITERATIONS,
+                    binary.length, binaryEncode / ITERATIONS, binaryDecode / ITERATIONS, sink);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.axion.ingestion.serde;
+
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.model.ConnectionMetadata;
+import com.axion.ingestion.model.TelemetryPayload;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TelemetryEnvelopeCodecTest {
+
+    private static final String TOPIC = "telemetry.normal";
+
+    @Test
+    void roundTripsEveryField() {
+        CanonicalTelemetryEnvelope envelope = envelope();
+
+        CanonicalTelemetryEnvelope decoded = TelemetryEnvelopeCodec.decode(TelemetryEnvelopeCodec.encode(envelope));
+
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(envelope);
+    }
+
+    @Test
+    void keepsNullsNull() {
+        CanonicalTelemetryEnvelope envelope = new CanonicalTelemetryEnvelope();
+        envelope.setSchemaVersion("1.0");
+        envelope.setVehicleId("v001");
+        envelope.setTelemetry(new TelemetryPayload());
+
+        CanonicalTelemetryEnvelope decoded = TelemetryEnvelopeCodec.decode(TelemetryEnvelopeCodec.encode(envelope));
+
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(envelope);
+        assertThat(decoded.getConnection()).isNull();
+    }
+
+    @Test
+    void serializesPerTopicAndDeserializesBothEncodings() {
+        TelemetryEnvelopeSerializer serializer = new TelemetryEnvelopeSerializer();
+        serializer.configure(Map.of(TelemetryEnvelopeSerializer.BINARY_TOPICS, TOPIC), false);
+        TelemetryEnvelopeDeserializer deserializer = deserializer();
+
+        CanonicalTelemetryEnvelope envelope = envelope();
+        byte[] binary = serializer.serialize(TOPIC, new RecordHeaders(), envelope);
+        RecordHeaders jsonHeaders = new RecordHeaders();
+        byte[] json = serializer.serialize("telemetry.other", jsonHeaders, envelope);
+
+        assertThat(TelemetryEnvelopeCodec.isBinary(binary)).isTrue();
+        assertThat(json[0]).isEqualTo((byte) '{');
+        assertThat(deserializer.deserialize(TOPIC, new RecordHeaders(), binary))
+                .usingRecursiveComparison().isEqualTo(envelope);
+        assertThat(deserializer.deserialize("telemetry.other", jsonHeaders, json))
+                .usingRecursiveComparison().isEqualTo(envelope);
+    }
+
+    @Test
+    void acceptsATopicListedTwice() {
+        TelemetryEnvelopeSerializer serializer = new TelemetryEnvelopeSerializer();
+        serializer.configure(Map.of(TelemetryEnvelopeSerializer.BINARY_TOPICS, TOPIC + ", telemetry.other," + TOPIC),
+                false);
+
+        assertThat(TelemetryEnvelopeCodec.isBinary(serializer.serialize(TOPIC, new RecordHeaders(), envelope())))
+                .isTrue();
+    }
+
+    @Test
+    void isUnderAThirdOfTheJsonSize() {
+        TelemetryEnvelopeSerializer jsonSerializer = new TelemetryEnvelopeSerializer();
+        jsonSerializer.configure(Map.of(), false);
+        CanonicalTelemetryEnvelope envelope = envelope();
+
+        byte[] json = jsonSerializer.serialize(TOPIC, new RecordHeaders(), envelope);
+        byte[] binary = TelemetryEnvelopeCodec.encode(envelope);
+
+        assertThat(binary.length).isLessThan(json.length / 3);
+    }
+
+    static TelemetryEnvelopeDeserializer deserializer() {
+        TelemetryEnvelopeDeserializer deserializer = new TelemetryEnvelopeDeserializer();
+        deserializer.configure(Map.of(
+                JsonDeserializer.TRUSTED_PACKAGES, "*",
+                JsonDeserializer.VALUE_DEFAULT_TYPE, CanonicalTelemetryEnvelope.class), false);
+        return deserializer;
+    }
+
+    static CanonicalTelemetryEnvelope envelope() {
+        CanonicalTelemetryEnvelope envelope = new CanonicalTelemetryEnvelope();
+        envelope.setSchemaVersion("1.0");
+        envelope.setVehicleId("v001");
+        envelope.setVendor("SIMULATED");
+        envelope.setTimestamp(Instant.parse("2026-01-25T18:32:45.123456Z"));
+        envelope.setIngestionTs(Instant.parse("2026-01-25T18:32:45.200001Z"));
+
+        TelemetryPayload telemetry = new TelemetryPayload();
+        telemetry.setSpeedKmph(64.2);
+        telemetry.setBatterySocPct(78.53333333333333);
+        telemetry.setBatteryTempC(31.5);
+        telemetry.setMotorTempC(35.0);
+        telemetry.setOdometerKm(1000.25);
+        envelope.setTelemetry(telemetry);
+
+        ConnectionMetadata connection = new ConnectionMetadata();
+        connection.setProtocol("MQTT");
+        connection.setSignalStrength(-70);
+        connection.setSequenceNumber(42L);
+        connection.setPacketLossPct(0.1);
+        connection.setIsHeartbeat(false);
+        envelope.setConnection(connection);
+        return envelope;
+    }
+}
@@ -0,0 +1,494 @@
+package com.axion.ingestion.service;
+
+import com.axion.ingestion.alert.AlertService;
+import com.axion.ingestion.alert.VehicleAlert;
+import com.axion.ingestion.dto.FleetSummaryResponse;
+import com.axion.ingestion.dto.FleetVehicleResponse;
+import com.axion.ingestion.liveness.LivenessTracker;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.model.DigitalTwinState;
+import com.axion.ingestion.producer.AlertKafkaProducer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class DigitalTwinServiceTest {
+
+    private static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+
+    private static final RedisScript<Long> RECONCILE =
+            LuaScripts.load(Long.class, "fleet-members.lua", "fleet-reconcile.lua");
+    private static final RedisScript<Long> RECOUNT =
+            LuaScripts.load(Long.class, "fleet-members.lua", "fleet-recount.lua");
+
+    private static TestRedis redis;
+
+    @BeforeAll
+    static void connect() {
+        redis = TestRedis.connect();
+    }
+
+    @AfterAll
+    static void disconnect() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void flushRedis() {
+        redis.flush();
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void upsertsAfterRedisForgetsItsScripts(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        assertThat(twins.updateBatch(List.of(reading("EV-1", 1), reading("EV-2", 1)))).isEqualTo(2);
+
+        try (RedisConnection connection = redis.connectionFactory().getConnection()) {
+            connection.scriptingCommands().scriptFlush();
+        }
+        int written = twins.updateBatch(List.of(reading("EV-1", 2), reading("EV-2", 2), reading("EV-3", 2)));
+
+        assertThat(written).isEqualTo(3);
+        assertThat(twins.findAll(List.of("EV-1", "EV-2", "EV-3")))
+                .extracting(DigitalTwinState::getLastEventTs).containsOnly(START.plusSeconds(2));
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void countsOnlyTheTwinsAPipelineWrote(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        twins.update(reading("EV-1", 10));
+
+        int written = twins.updateBatch(List.of(reading("EV-1", 5), reading("EV-2", 5), reading("EV-3", 5)));
+
+        assertThat(written).isEqualTo(2);
+        assertThat(twins.find("EV-1").getLastEventTs()).isEqualTo(START.plusSeconds(10));
+        assertThat(twins.findAllIds()).containsExactlyInAnyOrder("EV-1", "EV-2", "EV-3");
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void indexesTwinsWrittenBeforeTheFleetIndex(TwinLayout layout) {
+        redis.twinService(layout).updateBatch(List.of(reading("EV-1", 1), reading("EV-2", 1)));
+        // As left by a version without the index
+        redis.strings().delete(List.of("fleet:index", "fleet:members", "fleet:summary", "fleet:index:complete"));
+
+        DigitalTwinService twins = redis.twinService(layout);
+
+        assertThat(twins.findAllIds()).containsExactlyInAnyOrder("EV-1", "EV-2");
+        assertThat(redis.strings().opsForZSet().size("fleet:index")).isEqualTo(2);
+        assertThat(twins.getFleetSummary().getTotalVehicles()).isEqualTo(2);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void scansOnlyUntilTheIndexIsComplete(TwinLayout layout) {
+        assertThat(redis.twinService(layout).findAllIds()).isEmpty();
+
+        // A twin outside the index would only be found by scanning
+        twinOutsideTheIndex(layout, "EV-9");
+
+        assertThat(redis.twinService(layout).findAllIds()).isEmpty();
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void reconcileRepairsDriftedCountersAndIndexes(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        twins.updateBatch(List.of(reading("EV-1", 1), reading("EV-2", 1), reading("EV-3", 1)));
+        String member = (String) redis.strings().opsForHash().get("fleet:members", "EV-1");
+
+        redis.strings().opsForHash().put("fleet:summary", "total", "99");
+        redis.strings().opsForHash().put("fleet:members", "EV-1", "CRITICAL:0:BYD");
+        redis.strings().opsForSet().add("fleet:idx:state:CRITICAL", "EV-1");
+        redis.strings().opsForHash().put("fleet:members", "EV-7", member);
+        redis.strings().delete((layout == TwinLayout.HASH ? "twin:" : "digital_twin:") + "EV-3");
+        twins.reconcileFleetCounters();
+
+        FleetSummaryResponse summary = twins.getFleetSummary();
+        assertThat(summary.getTotalVehicles()).isEqualTo(2);
+        assertThat(summary.getOnlineVehicles()).isEqualTo(2);
+        assertThat(summary.getCritical()).isZero();
+        assertThat(redis.strings().opsForHash().entries("fleet:members"))
+                .containsOnly(Map.entry("EV-1", member), Map.entry("EV-2", member));
+        assertThat(redis.strings().opsForSet().members("fleet:idx:state:CRITICAL")).isEmpty();
+        assertThat(twins.findAllIds()).containsExactlyInAnyOrder("EV-1", "EV-2");
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void reconcileLeavesVehiclesThatChangedSinceTheyWereRead(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        twins.update(reading("EV-1", 1));
+        String member = (String) redis.strings().opsForHash().get("fleet:members", "EV-1");
+        Double version = redis.strings().opsForZSet().score("fleet:idx:version", "EV-1");
+
+        // As if the twin was read at the version before its last change
+        Long live = redis.strings().execute(RECONCILE, List.of("fleet:index", "fleet:members", "fleet:summary",
+                "fleet:idx:version", "fleet:version", "fleet:removed", "fleet:removed:floor"),
+                "EV-1", Long.toString(version.longValue() - 1), "CRITICAL:0:BYD", "10", "", "", "");
+
+        assertThat(live).isEqualTo(1);
+        assertThat(redis.strings().opsForHash().get("fleet:members", "EV-1")).isEqualTo(member);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void recountsInChunksCountingTransitionsMadeMeanwhile(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        // Past the compact encoding's size, so HSCAN returns members a chunk at a time
+        twins.updateBatch(readings(600));
+        redis.strings().opsForHash().put("fleet:summary", "total", "99");
+
+        assertThat(recountChunk("1")).isEqualTo(-1);
+        // Every vehicle changing state, counted already or not, one arriving and one expiring,
+        // while the recount is under way
+        List<CanonicalTelemetryEnvelope> changes = new ArrayList<>();
+        for (int i = 1; i <= 600; i++) {
+            changes.add(reading("EV-" + i, 2, 5.0));
+        }
+        changes.add(reading("EV-601", 2));
+        twins.updateBatch(changes);
+        redis.strings().opsForZSet().add("fleet:index", "EV-2", 1);
+        twins.pruneIndex();
+        long counted = recountChunk("0");
+        for (int chunks = 0; counted < 0 && chunks < 1000; chunks++) {
+            counted = recountChunk("0");
+        }
+
+        Map<Object, Object> members = redis.strings().opsForHash().entries("fleet:members");
+        FleetSummaryResponse summary = twins.getFleetSummary();
+        assertThat(members).hasSize(600).doesNotContainKey("EV-2");
+        assertThat(counted).isEqualTo(600);
+        assertThat(summary.getTotalVehicles()).isEqualTo(600);
+        assertThat(summary.getOnlineVehicles()).isEqualTo(600);
+        assertThat(summary.getHealthy()).isEqualTo(1);
+        assertThat(summary.getHealthy() + summary.getDegraded() + summary.getCritical()).isEqualTo(600);
+        assertThat(redis.strings().hasKey("fleet:recount")).isFalse();
+        // Nothing to continue once it is done
+        assertThat(recountChunk("0")).isZero();
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void movesTheSummaryVersionOnlyWithTheCounters(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        twins.update(reading("EV-1", 1));
+        long first = twins.getSummaryVersion();
+
+        twins.update(reading("EV-1", 2));
+        long unchanged = twins.getSummaryVersion();
+        twins.update(reading("EV-2", 2));
+        long added = twins.getSummaryVersion();
+        twins.reconcileFleetCounters();
+
+        assertThat(unchanged).isEqualTo(first);
+        assertThat(added).isGreaterThan(first);
+        // Recounting rebuilds the counters, never taking the version back
+        assertThat(twins.getSummaryVersion()).isGreaterThan(added);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void movesTheSummaryVersionOnceAnExpiryIsPruned(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        twins.updateBatch(readings(2));
+        long before = twins.getSummaryVersion();
+        expireAllBut("EV-1");
+
+        long pending = twins.getSummaryVersion();
+        twins.pruneIndex();
+
+        assertThat(pending).isEqualTo(before);
+        assertThat(twins.getSummaryVersion()).isGreaterThan(before);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void drainsMoreExpiredVehiclesThanOneStepTakes(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        List<CanonicalTelemetryEnvelope> events = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            events.add(reading(String.format("EV-%04d", i), 1));
+        }
+        twins.updateBatch(events);
+        expireAllButOne();
+
+        assertThat(twins.getFleetSummary().getTotalVehicles()).isEqualTo(1);
+        assertThat(redis.strings().opsForHash().size("fleet:members")).isEqualTo(1);
+
+        twins.updateBatch(events);
+        expireAllButOne();
+        twins.pruneIndex();
+
+        assertThat(redis.strings().opsForZSet().size("fleet:index")).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void pagesThroughEqualScoresWithoutGapsOrRepeats(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        twins.updateBatch(readings(7));
+
+        assertThat(pageThrough(twins, query("battery", false, 3)))
+                .containsExactly(List.of("EV-1", "EV-2", "EV-3"), List.of("EV-4", "EV-5", "EV-6"), List.of("EV-7"));
+        assertThat(pageThrough(twins, query("battery", true, 3)))
+                .containsExactly(List.of("EV-7", "EV-6", "EV-5"), List.of("EV-4", "EV-3", "EV-2"), List.of("EV-1"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void resumesAmongEqualScoresAfterTheCursorVehicleMoved(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        twins.updateBatch(readings(7));
+        FleetQuery query = query("battery", false, 3);
+        FleetPage first = twins.findPage(query);
+
+        twins.update(reading("EV-3", 2, 95.0));
+        query.setCursor(first.getNextCursor());
+
+        assertThat(first.getVehicleIds()).containsExactly("EV-1", "EV-2", "EV-3");
+        assertThat(twins.findPage(query).getVehicleIds()).containsExactly("EV-4", "EV-5", "EV-6");
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void returnsShortPagesWhenTheFiltersExhaustTheScanBudget(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout,
+                new LivenessTracker(new SimpleMeterRegistry(), 120_000, 1000, 1, 0), 4);
+        List<CanonicalTelemetryEnvelope> events = readings(9);
+        events.get(1).setVendor("BYD");
+        events.get(7).setVendor("BYD");
+        twins.updateBatch(events);
+        FleetQuery query = query("vehicleId", false, 5);
+        query.setVendors(Set.of("BYD"));
+
+        // Four entries are examined per page: EV-1..4, EV-5..8, then EV-9 and the end of the index
+        assertThat(pageThrough(twins, query))
+                .containsExactly(List.of("EV-2"), List.of("EV-8"), List.of());
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void endsWithThePageThatReachesTheEndOfTheIndex(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        List<CanonicalTelemetryEnvelope> events = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            events.add(reading(String.format("EV-%03d", i), 1));
+        }
+        twins.updateBatch(events);
+
+        FleetPage page = twins.findPage(query("vehicleId", false, 100));
+
+        assertThat(page.getVehicleIds()).hasSize(100);
+        assertThat(page.getNextCursor()).isNull();
+        assertThat(pageThrough(twins, query("vehicleId", true, 40))).extracting(List::size).containsExactly(40, 40, 20);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void announcesAReadingOnlyWhenMoreThanItsTimesChanged(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        try (TestRedis.Announcements announcements = redis.announcements()) {
+            twins.update(reading("EV-1", 1));
+            Long written = twins.getVersion("EV-1");
+            List<String> first = announcements.drain();
+
+            twins.update(reading("EV-1", 2));
+            Long repeated = twins.getVersion("EV-1");
+            List<String> afterRepeat = announcements.drain();
+            twins.update(reading("EV-1", 3, 70));
+
+            assertThat(first).containsExactly("EV-1");
+            assertThat(afterRepeat).isEmpty();
+            assertThat(announcements.drain()).containsExactly("EV-1");
+            // The repeated reading is not announced but still moves the version, its timestamps were written
+            assertThat(repeated).isGreaterThan(written);
+            assertThat(twins.getVersion("EV-1")).isGreaterThan(repeated);
+            assertThat(twins.find("EV-1").getLastEventTs()).isEqualTo(START.plusSeconds(3));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void alertsARescoreAndNotAgainOnTheNextReading(TwinLayout layout) {
+        AlertService alerts = new AlertService(TestRedis.healthScoreEngine(), new AlertKafkaProducer(null, "unused") {
+            @Override
+            public CompletableFuture<SendResult<String, VehicleAlert>> publishAsync(VehicleAlert alert) {
+                return CompletableFuture.completedFuture(null);
+            }
+        }, new SimpleMeterRegistry(), true, 300_000, 5, 1000, 3_600_000);
+        DigitalTwinService twins = redis.twinService(layout, alerts);
+        twins.update(reading("EV-1", 1));
+
+        // Scored CRITICAL under new rules, then a reading the old ones still score HEALTHY
+        DigitalTwinState rescored = twins.find("EV-1");
+        rescored.setHealthScore(30);
+        rescored.setHealthState("CRITICAL");
+        assertThat(twins.saveScores(List.of(rescored))).isEqualTo(1);
+        twins.update(reading("EV-1", 2));
+
+        // Recovering within the cool-down is not alerted either
+        assertThat(alerts.recent("EV-1", null, null, null, 10))
+                .extracting(VehicleAlert::getFrom, VehicleAlert::getTo)
+                .containsExactly(tuple("HEALTHY", "CRITICAL"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void readsTwinsAndListingEntriesSkippingMissingVehicles(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        twins.updateBatch(List.of(reading("EV-1", 1), reading("EV-2", 1, 70)));
+
+        assertThat(twins.findAll(List.of("EV-2", "EV-404", "EV-1")))
+                .extracting(DigitalTwinState::getVehicleId).containsExactly("EV-2", "EV-1");
+        assertThat(twins.findVehicles(List.of("EV-404", "EV-2")))
+                .extracting(FleetVehicleResponse::getVehicleId, FleetVehicleResponse::getBattery)
+                .containsExactly(tuple("EV-2", 70.0));
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void listsChangesSinceAVersionOldestFirst(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        twins.update(reading("EV-1", 1));
+        long since = twins.getFleetVersion();
+        twins.update(reading("EV-2", 1));
+        twins.update(reading("EV-1", 2, 70));
+
+        FleetChanges changes = twins.findChanges(since, 10);
+        FleetChanges none = twins.findChanges(changes.getVersion(), 10);
+
+        assertThat(changes.getUpdatedIds()).containsExactly("EV-2", "EV-1");
+        assertThat(changes.getRemovedIds()).isEmpty();
+        assertThat(changes.getVersion()).isEqualTo(twins.getFleetVersion());
+        assertThat(changes.isMore()).isFalse();
+        assertThat(changes.isResync()).isFalse();
+        assertThat(none.getUpdatedIds()).isEmpty();
+        assertThat(none.getVersion()).isEqualTo(changes.getVersion());
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void pagesThroughChangesAndRemovalsInVersionOrder(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        twins.updateBatch(readings(5));
+        long since = 0;
+        expireAllBut("EV-5");
+        twins.pruneIndex();
+        twins.update(reading("EV-5", 2));
+
+        List<String> updated = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        FleetChanges changes;
+        int calls = 0;
+        do {
+            changes = twins.findChanges(since, 2);
+            updated.addAll(changes.getUpdatedIds());
+            removed.addAll(changes.getRemovedIds());
+            assertThat(changes.getUpdatedIds().size() + changes.getRemovedIds().size()).isLessThanOrEqualTo(2);
+            since = changes.getVersion();
+        } while (changes.isMore() && ++calls < 10);
+
+        assertThat(updated).containsExactly("EV-5");
+        assertThat(removed).containsExactlyInAnyOrder("EV-1", "EV-2", "EV-3", "EV-4");
+        assertThat(since).isEqualTo(twins.getFleetVersion());
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void asksForAReloadOutsideTheRetainedChanges(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        twins.updateBatch(readings(3));
+        long version = twins.getFleetVersion();
+        // As if the removals up to version 2 had been dropped
+        redis.strings().opsForValue().set("fleet:removed:floor", "2");
+
+        assertThat(twins.findChanges(1, 10).isResync()).isTrue();
+        assertThat(twins.findChanges(version + 1, 10).isResync()).isTrue();
+        assertThat(twins.findChanges(2, 10).isResync()).isFalse();
+    }
+
+    // The ids of every page until one comes back without a cursor
+    private static List<List<String>> pageThrough(DigitalTwinService twins, FleetQuery query) {
+        List<List<String>> pages = new ArrayList<>();
+        FleetPage page;
+        do {
+            page = twins.findPage(query);
+            pages.add(page.getVehicleIds());
+            query.setCursor(page.getNextCursor());
+        } while (page.getNextCursor() != null && pages.size() < 100);
+        return pages;
+    }
+
+    private static FleetQuery query(String sort, boolean descending, int limit) {
+        FleetQuery query = new FleetQuery();
+        query.setSort(sort);
+        query.setDescending(descending);
+        query.setLimit(limit);
+        return query;
+    }
+
+    // EV-1..EV-n, all with the same reading
+    private static List<CanonicalTelemetryEnvelope> readings(int vehicles) {
+        List<CanonicalTelemetryEnvelope> events = new ArrayList<>();
+        for (int i = 1; i <= vehicles; i++) {
+            events.add(reading("EV-" + i, 1));
+        }
+        return events;
+    }
+
+    private static long recountChunk(String start) {
+        return redis.strings().execute(RECOUNT, List.of("fleet:index", "fleet:members", "fleet:summary",
+                "fleet:version"), "10", start, "60000");
+    }
+
+    private static void expireAllButOne() {
+        expireAllBut("EV-0000");
+    }
+
+    // Moves the index expiry of every other vehicle into the past
+    private static void expireAllBut(String kept) {
+        Set<String> ids = redis.strings().opsForZSet().range("fleet:index", 0, -1);
+        for (String id : ids) {
+            if (!id.equals(kept)) {
+                redis.strings().opsForZSet().add("fleet:index", id, 1);
+            }
+        }
+    }
+
+    private static void twinOutsideTheIndex(TwinLayout layout, String vehicleId) {
+        if (layout == TwinLayout.HASH) {
+            redis.strings().opsForHash().put("twin:" + vehicleId, "vehicleId", vehicleId);
+        } else {
+            redis.strings().opsForValue().set("digital_twin:" + vehicleId, "{\"vehicleId\":\"" + vehicleId + "\"}");
+        }
+    }
+
+    private static CanonicalTelemetryEnvelope reading(String vehicleId, int second) {
+        return TestRedis.event(vehicleId, START.plusSeconds(second), Instant.now());
+    }
+
+    private static CanonicalTelemetryEnvelope reading(String vehicleId, int second, double batterySocPct) {
+        CanonicalTelemetryEnvelope event = reading(vehicleId, second);
+        event.getTelemetry().setBatterySocPct(batterySocPct);
+        return event;
+    }
+}
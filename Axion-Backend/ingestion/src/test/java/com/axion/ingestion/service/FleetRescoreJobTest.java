@@ -0,0 +1,236 @@
+package com.axion.ingestion.service;
+
+import com.axion.ingestion.dto.RescoreJobResponse;
+import com.axion.ingestion.health.HealthScoreEngine;
+import com.axion.ingestion.health.HealthScoreResult;
+import com.axion.ingestion.liveness.LivenessTracker;
+import com.axion.ingestion.model.DigitalTwinState;
+import com.axion.ingestion.model.TelemetrySnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FleetRescoreJobTest {
+
+    private static final HealthScoreEngine ENGINE = TestRedis.healthScoreEngine();
+
+    private final StubTwinService twins = new StubTwinService();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void rescoresOnlyChangedTwinsChunkByChunk() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            twins.put("EV-" + i, i % 2 == 0);
+        }
+        FleetRescoreJob job = new FleetRescoreJob(twins, ENGINE, meterRegistry, 3, 2, 0);
+
+        RescoreJobResponse started = job.start();
+        RescoreJobResponse done = awaitFinished(job);
+
+        assertThat(started.getJobId()).isEqualTo(1);
+        assertThat(done.getState()).isEqualTo("COMPLETED");
+        assertThat(done.getTotal()).isEqualTo(10);
+        assertThat(done.getScanned()).isEqualTo(10);
+        assertThat(done.getRescored()).isEqualTo(5);
+        assertThat(done.getSkipped()).isZero();
+        // Split down to chunks of at most 3, each read and written once, between them covering the fleet
+        assertThat(twins.reads).allSatisfy(chunk -> assertThat(chunk).hasSizeLessThanOrEqualTo(3));
+        assertThat(twins.reads.stream().flatMap(List::stream)).containsExactlyInAnyOrderElementsOf(twins.stored.keySet());
+        assertThat(twins.saved.stream().flatMap(List::stream))
+                .containsExactlyInAnyOrder("EV-0", "EV-2", "EV-4", "EV-6", "EV-8");
+        assertThat(twins.stored.get("EV-0").getHealthScore()).isEqualTo(twins.stored.get("EV-1").getHealthScore());
+        assertThat(meterRegistry.counter("axion.rescore.twins", "result", "unchanged").count()).isEqualTo(5);
+    }
+
+    @Test
+    void skipsTwinsAConsumerUpdatedMeanwhile() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            twins.put("EV-" + i, true);
+        }
+        twins.updatedMeanwhile.addAll(Set.of("EV-1", "EV-3"));
+        FleetRescoreJob job = new FleetRescoreJob(twins, ENGINE, meterRegistry, 2, 2, 0);
+
+        job.start();
+        RescoreJobResponse done = awaitFinished(job);
+
+        assertThat(done.getRescored()).isEqualTo(2);
+        assertThat(done.getSkipped()).isEqualTo(2);
+        assertThat(meterRegistry.counter("axion.rescore.twins", "result", "rescored").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("axion.rescore.twins", "result", "skipped").count()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsTheTrendPenaltyOfTwinsScoredElsewhere() throws Exception {
+        // Scored 60 on the consuming node: 40 off for a battery heating up very fast
+        twins.put("EV-1", false);
+        twins.stored.get("EV-1").setTrendPenalty(40);
+        twins.stored.get("EV-1").setHealthScore(60);
+        twins.stored.get("EV-1").setHealthState("DEGRADED");
+        // And one with a stale score, rescored to 100 less its penalty
+        twins.put("EV-2", true);
+        twins.stored.get("EV-2").setTrendPenalty(20);
+        FleetRescoreJob job = new FleetRescoreJob(twins, ENGINE, meterRegistry, 10, 1, 0);
+
+        job.start();
+        RescoreJobResponse done = awaitFinished(job);
+
+        // This node has no trends for either, the penalties stand
+        assertThat(done.getRescored()).isEqualTo(1);
+        assertThat(twins.stored.get("EV-1").getHealthScore()).isEqualTo(60);
+        assertThat(twins.stored.get("EV-2").getHealthScore()).isEqualTo(80);
+        assertThat(twins.stored.get("EV-2").getHealthState()).isEqualTo("HEALTHY");
+    }
+
+    @Test
+    void pacesChunksToTheMaximumRate() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            twins.put("EV-" + i, false);
+        }
+        // 500 twins a second: the last chunk cannot start before about 200ms less its own share
+        FleetRescoreJob job = new FleetRescoreJob(twins, ENGINE, meterRegistry, 10, 4, 500);
+
+        job.start();
+        RescoreJobResponse done = awaitFinished(job);
+
+        assertThat(done.getState()).isEqualTo("COMPLETED");
+        long first = twins.readAt.stream().mapToLong(Long::longValue).min().orElseThrow();
+        long last = twins.readAt.stream().mapToLong(Long::longValue).max().orElseThrow();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(last - first)).isGreaterThanOrEqualTo(170);
+    }
+
+    @Test
+    void refusesASecondRunUntilTheFirstFinishes() throws Exception {
+        twins.put("EV-1", true);
+        twins.listing = new CountDownLatch(1);
+        FleetRescoreJob job = new FleetRescoreJob(twins, ENGINE, meterRegistry, 10, 1, 0);
+
+        RescoreJobResponse first = job.start();
+        RescoreJobResponse second = job.start();
+        twins.listing.countDown();
+        awaitFinished(job);
+        RescoreJobResponse third = job.start();
+
+        assertThat(first.getState()).isEqualTo("RUNNING");
+        assertThat(second).isNull();
+        assertThat(third.getJobId()).isEqualTo(2);
+        awaitFinished(job);
+    }
+
+    @Test
+    void reportsAFailedRun() throws Exception {
+        twins.put("EV-1", true);
+        twins.failing = true;
+        FleetRescoreJob job = new FleetRescoreJob(twins, ENGINE, meterRegistry, 10, 1, 0);
+
+        job.start();
+        RescoreJobResponse done = awaitFinished(job);
+
+        assertThat(done.getState()).isEqualTo("FAILED");
+        assertThat(done.getError()).isEqualTo("Redis is down");
+        assertThat(done.getFinishedAt()).isNotNull();
+    }
+
+    private static RescoreJobResponse awaitFinished(FleetRescoreJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        RescoreJobResponse progress = job.getProgress();
+        while (progress.getState().equals("RUNNING") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+            progress = job.getProgress();
+        }
+        return progress;
+    }
+
+    // Keeps twins in memory, recording the chunks read and written
+    private static final class StubTwinService extends DigitalTwinService {
+
+        final Map<String, DigitalTwinState> stored = new ConcurrentHashMap<>();
+        final List<List<String>> reads = new CopyOnWriteArrayList<>();
+        final List<Long> readAt = new CopyOnWriteArrayList<>();
+        final List<List<String>> saved = new CopyOnWriteArrayList<>();
+        final Set<String> updatedMeanwhile = ConcurrentHashMap.newKeySet();
+        volatile CountDownLatch listing;
+        volatile boolean failing;
+
+        StubTwinService() {
+            super(null, null, new LivenessTracker(new SimpleMeterRegistry(), 120_000, 1000, 1, 0), null, null,
+                    5000, TwinLayout.BLOB, 86_400_000);
+        }
+
+        // A twin scored as the rules would, or with a stale score the job has to fix
+        void put(String vehicleId, boolean stale) {
+            DigitalTwinState twin = new DigitalTwinState();
+            twin.setVehicleId(vehicleId);
+            twin.setOnline(true);
+            TelemetrySnapshot telemetry = new TelemetrySnapshot();
+            telemetry.setBatterySocPct(80.0);
+            twin.setTelemetry(telemetry);
+            HealthScoreResult result = ENGINE.evaluate(twin);
+            twin.setHealthScore(stale ? result.getScore() - 1 : result.getScore());
+            twin.setHealthState(result.getState().name());
+            stored.put(vehicleId, twin);
+        }
+
+        @Override
+        public List<String> findAllIds() {
+            if (listing != null) {
+                try {
+                    listing.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            List<String> ids = new ArrayList<>(stored.keySet());
+            ids.sort(null);
+            return ids;
+        }
+
+        @Override
+        public List<DigitalTwinState> findAll(Collection<? extends String> vehicleIds) {
+            if (failing) {
+                throw new IllegalStateException("Redis is down");
+            }
+            readAt.add(System.nanoTime());
+            reads.add(List.copyOf(vehicleIds));
+            List<DigitalTwinState> found = new ArrayList<>();
+            for (String id : vehicleIds) {
+                found.add(copy(stored.get(id)));
+            }
+            return found;
+        }
+
+        @Override
+        public int saveScores(List<DigitalTwinState> twins) {
+            List<String> ids = new ArrayList<>();
+            for (DigitalTwinState twin : twins) {
+                if (!updatedMeanwhile.contains(twin.getVehicleId())) {
+                    stored.put(twin.getVehicleId(), twin);
+                    ids.add(twin.getVehicleId());
+                }
+            }
+            saved.add(ids);
+            return ids.size();
+        }
+
+        private static DigitalTwinState copy(DigitalTwinState twin) {
+            DigitalTwinState copy = new DigitalTwinState();
+            copy.setVehicleId(twin.getVehicleId());
+            copy.setOnline(twin.isOnline());
+            copy.setTelemetry(twin.getTelemetry());
+            copy.setHealthScore(twin.getHealthScore());
+            copy.setHealthState(twin.getHealthState());
+            copy.setTrendPenalty(twin.getTrendPenalty());
+            return copy;
+        }
+    }
+}
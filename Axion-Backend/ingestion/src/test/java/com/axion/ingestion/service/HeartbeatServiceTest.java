@@ -0,0 +1,199 @@
+package com.axion.ingestion.service;
+
+import com.axion.ingestion.liveness.LivenessTracker;
+import com.axion.ingestion.model.DigitalTwinState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeartbeatServiceTest {
+
+    private static TestRedis redis;
+
+    @BeforeAll
+    static void connect() {
+        redis = TestRedis.connect();
+    }
+
+    @AfterAll
+    static void disconnect() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void flushRedis() {
+        redis.flush();
+    }
+
+    @Test
+    void writesTheLatestHeartbeatPerVehicleOnce() {
+        RecordingTwinService twins = new RecordingTwinService();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        HeartbeatService heartbeats = new HeartbeatService(twins, meterRegistry);
+
+        heartbeats.record("EV-1");
+        heartbeats.record("EV-2");
+        heartbeats.record("EV-1");
+        heartbeats.flush();
+        heartbeats.flush();
+
+        assertThat(twins.batches).hasSize(1);
+        assertThat(twins.batches.get(0)).containsOnlyKeys("EV-1", "EV-2");
+        assertThat(meterRegistry.counter("axion.heartbeat.received").count()).isEqualTo(3);
+        assertThat(meterRegistry.counter("axion.heartbeat.written").count()).isEqualTo(2);
+    }
+
+    @Test
+    void dropsAFailedBatchAndCarriesOn() {
+        RecordingTwinService twins = new RecordingTwinService();
+        twins.failNext = true;
+        HeartbeatService heartbeats = new HeartbeatService(twins, new SimpleMeterRegistry());
+
+        heartbeats.record("EV-1");
+        heartbeats.flush();
+        heartbeats.record("EV-2");
+        heartbeats.flush();
+
+        assertThat(twins.batches).hasSize(2);
+        assertThat(twins.batches.get(1)).containsOnlyKeys("EV-2");
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void heartbeatDoesNotMakeTheNextReadingStale(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        twins.updateBatch(List.of(TestRedis.event("EV-1", now.minusSeconds(60), now.minusSeconds(60))));
+
+        // The heartbeat is received after the next reading was taken, but before it arrives
+        assertThat(twins.keepAlive(Map.of("EV-1", now.toEpochMilli()))).isEqualTo(1);
+        int written = twins.updateBatch(List.of(TestRedis.event("EV-1", now.minusSeconds(30), now)));
+
+        assertThat(written).isEqualTo(1);
+        assertThat(twins.find("EV-1").getLastEventTs()).isEqualTo(now.minusSeconds(30));
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void keepAliveOnlyMovesLastSeenForward(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        twins.updateBatch(List.of(TestRedis.event("EV-1", now.minusSeconds(20), now.minusSeconds(10))));
+
+        twins.keepAlive(Map.of("EV-1", now.minusSeconds(15).toEpochMilli()));
+        DigitalTwinState unchanged = twins.find("EV-1");
+        twins.keepAlive(Map.of("EV-1", now.toEpochMilli()));
+        DigitalTwinState refreshed = twins.find("EV-1");
+
+        assertThat(unchanged.getLastSeen()).isEqualTo(now.minusSeconds(10));
+        assertThat(refreshed.getLastSeen()).isEqualTo(now);
+        assertThat(refreshed.getLastEventTs()).isEqualTo(now.minusSeconds(20));
+        assertThat(refreshed.isOnline()).isTrue();
+        assertThat(refreshed.getTelemetry().getBatterySocPct()).isEqualTo(80.0);
+    }
+
+    @Test
+    void keepAliveLeavesTheBlobAloneWhileTheVehicleIsOnline() {
+        DigitalTwinService twins = redis.twinService(TwinLayout.BLOB);
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        twins.updateBatch(List.of(TestRedis.event("EV-1", now.minusSeconds(20), now.minusSeconds(10))));
+        String written = redis.strings().opsForValue().get("digital_twin:EV-1");
+        redis.strings().expire("digital_twin:EV-1", Duration.ofMinutes(1));
+
+        twins.keepAlive(Map.of("EV-1", now.toEpochMilli()));
+
+        // lastSeen moves in the listing index only, and is read back from there
+        assertThat(redis.strings().opsForValue().get("digital_twin:EV-1")).isEqualTo(written);
+        assertThat(redis.strings().getExpire("digital_twin:EV-1")).isGreaterThan(Duration.ofMinutes(1).toSeconds());
+        assertThat(twins.find("EV-1").getLastSeen()).isEqualTo(now);
+        assertThat(twins.findVehicles(List.of("EV-1")).get(0).getLastSeen()).isEqualTo(now);
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void announcesAKeepAliveOnlyWhenItBringsTheVehicleBack(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        twins.updateBatch(List.of(TestRedis.event("EV-1", now.minusSeconds(20), now.minusSeconds(10))));
+        Double written = twinVersion("EV-1");
+
+        try (TestRedis.Announcements announcements = redis.announcements()) {
+            twins.keepAlive(Map.of("EV-1", now.minusSeconds(5).toEpochMilli()));
+            Double keptAlive = twinVersion("EV-1");
+            List<String> whileOnline = announcements.drain();
+            twins.keepAlive(Map.of("EV-1", now.minusSeconds(6).toEpochMilli()));
+            Double older = twinVersion("EV-1");
+            markOffline(layout, "EV-1");
+            twins.keepAlive(Map.of("EV-1", now.toEpochMilli()));
+
+            assertThat(whileOnline).isEmpty();
+            // Coming back, and the re-score that follows
+            assertThat(announcements.drain()).containsOnly("EV-1");
+            // A newer lastSeen moves the version even unannounced, an older one leaves the twin alone
+            assertThat(keptAlive).isGreaterThan(written);
+            assertThat(older).isEqualTo(keptAlive);
+            assertThat(twinVersion("EV-1")).isGreaterThan(keptAlive);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(TwinLayout.class)
+    void skipsVehiclesWithoutATwin(TwinLayout layout) {
+        DigitalTwinService twins = redis.twinService(layout);
+
+        assertThat(twins.keepAlive(Map.of("EV-404", System.currentTimeMillis()))).isZero();
+        assertThat(twins.find("EV-404")).isNull();
+    }
+
+    private static Double twinVersion(String vehicleId) {
+        return redis.strings().opsForZSet().score("fleet:idx:version", vehicleId);
+    }
+
+    private static void markOffline(TwinLayout layout, String vehicleId) {
+        String member = (String) redis.strings().opsForHash().get("fleet:members", vehicleId);
+        redis.strings().opsForHash().put("fleet:members", vehicleId, member.replace(":1:", ":0:"));
+        if (layout == TwinLayout.HASH) {
+            redis.strings().opsForHash().put("twin:" + vehicleId, "online", "0");
+        } else {
+            String key = "digital_twin:" + vehicleId;
+            String twin = redis.strings().opsForValue().get(key);
+            redis.strings().opsForValue().set(key, twin.replace("\"online\":true", "\"online\":false"));
+        }
+    }
+
+    // Records the keep-alive batches instead of writing them, optionally failing the next one
+    private static final class RecordingTwinService extends DigitalTwinService {
+
+        final List<Map<String, Long>> batches = new ArrayList<>();
+        boolean failNext;
+
+        RecordingTwinService() {
+            super(null, null, new LivenessTracker(new SimpleMeterRegistry(), 120_000, 1000, 1, 0), null, null,
+                    5000, TwinLayout.BLOB, 86_400_000);
+        }
+
+        @Override
+        public int keepAlive(Map<String, Long> lastSeenMillis) {
+            batches.add(Map.copyOf(lastSeenMillis));
+            if (failNext) {
+                failNext = false;
+                throw new RedisConnectionFailureException("Redis is down");
+            }
+            return lastSeenMillis.size();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.axion.ingestion.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LuaScriptsTest {
+
+    private static final RedisScript<List> INCREMENT = RedisScript.of(
+            "if ARGV[1] == 'fail' then return redis.error_reply('ERR asked to') end\n"
+                    + "return { redis.call('INCR', KEYS[1]), ARGV[1] }", List.class);
+
+    private static TestRedis redis;
+
+    @BeforeAll
+    static void connect() {
+        redis = TestRedis.connect();
+    }
+
+    @AfterAll
+    static void disconnect() {
+        redis.close();
+    }
+
+    @BeforeEach
+    void flushRedis() {
+        redis.flush();
+        try (RedisConnection connection = redis.connectionFactory().getConnection()) {
+            connection.scriptingCommands().scriptFlush();
+        }
+    }
+
+    @Test
+    void loadsAScriptRedisDoesNotHave() {
+        List<Object> first = LuaScripts.evalPipelined(redis.template(), INCREMENT, ReturnType.MULTI, 1,
+                calls("a", "b", "c"));
+        List<Object> second = LuaScripts.evalPipelined(redis.template(), INCREMENT, ReturnType.MULTI, 1,
+                calls("a", "b", "c"));
+
+        assertThat(first).containsExactly(List.of(1L, "a"), List.of(1L, "b"), List.of(1L, "c"));
+        assertThat(second).containsExactly(List.of(2L, "a"), List.of(2L, "b"), List.of(2L, "c"));
+    }
+
+    @Test
+    void passesOtherErrorsOn() {
+        LuaScripts.evalPipelined(redis.template(), INCREMENT, ReturnType.MULTI, 1, calls("a"));
+
+        assertThatThrownBy(() -> LuaScripts.evalPipelined(redis.template(), INCREMENT, ReturnType.MULTI, 1,
+                calls("b", "fail"))).isInstanceOf(RedisPipelineException.class).hasStackTraceContaining("asked to");
+    }
+
+    @Test
+    void sendsNothingForNoCalls() {
+        assertThat(LuaScripts.evalPipelined(redis.template(), INCREMENT, ReturnType.MULTI, 1, List.of())).isEmpty();
+    }
+
+    // One call per argument, each incrementing the key named like it
+    private static List<byte[][]> calls(String... args) {
+        List<byte[][]> calls = new ArrayList<>();
+        for (String arg : args) {
+            byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+            calls.add(new byte[][] { bytes, bytes });
+        }
+        return calls;
+    }
+}
@@ -0,0 +1,80 @@
+package com.axion.ingestion.service;
+
+import com.axion.ingestion.adapter.TelemetryAdapterRegistry;
+import com.axion.ingestion.dto.BatchIngestionResponse;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.producer.StubKafkaTemplate;
+import com.axion.ingestion.producer.TelemetryKafkaProducer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.kafka.support.SendResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures batch ingestion throughput, parsing, validation and producer
+ * hand-off, against a producer that acknowledges at once, so the broker is
+ * left out. Not part of the build, run with
+ * <pre>
+ * mvn test -Dtest=TelemetryIngestionBenchmark -Daxion.benchmark=true [-Daxion.benchmark.records=10000]
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "axion.benchmark", matches = "true")
+class TelemetryIngestionBenchmark {
+
+    private static final int WARMUP = 20;
+    private static final int ROUNDS = 15;
+
+    @Test
+    void compareArrayAndNdjson() throws Exception {
+        int records = Integer.getInteger("axion.benchmark.records", 10_000);
+        StubKafkaTemplate<CanonicalTelemetryEnvelope> kafka = new StubKafkaTemplate<>() {
+            @Override
+            public CompletableFuture<SendResult<String, CanonicalTelemetryEnvelope>> send(String topic, String key,
+                    CanonicalTelemetryEnvelope data) {
+                // Nothing is kept, so memory stays flat across rounds
+                return CompletableFuture.completedFuture(null);
+            }
+        };
+        TelemetryIngestionService service = new TelemetryIngestionService(
+                new TelemetryAdapterRegistry(new ClassPathResource("vendor-mappings.json"), new SimpleMeterRegistry()),
+                new TelemetryKafkaProducer(kafka, records), records);
+
+        StringJoiner array = new StringJoiner(",", "[", "]");
+        StringJoiner ndjson = new StringJoiner("\n");
+        for (int i = 0; i < records; i++) {
+            String reading = TelemetryIngestionServiceTest.reading(String.format("EV-%06d", i));
+            array.add(reading);
+            ndjson.add(reading);
+        }
+        byte[] arrayBody = array.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] ndjsonBody = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+
+        System.out.printf("%n%d records per batch, median of %d rounds%n", records, ROUNDS);
+        System.out.printf("%-8s %12s %14s%n", "format", "batch ms", "records/s");
+        for (boolean isNdjson : new boolean[] { false, true }) {
+            byte[] body = isNdjson ? ndjsonBody : arrayBody;
+            long[] samples = new long[ROUNDS];
+            for (int round = -WARMUP; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                BatchIngestionResponse response = service.ingestBatch(body, isNdjson, null).block();
+                long elapsed = System.nanoTime() - start;
+                assertEquals(records, response.getAccepted());
+                if (round >= 0) {
+                    samples[round] = elapsed;
+                }
+            }
+            Arrays.sort(samples);
+            long median = samples[ROUNDS / 2];
+            System.out.printf("%-8s %12.2f %14.0f%n", isNdjson ? "ndjson" : "array", median / 1e6,
+                    records * 1e9 / median);
+        }
+    }
+}
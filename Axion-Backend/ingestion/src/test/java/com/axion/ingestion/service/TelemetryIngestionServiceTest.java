@@ -0,0 +1,102 @@
+package com.axion.ingestion.service;
+
+import com.axion.ingestion.adapter.TelemetryAdapterRegistry;
+import com.axion.ingestion.dto.BatchIngestionResponse;
+import com.axion.ingestion.dto.BatchRecordResult;
+import com.axion.ingestion.exception.InvalidPayloadException;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.producer.StubKafkaTemplate;
+import com.axion.ingestion.producer.TelemetryKafkaProducer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TelemetryIngestionServiceTest {
+
+    private final StubKafkaTemplate<CanonicalTelemetryEnvelope> kafka = new StubKafkaTemplate<>();
+
+    @Test
+    void reportsEveryRecordOfAPartlyInvalidArray() throws IOException {
+        kafka.failing(envelope -> envelope.getVehicleId().equals("EV-4"));
+        String body = "[" + reading("EV-1") + ","
+                + "{\"vehicle_id\":\"EV-2\",\"timestamp\":\"2026-01-25T18:32:45Z\",\"telemetry\":{}},"
+                + "{\"vehicle_id\":\"EV-3\",\"timestamp\":\"yesterday\",\"telemetry\":{\"battery_soc_pct\":50}},"
+                + reading("EV-4") + "]";
+
+        BatchIngestionResponse response = service(10).ingestBatch(bytes(body), false, null).block();
+
+        assertThat(response.getReceived()).isEqualTo(4);
+        assertThat(response.getAccepted()).isEqualTo(1);
+        assertThat(response.getRejected()).isEqualTo(3);
+        assertThat(response.getResults()).extracting(BatchRecordResult::getErrorCode)
+                .containsExactly(null, "VALIDATION_FAILED", "INVALID_PAYLOAD", "INGESTION_UNAVAILABLE");
+        assertThat(response.getResults()).extracting(BatchRecordResult::getIndex).containsExactly(0, 1, 2, 3);
+        assertThat(kafka.sent).extracting(CanonicalTelemetryEnvelope::getVehicleId).containsExactly("EV-1", "EV-4");
+    }
+
+    @Test
+    void stopsReadingAtTheBatchLimit() throws IOException {
+        String body = String.join("\n", reading("EV-1"), "", reading("EV-2"), reading("EV-3"), reading("EV-4"));
+
+        BatchIngestionResponse response = service(2).ingestBatch(bytes(body), true, null).block();
+
+        assertThat(response.getReceived()).isEqualTo(3);
+        assertThat(response.getAccepted()).isEqualTo(2);
+        assertThat(response.getResults().get(2).getErrorCode()).isEqualTo("BATCH_LIMIT_EXCEEDED");
+        assertThat(kafka.sent).hasSize(2);
+    }
+
+    @Test
+    void keepsWhatWasReadBeforeMalformedJson() throws IOException {
+        String body = "[" + reading("EV-1") + ", {\"vehicle_id\": ]";
+
+        BatchIngestionResponse response = service(10).ingestBatch(bytes(body), false, null).block();
+
+        assertThat(response.getAccepted()).isEqualTo(1);
+        assertThat(response.getResults().get(1).getMessage()).contains("remaining records were not read");
+    }
+
+    @Test
+    void rejectsABodyThatIsNotAnArray() throws IOException {
+        TelemetryIngestionService service = service(10);
+
+        assertThatThrownBy(() -> service.ingestBatch(bytes(reading("EV-1")), false, null).block())
+                .isInstanceOf(InvalidPayloadException.class);
+    }
+
+    @Test
+    void answersOnlyOnceEverySendIsAcknowledged() throws IOException {
+        kafka.holdAcks();
+        String body = "[" + reading("EV-1") + "," + reading("EV-2") + "]";
+
+        var response = service(10).ingestBatch(bytes(body), false, null).toFuture();
+
+        kafka.ack(0);
+        assertThat(response).isNotDone();
+        kafka.fail(1);
+        assertThat(response.join().getResults()).extracting(BatchRecordResult::getStatus)
+                .isEqualTo(List.of(BatchRecordResult.ACCEPTED, BatchRecordResult.REJECTED));
+    }
+
+    private TelemetryIngestionService service(int maxRecords) throws IOException {
+        TelemetryAdapterRegistry adapters = new TelemetryAdapterRegistry(
+                new ClassPathResource("vendor-mappings.json"), new SimpleMeterRegistry());
+        return new TelemetryIngestionService(adapters, new TelemetryKafkaProducer(kafka, 100), maxRecords);
+    }
+
+    static String reading(String vehicleId) {
+        return "{\"vehicle_id\":\"" + vehicleId + "\",\"timestamp\":\"2026-01-25T18:32:45Z\","
+                + "\"telemetry\":{\"battery_soc_pct\":78.5,\"speed_kmph\":64.2}}";
+    }
+
+    private static byte[] bytes(String body) {
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+}
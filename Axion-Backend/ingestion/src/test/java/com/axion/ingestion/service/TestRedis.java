@@ -0,0 +1,214 @@
+package com.axion.ingestion.service;
+
+import com.axion.ingestion.alert.AlertService;
+import com.axion.ingestion.config.RedisConfig;
+import com.axion.ingestion.connectivity.SequenceTracker;
+import com.axion.ingestion.health.HealthScoreEngine;
+import com.axion.ingestion.health.TrendTracker;
+import com.axion.ingestion.liveness.LivenessTracker;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.model.DigitalTwinState;
+import com.axion.ingestion.model.TelemetryPayload;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assumptions;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A real Redis for the tests of the Lua scripts: database 15 of
+ * {@code -Daxion.test.redis=host:port}, localhost:6379 by default. Tests
+ * using it are skipped when it can't be reached. {@link #flush()} empties
+ * that database.
+ */
+public final class TestRedis implements AutoCloseable {
+
+    private static final int DATABASE = 15;
+
+    private final LettuceConnectionFactory connectionFactory;
+    private final RedisTemplate<String, DigitalTwinState> template;
+    private final StringRedisTemplate strings;
+
+    private TestRedis(LettuceConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+        this.template = new RedisConfig().redisTemplate(connectionFactory);
+        this.strings = new StringRedisTemplate(connectionFactory);
+    }
+
+    public static TestRedis connect() {
+        String[] address = System.getProperty("axion.test.redis", "localhost:6379").split(":");
+        RedisStandaloneConfiguration configuration =
+                new RedisStandaloneConfiguration(address[0], Integer.parseInt(address[1]));
+        configuration.setDatabase(DATABASE);
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.ping();
+        } catch (RuntimeException e) {
+            connectionFactory.destroy();
+            Assumptions.abort("No Redis at " + String.join(":", address) + ": " + e.getMessage());
+        }
+        return new TestRedis(connectionFactory);
+    }
+
+    public void flush() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushDb();
+        }
+    }
+
+    public LettuceConnectionFactory connectionFactory() {
+        return connectionFactory;
+    }
+
+    public RedisTemplate<String, DigitalTwinState> template() {
+        return template;
+    }
+
+    public StringRedisTemplate strings() {
+        return strings;
+    }
+
+    /**
+     * Records the vehicle ids announced on
+     * {@link DigitalTwinService#CHANGES_CHANNEL} from now on.
+     */
+    public Announcements announcements() {
+        return new Announcements(RedisURI.create(connectionFactory.getHostName(), connectionFactory.getPort()));
+    }
+
+    /**
+     * A twin service on this Redis with the bundled health rules, going
+     * offline after 120 s of silence.
+     */
+    public DigitalTwinService twinService(TwinLayout layout) {
+        return twinService(layout, new LivenessTracker(new SimpleMeterRegistry(), 120_000, 1000, 1, 0));
+    }
+
+    public DigitalTwinService twinService(TwinLayout layout, LivenessTracker livenessTracker) {
+        return twinService(layout, livenessTracker, 5000);
+    }
+
+    public DigitalTwinService twinService(TwinLayout layout, LivenessTracker livenessTracker, int listingScanLimit) {
+        return twinService(layout, livenessTracker, listingScanLimit,
+                new AlertService(healthScoreEngine(), null, new SimpleMeterRegistry(), false, 300_000, 5, 1000, 3_600_000));
+    }
+
+    /**
+     * A twin service raising its alerts through the given service, which is
+     * disabled in the others.
+     */
+    public DigitalTwinService twinService(TwinLayout layout, AlertService alertService) {
+        return twinService(layout, new LivenessTracker(new SimpleMeterRegistry(), 120_000, 1000, 1, 0), 5000,
+                alertService);
+    }
+
+    private DigitalTwinService twinService(TwinLayout layout, LivenessTracker livenessTracker, int listingScanLimit,
+            AlertService alertService) {
+        return new DigitalTwinService(template, healthScoreEngine(), livenessTracker,
+                new SequenceTracker(new SimpleMeterRegistry(), true, 20, 3_600_000), alertService,
+                listingScanLimit, layout, 86_400_000);
+    }
+
+    public static HealthScoreEngine healthScoreEngine() {
+        try {
+            return new HealthScoreEngine(new ClassPathResource("health-rules.json"),
+                    new TrendTracker(new SimpleMeterRegistry(), false, 8, 0, 0, 0, 0.25));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A healthy reading taken at {@code timestamp} and received at
+     * {@code ingestedAt}.
+     */
+    public static CanonicalTelemetryEnvelope event(String vehicleId, Instant timestamp, Instant ingestedAt) {
+        CanonicalTelemetryEnvelope event = new CanonicalTelemetryEnvelope();
+        event.setVehicleId(vehicleId);
+        event.setVendor("TESLA");
+        event.setSchemaVersion("1.0");
+        event.setTimestamp(timestamp);
+        event.setIngestionTs(ingestedAt);
+
+        TelemetryPayload telemetry = new TelemetryPayload();
+        telemetry.setBatterySocPct(80.0);
+        telemetry.setSpeedKmph(50.0);
+        telemetry.setBatteryTempC(30.0);
+        telemetry.setMotorTempC(45.0);
+        telemetry.setAmbientTempC(21.5);
+        event.setTelemetry(telemetry);
+        return event;
+    }
+
+    @Override
+    public void close() {
+        connectionFactory.destroy();
+    }
+
+    public final class Announcements implements AutoCloseable {
+
+        private static final String MARKER = "--";
+
+        private final RedisClient client;
+        private final StatefulRedisPubSubConnection<String, String> connection;
+        private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+        private Announcements(RedisURI uri) {
+            client = RedisClient.create(uri);
+            connection = client.connectPubSub();
+            connection.addListener(new RedisPubSubAdapter<>() {
+                @Override
+                public void message(String channel, String message) {
+                    received.add(message);
+                }
+            });
+            connection.sync().subscribe(DigitalTwinService.CHANGES_CHANNEL);
+        }
+
+        /**
+         * The ids announced since the last call. Messages arrive in order, so
+         * everything published before a marker of our own has arrived with it.
+         */
+        public List<String> drain() {
+            strings.convertAndSend(DigitalTwinService.CHANGES_CHANNEL, MARKER);
+            List<String> ids = new ArrayList<>();
+            try {
+                for (String id = received.poll(5, TimeUnit.SECONDS); !MARKER.equals(id);
+                        id = received.poll(5, TimeUnit.SECONDS)) {
+                    if (id == null) {
+                        throw new IllegalStateException("No marker back from " + DigitalTwinService.CHANGES_CHANNEL);
+                    }
+                    ids.add(id);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return ids;
+        }
+
+        @Override
+        public void close() {
+            connection.close();
+            client.shutdown();
+        }
+    }
+}
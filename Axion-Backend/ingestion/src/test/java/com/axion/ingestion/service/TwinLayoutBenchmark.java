@@ -0,0 +1,194 @@
+package com.axion.ingestion.service;
+
+import com.axion.ingestion.alert.AlertService;
+import com.axion.ingestion.config.RedisConfig;
+import com.axion.ingestion.connectivity.SequenceTracker;
+import com.axion.ingestion.health.HealthScoreEngine;
+import com.axion.ingestion.health.TrendTracker;
+import com.axion.ingestion.liveness.LivenessTracker;
+import com.axion.ingestion.model.CanonicalTelemetryEnvelope;
+import com.axion.ingestion.model.ConnectionMetadata;
+import com.axion.ingestion.model.DigitalTwinState;
+import com.axion.ingestion.model.TelemetryPayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+/**
+ * Compares the {@link TwinLayout}s on memory per twin and on the latency of
+ * writes and reads, against a real Redis. Not part of the build, run with
+ * <pre>
+ * mvn test -Dtest=TwinLayoutBenchmark -Daxion.benchmark=true \
+ *     [-Daxion.benchmark.redis=localhost:6379] [-Daxion.benchmark.vehicles=10000]
+ * </pre>
+ * It flushes the Redis database it runs against.
+ */
+@EnabledIfSystemProperty(named = "axion.benchmark", matches = "true")
+class TwinLayoutBenchmark {
+
+    private static final int ROUNDS = 7;
+    private static final int BATCH = 500;
+    private static final int PAGE = 100;
+
+    private static final byte[] MEMORY_USAGE =
+            "return redis.call('MEMORY', 'USAGE', KEYS[1])".getBytes(StandardCharsets.UTF_8);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisTemplate<String, DigitalTwinState> template;
+
+    @BeforeAll
+    static void connect() {
+        String[] address = System.getProperty("axion.benchmark.redis", "localhost:6379").split(":");
+        connectionFactory = new LettuceConnectionFactory(address[0], Integer.parseInt(address[1]));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        template = new RedisConfig().redisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void compareLayouts() throws IOException {
+        int vehicles = Integer.getInteger("axion.benchmark.vehicles", 10_000);
+        List<String> ids = new ArrayList<>(vehicles);
+        for (int i = 0; i < vehicles; i++) {
+            ids.add(String.format("EV-%06d", i));
+        }
+
+        System.out.printf("%n%d vehicles, median of %d rounds%n", vehicles, ROUNDS);
+        System.out.printf("%-6s %14s %14s %14s %14s %14s %14s%n", "layout", "bytes/twin",
+                "update ms", "full read ms", "listing ms", "page(100) ms", "find us");
+        for (TwinLayout layout : TwinLayout.values()) {
+            run(layout, ids);
+        }
+    }
+
+    private void run(TwinLayout layout, List<String> ids) throws IOException {
+        HealthScoreEngine engine = new HealthScoreEngine(new ClassPathResource("health-rules.json"),
+                new TrendTracker(new SimpleMeterRegistry(), false, 8, 0, 0, 0, 0.25));
+        DigitalTwinService service = new DigitalTwinService(template, engine,
+                new LivenessTracker(new SimpleMeterRegistry(), 120_000, 1000, 1, 0),
+                new SequenceTracker(new SimpleMeterRegistry(), true, 20, 3_600_000),
+                new AlertService(engine, null, new SimpleMeterRegistry(), false, 300_000, 5, 1000, 3_600_000),
+                5000, layout, 86_400_000);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushDb();
+        }
+
+        // The first round writes the twins, the rest update them in place
+        long[] updates = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            List<CanonicalTelemetryEnvelope> events = events(ids, round);
+            updates[round] = time(() -> {
+                for (int from = 0; from < events.size(); from += BATCH) {
+                    service.updateBatch(events.subList(from, Math.min(from + BATCH, events.size())));
+                }
+                return null;
+            });
+        }
+
+        long fullRead = median(() -> service.findAll(ids));
+        long listing = median(() -> service.findVehicles(ids));
+        long page = median(() -> service.findVehicles(ids.subList(0, PAGE)));
+        long find = median(() -> {
+            for (int i = 0; i < 1000; i++) {
+                service.find(ids.get(i * 7919 % ids.size()));
+            }
+            return null;
+        });
+
+        System.out.printf("%-6s %14d %14.1f %14.1f %14.1f %14.2f %14.1f%n", layout, twinBytes(layout, ids),
+                millis(median(Arrays.copyOfRange(updates, 1, ROUNDS))), millis(fullRead), millis(listing),
+                millis(page), find / 1000.0 / 1000.0);
+    }
+
+    // Average MEMORY USAGE of a sample of twin keys, including Redis' per-key overhead
+    private long twinBytes(TwinLayout layout, List<String> ids) {
+        String prefix = layout == TwinLayout.HASH ? "twin:" : "digital_twin:";
+        long total = 0;
+        int sampled = 0;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            for (int i = 0; i < ids.size(); i += Math.max(1, ids.size() / 200)) {
+                Long usage = connection.scriptingCommands().eval(MEMORY_USAGE, ReturnType.INTEGER, 1,
+                        (prefix + ids.get(i)).getBytes(StandardCharsets.UTF_8));
+                total += usage;
+                sampled++;
+            }
+            Properties memory = connection.serverCommands().info("memory");
+            System.out.printf("  (%s used_memory %s)%n", layout, memory.getProperty("used_memory_human"));
+        }
+        return total / sampled;
+    }
+
+    private static List<CanonicalTelemetryEnvelope> events(List<String> ids, int round) {
+        Instant timestamp = Instant.parse("2026-01-01T00:00:00Z").plusSeconds(round);
+        List<CanonicalTelemetryEnvelope> events = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            CanonicalTelemetryEnvelope event = new CanonicalTelemetryEnvelope();
+            event.setVehicleId(ids.get(i));
+            event.setVendor(i % 2 == 0 ? "TESLA" : "BYD");
+            event.setSchemaVersion("1.0");
+            event.setTimestamp(timestamp);
+            event.setIngestionTs(Instant.now());
+
+            // Telemetry moves a little every round, like a driving fleet
+            TelemetryPayload telemetry = new TelemetryPayload();
+            telemetry.setBatterySocPct(90.0 - round - i % 40);
+            telemetry.setSpeedKmph((double) (i + round) % 120);
+            telemetry.setBatteryTempC(30.0 + i % 15);
+            telemetry.setMotorTempC(45.0 + i % 20);
+            telemetry.setAmbientTempC(21.5);
+            telemetry.setOdometerKm(12_000.0 + i + round);
+            event.setTelemetry(telemetry);
+
+            ConnectionMetadata connection = new ConnectionMetadata();
+            connection.setProtocol("MQTT");
+            event.setConnection(connection);
+            events.add(event);
+        }
+        return events;
+    }
+
+    private static long median(Supplier<?> work) {
+        long[] samples = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            samples[i] = time(work);
+        }
+        return median(samples);
+    }
+
+    private static long median(long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static long time(Supplier<?> work) {
+        long start = System.nanoTime();
+        work.get();
+        return System.nanoTime() - start;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
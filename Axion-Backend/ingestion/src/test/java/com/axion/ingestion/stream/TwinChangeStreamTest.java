@@ -0,0 +1,221 @@
+package com.axion.ingestion.stream;
+
+import com.axion.ingestion.dto.FleetSummaryResponse;
+import com.axion.ingestion.dto.TwinChangeEvent;
+import com.axion.ingestion.liveness.LivenessTracker;
+import com.axion.ingestion.model.DigitalTwinState;
+import com.axion.ingestion.service.DigitalTwinService;
+import com.axion.ingestion.service.TwinLayout;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TwinChangeStreamTest {
+
+    private final StubTwinService twins = new StubTwinService();
+    private final CapturingListenerContainer listeners = new CapturingListenerContainer();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TwinChangeStream stream = new TwinChangeStream(twins, listeners, meterRegistry, 10, 64);
+
+    @Test
+    void sendsChangedTwinsWithTheFleetCounters() {
+        twins.put("EV-1", "HEALTHY");
+
+        StepVerifier.create(stream.open(Set.of(), Set.of(), 0))
+                .then(() -> tick("EV-1", "EV-404"))
+                .assertNext(event -> {
+                    assertThat(event.event()).isEqualTo("twins");
+                    assertThat(event.data().getUpdated()).extracting(DigitalTwinState::getVehicleId)
+                            .containsExactly("EV-1");
+                    assertThat(event.data().getRemoved()).containsExactly("EV-404");
+                    assertThat(event.data().getSummary().getTotalVehicles()).isEqualTo(1);
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+        assertThat(twins.reads).containsExactly(List.of("EV-1", "EV-404"));
+    }
+
+    @Test
+    void readsTheCountersOnlyWhenTheyMoved() {
+        twins.put("EV-1", "HEALTHY");
+
+        StepVerifier.create(stream.open(Set.of(), Set.of(), 0))
+                .then(() -> tick("EV-1"))
+                .assertNext(event -> assertThat(event.data().getSummary()).isNotNull())
+                .then(() -> tick("EV-1"))
+                .assertNext(event -> assertThat(event.data().getSummary()).isNull())
+                .then(() -> {
+                    twins.summaryVersion++;
+                    tick("EV-1");
+                })
+                .assertNext(event -> assertThat(event.data().getSummary()).isNotNull())
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+        assertThat(twins.summaryReads).isEqualTo(2);
+    }
+
+    @Test
+    void removesATwinThatLeavesTheRequestedStates() {
+        twins.put("EV-1", "HEALTHY");
+        twins.put("EV-2", "CRITICAL");
+
+        StepVerifier.create(stream.open(Set.of(), Set.of("HEALTHY"), 0))
+                .then(() -> tick("EV-1", "EV-2"))
+                .assertNext(event -> assertThat(event.data().getUpdated())
+                        .extracting(DigitalTwinState::getVehicleId).containsExactly("EV-1"))
+                .then(() -> {
+                    twins.put("EV-1", "DEGRADED");
+                    tick("EV-1");
+                })
+                .assertNext(event -> {
+                    assertThat(event.data().getUpdated()).isNull();
+                    assertThat(event.data().getRemoved()).containsExactly("EV-1");
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void sendsAVehicleChangingManyTimesInTheIntervalOnce() {
+        twins.put("EV-1", "HEALTHY");
+
+        StepVerifier.create(stream.open(Set.of("EV-1"), Set.of(), 500))
+                .then(() -> {
+                    tick("EV-1");
+                    twins.put("EV-1", "DEGRADED");
+                    tick("EV-1");
+                })
+                .assertNext(event -> assertThat(event.data().getUpdated())
+                        .extracting(DigitalTwinState::getHealthState).containsExactly("DEGRADED"))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void dropsChangesWhileNobodyIsListening() {
+        stream.open(Set.of(), Set.of(), 0);
+
+        tick("EV-1");
+
+        assertThat(twins.reads).isEmpty();
+    }
+
+    @Test
+    void disconnectsAClientThatCannotKeepUp() {
+        TwinChangeStream small = new TwinChangeStream(twins, listeners, meterRegistry, 10, 1);
+        twins.put("EV-1", "HEALTHY");
+        List<ServerSentEvent<TwinChangeEvent>> received = new CopyOnWriteArrayList<>();
+
+        // Requests nothing, so every tick has to be buffered
+        StepVerifier.create(small.open(Set.of(), Set.of(), 0), 0)
+                .then(() -> {
+                    for (int i = 0; i < 5; i++) {
+                        listeners.announce("EV-1");
+                        small.tick();
+                        sleep(30);
+                    }
+                })
+                .thenRequest(Long.MAX_VALUE)
+                .thenConsumeWhile(received::add)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(received).last().extracting(ServerSentEvent::event).isEqualTo("slow-consumer");
+        assertThat(meterRegistry.counter("axion.stream.clients.dropped").count()).isEqualTo(1);
+    }
+
+    private void tick(String... vehicleIds) {
+        for (String vehicleId : vehicleIds) {
+            listeners.announce(vehicleId);
+        }
+        stream.tick();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Keeps twins in memory, counting the bulk reads and summary reads
+    private static final class StubTwinService extends DigitalTwinService {
+
+        final Map<String, DigitalTwinState> stored = new ConcurrentHashMap<>();
+        final List<List<String>> reads = new CopyOnWriteArrayList<>();
+        volatile long summaryVersion = 1;
+        volatile int summaryReads;
+
+        StubTwinService() {
+            super(null, null, new LivenessTracker(new SimpleMeterRegistry(), 120_000, 1000, 1, 0), null, null,
+                    5000, TwinLayout.BLOB, 86_400_000);
+        }
+
+        void put(String vehicleId, String healthState) {
+            DigitalTwinState twin = new DigitalTwinState();
+            twin.setVehicleId(vehicleId);
+            twin.setHealthState(healthState);
+            stored.put(vehicleId, twin);
+        }
+
+        @Override
+        public List<DigitalTwinState> findAll(Collection<? extends String> vehicleIds) {
+            List<String> ids = new ArrayList<>(vehicleIds);
+            ids.sort(null);
+            reads.add(ids);
+            List<DigitalTwinState> found = new ArrayList<>();
+            for (String id : ids) {
+                if (stored.containsKey(id)) {
+                    found.add(stored.get(id));
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public long getSummaryVersion() {
+            return summaryVersion;
+        }
+
+        @Override
+        public FleetSummaryResponse getFleetSummary() {
+            summaryReads++;
+            FleetSummaryResponse summary = new FleetSummaryResponse();
+            summary.setTotalVehicles(stored.size());
+            return summary;
+        }
+    }
+
+    private static final class CapturingListenerContainer extends RedisMessageListenerContainer {
+
+        MessageListener listener;
+
+        @Override
+        public void addMessageListener(MessageListener listener, Topic topic) {
+            this.listener = listener;
+        }
+
+        void announce(String vehicleId) {
+            listener.onMessage(new DefaultMessage(DigitalTwinService.CHANGES_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                    vehicleId.getBytes(StandardCharsets.UTF_8)), null);
+        }
+    }
+}
@@ -1,8 +1,9 @@
-import { useState } from 'react';
+import { useEffect, useState } from 'react';
 import { AlertTriangle, AlertCircle, Info, TrendingDown, Brain, Filter, Link2 } from 'lucide-react';
 import { motion } from 'motion/react';
 import { LineChart, Line, XAxis, YAxis, CartesianGrid, Tooltip, ResponsiveContainer } from 'recharts';
 import { StatusBadge } from '../ui/StatusBadge';
+import { AxionApi, VehicleAlert } from '../../services/api';
 
 interface Alert {
   id: string;
@@ -14,83 +15,24 @@ interface Alert {
   correlatedVehicles?: string[];
 }
 
-const alerts: Alert[] = [
-  {
-    id: '1',
-    severity: 'critical',
-    title: 'Battery Cell Degradation Detected',
-    vehicle: 'V-2847',
-    timestamp: '2024-12-04 14:23:15',
-    description: 'AI model detected abnormal voltage drop in cell cluster 3B',
-    correlatedVehicles: ['V-2841', 'V-2839'],
-  },
-  {
-    id: '2',
-    severity: 'critical',
-    title: 'Motor Fault - Rear Drive Unit',
-    vehicle: 'V-3241',
-    timestamp: '2024-12-04 13:45:22',
-    description: 'Unusual vibration pattern detected, potential bearing failure',
-  },
-  {
-    id: '3',
-    severity: 'warning',
-    title: 'High Temperature Alert',
-    vehicle: 'V-1923',
-    timestamp: '2024-12-04 13:12:08',
-    description: 'Battery temperature reached 43°C during fast charging',
-    correlatedVehicles: ['V-1921', 'V-1925', 'V-1928'],
-  },
-  {
-    id: '4',
-    severity: 'warning',
-    title: 'Low Battery Warning',
-    vehicle: 'V-4562',
-    timestamp: '2024-12-04 12:56:33',
-    description: 'Battery level dropped below 15% threshold',
-  },
-  {
-    id: '5',
-    severity: 'critical',
-    title: 'Communication Loss',
-    vehicle: 'V-1847',
-    timestamp: '2024-12-04 11:23:47',
-    description: 'Vehicle telemetry connection lost for 15+ minutes',
-  },
-  {
-    id: '6',
-    severity: 'info',
-    title: 'Firmware Update Available',
-    vehicle: 'V-2314',
-    timestamp: '2024-12-04 10:15:29',
-    description: 'New firmware version v2.4.1 ready for deployment',
-  },
-  {
-    id: '7',
-    severity: 'warning',
-    title: 'Tire Pressure Low',
-    vehicle: 'V-5621',
-    timestamp: '2024-12-04 09:34:12',
-    description: 'Front-left tire pressure at 28 PSI (recommended: 42 PSI)',
-  },
-  {
-    id: '8',
-    severity: 'info',
-    title: 'Charging Session Complete',
-    vehicle: 'V-8934',
-    timestamp: '2024-12-04 08:42:55',
-    description: 'Vehicle fully charged to 100% battery',
-  },
-  {
-    id: '9',
-    severity: 'critical',
-    title: 'Battery Cell Degradation Detected',
-    vehicle: 'V-2841',
-    timestamp: '2024-12-04 08:15:42',
-    description: 'AI model detected abnormal voltage drop in cell cluster 3B',
-    correlatedVehicles: ['V-2847', 'V-2839'],
-  },
-];
+const ALERT_REFRESH_MS = 15_000;
+
+function toAlert(alert: VehicleAlert): Alert {
+  const title = alert.type === 'CONNECTIVITY'
+    ? (alert.to === 'OFFLINE' ? 'Communication Loss' : 'Communication Restored')
+    : `Health ${alert.from ? `${alert.from} → ` : ''}${alert.to}`;
+  const description = alert.reasons?.length
+    ? alert.reasons.join('; ')
+    : alert.healthScore != null ? `Health score ${alert.healthScore}` : '';
+  return {
+    id: `${alert.vehicleId}-${alert.type}-${alert.detectedAt}`,
+    severity: alert.severity.toLowerCase() as Alert['severity'],
+    title,
+    vehicle: alert.vehicleId,
+    timestamp: new Date(alert.detectedAt).toLocaleString(),
+    description,
+  };
+}
 
 const degradationData = [
   { day: 'Day 1', capacity: 100 },
@@ -122,6 +64,21 @@ const topIssues = [
 
 export function AlertsAnalytics() {
   const [severityFilter, setSeverityFilter] = useState<'all' | 'critical' | 'warning' | 'info'>('all');
+  const [alerts, setAlerts] = useState<Alert[]>([]);
+
+  useEffect(() => {
+    const fetchAlerts = async () => {
+      try {
+        const data = await AxionApi.getAlerts();
+        setAlerts(data.map(toAlert));
+      } catch (e) {
+        console.error("Failed to fetch alerts", e);
+      }
+    };
+    fetchAlerts();
+    const timer = setInterval(fetchAlerts, ALERT_REFRESH_MS);
+    return () => clearInterval(timer);
+  }, []);
 
   const filteredAlerts = severityFilter === 'all' 
     ? alerts 
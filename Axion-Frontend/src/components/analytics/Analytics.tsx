@@ -1,45 +1,225 @@
+import { useEffect, useState } from 'react';
 import { motion } from 'motion/react';
-import { Construction, Sparkles } from 'lucide-react';
+import { BatteryCharging, Car, RefreshCw, Thermometer } from 'lucide-react';
+import { LineChart, Line, XAxis, YAxis, CartesianGrid, Tooltip, ResponsiveContainer, Legend } from 'recharts';
+import { AxionApi, FleetVehicle, HistoryPoint, RollupPoint, RollupResolution } from '../../services/api';
+
+// Fleet rollups of the resolution keeping each range to a few hundred windows
+const ranges: { label: string; ms: number; resolution: RollupResolution }[] = [
+  { label: '1h', ms: 60 * 60 * 1000, resolution: '1m' },
+  { label: '6h', ms: 6 * 60 * 60 * 1000, resolution: '5m' },
+  { label: '24h', ms: 24 * 60 * 60 * 1000, resolution: '5m' },
+  { label: '7d', ms: 7 * 24 * 60 * 60 * 1000, resolution: '1h' },
+];
+
+function toFleetPoint(window: RollupPoint) {
+  return {
+    timestamp: window.timestamp,
+    socMin: window.batterySocPct?.min,
+    socAvg: window.batterySocPct?.avg,
+    socMax: window.batterySocPct?.max,
+    batteryTempAvg: window.batteryTempC?.avg,
+    batteryTempMax: window.batteryTempC?.max,
+  };
+}
+
+const tooltipStyle = {
+  backgroundColor: 'rgba(0,0,0,0.9)',
+  border: '1px solid rgba(255,255,255,0.1)',
+  borderRadius: '8px',
+  fontSize: '12px',
+};
+
+function formatTick(timestamp: string, rangeMs: number) {
+  const date = new Date(timestamp);
+  return rangeMs > 24 * 60 * 60 * 1000
+    ? date.toLocaleDateString([], { month: 'short', day: 'numeric' })
+    : date.toLocaleTimeString([], { hour: '2-digit', minute: '2-digit' });
+}
 
 export function Analytics() {
+  const [vehicles, setVehicles] = useState<FleetVehicle[]>([]);
+  const [vehicleId, setVehicleId] = useState<string>('');
+  const [rangeMs, setRangeMs] = useState(ranges[0].ms);
+  const [points, setPoints] = useState<HistoryPoint[]>([]);
+  const [loading, setLoading] = useState(false);
+  const [error, setError] = useState<string | null>(null);
+  const [refreshes, setRefreshes] = useState(0);
+  const [fleetPoints, setFleetPoints] = useState<ReturnType<typeof toFleetPoint>[]>([]);
+
+  useEffect(() => {
+    AxionApi.getFleetVehicles({ sort: 'vehicleId' })
+      .then(list => {
+        setVehicles(list);
+        setVehicleId(current => current || list[0]?.vehicleId || '');
+      })
+      .catch(() => setError('Failed to load vehicles'));
+  }, []);
+
+  useEffect(() => {
+    if (!vehicleId) return;
+    let cancelled = false;
+    const to = new Date();
+    setLoading(true);
+    AxionApi.getVehicleHistory(vehicleId, new Date(to.getTime() - rangeMs), to)
+      .then(history => {
+        if (cancelled) return;
+        setPoints(history.points);
+        setError(null);
+      })
+      .catch(() => !cancelled && setError('Failed to load history'))
+      .finally(() => !cancelled && setLoading(false));
+    return () => {
+      cancelled = true;
+    };
+  }, [vehicleId, rangeMs, refreshes]);
+
+  useEffect(() => {
+    let cancelled = false;
+    const range = ranges.find(r => r.ms === rangeMs) ?? ranges[0];
+    const to = new Date();
+    AxionApi.getFleetRollups(range.resolution, new Date(to.getTime() - range.ms), to)
+      .then(rollups => !cancelled && setFleetPoints(rollups.windows.map(toFleetPoint)))
+      .catch(() => !cancelled && setError('Failed to load fleet rollups'));
+    return () => {
+      cancelled = true;
+    };
+  }, [rangeMs, refreshes]);
+
+  const samples = points.reduce((total, p) => total + p.samples, 0);
+
   return (
-    <div className="flex flex-col items-center justify-center min-h-[60vh] p-8 space-y-6 text-center">
+    <div className="p-8 space-y-6">
+      <div className="flex items-center justify-between">
+        <div>
+          <h1 className="text-3xl font-bold tracking-tight">Analytics</h1>
+          <p className="text-muted-foreground">
+            {vehicleId || 'No vehicle'}: {samples.toLocaleString()} readings in {points.length} buckets
+          </p>
+        </div>
+        <div className="flex items-center gap-3">
+          <select
+            value={vehicleId}
+            onChange={(e) => setVehicleId(e.target.value)}
+            className="bg-white/5 border border-white/10 rounded-lg px-3 py-1.5 text-sm"
+          >
+            {vehicles.map(v => (
+              <option key={v.vehicleId} value={v.vehicleId}>{v.vehicleId}</option>
+            ))}
+          </select>
+          <div className="flex rounded-lg border border-white/10 overflow-hidden">
+            {ranges.map(r => (
+              <button
+                key={r.label}
+                onClick={() => setRangeMs(r.ms)}
+                className={`px-3 py-1.5 text-sm transition-colors ${
+                  rangeMs === r.ms ? 'bg-primary/20 text-primary' : 'hover:bg-white/5'
+                }`}
+              >
+                {r.label}
+              </button>
+            ))}
+          </div>
+          <button
+            onClick={() => setRefreshes(n => n + 1)}
+            className="p-2 rounded-lg border border-white/10 hover:bg-white/5 transition-colors"
+            title="Refresh"
+          >
+            <RefreshCw className={`w-4 h-4 ${loading ? 'animate-spin' : ''}`} />
+          </button>
+        </div>
+      </div>
+
+      {error && <div className="text-sm text-red-400">{error}</div>}
+
       <motion.div
-        initial={{ opacity: 0, scale: 0.8 }}
-        animate={{ opacity: 1, scale: 1 }}
-        transition={{ duration: 0.5 }}
-        className="relative"
+        initial={{ opacity: 0, y: 20 }}
+        animate={{ opacity: 1, y: 0 }}
+        className="rounded-xl bg-gradient-to-br from-white/5 to-white/[0.02] border border-white/10 p-6"
       >
-        <div className="absolute inset-0 bg-primary/20 blur-3xl rounded-full" />
-        <div className="relative bg-card border border-border rounded-full p-8 shadow-2xl">
-          <Construction className="w-16 h-16 text-primary" />
+        <div className="flex items-center gap-2 mb-4">
+          <Car className="w-5 h-5 text-primary" />
+          <h2 className="text-lg">Fleet Battery</h2>
+          <span className="text-sm text-muted-foreground">
+            per {(ranges.find(r => r.ms === rangeMs) ?? ranges[0]).resolution} window
+          </span>
         </div>
-        <motion.div
-          animate={{ rotate: 360, scale: [1, 1.2, 1] }}
-          transition={{ duration: 3, repeat: Infinity }}
-          className="absolute -top-2 -right-2 bg-background border border-border p-2 rounded-full"
-        >
-          <Sparkles className="w-6 h-6 text-amber-400" />
-        </motion.div>
+        <ResponsiveContainer width="100%" height={240}>
+          <LineChart data={fleetPoints}>
+            <CartesianGrid strokeDasharray="3 3" stroke="rgba(255,255,255,0.05)" />
+            <XAxis
+              dataKey="timestamp"
+              tickFormatter={(t) => formatTick(t, rangeMs)}
+              stroke="rgba(255,255,255,0.3)"
+              style={{ fontSize: '11px' }}
+            />
+            <YAxis yAxisId="soc" stroke="rgba(255,255,255,0.3)" style={{ fontSize: '11px' }} domain={[0, 100]} unit="%" />
+            <YAxis yAxisId="temp" orientation="right" stroke="rgba(255,255,255,0.3)" style={{ fontSize: '11px' }} unit="°C" />
+            <Tooltip contentStyle={tooltipStyle} labelFormatter={(t) => new Date(t).toLocaleString()} />
+            <Legend wrapperStyle={{ fontSize: '12px' }} />
+            <Line yAxisId="soc" type="monotone" dataKey="socMin" name="SOC min" stroke="#15803d" strokeWidth={1} strokeDasharray="4 4" dot={false} connectNulls />
+            <Line yAxisId="soc" type="monotone" dataKey="socAvg" name="SOC avg" stroke="#22c55e" strokeWidth={2} dot={false} connectNulls />
+            <Line yAxisId="soc" type="monotone" dataKey="socMax" name="SOC max" stroke="#86efac" strokeWidth={1} strokeDasharray="4 4" dot={false} connectNulls />
+            <Line yAxisId="temp" type="monotone" dataKey="batteryTempAvg" name="Battery temp avg" stroke="#f97316" strokeWidth={2} dot={false} connectNulls />
+            <Line yAxisId="temp" type="monotone" dataKey="batteryTempMax" name="Battery temp max" stroke="#ef4444" strokeWidth={1} dot={false} connectNulls />
+          </LineChart>
+        </ResponsiveContainer>
       </motion.div>
 
-      <div className="max-w-md space-y-2">
-        <h1 className="text-3xl font-bold tracking-tight">Advanced Analytics</h1>
-        <p className="text-muted-foreground text-lg">
-          Predictive insights and historical data analysis are currently under development.
-        </p>
-      </div>
-
-      <div className="grid grid-cols-1 md:grid-cols-2 gap-4 text-left max-w-lg w-full mt-8">
-        <div className="p-4 bg-card/50 border border-border/50 rounded-lg">
-          <h3 className="font-semibold mb-1 text-primary">Coming Soon</h3>
-          <p className="text-sm text-muted-foreground">Historical Battery Degradation Trends</p>
+      <motion.div
+        initial={{ opacity: 0, y: 20 }}
+        animate={{ opacity: 1, y: 0 }}
+        transition={{ delay: 0.1 }}
+        className="rounded-xl bg-gradient-to-br from-white/5 to-white/[0.02] border border-white/10 p-6"
+      >
+        <div className="flex items-center gap-2 mb-4">
+          <BatteryCharging className="w-5 h-5 text-green-400" />
+          <h2 className="text-lg">Battery State of Charge</h2>
         </div>
-        <div className="p-4 bg-card/50 border border-border/50 rounded-lg">
-          <h3 className="font-semibold mb-1 text-primary">Coming Soon</h3>
-          <p className="text-sm text-muted-foreground">Predictive Maintenance Alerts</p>
+        <ResponsiveContainer width="100%" height={240}>
+          <LineChart data={points}>
+            <CartesianGrid strokeDasharray="3 3" stroke="rgba(255,255,255,0.05)" />
+            <XAxis
+              dataKey="timestamp"
+              tickFormatter={(t) => formatTick(t, rangeMs)}
+              stroke="rgba(255,255,255,0.3)"
+              style={{ fontSize: '11px' }}
+            />
+            <YAxis stroke="rgba(255,255,255,0.3)" style={{ fontSize: '11px' }} domain={[0, 100]} unit="%" />
+            <Tooltip contentStyle={tooltipStyle} labelFormatter={(t) => new Date(t).toLocaleString()} />
+            <Line type="monotone" dataKey="batterySocPct" name="SOC" stroke="#22c55e" strokeWidth={2} dot={false} connectNulls />
+          </LineChart>
+        </ResponsiveContainer>
+      </motion.div>
+
+      <motion.div
+        initial={{ opacity: 0, y: 20 }}
+        animate={{ opacity: 1, y: 0 }}
+        transition={{ delay: 0.2 }}
+        className="rounded-xl bg-gradient-to-br from-white/5 to-white/[0.02] border border-white/10 p-6"
+      >
+        <div className="flex items-center gap-2 mb-4">
+          <Thermometer className="w-5 h-5 text-orange-400" />
+          <h2 className="text-lg">Temperatures</h2>
         </div>
-      </div>
+        <ResponsiveContainer width="100%" height={240}>
+          <LineChart data={points}>
+            <CartesianGrid strokeDasharray="3 3" stroke="rgba(255,255,255,0.05)" />
+            <XAxis
+              dataKey="timestamp"
+              tickFormatter={(t) => formatTick(t, rangeMs)}
+              stroke="rgba(255,255,255,0.3)"
+              style={{ fontSize: '11px' }}
+            />
+            <YAxis stroke="rgba(255,255,255,0.3)" style={{ fontSize: '11px' }} unit="°C" />
+            <Tooltip contentStyle={tooltipStyle} labelFormatter={(t) => new Date(t).toLocaleString()} />
+            <Legend wrapperStyle={{ fontSize: '12px' }} />
+            <Line type="monotone" dataKey="batteryTempC" name="Battery" stroke="#f97316" strokeWidth={2} dot={false} connectNulls />
+            <Line type="monotone" dataKey="motorTempC" name="Motor" stroke="#ef4444" strokeWidth={2} dot={false} connectNulls />
+            <Line type="monotone" dataKey="ambientTempC" name="Ambient" stroke="#3b82f6" strokeWidth={2} dot={false} connectNulls />
+          </LineChart>
+        </ResponsiveContainer>
+      </motion.div>
     </div>
   );
-}
\ No newline at end of file
+}
@@ -8,7 +8,7 @@ import {
   ResponsiveContainer,
   Tooltip,
 } from 'recharts';
-import { AxionApi, FleetSummary, FleetVehicle } from '../../services/api';
+import { AxionApi, FleetSummary, FleetVehicle, applyTwinChanges, toFleetVehicle } from '../../services/api';
 
 function AnimatedCounter({ value, suffix = '' }: { value: number; suffix?: string }) {
   const [count, setCount] = useState(0);
@@ -57,9 +57,12 @@ export function FleetDashboard() {
       }
     };
 
-    fetchData();
-    const interval = setInterval(fetchData, 3000);
-    return () => clearInterval(interval);
+    // Reload the full state on every (re)connect, then apply pushed changes
+    const close = AxionApi.streamFleetChanges({}, event => {
+      if (event.summary) setSummary(event.summary);
+      setVehicles(current => applyTwinChanges(current, event, toFleetVehicle));
+    }, fetchData);
+    return close;
   }, []);
 
   // Derive Health Distribution
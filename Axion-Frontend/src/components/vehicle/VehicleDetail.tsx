@@ -1,7 +1,7 @@
 import { useState, useEffect } from 'react';
 import { motion, AnimatePresence } from 'motion/react';
 import { ArrowLeft, Battery, Thermometer, Gauge, Clock, Activity, WifiOff, Circle, Zap, Info, Shield, CheckCircle } from 'lucide-react';
-import { AxionApi, VehicleDetail as ApiVehicleDetail } from '../../services/api';
+import { AxionApi, VehicleDetail as ApiVehicleDetail, toFleetVehicle } from '../../services/api';
 
 interface VehicleDetailProps {
   vehicleId: string | null;
@@ -38,9 +38,19 @@ export function VehicleDetail({ vehicleId, onBack }: VehicleDetailProps) {
       }
     };
 
-    fetchVehicle();
-    const interval = setInterval(fetchVehicle, 3000);
-    return () => clearInterval(interval);
+    // Reload the twin on every (re)connect, then apply pushed changes
+    const close = AxionApi.streamFleetChanges({ vehicleIds: [vehicleId] }, event => {
+      const twin = event.updated?.find(t => t.vehicleId === vehicleId);
+      if (twin) {
+        setVehicle({ ...toFleetVehicle(twin), telemetry: twin.telemetry });
+        setIsOnline(twin.online);
+        setSyncStatus('synced');
+      } else if (event.removed?.includes(vehicleId)) {
+        setIsOnline(false);
+        setSyncStatus('outdated');
+      }
+    }, fetchVehicle, () => setSyncStatus('outdated'));
+    return close;
   }, [vehicleId]);
 
   if (!vehicleId) {
@@ -1,7 +1,7 @@
 import { useState, useEffect } from 'react';
 import { motion } from 'motion/react';
 import { Activity, WifiOff, ExternalLink, Battery, Thermometer, TrendingUp } from 'lucide-react';
-import { AxionApi, FleetVehicle } from '../../services/api';
+import { AxionApi, FleetVehicle, applyTwinChanges, toFleetVehicle } from '../../services/api';
 
 interface VehicleListProps {
   onSelectVehicle: (id: string) => void;
@@ -18,25 +18,29 @@ interface Vehicle {
   degradationDrivers?: Array<{ label: string; trend: 'up' | 'down' }>;
 }
 
+function toVehicle(v: FleetVehicle): Vehicle & { vehicleId: string } {
+  return {
+    vehicleId: v.vehicleId,
+    id: v.vehicleId,
+    vendor: v.vendor || 'Unknown',
+    battery: v.battery || 0,
+    temperature: v.temperature || 0,
+    healthScore: v.healthScore || 100,
+    status: v.online ? 'online' : 'offline',
+    lastUpdate: new Date(v.lastSeen).toLocaleTimeString(),
+    degradationDrivers: v.healthScore < 80 ? [{ label: 'Battery Drain', trend: 'up' }] : undefined
+  };
+}
+
 export function VehicleList({ onSelectVehicle }: VehicleListProps) {
-  const [vehicles, setVehicles] = useState<Vehicle[]>([]);
+  const [vehicles, setVehicles] = useState<Array<Vehicle & { vehicleId: string }>>([]);
   const [loading, setLoading] = useState(true);
 
   useEffect(() => {
     const fetchVehicles = async () => {
       try {
         const data = await AxionApi.getFleetVehicles();
-        const mapped: Vehicle[] = data.map((v: FleetVehicle) => ({
-          id: v.vehicleId,
-          vendor: v.vendor || 'Unknown',
-          battery: v.battery || 0,
-          temperature: v.temperature || 0,
-          healthScore: v.healthScore || 100,
-          status: v.online ? 'online' : 'offline',
-          lastUpdate: new Date(v.lastSeen).toLocaleTimeString(),
-          degradationDrivers: v.healthScore < 80 ? [{ label: 'Battery Drain', trend: 'up' }] : undefined
-        }));
-        setVehicles(mapped);
+        setVehicles(data.map(toVehicle));
       } catch (err) {
         console.error("Failed to fetch vehicles", err);
       } finally {
@@ -44,9 +48,11 @@ export function VehicleList({ onSelectVehicle }: VehicleListProps) {
       }
     };
 
-    fetchVehicles();
-    const interval = setInterval(fetchVehicles, 3000); // Poll every 3s
-    return () => clearInterval(interval);
+    // Reload the full list on every (re)connect, then apply pushed changes
+    const close = AxionApi.streamFleetChanges({}, event => {
+      setVehicles(current => applyTwinChanges(current, event, twin => toVehicle(toFleetVehicle(twin))));
+    }, fetchVehicles);
+    return close;
   }, []);
 
   const getHealthStatus = (score: number): { label: string; color: string; glow: string } => {
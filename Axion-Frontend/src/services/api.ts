@@ -39,8 +39,155 @@ export interface VehicleDetail extends FleetVehicle {
   telemetry: TelemetrySnapshot;
 }
 
+export interface FleetVehicleQuery {
+  healthState?: string[];
+  vendor?: string[];
+  online?: boolean;
+  batteryMin?: number;
+  batteryMax?: number;
+  sort?: 'vehicleId' | 'healthScore' | 'battery' | 'temperature' | 'lastSeen';
+  order?: 'asc' | 'desc';
+  limit?: number;
+  cursor?: string;
+}
+
+export interface FleetVehiclePage {
+  vehicles: FleetVehicle[];
+  nextCursor: string | null;
+}
+
+// Averages of one bucket of a vehicle's history, absent where it holds no reading
+export interface HistoryPoint extends TelemetrySnapshot {
+  timestamp: string;
+  samples: number;
+}
+
+export interface VehicleHistory {
+  vehicleId: string;
+  from: string;
+  to: string;
+  stepMs: number;
+  points: HistoryPoint[];
+}
+
+export interface MetricRollup {
+  count: number;
+  min: number;
+  max: number;
+  avg: number;
+  last: number;
+}
+
+// One closed window; a metric is null when the window had no reading of it
+export interface RollupPoint {
+  timestamp: string;
+  batterySocPct: MetricRollup | null;
+  batteryTempC: MetricRollup | null;
+  motorTempC: MetricRollup | null;
+  speedKmph: MetricRollup | null;
+}
+
+export type RollupResolution = '1m' | '5m' | '1h';
+
+export interface Rollups {
+  vehicleId: string | null;
+  resolution: RollupResolution;
+  from: string;
+  to: string;
+  windows: RollupPoint[];
+}
+
+// Twin as stored by the backend, as sent on the change stream
+export interface DigitalTwin {
+  vehicleId: string;
+  vendor: string;
+  online: boolean;
+  lastSeen: string;
+  healthScore: number;
+  healthState: string;
+  packetLossPct?: number;
+  telemetry: TelemetrySnapshot;
+}
+
+// Health or connectivity transition, as published on the alert topic
+export interface VehicleAlert {
+  vehicleId: string;
+  vendor: string;
+  type: 'HEALTH' | 'CONNECTIVITY';
+  severity: 'INFO' | 'WARNING' | 'CRITICAL';
+  from: string | null;
+  to: string;
+  healthScore: number | null;
+  reasons: string[] | null;
+  eventTs: string | null;
+  receivedAt: string | null;
+  detectedAt: string;
+}
+
+export interface AlertQuery {
+  vehicleId?: string;
+  type?: VehicleAlert['type'];
+  minSeverity?: VehicleAlert['severity'];
+  since?: Date;
+  limit?: number;
+}
+
+export interface TwinChangeEvent {
+  updated?: DigitalTwin[];
+  removed?: string[];
+  summary?: FleetSummary;
+}
+
+export interface FleetStreamFilter {
+  vehicleIds?: string[];
+  healthStates?: string[];
+  coalesceMs?: number;
+}
+
+export function toFleetVehicle(twin: DigitalTwin): FleetVehicle {
+  return {
+    vehicleId: twin.vehicleId,
+    vendor: twin.vendor,
+    online: twin.online,
+    healthScore: twin.healthScore,
+    healthState: twin.healthState,
+    lastSeen: twin.lastSeen,
+    battery: twin.telemetry?.batterySocPct ?? 0,
+    temperature: twin.telemetry?.batteryTempC ?? 0,
+  };
+}
+
+// Applies the updates and removals of a change event to a vehicle list, keeping its order
+export function applyTwinChanges<T extends { vehicleId: string }>(
+  current: T[],
+  event: TwinChangeEvent,
+  map: (twin: DigitalTwin) => T
+): T[] {
+  const removed = new Set(event.removed ?? []);
+  const updated = new Map((event.updated ?? []).map(twin => [twin.vehicleId, map(twin)]));
+  const next = current
+    .filter(v => !removed.has(v.vehicleId))
+    .map(v => {
+      const changed = updated.get(v.vehicleId);
+      if (changed) updated.delete(v.vehicleId);
+      return changed ?? v;
+    });
+  return next.concat(Array.from(updated.values()));
+}
+
+function rollupParams(resolution: RollupResolution, from?: Date, to?: Date) {
+  const params = new URLSearchParams({ resolution });
+  if (from) params.set('from', from.toISOString());
+  if (to) params.set('to', to.toISOString());
+  return params;
+}
+
 const BASE_URL = import.meta.env.VITE_API_BASE_URL || 'http://localhost:8080';
 
+// Backoff between attempts to reopen a stream the server ended
+const STREAM_RETRY_MIN_MS = 1000;
+const STREAM_RETRY_MAX_MS = 30000;
+
 export class AxionApi {
 
   static async getFleetSummary(): Promise<FleetSummary> {
@@ -49,18 +196,128 @@ export class AxionApi {
     return res.json();
   }
 
-  static async getFleetVehicles(): Promise<FleetVehicle[]> {
-    const res = await fetch(`${BASE_URL}/api/v1/fleet/vehicles`);
+  static async getFleetVehiclePage(query: FleetVehicleQuery = {}): Promise<FleetVehiclePage> {
+    const params = new URLSearchParams();
+    Object.entries(query).forEach(([key, value]) => {
+      if (value === undefined || value === null || value === '') return;
+      params.set(key, Array.isArray(value) ? value.join(',') : String(value));
+    });
+    const res = await fetch(`${BASE_URL}/api/v1/fleet/vehicles?${params}`);
     if (!res.ok) throw new Error('Failed to fetch vehicles');
     return res.json();
   }
 
+  // Follows the cursor through every page of the listing
+  static async getFleetVehicles(query: FleetVehicleQuery = {}): Promise<FleetVehicle[]> {
+    const vehicles: FleetVehicle[] = [];
+    let cursor: string | null = null;
+    do {
+      const page: FleetVehiclePage = await AxionApi.getFleetVehiclePage({ limit: 1000, ...query, cursor: cursor ?? undefined });
+      vehicles.push(...page.vehicles);
+      cursor = page.nextCursor;
+    } while (cursor);
+    return vehicles;
+  }
+
   static async getVehicle(vehicleId: string): Promise<VehicleDetail> {
     const res = await fetch(`${BASE_URL}/api/v1/fleet/${vehicleId}`);
     if (!res.ok) throw new Error('Failed to fetch vehicle');
     return res.json();
   }
 
+  // Without a range the last hour; the server picks the step when none is given
+  static async getVehicleHistory(vehicleId: string, from?: Date, to?: Date, step?: string): Promise<VehicleHistory> {
+    const params = new URLSearchParams();
+    if (from) params.set('from', from.toISOString());
+    if (to) params.set('to', to.toISOString());
+    if (step) params.set('step', step);
+    const res = await fetch(`${BASE_URL}/api/v1/vehicles/${encodeURIComponent(vehicleId)}/history?${params}`);
+    if (!res.ok) throw new Error('Failed to fetch vehicle history');
+    return res.json();
+  }
+
+  static async getVehicleRollups(vehicleId: string, resolution: RollupResolution, from?: Date, to?: Date): Promise<Rollups> {
+    const res = await fetch(`${BASE_URL}/api/v1/vehicles/${encodeURIComponent(vehicleId)}/rollups?${rollupParams(resolution, from, to)}`);
+    if (!res.ok) throw new Error('Failed to fetch vehicle rollups');
+    return res.json();
+  }
+
+  static async getFleetRollups(resolution: RollupResolution, from?: Date, to?: Date): Promise<Rollups> {
+    const res = await fetch(`${BASE_URL}/api/v1/fleet/rollups?${rollupParams(resolution, from, to)}`);
+    if (!res.ok) throw new Error('Failed to fetch fleet rollups');
+    return res.json();
+  }
+
+  // Newest first, from the alerts the server still holds
+  static async getAlerts(query: AlertQuery = {}): Promise<VehicleAlert[]> {
+    const params = new URLSearchParams();
+    if (query.vehicleId) params.set('vehicleId', query.vehicleId);
+    if (query.type) params.set('type', query.type);
+    if (query.minSeverity) params.set('severity', query.minSeverity);
+    if (query.since) params.set('since', query.since.toISOString());
+    if (query.limit) params.set('limit', String(query.limit));
+    const res = await fetch(`${BASE_URL}/api/v1/alerts?${params}`);
+    if (!res.ok) throw new Error('Failed to fetch alerts');
+    return res.json();
+  }
+
+  /**
+   * Subscribes to the server-sent twin change stream. onOpen fires on every
+   * (re)connect, so callers can reload the full state and not miss changes
+   * made while disconnected. A stream the server ends, for falling behind or
+   * failing, is reopened after a backoff; onError fires on every drop.
+   * Returns a function that closes the stream for good.
+   */
+  static streamFleetChanges(
+    filter: FleetStreamFilter,
+    onChange: (event: TwinChangeEvent) => void,
+    onOpen?: () => void,
+    onError?: () => void
+  ): () => void {
+    const params = new URLSearchParams();
+    if (filter.vehicleIds?.length) params.set('vehicleId', filter.vehicleIds.join(','));
+    if (filter.healthStates?.length) params.set('healthState', filter.healthStates.join(','));
+    if (filter.coalesceMs) params.set('coalesceMs', String(filter.coalesceMs));
+
+    let source: EventSource | null = null;
+    let retry: ReturnType<typeof setTimeout> | undefined;
+    let delayMs = STREAM_RETRY_MIN_MS;
+    let stopped = false;
+
+    const reopen = () => {
+      source?.close();
+      if (stopped) return;
+      retry = setTimeout(connect, delayMs);
+      delayMs = Math.min(delayMs * 2, STREAM_RETRY_MAX_MS);
+    };
+
+    const connect = () => {
+      source = new EventSource(`${BASE_URL}/api/v1/fleet/stream?${params}`);
+      source.addEventListener('twins', e => onChange(JSON.parse((e as MessageEvent).data)));
+      // The server dropped us for falling behind; reconnect, and onOpen resyncs
+      source.addEventListener('slow-consumer', () => {
+        onError?.();
+        reopen();
+      });
+      source.onopen = () => {
+        delayMs = STREAM_RETRY_MIN_MS;
+        onOpen?.();
+      };
+      source.onerror = () => {
+        onError?.();
+        // The browser retries a dropped connection itself, but gives up on an error response
+        if (source?.readyState === EventSource.CLOSED) reopen();
+      };
+    };
+
+    connect();
+    return () => {
+      stopped = true;
+      clearTimeout(retry);
+      source?.close();
+    };
+  }
+
   static async triggerOTA(campaignId: string, vehicleId: string) {
     const params = new URLSearchParams({ campaignId, vehicleId });
     const res = await fetch(`${BASE_URL}/api/v1/ota/trigger?${params}`, {